@@ -98,6 +98,38 @@ public class ActiveRecordPlugin implements IPlugin {
     return this;
   }
 
+  /**
+   * 添加映射并开启该表的实体缓存，findById 等按主键的查询先查缓存，update、delete 之后删除
+   *
+   * @param entityCacheTtl 缓存时间，单位秒，小于 1 时使用缓存的默认配置
+   * @see EntityCache
+   */
+  public ActiveRecordPlugin addMapping(String tableName, String primaryKey, Class<? extends Model<?>> modelClass, int entityCacheTtl) {
+    addMapping(tableName, primaryKey, modelClass);
+    return addEntityCache(tableName, primaryKey, entityCacheTtl);
+  }
+
+  public ActiveRecordPlugin addMapping(String tableName, Class<? extends Model<?>> modelClass, int entityCacheTtl) {
+    addMapping(tableName, modelClass);
+    return addEntityCache(tableName, entityCacheTtl);
+  }
+
+  /**
+   * 开启没有映射 Model 的表的实体缓存，用于 Db.findById 等方法，主键为 Dialect 的默认主键
+   */
+  public ActiveRecordPlugin addEntityCache(String tableName, int ttl) {
+    config.getEntityCache().enable(tableName, ttl);
+    return this;
+  }
+
+  /**
+   * @param primaryKey 表的主键，联合主键用逗号分隔，DbPro 方法按其他列查询时不使用缓存
+   */
+  public ActiveRecordPlugin addEntityCache(String tableName, String primaryKey, int ttl) {
+    config.getEntityCache().enable(tableName, primaryKey, ttl);
+    return this;
+  }
+
   public ActiveRecordPlugin addSqlTemplate(String sqlTemplate) {
     config.sqlKit.addSqlTemplate(sqlTemplate);
     return this;
@@ -149,6 +181,127 @@ public class ActiveRecordPlugin implements IPlugin {
     return this;
   }
 
+  /**
+   * paginate 默认使用的 totalRow 获取方式
+   */
+  public ActiveRecordPlugin setPageCountStrategy(PageCountStrategy pageCountStrategy) {
+    config.setPageCountStrategy(pageCountStrategy);
+    return this;
+  }
+
+  public ActiveRecordPlugin setPageCountCache(String cacheName, int ttl) {
+    config.setPageCountCache(cacheName, ttl);
+    return this;
+  }
+
+  public ActiveRecordPlugin setParallelPageCount(boolean parallelPageCount) {
+    config.setParallelPageCount(parallelPageCount);
+    return this;
+  }
+
+  /**
+   * 并行批处理同时使用的连接数
+   */
+  public ActiveRecordPlugin setBatchParallelism(int batchParallelism) {
+    config.setBatchParallelism(batchParallelism);
+    return this;
+  }
+
+  public ActiveRecordPlugin setBatchVirtualThreads(boolean batchVirtualThreads) {
+    config.setBatchVirtualThreads(batchVirtualThreads);
+    return this;
+  }
+
+  /**
+   * 每个连接在归还到连接池之前最多缓存的 PreparedStatement 数量，默认不缓存
+   */
+  public ActiveRecordPlugin setStatementCacheSize(int statementCacheSize) {
+    config.setStatementCacheSize(statementCacheSize);
+    return this;
+  }
+
+  /**
+   * Db.async() 的线程数，默认为连接池的最大连接数
+   */
+  public ActiveRecordPlugin setAsyncParallelism(int asyncParallelism) {
+    config.setAsyncParallelism(asyncParallelism);
+    return this;
+  }
+
+  public ActiveRecordPlugin setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+    config.setAsyncVirtualThreads(asyncVirtualThreads);
+    return this;
+  }
+
+  /**
+   * Db.async() 的默认超时时间，单位毫秒
+   */
+  public ActiveRecordPlugin setAsyncTimeout(long asyncTimeout) {
+    config.setAsyncTimeout(asyncTimeout);
+    return this;
+  }
+
+  /**
+   * 不在事务中的查询自动路由到从库
+   *
+   * @see Config#setReadFromReplica(boolean)
+   */
+  public ActiveRecordPlugin setReadFromReplica(boolean readFromReplica) {
+    config.setReadFromReplica(readFromReplica);
+    return this;
+  }
+
+  /**
+   * 读己之写，当前线程写入之后 Db.useRead() 只使用已经应用了该写入的从库
+   *
+   * @see ReadYourWrites
+   */
+  public ActiveRecordPlugin setReadYourWrites(boolean readYourWrites) {
+    config.setReadYourWrites(readYourWrites);
+    return this;
+  }
+
+  public ActiveRecordPlugin setReadYourWritesMaxWait(long readYourWritesMaxWait) {
+    config.setReadYourWritesMaxWait(readYourWritesMaxWait);
+    return this;
+  }
+
+  /**
+   * findByCache 等方法未命中时等待其他线程加载结果的最长毫秒数，默认一直等待
+   *
+   * @see CacheLoader
+   */
+  public ActiveRecordPlugin setCacheLoadTimeout(long cacheLoadTimeout) {
+    config.setCacheLoadTimeout(cacheLoadTimeout);
+    return this;
+  }
+
+  /**
+   * findByCache 等方法的值超过 freshSeconds 后在 staleSeconds 内返回旧值并在后台刷新
+   */
+  public ActiveRecordPlugin setCacheStaleWhileRevalidate(int freshSeconds, int staleSeconds) {
+    config.setCacheStaleWhileRevalidate(freshSeconds, staleSeconds);
+    return this;
+  }
+
+  /**
+   * 按表自动失效的查询缓存，写入表之后删除读取了该表的缓存
+   *
+   * @see QueryCache
+   */
+  public ActiveRecordPlugin setQueryCache(boolean queryCache) {
+    config.setQueryCache(queryCache);
+    return this;
+  }
+
+  /**
+   * findByQueryCache 等方法的缓存时间，单位秒，默认 600
+   */
+  public ActiveRecordPlugin setQueryCacheTtl(int queryCacheTtl) {
+    config.setQueryCacheTtl(queryCacheTtl);
+    return this;
+  }
+
   public ActiveRecordPlugin setDevMode(boolean devMode) {
     this.devMode = devMode;
     config.setDevMode(devMode);
@@ -224,6 +377,9 @@ public class ActiveRecordPlugin implements IPlugin {
     config.sqlKit.parseSqlTemplate();
 
     tableBuilder.build(tableList, config);
+    for (Table table : tableList) {
+      config.getEntityCache().mapPrimaryKey(table.getName(), table.getPrimaryKey());
+    }
     DbKit.addConfig(config);
     isStarted = true;
     log.info("{} start sucessfully",config.getName());
@@ -232,6 +388,7 @@ public class ActiveRecordPlugin implements IPlugin {
 
   public boolean stop() {
     DbKit.removeConfig(config.getName());
+    config.shutdownExecutors();
     isStarted = false;
     return true;
   }
@@ -0,0 +1,301 @@
+package nexus.io.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.db.SqlPara;
+import nexus.io.model.db.IAtom;
+import nexus.io.model.page.Page;
+
+/**
+ * DbPro 的异步版本，每个方法在 Config 的 async 线程池中执行，返回 CompletableFuture
+ *
+ * <pre>
+ * 1：线程池大小默认为连接池的最大连接数，队列满时返回的 future 以 RejectedExecutionException 结束，不会阻塞调用线程
+ * 2：超时或调用 future.cancel(...) 时，对正在执行的 Statement 调用 cancel()，尚未开始的任务不再执行
+ * 3：任务在线程池中执行，不在调用线程的事务中，需要事务时使用 tx(...)
+ *
+ * 例如：
+ * CompletableFuture&lt;List&lt;Row&gt;&gt; users = Db.async().find("select * from user where status = ?", 1);
+ * CompletableFuture&lt;Long&gt; count = Db.async().timeout(3, TimeUnit.SECONDS).submit(db -&gt; db.queryLong("select count(*) from orders"));
+ * users.thenCombine(count, (list, total) -&gt; ...);
+ * </pre>
+ */
+@Slf4j
+public class AsyncDbPro {
+
+  static final ThreadLocal<Cancellation> CANCELLATION = new ThreadLocal<>();
+
+  private static final ScheduledThreadPoolExecutor TIMER;
+
+  static {
+    TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread t = new Thread(r, "async-db-timer");
+      t.setDaemon(true);
+      return t;
+    });
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final DbPro db;
+  private final long timeoutMillis;
+
+  AsyncDbPro(DbPro db, long timeoutMillis) {
+    this.db = db;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * 返回使用指定超时时间的 AsyncDbPro，timeout 小于 1 时不超时
+   */
+  public AsyncDbPro timeout(long timeout, TimeUnit unit) {
+    return new AsyncDbPro(db, timeout > 0 ? unit.toMillis(timeout) : 0);
+  }
+
+  public DbPro getDbPro() {
+    return db;
+  }
+
+  /**
+   * 在 async 线程池中执行 action，action 中执行的 sql 都可以被超时或 cancel 中断
+   */
+  public <T> CompletableFuture<T> submit(Function<DbPro, T> action) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Cancellation cancellation = new Cancellation();
+    Runnable task = () -> {
+      // 排队期间已超时或被取消
+      if (future.isDone()) {
+        return;
+      }
+      CANCELLATION.set(cancellation);
+      try {
+        future.complete(action.apply(db));
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      } finally {
+        cancellation.done();
+        CANCELLATION.remove();
+      }
+    };
+
+    try {
+      db.getConfig().getAsyncExecutor().execute(task);
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    if (timeoutMillis > 0) {
+      ScheduledFuture<?> timer = TIMER.schedule(() -> {
+        future.completeExceptionally(new TimeoutException("Database operation timed out after " + timeoutMillis + " ms"));
+      }, timeoutMillis, TimeUnit.MILLISECONDS);
+      future.whenComplete((ret, e) -> timer.cancel(false));
+    }
+    future.whenComplete((ret, e) -> {
+      if (e instanceof TimeoutException || e instanceof CancellationException) {
+        cancellation.cancel();
+      }
+    });
+    return future;
+  }
+
+  public CompletableFuture<List<Row>> find(String sql, Object... paras) {
+    return submit(db -> db.find(sql, paras));
+  }
+
+  public <T> CompletableFuture<List<T>> find(Class<T> clazz, String sql, Object... paras) {
+    return submit(db -> db.find(clazz, sql, paras));
+  }
+
+  public CompletableFuture<List<Row>> find(SqlPara sqlPara) {
+    return submit(db -> db.find(sqlPara));
+  }
+
+  public CompletableFuture<Row> findFirst(String sql, Object... paras) {
+    return submit(db -> db.findFirst(sql, paras));
+  }
+
+  public <T> CompletableFuture<T> findFirst(Class<T> clazz, String sql, Object... paras) {
+    return submit(db -> db.findFirst(clazz, sql, paras));
+  }
+
+  public CompletableFuture<Row> findFirst(SqlPara sqlPara) {
+    return submit(db -> db.findFirst(sqlPara));
+  }
+
+  public CompletableFuture<Row> findById(String tableName, Object idValue) {
+    return submit(db -> db.findById(tableName, idValue));
+  }
+
+  public <T> CompletableFuture<List<T>> query(String sql, Object... paras) {
+    return submit(db -> db.query(sql, paras));
+  }
+
+  public <T> CompletableFuture<T> queryFirst(String sql, Object... paras) {
+    return submit(db -> db.queryFirst(sql, paras));
+  }
+
+  public CompletableFuture<Integer> update(String sql, Object... paras) {
+    return submit(db -> db.update(sql, paras));
+  }
+
+  public CompletableFuture<Integer> update(SqlPara sqlPara) {
+    return submit(db -> db.update(sqlPara));
+  }
+
+  public CompletableFuture<Boolean> save(String tableName, Row record) {
+    return submit(db -> db.save(tableName, record));
+  }
+
+  public CompletableFuture<Boolean> save(String tableName, String primaryKey, Row record) {
+    return submit(db -> db.save(tableName, primaryKey, record));
+  }
+
+  public CompletableFuture<Boolean> update(String tableName, Row record) {
+    return submit(db -> db.update(tableName, record));
+  }
+
+  public CompletableFuture<Boolean> update(String tableName, String primaryKey, Row record) {
+    return submit(db -> db.update(tableName, primaryKey, record));
+  }
+
+  public CompletableFuture<int[]> batch(String sql, Object[][] paras, int batchSize) {
+    return submit(db -> db.batch(sql, paras, batchSize));
+  }
+
+  @SuppressWarnings("rawtypes")
+  public CompletableFuture<int[]> batch(String sql, String columns, List modelOrRecordList, int batchSize) {
+    return submit(db -> db.batch(sql, columns, modelOrRecordList, batchSize));
+  }
+
+  public CompletableFuture<int[]> batch(List<String> sqlList, int batchSize) {
+    return submit(db -> db.batch(sqlList, batchSize));
+  }
+
+  public CompletableFuture<int[]> batchSave(String tableName, List<? extends Row> recordList, int batchSize) {
+    return submit(db -> db.batchSave(tableName, recordList, batchSize));
+  }
+
+  public CompletableFuture<int[]> batchUpdate(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    return submit(db -> db.batchUpdate(tableName, primaryKey, recordList, batchSize));
+  }
+
+  public CompletableFuture<Page<Row>> paginate(int pageNumber, int pageSize, String select, String sqlExceptSelect, Object... paras) {
+    return submit(db -> db.paginate(pageNumber, pageSize, select, sqlExceptSelect, paras));
+  }
+
+  public <T> CompletableFuture<Page<T>> paginate(Class<T> clazz, int pageNumber, int pageSize, String select, String sqlExceptSelect,
+      Object... paras) {
+    return submit(db -> db.paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect, paras));
+  }
+
+  public CompletableFuture<Page<Row>> paginate(int pageNumber, int pageSize, SqlPara sqlPara) {
+    return submit(db -> db.paginate(pageNumber, pageSize, sqlPara));
+  }
+
+  /**
+   * 在 async 线程中执行事务，atom 中通过 Db 执行的 sql 使用该事务的连接，超时或取消时事务回滚
+   */
+  public CompletableFuture<Boolean> tx(IAtom atom) {
+    return submit(db -> db.tx(atom));
+  }
+
+  public CompletableFuture<Boolean> tx(int transactionLevel, IAtom atom) {
+    return submit(db -> db.tx(transactionLevel, atom));
+  }
+
+  /**
+   * 记录异步任务正在执行的 Statement，取消时调用 Statement.cancel()
+   *
+   * <pre>
+   * Config.getConnection 在 async 线程中返回被代理的连接，创建的 Statement 也被代理，
+   * 执行 execute* 前登记为当前 Statement，已取消时直接抛出 SQLException
+   * </pre>
+   */
+  static final class Cancellation {
+
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile Statement current;
+
+    Connection track(Connection conn) {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+          new TrackedInvocationHandler(conn, true));
+    }
+
+    void cancel() {
+      if (done || cancelled) {
+        return;
+      }
+      cancelled = true;
+      Statement st = current;
+      if (st != null && !done) {
+        try {
+          st.cancel();
+        } catch (SQLException | RuntimeException e) {
+          log.warn("Cancel statement error: " + e.getMessage());
+        }
+      }
+    }
+
+    void done() {
+      done = true;
+      current = null;
+    }
+
+    private void checkCancelled() throws SQLException {
+      if (cancelled) {
+        throw new SQLException("Database operation was cancelled");
+      }
+    }
+
+    private class TrackedInvocationHandler implements InvocationHandler {
+      private final Object target;
+      private final boolean connection;
+
+      TrackedInvocationHandler(Object target, boolean connection) {
+        this.target = target;
+        this.connection = connection;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (!connection && name.startsWith("execute")) {
+          checkCancelled();
+          current = (Statement) target;
+          // cancel() 可能在登记之前读取 current
+          checkCancelled();
+        }
+
+        Object ret;
+        try {
+          ret = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+          throw e.getTargetException();
+        }
+
+        if (connection && ret instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+          Class<?> type = method.getReturnType();
+          return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { type }, new TrackedInvocationHandler(ret, false));
+        }
+        return ret;
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package nexus.io.db.activerecord;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.cache.IDbCache;
+import nexus.io.kit.SingleFlight;
+
+/**
+ * findByCache、findFirstByCache、paginateByCache 使用的缓存加载器，防止缓存击穿
+ *
+ * <pre>
+ * 1：同一个 cacheName + key 同时未命中时只有一个线程查询数据库，其他线程等待并共享该结果，
+ *    加载中的同一个线程再次查询相同的 key 时直接查询
+ * 2：等待超过 cacheLoadTimeout 毫秒时自行查询，结果不写入缓存，默认一直等待
+ * 3：开启 stale-while-revalidate 后缓存中保存 CachedValue，超过 fresh 时间后仍返回旧值，由 async 线程池中的一个线程刷新，
+ *    超过 fresh + stale 时间后由缓存过期，带 ttl 的方法使用 ttl 作为 fresh 时间
+ * 4：处于事务中时直接查询，不写入缓存也不参与合并，避免其他线程读取到未提交的数据或共享事务中的异常
+ * 5：loader 返回 null 时不写入缓存，刷新时返回 null 删除缓存中的旧值，避免之后插入的数据在缓存过期前一直查询不到
+ *
+ * 例如：
+ * arp.setCacheLoadTimeout(500).setCacheStaleWhileRevalidate(60, 300);
+ * Db.findByCache("hot", "top10", "select * from article order by hits desc limit 10");
+ * log.info("{}", Db.use().getConfig().getCacheLoader());
+ * </pre>
+ */
+@Slf4j
+public class CacheLoader {
+
+  private final Config config;
+  private final SingleFlight<FlightKey> singleFlight = new SingleFlight<>();
+
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+  private final LongAdder waitTimeouts = new LongAdder();
+
+  CacheLoader(Config config) {
+    this.config = config;
+  }
+
+  /**
+   * 从缓存中获取，未命中时使用 loader 加载并写入缓存
+   */
+  public <T> T get(String cacheName, Object key, Supplier<T> loader) {
+    return get(cacheName, key, -1, loader);
+  }
+
+  /**
+   * @param ttl 写入缓存的 ttl，单位秒，小于 1 时使用缓存的默认配置
+   */
+  public <T> T get(String cacheName, Object key, int ttl, Supplier<T> loader) {
+    return get(cacheName, key, ttl, null, loader);
+  }
+
+  /**
+   * @param tables 查询读取的表，开启 QueryCache 时这些表被写入后删除该缓存，为 null 时不记录
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String cacheName, Object key, int ttl, Set<String> tables, Supplier<T> loader) {
+    IDbCache cache = config.getCache();
+    Object cached = cache.get(cacheName, key);
+    if (cached instanceof CachedValue) {
+      CachedValue value = (CachedValue) cached;
+      if (value.isStale()) {
+        staleHits.increment();
+        refresh(cache, cacheName, key, ttl, tables, loader, value.value);
+      }
+      return (T) value.value;
+    }
+    if (cached != null) {
+      return (T) cached;
+    }
+
+    if (config.isInTransaction()) {
+      // 事务中查询到的可能是未提交的数据，回滚后缓存中会留下不存在的值
+      loads.increment();
+      return loader.get();
+    }
+    return (T) load(cache, cacheName, key, ttl, tables, loader);
+  }
+
+  private Object load(IDbCache cache, String cacheName, Object key, int ttl, Set<String> tables, Supplier<?> loader) {
+    try {
+      return singleFlight.load(new FlightKey(cacheName, key), config.cacheLoadTimeout, () -> {
+        // 获取到加载权之前其他线程可能刚好完成了加载
+        Object cached = cache.get(cacheName, key);
+        return cached != null ? unwrap(cached) : loadAndPut(cache, cacheName, key, ttl, tables, loader);
+      });
+    } catch (TimeoutException e) {
+      waitTimeouts.increment();
+      log.debug("Wait for cache {} key {} timeout, load without cache", cacheName, key);
+      return loader.get();
+    }
+  }
+
+  /**
+   * 在 async 线程池中刷新过期的值，同一个 key 同时只有一个刷新，线程池已满时放弃本次刷新
+   */
+  private void refresh(IDbCache cache, String cacheName, Object key, int ttl, Set<String> tables, Supplier<?> loader,
+      Object staleValue) {
+    singleFlight.loadAsync(new FlightKey(cacheName, key), config.getAsyncExecutor(), () -> {
+      try {
+        return loadAndPut(cache, cacheName, key, ttl, tables, loader);
+      } catch (RuntimeException | Error e) {
+        log.warn("Refresh cache " + cacheName + " key " + key + " error: " + e.getMessage());
+        throw e;
+      }
+    }, staleValue);
+  }
+
+  private Object loadAndPut(IDbCache cache, String cacheName, Object key, int ttl, Set<String> tables, Supplier<?> loader) {
+    loads.increment();
+    QueryCache queryCache = tables != null ? config.queryCache() : null;
+    long[] versions = queryCache != null ? queryCache.versions(tables) : null;
+    Object value = loader.get();
+    if (value == null) {
+      cache.remove(cacheName, key);
+      return null;
+    }
+    int fresh = ttl > 0 ? ttl : config.cacheFreshSeconds;
+    int stale = config.cacheStaleSeconds;
+    if (fresh > 0 && stale > 0) {
+      cache.put(cacheName, key, new CachedValue(value, System.currentTimeMillis() + fresh * 1000L), fresh + stale);
+    } else if (ttl > 0) {
+      cache.put(cacheName, key, value, ttl);
+    } else {
+      cache.put(cacheName, key, value);
+    }
+    if (queryCache != null) {
+      queryCache.register(cache, cacheName, key, tables, versions);
+    }
+    return value;
+  }
+
+  private static Object unwrap(Object cached) {
+    return cached instanceof CachedValue ? ((CachedValue) cached).value : cached;
+  }
+
+  /**
+   * 数据库查询次数
+   */
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  /**
+   * 等待其他线程加载结果的次数
+   */
+  public long getCoalescedCount() {
+    return singleFlight.getCoalescedCount();
+  }
+
+  /**
+   * 返回过期旧值并触发刷新的次数
+   */
+  public long getStaleHitCount() {
+    return staleHits.sum();
+  }
+
+  /**
+   * 等待超时后自行查询的次数
+   */
+  public long getWaitTimeoutCount() {
+    return waitTimeouts.sum();
+  }
+
+  public int getInFlightCount() {
+    return singleFlight.getInFlightCount();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheLoader[loads=" + getLoadCount() + ", coalesced=" + getCoalescedCount() + ", staleHits=" + getStaleHitCount()
+        + ", waitTimeouts=" + getWaitTimeoutCount() + ", inFlight=" + getInFlightCount() + "]";
+  }
+
+  /**
+   * 开启 stale-while-revalidate 时缓存中保存的值
+   */
+  public static final class CachedValue implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object value;
+    private final long freshUntil;
+
+    CachedValue(Object value, long freshUntil) {
+      this.value = value;
+      this.freshUntil = freshUntil;
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    public boolean isStale() {
+      return System.currentTimeMillis() > freshUntil;
+    }
+  }
+
+  private static final class FlightKey {
+    private final String cacheName;
+    private final Object key;
+
+    FlightKey(String cacheName, Object key) {
+      this.cacheName = cacheName;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof FlightKey)) {
+        return false;
+      }
+      FlightKey other = (FlightKey) o;
+      return cacheName.equals(other.cacheName) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return cacheName.hashCode() * 31 + key.hashCode();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package nexus.io.db.activerecord;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 行的列签名，按列名序列 hash-cons，列名序列相同的行得到同一个 ColumnSignature，可以直接用 == 比较
+ *
+ * <pre>
+ * 1：从 root 开始对每个列名调用 append，每次只是一次 HashMap 查找，签名已存在时不分配对象，也不拼接字符串
+ * 2：每次批处理使用一个新的 root，不是线程安全的
+ * 3：rows 记录使用该签名的行在输入 list 中的下标
+ * </pre>
+ */
+final class ColumnSignature {
+
+  private final ColumnSignature parent;
+  private final String column;
+  private final int depth;
+  private Map<String, ColumnSignature> children;
+  private String[] columns;
+
+  private int[] rows;
+  private int rowCount;
+
+  ColumnSignature() {
+    this(null, null, 0);
+  }
+
+  private ColumnSignature(ColumnSignature parent, String column, int depth) {
+    this.parent = parent;
+    this.column = column;
+    this.depth = depth;
+  }
+
+  ColumnSignature append(String column) {
+    if (children == null) {
+      children = new HashMap<>(4);
+    }
+    ColumnSignature child = children.get(column);
+    if (child == null) {
+      child = new ColumnSignature(this, column, depth + 1);
+      children.put(column, child);
+    }
+    return child;
+  }
+
+  boolean isEmpty() {
+    return depth == 0;
+  }
+
+  String[] getColumns() {
+    if (columns == null) {
+      String[] ret = new String[depth];
+      ColumnSignature sig = this;
+      for (int i = depth - 1; i >= 0; i--) {
+        ret[i] = sig.column;
+        sig = sig.parent;
+      }
+      columns = ret;
+    }
+    return columns;
+  }
+
+  /**
+   * @return 是否为该签名的第一行
+   */
+  boolean addRow(int index) {
+    if (rows == null) {
+      rows = new int[8];
+    } else if (rowCount == rows.length) {
+      rows = Arrays.copyOf(rows, rowCount << 1);
+    }
+    rows[rowCount++] = index;
+    return rowCount == 1;
+  }
+
+  int getRow(int i) {
+    return rows[i];
+  }
+
+  int getRowCount() {
+    return rowCount;
+  }
+}
@@ -4,6 +4,14 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
@@ -17,6 +25,7 @@ import nexus.io.db.activerecord.dialect.Dialect;
 import nexus.io.db.activerecord.dialect.MysqlDialect;
 import nexus.io.db.activerecord.sql.SqlKit;
 import nexus.io.db.activerecord.stat.ISqlStatementStat;
+import nexus.io.db.activerecord.stat.SqlStatementTimer;
 import nexus.io.record.RecordConvert;
 
 @Slf4j
@@ -39,6 +48,31 @@ public class Config {
   ISqlStatementStat stat;
   boolean writeSync;
 
+  PageCountStrategy pageCountStrategy = PageCountStrategy.EXACT;
+  String pageCountCacheName = "_page_count";
+  int pageCountCacheTtl = 60;
+  boolean parallelPageCount;
+  private volatile ExecutorService pageCountExecutor;
+  int batchParallelism = Runtime.getRuntime().availableProcessors();
+  boolean batchVirtualThreads;
+  private volatile ExecutorService batchExecutor;
+  StatementCache statementCache;
+  int asyncParallelism;
+  boolean asyncVirtualThreads;
+  long asyncTimeout;
+  private volatile ExecutorService asyncExecutor;
+  ReplicaStats replicaStats;
+  boolean readFromReplica;
+  boolean readYourWrites;
+  long readYourWritesMaxWait = 100;
+  final CacheLoader cacheLoader = new CacheLoader(this);
+  long cacheLoadTimeout;
+  int cacheFreshSeconds;
+  int cacheStaleSeconds;
+  QueryCache queryCache;
+  int queryCacheTtl = 600;
+  final EntityCache entityCache = new EntityCache(this);
+
   private RecordConvert recordConvert;
 
   // For ActiveRecordPlugin only, dataSource can be null
@@ -136,6 +170,449 @@ public class Config {
     return writeSync;
   }
 
+  /**
+   * paginate 默认使用的 totalRow 获取方式，默认为 EXACT
+   */
+  public void setPageCountStrategy(PageCountStrategy pageCountStrategy) {
+    if (pageCountStrategy == null) {
+      throw new IllegalArgumentException("pageCountStrategy can not be null");
+    }
+    this.pageCountStrategy = pageCountStrategy;
+  }
+
+  public PageCountStrategy getPageCountStrategy() {
+    return pageCountStrategy;
+  }
+
+  /**
+   * PageCountStrategy.CACHED 使用的 cacheName 和 ttl (秒)
+   */
+  public void setPageCountCache(String cacheName, int ttl) {
+    if (StrKit.isBlank(cacheName)) {
+      throw new IllegalArgumentException("cacheName can not be blank");
+    }
+    this.pageCountCacheName = cacheName;
+    this.pageCountCacheTtl = ttl;
+  }
+
+  public String getPageCountCacheName() {
+    return pageCountCacheName;
+  }
+
+  public int getPageCountCacheTtl() {
+    return pageCountCacheTtl;
+  }
+
+  /**
+   * 为 true 时 count 与分页查询在两个连接上并行执行，在事务中仍然使用同一个连接顺序执行
+   *
+   * <pre>
+   * 1：每次分页同时占用两个连接，并发较高时连接池的大小需要按两倍估算，否则连接池更容易耗尽
+   * 2：分页查询结束时 count 还没有获取到连接 (连接池已满或获取失败)，放弃并行，在分页查询的连接上顺序 count，
+   *    调用线程不会持有连接等待另一个连接
+   * </pre>
+   */
+  public void setParallelPageCount(boolean parallelPageCount) {
+    this.parallelPageCount = parallelPageCount;
+  }
+
+  public boolean isParallelPageCount() {
+    return parallelPageCount;
+  }
+
+  /**
+   * 并行 count 使用的线程池，线程数为 cpu 核数，队列满或线程池已关闭时拒绝任务，由调用线程在已持有的连接上顺序 count
+   */
+  ExecutorService getPageCountExecutor() {
+    if (pageCountExecutor == null) {
+      synchronized (this) {
+        if (pageCountExecutor == null) {
+          int threads = Runtime.getRuntime().availableProcessors();
+          AtomicInteger counter = new AtomicInteger();
+          ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "page-count-" + name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          };
+          pageCountExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024), threadFactory,
+              new ThreadPoolExecutor.AbortPolicy());
+        }
+      }
+    }
+    return pageCountExecutor;
+  }
+
+  /**
+   * 并行批处理同时使用的连接数，默认为 cpu 核数，不应超过连接池的大小
+   */
+  public void setBatchParallelism(int batchParallelism) {
+    if (batchParallelism < 1) {
+      throw new IllegalArgumentException("batchParallelism must be greater than 0");
+    }
+    this.batchParallelism = batchParallelism;
+    resetBatchExecutor();
+  }
+
+  public int getBatchParallelism() {
+    return batchParallelism;
+  }
+
+  /**
+   * 为 true 时并行批处理使用虚拟线程，运行在 Java 21 以下时仍然使用线程池
+   */
+  public void setBatchVirtualThreads(boolean batchVirtualThreads) {
+    this.batchVirtualThreads = batchVirtualThreads;
+    resetBatchExecutor();
+  }
+
+  public boolean isBatchVirtualThreads() {
+    return batchVirtualThreads;
+  }
+
+  private synchronized void resetBatchExecutor() {
+    if (batchExecutor != null) {
+      batchExecutor.shutdown();
+      batchExecutor = null;
+    }
+  }
+
+  /**
+   * 并行批处理使用的线程池，线程数为 batchParallelism，队列满或线程池已关闭时在调用线程中执行
+   */
+  ExecutorService getBatchExecutor() {
+    if (batchExecutor == null) {
+      synchronized (this) {
+        if (batchExecutor == null) {
+          ExecutorService executor = batchVirtualThreads ? newVirtualThreadExecutor() : null;
+          if (executor == null) {
+            int threads = batchParallelism;
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+              Thread t = new Thread(r, "batch-" + name + "-" + counter.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            };
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024), threadFactory,
+                RUN_IN_CALLER);
+          }
+          batchExecutor = executor;
+        }
+      }
+    }
+    return batchExecutor;
+  }
+
+  /**
+   * 与 CallerRunsPolicy 不同，线程池已关闭时仍然在调用线程中执行，setBatchParallelism、shutdownExecutors
+   * 与提交并发时任务不会被丢弃，调用线程不会一直等待 future
+   */
+  private static final RejectedExecutionHandler RUN_IN_CALLER = (r, executor) -> r.run();
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      log.warn("Virtual threads are not available, use platform threads for batch");
+      return null;
+    }
+  }
+
+  /**
+   * 开启连接上的 PreparedStatement 缓存，size 为每个物理连接最多缓存的 statement 数量，小于 1 时关闭，
+   * 连接归还到连接池后缓存仍然保留，下次借出同一个物理连接时复用
+   * 连接池或驱动已经有 statement 缓存时 (如 Druid 的 PSCache、MySQL 的 cachePrepStmts) 不需要开启
+   */
+  public void setStatementCacheSize(int size) {
+    StatementCache old = statementCache;
+    statementCache = size > 0 ? new StatementCache(size) : null;
+    if (old != null) {
+      old.clear();
+    }
+  }
+
+  /**
+   * 没有开启时返回 null
+   */
+  public StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Db.async() 线程池的线程数，默认为连接池的最大连接数 (HikariCP、Druid、C3p0)，无法获取时为 cpu 核数的 2 倍
+   */
+  public void setAsyncParallelism(int asyncParallelism) {
+    if (asyncParallelism < 1) {
+      throw new IllegalArgumentException("asyncParallelism must be greater than 0");
+    }
+    this.asyncParallelism = asyncParallelism;
+    resetAsyncExecutor();
+  }
+
+  public int getAsyncParallelism() {
+    return asyncParallelism > 0 ? asyncParallelism : defaultAsyncParallelism();
+  }
+
+  /**
+   * 为 true 时 Db.async() 使用虚拟线程，线程数仍然受 asyncParallelism 限制，运行在 Java 21 以下时使用普通线程
+   */
+  public void setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+    this.asyncVirtualThreads = asyncVirtualThreads;
+    resetAsyncExecutor();
+  }
+
+  public boolean isAsyncVirtualThreads() {
+    return asyncVirtualThreads;
+  }
+
+  /**
+   * Db.async() 的默认超时时间，单位毫秒，小于 1 时不超时
+   */
+  public void setAsyncTimeout(long asyncTimeout) {
+    this.asyncTimeout = asyncTimeout;
+  }
+
+  public long getAsyncTimeout() {
+    return asyncTimeout;
+  }
+
+  private synchronized void resetAsyncExecutor() {
+    if (asyncExecutor != null) {
+      asyncExecutor.shutdown();
+      asyncExecutor = null;
+    }
+  }
+
+  /**
+   * 关闭并行 count、并行批处理与 Db.async() 使用的线程池，由 ActiveRecordPlugin.stop() 调用，
+   * 已提交的任务继续执行完，之后再次使用时重新创建
+   */
+  synchronized void shutdownExecutors() {
+    if (pageCountExecutor != null) {
+      pageCountExecutor.shutdown();
+      pageCountExecutor = null;
+    }
+    resetBatchExecutor();
+    resetAsyncExecutor();
+  }
+
+  private int defaultAsyncParallelism() {
+    for (String getter : new String[] { "getMaximumPoolSize", "getMaxActive", "getMaxPoolSize" }) {
+      try {
+        Object size = dataSource.getClass().getMethod(getter).invoke(dataSource);
+        if (size instanceof Integer && (Integer) size > 0) {
+          return (Integer) size;
+        }
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // 不是该连接池
+      }
+    }
+    return Runtime.getRuntime().availableProcessors() * 2;
+  }
+
+  /**
+   * Db.async() 使用的线程池，线程数为 asyncParallelism，队列满时拒绝执行，不阻塞调用线程
+   */
+  ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      synchronized (this) {
+        if (asyncExecutor == null) {
+          int threads = getAsyncParallelism();
+          ThreadFactory threadFactory = asyncVirtualThreads ? newVirtualThreadFactory() : null;
+          if (threadFactory == null) {
+            AtomicInteger counter = new AtomicInteger();
+            threadFactory = r -> {
+              Thread t = new Thread(r, "async-" + name + "-" + counter.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            };
+          }
+          asyncExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024), threadFactory,
+              new ThreadPoolExecutor.AbortPolicy());
+        }
+      }
+    }
+    return asyncExecutor;
+  }
+
+  private static ThreadFactory newVirtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      log.warn("Virtual threads are not available, use platform threads for async");
+      return null;
+    }
+  }
+
+  /**
+   * 为 true 时主库上不在事务中的查询 (Db、DbPro、Model 的 find、query、paginate、cursor 等) 自动路由到从库
+   *
+   * <pre>
+   * 1：从库为 DbKit.addReplicaConfigs 注册的 Config，只对主库 Config 生效
+   * 2：处于 Db.tx、Tx 等事务中，或者 getThreadLocalConnection() 不为 null 时使用主库
+   * 3：单次调用使用主库：Db.usePrimary().find(...)、model.use(configName)；一段代码使用主库：DbKit.readFromPrimary(() -&gt; ...)
+   * </pre>
+   */
+  public void setReadFromReplica(boolean readFromReplica) {
+    this.readFromReplica = readFromReplica;
+  }
+
+  public boolean isReadFromReplica() {
+    return readFromReplica;
+  }
+
+  /**
+   * 读操作使用的 Config
+   *
+   * @see #setReadFromReplica(boolean)
+   */
+  public Config getReadConfig() {
+    if (readFromReplica && this == DbKit.config) {
+      return DbKit.getReadConfig();
+    }
+    return this;
+  }
+
+  /**
+   * 在主库上开启读己之写，当前线程写入之后 Db.useRead() 只使用已经应用了该写入的从库
+   *
+   * @see ReadYourWrites
+   */
+  public void setReadYourWrites(boolean readYourWrites) {
+    this.readYourWrites = readYourWrites;
+  }
+
+  public boolean isReadYourWrites() {
+    return readYourWrites;
+  }
+
+  /**
+   * 没有从库应用当前线程的写入时最多等待的毫秒数，超时后使用主库，默认 100
+   */
+  public void setReadYourWritesMaxWait(long readYourWritesMaxWait) {
+    if (readYourWritesMaxWait < 0) {
+      throw new IllegalArgumentException("readYourWritesMaxWait can not be less than 0");
+    }
+    this.readYourWritesMaxWait = readYourWritesMaxWait;
+  }
+
+  public long getReadYourWritesMaxWait() {
+    return readYourWritesMaxWait;
+  }
+
+  /**
+   * findByCache 等方法的缓存加载器
+   *
+   * @see CacheLoader
+   */
+  public CacheLoader getCacheLoader() {
+    return cacheLoader;
+  }
+
+  /**
+   * 缓存未命中时等待其他线程加载结果的最长毫秒数，超时后自行查询，小于 1 时一直等待
+   */
+  public void setCacheLoadTimeout(long cacheLoadTimeout) {
+    this.cacheLoadTimeout = cacheLoadTimeout;
+  }
+
+  public long getCacheLoadTimeout() {
+    return cacheLoadTimeout;
+  }
+
+  /**
+   * 开启 stale-while-revalidate，staleSeconds 小于 1 时关闭
+   *
+   * @param freshSeconds 不带 ttl 的 findByCache 等方法写入的值在 freshSeconds 秒内不刷新，带 ttl 的方法使用 ttl
+   * @param staleSeconds 超过 fresh 时间之后仍然返回旧值并在后台刷新的秒数
+   */
+  public void setCacheStaleWhileRevalidate(int freshSeconds, int staleSeconds) {
+    this.cacheFreshSeconds = freshSeconds;
+    this.cacheStaleSeconds = staleSeconds;
+  }
+
+  public int getCacheFreshSeconds() {
+    return cacheFreshSeconds;
+  }
+
+  public int getCacheStaleSeconds() {
+    return cacheStaleSeconds;
+  }
+
+  /**
+   * 开启按表自动失效的查询缓存
+   *
+   * @see QueryCache
+   */
+  public void setQueryCache(boolean enabled) {
+    if (!enabled) {
+      queryCache = null;
+    } else if (queryCache == null) {
+      queryCache = new QueryCache();
+    }
+  }
+
+  /**
+   * 没有开启时返回 null
+   */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
+  /**
+   * 从库的缓存依赖记录在主库的 QueryCache 中，主库写入时删除
+   */
+  QueryCache queryCache() {
+    if (replicaStats != null && DbKit.config != null) {
+      return DbKit.config.queryCache;
+    }
+    return queryCache;
+  }
+
+  /**
+   * findByQueryCache 等方法的缓存时间，单位秒，默认 600
+   */
+  public void setQueryCacheTtl(int queryCacheTtl) {
+    this.queryCacheTtl = queryCacheTtl;
+  }
+
+  public int getQueryCacheTtl() {
+    return queryCacheTtl;
+  }
+
+  /**
+   * 按主键缓存整行数据的实体缓存，通过 enable(table, ttl) 按表开启
+   *
+   * @see EntityCache
+   */
+  public EntityCache getEntityCache() {
+    return entityCache;
+  }
+
+  /**
+   * 从库读取的实体也缓存在主库的 EntityCache 中，主库写入时删除
+   */
+  EntityCache entityCache() {
+    return primary().entityCache;
+  }
+
+  /**
+   * 从库返回主库的 Config，其他返回自身
+   */
+  Config primary() {
+    if (replicaStats != null && DbKit.config != null) {
+      return DbKit.config;
+    }
+    return this;
+  }
+
+  /**
+   * 从库的运行状态，不是从库时返回 null
+   */
+  public ReplicaStats getReplicaStats() {
+    return replicaStats;
+  }
+
   /**
    * Create broken config for DbKit.brokenConfig = Config.createBrokenConfig();
    */
@@ -213,16 +690,40 @@ public class Config {
     }
 
     Connection rawConnection;
+    long start = stat != null ? System.nanoTime() : 0;
     try {
       rawConnection = dataSource.getConnection();
     } catch (SQLException e) {
+      if (replicaStats != null) {
+        replicaStats.connectionFailed();
+      }
       throw new RuntimeException(e);
     }
+    if (stat != null) {
+      SqlStatementTimer.connectionAcquired(System.nanoTime() - start);
+    }
+    if (statementCache != null) {
+      rawConnection = statementCache.wrap(rawConnection);
+    }
+    if (replicaStats != null) {
+      rawConnection = replicaStats.track(rawConnection);
+    } else if (readYourWrites) {
+      rawConnection = ReadYourWrites.track(rawConnection);
+    }
+    if (queryCache != null) {
+      rawConnection = queryCache.track(rawConnection);
+    }
+    if (entityCache.isActive()) {
+      rawConnection = entityCache.track(rawConnection);
+    }
     if (showSql) {
-      return new SqlReporter(rawConnection).getConnection();
-    } else {
-      return rawConnection;
+      rawConnection = new SqlReporter(rawConnection).getConnection();
+    }
+    AsyncDbPro.Cancellation cancellation = AsyncDbPro.CANCELLATION.get();
+    if (cancellation != null) {
+      rawConnection = cancellation.track(rawConnection);
     }
+    return rawConnection;
   }
 
   /**
@@ -261,6 +762,9 @@ public class Config {
 
     if (threadLocal.get() == null) { // in transaction if conn in threadlocal
       if (conn != null) {
+        if (stat != null) {
+          SqlStatementTimer.clearConnectionAcquired();
+        }
         try {
           conn.close();
         } catch (SQLException e) {
@@ -281,6 +785,9 @@ public class Config {
 
     if (threadLocal.get() == null) { // in transaction if conn in threadlocal
       if (conn != null) {
+        if (stat != null) {
+          SqlStatementTimer.clearConnectionAcquired();
+        }
         try {
           conn.close();
         } catch (SQLException e) {
@@ -293,6 +800,9 @@ public class Config {
   public void close(Connection conn) {
     if (threadLocal.get() == null) // in transaction if conn in threadlocal
       if (conn != null) {
+        if (stat != null) {
+          SqlStatementTimer.clearConnectionAcquired();
+        }
         try {
           conn.close();
         } catch (SQLException e) {
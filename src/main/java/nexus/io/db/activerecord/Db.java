@@ -9,14 +9,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.postgresql.util.PGobject;
 
 import com.jfinal.kit.SyncWriteMap;
 
 import nexus.io.db.SqlPara;
+import nexus.io.db.activerecord.dialect.CopyFormat;
 import nexus.io.kit.DbTableNameUtils;
 import nexus.io.model.db.IAtom;
 import nexus.io.model.db.ICallback;
@@ -30,9 +32,6 @@ public class Db {
 
   private static DbPro MAIN = null;
   private static List<DbPro> replicas = null;
-  private static int replicaSize = 0;
-
-  private static final AtomicInteger counter = new AtomicInteger(0);
 
   private static final Map<String, DbPro> cache = new SyncWriteMap<String, DbPro>(32, 0.25F);
   private static final Map<String, DbPro> replicaCaches = new SyncWriteMap<String, DbPro>(32, 0.25F);
@@ -46,8 +45,7 @@ public class Db {
   }
 
   public static void initReplicas(List<Config> replicaConfigs) {
-    replicaSize = replicaConfigs.size();
-    replicas = new ArrayList<>(replicaSize);
+    replicas = new ArrayList<>(replicaConfigs.size());
     for (Config config : replicaConfigs) {
       String configName = config.getName();
       DbPro dbPro = config.dbProFactory.getDbPro(configName);
@@ -56,6 +54,14 @@ public class Db {
     }
   }
 
+  /**
+   * for DbKit.removeReplicaConfigs(configs)
+   */
+  static void removeReplicas() {
+    replicas = null;
+    replicaCaches.clear();
+  }
+
   /**
    * for DbKit.removeConfig(configName)
    */
@@ -83,11 +89,20 @@ public class Db {
     return MAIN;
   }
 
+  /**
+   * 使用 ReplicaSelector 选择一个健康的从库，没有从库、全部不健康或主库处于事务中时使用主库
+   * 主库开启 readYourWrites 时只选择已经应用了当前线程写入的从库
+   */
   public static DbPro useRead() {
-    if (replicas != null) {
-      return useReplica();
-    }
-    return MAIN;
+    int index = DbKit.selectReadReplica();
+    return index >= 0 ? replicas.get(index) : MAIN;
+  }
+
+  /**
+   * 主库开启 readFromReplica 时，返回的 DbPro 读操作仍然使用主库
+   */
+  public static DbPro usePrimary() {
+    return MAIN.usePrimary();
   }
 
   public static DbPro useReplica(String configName) {
@@ -103,9 +118,11 @@ public class Db {
     return result;
   }
 
+  /**
+   * 使用 ReplicaSelector 选择一个从库，全部不健康时仍然在所有从库中选择
+   */
   public static DbPro useReplica() {
-    int index = counter.getAndIncrement() % replicaSize;
-    return replicas.get(index);
+    return replicas.get(DbKit.replicaRouter.select());
   }
 
   public static DbPro useReplica(int i) {
@@ -387,7 +404,7 @@ public class Db {
 
   static <T> List<T> query(Config config, Connection conn, String sql, Object... paras) throws SQLException {
     if (replicas != null) {
-      return useReplica().query(config, conn, sql, paras);
+      return useRead().query(config, conn, sql, paras);
     } else {
       return MAIN.query(config, conn, sql, paras);
     }
@@ -398,7 +415,7 @@ public class Db {
    */
   public static <T> List<T> query(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().query(sql, paras);
+      return useRead().query(sql, paras);
     }
 
     return MAIN.query(sql, paras);
@@ -410,7 +427,7 @@ public class Db {
    */
   public static <T> List<T> query(String sql) {
     if (replicas != null) {
-      return useReplica().query(sql);
+      return useRead().query(sql);
     }
 
     return MAIN.query(sql);
@@ -423,7 +440,7 @@ public class Db {
    */
   public static <T> List<T> query(SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().query(sqlPara);
+      return useRead().query(sqlPara);
     }
 
     return MAIN.query(sqlPara);
@@ -441,14 +458,14 @@ public class Db {
    */
   public static <T> T queryFirst(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryFirst(sql, paras);
+      return useRead().queryFirst(sql, paras);
     }
     return MAIN.queryFirst(sql, paras);
   }
 
   public static byte[] quereyBytes(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryBytes(sql, paras);
+      return useRead().queryBytes(sql, paras);
     }
     return MAIN.queryBytes(sql, paras);
   }
@@ -459,7 +476,7 @@ public class Db {
    */
   public static <T> T queryFirst(String sql) {
     if (replicas != null) {
-      return useReplica().queryFirst(sql);
+      return useRead().queryFirst(sql);
     }
     return MAIN.queryFirst(sql);
   }
@@ -476,56 +493,56 @@ public class Db {
    */
   public static <T> T queryColumn(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryFirst(sql, paras);
+      return useRead().queryFirst(sql, paras);
     }
     return MAIN.queryColumn(sql, paras);
   }
 
   public static <T> T queryColumn(String sql) {
     if (replicas != null) {
-      return useReplica().queryColumn(sql);
+      return useRead().queryColumn(sql);
     }
     return MAIN.queryColumn(sql);
   }
 
   public static String queryStr(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryStr(sql, paras);
+      return useRead().queryStr(sql, paras);
     }
     return MAIN.queryStr(sql, paras);
   }
 
   public static String queryStr(String sql) {
     if (replicas != null) {
-      return useReplica().queryStr(sql);
+      return useRead().queryStr(sql);
     }
     return MAIN.queryStr(sql);
   }
 
   public static Integer queryInt(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryInt(sql, paras);
+      return useRead().queryInt(sql, paras);
     }
     return MAIN.queryInt(sql, paras);
   }
 
   public static <T> T queryColumnById(String tableName, String column, Object id) {
     if (replicas != null) {
-      return useReplica().queryColumnById(tableName, column, id);
+      return useRead().queryColumnById(tableName, column, id);
     }
     return MAIN.queryColumnById(tableName, column, id);
   }
 
   public static Long queryLongById(String tableName, String column, Object id) {
     if (replicas != null) {
-      return useReplica().queryColumnById(tableName, column, id);
+      return useRead().queryColumnById(tableName, column, id);
     }
     return MAIN.queryColumnById(tableName, column, id);
   }
 
   public static Long queryStrById(String tableName, String column, Object id) {
     if (replicas != null) {
-      return useReplica().queryColumnById(tableName, column, id);
+      return useRead().queryColumnById(tableName, column, id);
     }
     return MAIN.queryColumnById(tableName, column, id);
   }
@@ -533,210 +550,210 @@ public class Db {
   public static <T> T queryColumnByField(String tableName, String column, String field, Object value) {
 
     if (replicas != null) {
-      return useReplica().queryColumnByField(tableName, column, field, value);
+      return useRead().queryColumnByField(tableName, column, field, value);
     }
     return MAIN.queryColumnByField(tableName, column, field, value);
   }
 
   public static Integer queryInt(String sql) {
     if (replicas != null) {
-      return useReplica().queryInt(sql);
+      return useRead().queryInt(sql);
     }
     return MAIN.queryInt(sql);
   }
 
   public static Long queryLong(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryLong(sql, paras);
+      return useRead().queryLong(sql, paras);
     }
     return MAIN.queryLong(sql, paras);
   }
 
   public static Long queryLong(String sql) {
     if (replicas != null) {
-      return useReplica().queryLong(sql);
+      return useRead().queryLong(sql);
     }
     return MAIN.queryLong(sql);
   }
 
   public static Double queryDouble(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryDouble(sql, paras);
+      return useRead().queryDouble(sql, paras);
     }
     return MAIN.queryDouble(sql, paras);
   }
 
   public static Double queryDouble(String sql) {
     if (replicas != null) {
-      return useReplica().queryDouble(sql);
+      return useRead().queryDouble(sql);
     }
     return MAIN.queryDouble(sql);
   }
 
   public static Float queryFloat(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryFloat(sql, paras);
+      return useRead().queryFloat(sql, paras);
     }
     return MAIN.queryFloat(sql, paras);
   }
 
   public static Float queryFloat(String sql) {
     if (replicas != null) {
-      return useReplica().queryFloat(sql);
+      return useRead().queryFloat(sql);
     }
     return MAIN.queryFloat(sql);
   }
 
   public static BigDecimal queryBigDecimal(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryBigDecimal(sql, paras);
+      return useRead().queryBigDecimal(sql, paras);
     }
     return MAIN.queryBigDecimal(sql, paras);
   }
 
   public static BigDecimal queryBigDecimal(String sql) {
     if (replicas != null) {
-      return useReplica().queryBigDecimal(sql);
+      return useRead().queryBigDecimal(sql);
     }
     return MAIN.queryBigDecimal(sql);
   }
 
   public static BigInteger queryBigInteger(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryBigInteger(sql, paras);
+      return useRead().queryBigInteger(sql, paras);
     }
     return MAIN.queryBigInteger(sql, paras);
   }
 
   public static BigInteger queryBigInteger(String sql) {
     if (replicas != null) {
-      return useReplica().queryBigInteger(sql);
+      return useRead().queryBigInteger(sql);
     }
     return MAIN.queryBigInteger(sql);
   }
 
   public static byte[] queryBytes(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryBytes(sql, paras);
+      return useRead().queryBytes(sql, paras);
     }
     return MAIN.queryBytes(sql, paras);
   }
 
   public static byte[] queryBytes(String sql) {
     if (replicas != null) {
-      return useReplica().queryBytes(sql);
+      return useRead().queryBytes(sql);
     }
     return MAIN.queryBytes(sql);
   }
 
   public static java.util.Date queryDate(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryDate(sql, paras);
+      return useRead().queryDate(sql, paras);
     }
     return MAIN.queryDate(sql, paras);
   }
 
   public static java.util.Date queryDate(String sql) {
     if (replicas != null) {
-      return useReplica().queryDate(sql);
+      return useRead().queryDate(sql);
     }
     return MAIN.queryDate(sql);
   }
 
   public static LocalDateTime queryLocalDateTime(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryLocalDateTime(sql, paras);
+      return useRead().queryLocalDateTime(sql, paras);
     }
     return MAIN.queryLocalDateTime(sql, paras);
   }
 
   public static LocalDateTime queryLocalDateTime(String sql) {
     if (replicas != null) {
-      return useReplica().queryLocalDateTime(sql);
+      return useRead().queryLocalDateTime(sql);
     }
     return MAIN.queryLocalDateTime(sql);
   }
 
   public static java.sql.Time queryTime(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryTime(sql, paras);
+      return useRead().queryTime(sql, paras);
     }
     return MAIN.queryTime(sql, paras);
   }
 
   public static java.sql.Time queryTime(String sql) {
     if (replicas != null) {
-      return useReplica().queryTime(sql);
+      return useRead().queryTime(sql);
     }
     return MAIN.queryTime(sql);
   }
 
   public static java.sql.Timestamp queryTimestamp(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryFirst(sql, paras);
+      return useRead().queryFirst(sql, paras);
     }
     return MAIN.queryTimestamp(sql, paras);
   }
 
   public static java.sql.Timestamp queryTimestamp(String sql) {
     if (replicas != null) {
-      return useReplica().queryTimestamp(sql);
+      return useRead().queryTimestamp(sql);
     }
     return MAIN.queryTimestamp(sql);
   }
 
   public static Boolean queryBoolean(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryBoolean(sql, paras);
+      return useRead().queryBoolean(sql, paras);
     }
     return MAIN.queryBoolean(sql, paras);
   }
 
   public static Boolean queryBoolean(String sql) {
     if (replicas != null) {
-      return useReplica().queryBoolean(sql);
+      return useRead().queryBoolean(sql);
     }
     return MAIN.queryBoolean(sql);
   }
 
   public static Short queryShort(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryShort(sql, paras);
+      return useRead().queryShort(sql, paras);
     }
     return MAIN.queryShort(sql, paras);
   }
 
   public static Short queryShort(String sql) {
     if (replicas != null) {
-      return useReplica().queryShort(sql);
+      return useRead().queryShort(sql);
     }
     return MAIN.queryShort(sql);
   }
 
   public static Byte queryByte(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryByte(sql, paras);
+      return useRead().queryByte(sql, paras);
     }
     return MAIN.queryByte(sql, paras);
   }
 
   public static Byte queryByte(String sql) {
     if (replicas != null) {
-      return useReplica().queryByte(sql);
+      return useRead().queryByte(sql);
     }
     return MAIN.queryByte(sql);
   }
 
   public static Number queryNumber(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryNumber(sql, paras);
+      return useRead().queryNumber(sql, paras);
     }
     return MAIN.queryNumber(sql, paras);
   }
 
   public static Number queryNumber(String sql) {
     if (replicas != null) {
-      return useReplica().queryNumber(sql);
+      return useRead().queryNumber(sql);
     }
     return MAIN.queryNumber(sql);
   }
@@ -754,7 +771,7 @@ public class Db {
    */
   static List<Row> find(Config config, Connection conn, String sql, Object... paras) throws SQLException {
     if (replicas != null) {
-      return useReplica().find(config, conn, sql, paras);
+      return useRead().find(config, conn, sql, paras);
     }
     return MAIN.find(config, conn, sql, paras);
   }
@@ -765,7 +782,7 @@ public class Db {
    */
   public static List<Row> find(String sql) {
     if (replicas != null) {
-      return useReplica().find(sql);
+      return useRead().find(sql);
     }
     return MAIN.find(sql);
   }
@@ -778,7 +795,7 @@ public class Db {
    */
   public static <T> List<T> find(Class<T> clazz, String sql) {
     if (replicas != null) {
-      return useReplica().find(clazz, sql);
+      return useRead().find(clazz, sql);
     }
     return MAIN.find(clazz, sql);
   }
@@ -791,35 +808,35 @@ public class Db {
    */
   public static List<Row> find(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().find(sql, paras);
+      return useRead().find(sql, paras);
     }
     return MAIN.find(sql, paras);
   }
 
   public static List<Row> find(String tableName, Row record) {
     if (replicas != null) {
-      return useReplica().find(tableName, record);
+      return useRead().find(tableName, record);
     }
     return MAIN.find(tableName, record);
   }
 
   public static List<Row> findByField(String tableName, String field, Object fieldValue) {
     if (replicas != null) {
-      return useReplica().findByField(tableName, field, fieldValue);
+      return useRead().findByField(tableName, field, fieldValue);
     }
     return MAIN.findByField(tableName, field, fieldValue);
   }
 
   public static List<Row> find(String tableName, String columns, Row record) {
     if (replicas != null) {
-      return useReplica().find(tableName, columns, record);
+      return useRead().find(tableName, columns, record);
     }
     return MAIN.find(tableName, columns, record);
   }
 
   public static List<Row> findWithJsonField(String sql, String[] jsonFields, Object... paras) {
     if (replicas != null) {
-      return useReplica().findWithJsonField(sql, jsonFields, paras);
+      return useRead().findWithJsonField(sql, jsonFields, paras);
     }
     return MAIN.findWithJsonField(sql, jsonFields, paras);
   }
@@ -833,28 +850,28 @@ public class Db {
    */
   public static <T> List<T> find(Class<T> clazz, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().find(clazz, sql, paras);
+      return useRead().find(clazz, sql, paras);
     }
     return MAIN.find(clazz, sql, paras);
   }
 
   public static List<Row> findIn(String tableName, String primayKey, Object... paras) {
     if (replicas != null) {
-      return useReplica().findIn(tableName, primayKey, paras);
+      return useRead().findIn(tableName, primayKey, paras);
     }
     return MAIN.findIn(tableName, primayKey, paras);
   }
 
   public static List<Row> findColumnsIn(String tableName, String columns, String primayKey, Object... paras) {
     if (replicas != null) {
-      return useReplica().findColumnsIn(tableName, columns, primayKey, paras);
+      return useRead().findColumnsIn(tableName, columns, primayKey, paras);
     }
     return MAIN.findColumnsIn(tableName, columns, primayKey, paras);
   }
 
   public static List<Row> findColumnsIn(String tableName, String columns, String primayKey, List paras) {
     if (replicas != null) {
-      return useReplica().findColumnsIn(tableName, columns, primayKey, paras);
+      return useRead().findColumnsIn(tableName, columns, primayKey, paras);
     }
     return MAIN.findColumnsIn(tableName, columns, primayKey, paras);
   }
@@ -873,7 +890,7 @@ public class Db {
    */
   public static <T> List<T> findAll(Class<T> clazz, String tableName) {
     if (replicas != null) {
-      return useReplica().findAll(clazz, tableName);
+      return useRead().findAll(clazz, tableName);
     }
     return MAIN.findAll(clazz, tableName);
   }
@@ -884,7 +901,7 @@ public class Db {
    */
   public static List<Row> findAll(String tableName) {
     if (replicas != null) {
-      return useReplica().findAll(tableName);
+      return useRead().findAll(tableName);
     }
     return MAIN.findAll(tableName);
   }
@@ -897,7 +914,7 @@ public class Db {
    */
   public static List<Row> findColumns(String tableName, String columns) {
     if (replicas != null) {
-      return useReplica().findColumnsAll(tableName, columns);
+      return useRead().findColumnsAll(tableName, columns);
     }
     return MAIN.findColumnsAll(tableName, columns);
   }
@@ -911,7 +928,7 @@ public class Db {
    */
   public static <T> List<T> findColumns(Class<T> clazz, String tableName, String columns) {
     if (replicas != null) {
-      return useReplica().findColumnsAll(clazz, tableName, columns);
+      return useRead().findColumnsAll(clazz, tableName, columns);
     }
     return MAIN.findColumnsAll(clazz, tableName, columns);
   }
@@ -926,21 +943,21 @@ public class Db {
    */
   public static Row findFirst(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findFirst(sql, paras);
+      return useRead().findFirst(sql, paras);
     }
     return MAIN.findFirst(sql, paras);
   }
 
   public static Row findFirst(String tableName, Row record) {
     if (replicas != null) {
-      return useReplica().findFirst(tableName, record);
+      return useRead().findFirst(tableName, record);
     }
     return MAIN.findFirst(tableName, record);
   }
 
   public static Row findFirst(String tableName, String columns, Row record) {
     if (replicas != null) {
-      return useReplica().findFirst(tableName, columns, record);
+      return useRead().findFirst(tableName, columns, record);
     }
     return MAIN.findFirst(tableName, columns, record);
   }
@@ -954,7 +971,7 @@ public class Db {
    */
   public static <T> T findFirst(Class<T> clazz, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findFirst(clazz, sql, paras);
+      return useRead().findFirst(clazz, sql, paras);
     }
     return MAIN.findFirst(clazz, sql, paras);
   }
@@ -965,7 +982,7 @@ public class Db {
    */
   public static Row findFirst(String sql) {
     if (replicas != null) {
-      return useReplica().findFirst(sql);
+      return useRead().findFirst(sql);
     }
     return MAIN.findFirst(sql);
   }
@@ -978,7 +995,7 @@ public class Db {
    */
   public static <T> T findFirst(Class<T> clazz, String sql) {
     if (replicas != null) {
-      return useReplica().findFirst(clazz, sql);
+      return useRead().findFirst(clazz, sql);
     }
     return MAIN.findFirst(clazz, sql);
   }
@@ -996,14 +1013,14 @@ public class Db {
    */
   public static Row findById(String tableName, Object idValue) {
     if (replicas != null) {
-      return useReplica().findById(tableName, idValue);
+      return useRead().findById(tableName, idValue);
     }
     return MAIN.findById(tableName, idValue);
   }
 
   public static <T> T findById(Class<T> clazz, Object idValue) {
     if (replicas != null) {
-      return useReplica().findById(clazz, idValue);
+      return useRead().findById(clazz, idValue);
     }
     return MAIN.findById(clazz, idValue);
   }
@@ -1017,7 +1034,7 @@ public class Db {
    */
   public static <T> T findById(Class<T> clazz, String tableName, Object idValue) {
     if (replicas != null) {
-      return useReplica().findById(clazz, tableName, idValue);
+      return useRead().findById(clazz, tableName, idValue);
     }
     return MAIN.findById(clazz, tableName, idValue);
   }
@@ -1032,7 +1049,7 @@ public class Db {
    */
   public static <T> T findColumnsById(Class<T> clazz, String tableName, String columns, Object idValue) {
     if (replicas != null) {
-      return useReplica().findColumnsById(clazz, tableName, columns, idValue);
+      return useRead().findColumnsById(clazz, tableName, columns, idValue);
     }
     return MAIN.findColumnsById(clazz, tableName, columns, idValue);
   }
@@ -1045,7 +1062,7 @@ public class Db {
    */
   public static Row findColumnsById(String tableName, String columns, Object idValue) {
     if (replicas != null) {
-      return useReplica().findColumnsById(tableName, columns, idValue);
+      return useRead().findColumnsById(tableName, columns, idValue);
     }
     return MAIN.findColumnsById(tableName, columns, idValue);
   }
@@ -1060,7 +1077,7 @@ public class Db {
    */
   public static Row findColumnsById(String tableName, String columns, String primaryKey, Object idValue) {
     if (replicas != null) {
-      return useReplica().findColumnsById(tableName, columns, primaryKey, idValue);
+      return useRead().findColumnsById(tableName, columns, primaryKey, idValue);
     }
     return MAIN.findColumnsById(tableName, columns, primaryKey, idValue);
   }
@@ -1073,7 +1090,7 @@ public class Db {
    */
   public static Row findById(String tableName, String primaryKey, Object idValue) {
     if (replicas != null) {
-      return useReplica().findById(tableName, primaryKey, idValue);
+      return useRead().findById(tableName, primaryKey, idValue);
     }
     return MAIN.findById(tableName, primaryKey, idValue);
   }
@@ -1088,7 +1105,7 @@ public class Db {
    */
   public static <T> T findById(Class<T> clazz, String tableName, String primaryKey, Object idValue) {
     if (replicas != null) {
-      return useReplica().findById(clazz, tableName, primaryKey, idValue);
+      return useRead().findById(clazz, tableName, primaryKey, idValue);
     }
     return MAIN.findById(clazz, tableName, primaryKey, idValue);
   }
@@ -1109,14 +1126,14 @@ public class Db {
    */
   public static Row findByIds(String tableName, String primaryKey, Object... idValues) {
     if (replicas != null) {
-      return useReplica().findByIds(tableName, primaryKey, idValues);
+      return useRead().findByIds(tableName, primaryKey, idValues);
     }
     return MAIN.findByIds(tableName, primaryKey, idValues);
   }
 
   public static <T> T findByIds(Class<T> clazz, String tableName, String primaryKey, Object... idValues) {
     if (replicas != null) {
-      return useReplica().findByIds(clazz, tableName, primaryKey, idValues);
+      return useRead().findByIds(clazz, tableName, primaryKey, idValues);
     }
     return MAIN.findByIds(clazz, tableName, primaryKey, idValues);
   }
@@ -1130,7 +1147,7 @@ public class Db {
    */
   public static Row findColumnsByIds(String tableName, String columns, String primaryKey, Object... idValues) {
     if (replicas != null) {
-      return useReplica().findColumnsByIds(tableName, columns, primaryKey, idValues);
+      return useRead().findColumnsByIds(tableName, columns, primaryKey, idValues);
     }
     return MAIN.findColumnsByIds(tableName, columns, primaryKey, idValues);
   }
@@ -1147,21 +1164,21 @@ public class Db {
   public static <T> T findColumnsByIds(Class<T> clazz, String tableName, String columns, String primaryKey,
       Object... idValues) {
     if (replicas != null) {
-      return useReplica().findColumnsByIds(clazz, tableName, columns, primaryKey, idValues);
+      return useRead().findColumnsByIds(clazz, tableName, columns, primaryKey, idValues);
     }
     return MAIN.findColumnsByIds(clazz, tableName, columns, primaryKey, idValues);
   }
 
   public static List<Row> findByColumn(String tableName, String column, Object value) {
     if (replicas != null) {
-      return useReplica().findByColumn(tableName, column, value);
+      return useRead().findByColumn(tableName, column, value);
     }
     return MAIN.findByColumn(tableName, column, value);
   }
 
   public static Row findOne(String tableName) {
     if (replicas != null) {
-      return useReplica().findOne(tableName);
+      return useRead().findOne(tableName);
     }
     return MAIN.findOne(tableName);
   }
@@ -1181,11 +1198,49 @@ public class Db {
   static Page<Row> paginate(Config config, Connection conn, int pageNumber, int pageSize, String select,
       String sqlExceptSelect, Object... paras) throws SQLException {
     if (replicas != null) {
-      return useReplica().paginate(config, conn, pageNumber, pageSize, select, sqlExceptSelect, paras);
+      return useRead().paginate(config, conn, pageNumber, pageSize, select, sqlExceptSelect, paras);
     }
     return MAIN.paginate(config, conn, pageNumber, pageSize, select, sqlExceptSelect, paras);
   }
 
+  /**
+   * Model 的分页使用，按 Config.pageCountStrategy 与 parallelPageCount 获取 totalRow
+   */
+  static <T> Page<T> paginatePage(Config config, Connection conn, int pageNumber, int pageSize, Boolean isGroupBySql, String totalRowSql,
+      StringBuilder findSql, Object[] paras, DbPro.PageFinder<T> finder) {
+    if (replicas != null) {
+      return useRead().paginatePage(config, conn, config.pageCountStrategy, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras,
+          finder);
+    }
+    return MAIN.paginatePage(config, conn, config.pageCountStrategy, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras,
+        finder);
+  }
+
+  /**
+   * keyset (seek) 分页，不查询 totalRow，使用 nextCursor 获取下一页
+   * 
+   * <pre>
+   * 例子：
+   * Keyset keyset = Keyset.of("created_at desc, id desc");
+   * KeysetPage&lt;Row&gt; page = Db.paginateByKeyset(20, "select *", "from article where status = ?", keyset, cursor, 1);
+   * </pre>
+   */
+  public static KeysetPage<Row> paginateByKeyset(int pageSize, String select, String sqlExceptSelect, Keyset keyset, String cursor,
+      Object... paras) {
+    if (replicas != null) {
+      return useRead().paginateByKeyset(pageSize, select, sqlExceptSelect, keyset, cursor, paras);
+    }
+    return MAIN.paginateByKeyset(pageSize, select, sqlExceptSelect, keyset, cursor, paras);
+  }
+
+  public static <T> KeysetPage<T> paginateByKeyset(Class<T> clazz, int pageSize, String select, String sqlExceptSelect, Keyset keyset,
+      String cursor, Object... paras) {
+    if (replicas != null) {
+      return useRead().paginateByKeyset(clazz, pageSize, select, sqlExceptSelect, keyset, cursor, paras);
+    }
+    return MAIN.paginateByKeyset(clazz, pageSize, select, sqlExceptSelect, keyset, cursor, paras);
+  }
+
   /**
    * 
    * @param pageNumber
@@ -1195,7 +1250,7 @@ public class Db {
    */
   public static Page<Row> paginate(int pageNumber, int pageSize, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginate(pageNumber, pageSize, sqlPara);
+      return useRead().paginate(pageNumber, pageSize, sqlPara);
     }
     return MAIN.paginate(pageNumber, pageSize, sqlPara);
   }
@@ -1209,7 +1264,7 @@ public class Db {
    */
   public static Page<Row> paginate(int pageNumber, int pageSize, boolean isGroupBySql, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginate(pageNumber, pageSize, isGroupBySql, sqlPara);
+      return useRead().paginate(pageNumber, pageSize, isGroupBySql, sqlPara);
     }
     return MAIN.paginate(pageNumber, pageSize, isGroupBySql, sqlPara);
   }
@@ -1223,7 +1278,7 @@ public class Db {
    */
   public static Page<Row> paginate(int pageNumber, int pageSize, String select, String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginate(pageNumber, pageSize, select, sqlExceptSelect);
+      return useRead().paginate(pageNumber, pageSize, select, sqlExceptSelect);
     }
     return MAIN.paginate(pageNumber, pageSize, select, sqlExceptSelect);
   }
@@ -1239,7 +1294,7 @@ public class Db {
   public static Page<Row> paginate(int pageNumber, int pageSize, boolean isGroupBySql, String select,
       String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
+      return useRead().paginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
     }
     return MAIN.paginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
   }
@@ -1257,7 +1312,7 @@ public class Db {
   public static Page<Row> paginate(int pageNumber, int pageSize, String select, String sqlExceptSelect,
       Object... paras) {
     if (replicas != null) {
-      return useReplica().paginate(pageNumber, pageSize, select, sqlExceptSelect, paras);
+      return useRead().paginate(pageNumber, pageSize, select, sqlExceptSelect, paras);
     }
     return MAIN.paginate(pageNumber, pageSize, select, sqlExceptSelect, paras);
   }
@@ -1274,7 +1329,7 @@ public class Db {
   public static Page<Row> paginate(int pageNumber, int pageSize, boolean isGroupBySql, String select,
       String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
+      return useRead().paginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
     }
     return MAIN.paginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
   }
@@ -1290,7 +1345,7 @@ public class Db {
   public static Page<Row> paginateByFullSql(int pageNumber, int pageSize, String totalRowSql, String findSql,
       Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByFullSql(pageNumber, pageSize, totalRowSql, findSql, paras);
+      return useRead().paginateByFullSql(pageNumber, pageSize, totalRowSql, findSql, paras);
     }
     return MAIN.paginateByFullSql(pageNumber, pageSize, totalRowSql, findSql, paras);
   }
@@ -1307,7 +1362,7 @@ public class Db {
   public static Page<Row> paginateByFullSql(int pageNumber, int pageSize, boolean isGroupBySql, String totalRowSql,
       String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByFullSql(pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
+      return useRead().paginateByFullSql(pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
     }
     return MAIN.paginateByFullSql(pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
   }
@@ -1322,7 +1377,7 @@ public class Db {
    */
   public static <T> Page<T> paginate(Class<T> clazz, int pageNumber, int pageSize, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginate(clazz, pageNumber, pageSize, sqlPara);
+      return useRead().paginate(clazz, pageNumber, pageSize, sqlPara);
     }
     return MAIN.paginate(clazz, pageNumber, pageSize, sqlPara);
   }
@@ -1339,7 +1394,7 @@ public class Db {
   public static <T> Page<T> paginate(Class<T> clazz, int pageNumber, int pageSize, boolean isGroupBySql,
       SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginate(clazz, pageNumber, pageSize, isGroupBySql, sqlPara);
+      return useRead().paginate(clazz, pageNumber, pageSize, isGroupBySql, sqlPara);
     }
     return MAIN.paginate(clazz, pageNumber, pageSize, isGroupBySql, sqlPara);
   }
@@ -1356,7 +1411,7 @@ public class Db {
   public static <T> Page<T> paginate(Class<T> clazz, int pageNumber, int pageSize, String select,
       String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect);
+      return useRead().paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect);
     }
     return MAIN.paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect);
   }
@@ -1374,7 +1429,7 @@ public class Db {
   public static <T> Page<T> paginate(Class<T> clazz, int pageNumber, int pageSize, boolean isGroupBySql, String select,
       String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
+      return useRead().paginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
     }
     return MAIN.paginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
   }
@@ -1392,7 +1447,7 @@ public class Db {
   public static <T> Page<T> paginate(Class<T> clazz, int pageNumber, int pageSize, String select,
       String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect, paras);
+      return useRead().paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect, paras);
     }
     return MAIN.paginate(clazz, pageNumber, pageSize, select, sqlExceptSelect, paras);
   }
@@ -1411,7 +1466,7 @@ public class Db {
   public static <T> Page<T> paginate(Class<T> clazz, int pageNumber, int pageSize, boolean isGroupBySql, String select,
       String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
+      return useRead().paginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
     }
     return MAIN.paginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
   }
@@ -1427,7 +1482,7 @@ public class Db {
   public static <T> Page<T> paginateByFullSql(Class<T> clazz, int pageNumber, int pageSize, String totalRowSql,
       String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByFullSql(clazz, pageNumber, pageSize, totalRowSql, findSql, paras);
+      return useRead().paginateByFullSql(clazz, pageNumber, pageSize, totalRowSql, findSql, paras);
     }
     return MAIN.paginateByFullSql(clazz, pageNumber, pageSize, totalRowSql, findSql, paras);
   }
@@ -1444,7 +1499,7 @@ public class Db {
   public static <T> Page<T> paginateByFullSql(Class<T> clazz, int pageNumber, int pageSize, boolean isGroupBySql,
       String totalRowSql, String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByFullSql(clazz, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
+      return useRead().paginateByFullSql(clazz, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
     }
     return MAIN.paginateByFullSql(clazz, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
   }
@@ -1459,7 +1514,7 @@ public class Db {
    */
   public static Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginateByCache(cacheName, key, pageNumber, pageSize, sqlPara);
+      return useRead().paginateByCache(cacheName, key, pageNumber, pageSize, sqlPara);
     }
     return MAIN.paginateByCache(cacheName, key, pageNumber, pageSize, sqlPara);
   }
@@ -1476,7 +1531,7 @@ public class Db {
   public static Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, sqlPara);
+      return useRead().paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, sqlPara);
     }
     return MAIN.paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, sqlPara);
   }
@@ -1496,7 +1551,7 @@ public class Db {
   public static Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, String select,
       String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCache(cacheName, key, pageNumber, pageSize, select, sqlExceptSelect, paras);
+      return useRead().paginateByCache(cacheName, key, pageNumber, pageSize, select, sqlExceptSelect, paras);
     }
     return MAIN.paginateByCache(cacheName, key, pageNumber, pageSize, select, sqlExceptSelect, paras);
   }
@@ -1515,7 +1570,7 @@ public class Db {
   public static Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, String select, String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect,
+      return useRead().paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect,
           paras);
     }
     return MAIN.paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
@@ -1533,7 +1588,7 @@ public class Db {
   public static Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, String select,
       String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginateByCache(cacheName, key, pageNumber, pageSize, select, sqlExceptSelect);
+      return useRead().paginateByCache(cacheName, key, pageNumber, pageSize, select, sqlExceptSelect);
     }
     return MAIN.paginateByCache(cacheName, key, pageNumber, pageSize, select, sqlExceptSelect);
   }
@@ -1551,7 +1606,7 @@ public class Db {
   public static Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, String select, String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
+      return useRead().paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
     }
     return MAIN.paginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
   }
@@ -1567,7 +1622,7 @@ public class Db {
   public static Page<Row> paginateByCacheByFullSql(String cacheName, Object key, int pageNumber, int pageSize,
       String totalRowSql, String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCacheByFullSql(cacheName, key, pageNumber, pageSize, totalRowSql, findSql, paras);
+      return useRead().paginateByCacheByFullSql(cacheName, key, pageNumber, pageSize, totalRowSql, findSql, paras);
     }
     return MAIN.paginateByCacheByFullSql(cacheName, key, pageNumber, pageSize, totalRowSql, findSql, paras);
   }
@@ -1584,7 +1639,7 @@ public class Db {
   public static Page<Row> paginateByCacheByFullSql(String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, String totalRowSql, String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCacheByFullSql(cacheName, key, pageNumber, pageSize, isGroupBySql, totalRowSql,
+      return useRead().paginateByCacheByFullSql(cacheName, key, pageNumber, pageSize, isGroupBySql, totalRowSql,
           findSql, paras);
     }
     return MAIN.paginateByCacheByFullSql(cacheName, key, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql,
@@ -1607,7 +1662,7 @@ public class Db {
   public static <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, String select, String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, select,
+      return useRead().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, select,
           sqlExceptSelect);
     }
     return MAIN.paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect);
@@ -1628,7 +1683,7 @@ public class Db {
   public static <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, sqlPara);
+      return useRead().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, sqlPara);
     }
     return MAIN.paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, sqlPara);
   }
@@ -1647,7 +1702,7 @@ public class Db {
   public static <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
       SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, sqlPara);
+      return useRead().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, sqlPara);
     }
     return MAIN.paginateByCache(clazz, cacheName, key, pageNumber, pageSize, sqlPara);
   }
@@ -1667,7 +1722,7 @@ public class Db {
   public static <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
       String select, String sqlExceptSelect) {
     if (replicas != null) {
-      return useReplica().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, select, sqlExceptSelect);
+      return useRead().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, select, sqlExceptSelect);
     }
     return MAIN.paginateByCache(clazz, cacheName, key, pageNumber, pageSize, select, sqlExceptSelect);
   }
@@ -1688,7 +1743,7 @@ public class Db {
   public static <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
       String select, String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, select, sqlExceptSelect, paras);
+      return useRead().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, select, sqlExceptSelect, paras);
     }
     return MAIN.paginateByCache(clazz, cacheName, key, pageNumber, pageSize, select, sqlExceptSelect, paras);
   }
@@ -1710,7 +1765,7 @@ public class Db {
   public static <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
       boolean isGroupBySql, String select, String sqlExceptSelect, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, select,
+      return useRead().paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, select,
           sqlExceptSelect, paras);
     }
     return MAIN.paginateByCache(clazz, cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect,
@@ -1732,7 +1787,7 @@ public class Db {
   public static <T> Page<T> paginateByCacheByFullSql(Class<T> clazz, String cacheName, Object cacheKey, int pageNumber,
       int pageSize, String totalRowSql, String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCacheByFullSql(clazz, cacheName, cacheKey, pageNumber, pageSize, totalRowSql,
+      return useRead().paginateByCacheByFullSql(clazz, cacheName, cacheKey, pageNumber, pageSize, totalRowSql,
           findSql, paras);
     }
     return MAIN.paginateByCacheByFullSql(clazz, cacheName, cacheKey, pageNumber, pageSize, totalRowSql, findSql, paras);
@@ -1754,7 +1809,7 @@ public class Db {
   public static <T> Page<T> paginateByCacheByFullSql(Class<T> clazz, String cacheName, Object cacheKey, int pageNumber,
       int pageSize, boolean isGroupBySql, String totalRowSql, String findSql, Object... paras) {
     if (replicas != null) {
-      return useReplica().paginateByCacheByFullSql(clazz, cacheName, cacheKey, pageNumber, pageSize, isGroupBySql,
+      return useRead().paginateByCacheByFullSql(clazz, cacheName, cacheKey, pageNumber, pageSize, isGroupBySql,
           totalRowSql, findSql, paras);
     }
     return MAIN.paginateByCacheByFullSql(clazz, cacheName, cacheKey, pageNumber, pageSize, isGroupBySql, totalRowSql,
@@ -1822,6 +1877,55 @@ public class Db {
     return MAIN.txInNewThread(transactionLevel, atom);
   }
 
+  /**
+   * 例如：Db.async().find("select * from user").thenAccept(list -&gt; ...);
+   *
+   * @see AsyncDbPro
+   */
+  public static AsyncDbPro async() {
+    return MAIN.async();
+  }
+
+  public static AsyncDbPro async(String configName) {
+    return use(configName).async();
+  }
+
+  /**
+   * 多个独立查询并发执行，每个查询使用一个连接
+   *
+   * @see MultiQuery
+   */
+  public static MultiQuery multiQuery() {
+    return new MultiQuery(MAIN);
+  }
+
+  public static MultiQuery multiQuery(String configName) {
+    return new MultiQuery(use(configName));
+  }
+
+  /**
+   * 并发执行多个查询，结果按 sqlParas 的顺序返回，timeout 为所有查询的总超时时间，单位毫秒
+   */
+  public static List<List<Row>> parallelFind(long timeout, SqlPara... sqlParas) {
+    return parallelFind(timeout, false, sqlParas);
+  }
+
+  /**
+   * @param useRead 为 true 时查询轮流路由到从库
+   */
+  @SuppressWarnings("unchecked")
+  public static List<List<Row>> parallelFind(long timeout, boolean useRead, SqlPara... sqlParas) {
+    MultiQuery query = multiQuery().deadline(timeout, TimeUnit.MILLISECONDS).useRead(useRead);
+    for (SqlPara sqlPara : sqlParas) {
+      query.find(sqlPara);
+    }
+    List<List<Row>> ret = new ArrayList<>(sqlParas.length);
+    for (Object result : query.execute()) {
+      ret.add((List<Row>) result);
+    }
+    return ret;
+  }
+
   /**
    * Find Record by cache.
    * 
@@ -1832,14 +1936,14 @@ public class Db {
    */
   public static List<Row> findByCache(String cacheName, Object key, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findByCache(cacheName, key, sql, paras);
+      return useRead().findByCache(cacheName, key, sql, paras);
     }
     return MAIN.findByCache(cacheName, key, sql, paras);
   }
 
   public static <T> List<T> findByCache(Class<T> clazz, String cacheName, Object key, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findByCache(clazz, cacheName, key, sql, paras);
+      return useRead().findByCache(clazz, cacheName, key, sql, paras);
     }
     return MAIN.findByCache(clazz, cacheName, key, sql, paras);
   }
@@ -1849,14 +1953,14 @@ public class Db {
    */
   public static List<Row> findByCache(String cacheName, Object key, String sql) {
     if (replicas != null) {
-      return useReplica().findByCache(cacheName, key, sql);
+      return useRead().findByCache(cacheName, key, sql);
     }
     return MAIN.findByCache(cacheName, key, sql);
   }
 
   public static <T> List<T> findByCache(Class<T> clazz, String cacheName, Object key, String sql) {
     if (replicas != null) {
-      return useReplica().findByCache(clazz, cacheName, key, sql);
+      return useRead().findByCache(clazz, cacheName, key, sql);
     }
     return MAIN.findByCache(clazz, cacheName, key, sql);
   }
@@ -1874,21 +1978,21 @@ public class Db {
    */
   public static Row findFirstByCache(String cacheName, Object key, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(cacheName, key, sql, paras);
+      return useRead().findFirstByCache(cacheName, key, sql, paras);
     }
     return MAIN.findFirstByCache(cacheName, key, sql, paras);
   }
 
   public static Row findFirstByCache(String cacheName, Object key, int ttl, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(cacheName, key, ttl, sql, paras);
+      return useRead().findFirstByCache(cacheName, key, ttl, sql, paras);
     }
     return MAIN.findFirstByCache(cacheName, key, ttl, sql, paras);
   }
 
   public static <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(clazz, cacheName, key, sql, paras);
+      return useRead().findFirstByCache(clazz, cacheName, key, sql, paras);
     }
     return MAIN.findFirstByCache(clazz, cacheName, key, sql, paras);
   }
@@ -1898,28 +2002,28 @@ public class Db {
    */
   public static Row findFirstByCache(String cacheName, Object key, String sql) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(cacheName, key, sql);
+      return useRead().findFirstByCache(cacheName, key, sql);
     }
     return MAIN.findFirstByCache(cacheName, key, sql);
   }
 
   public static Row findFirstByCache(String cacheName, Object key, int ttl, String sql) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(cacheName, key, ttl, sql);
+      return useRead().findFirstByCache(cacheName, key, ttl, sql);
     }
     return MAIN.findFirstByCache(cacheName, key, ttl, sql);
   }
 
   public static <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, String sql) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(clazz, cacheName, key, sql);
+      return useRead().findFirstByCache(clazz, cacheName, key, sql);
     }
     return MAIN.findFirstByCache(clazz, cacheName, key, sql);
   }
 
   public static <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, int ttl, String sql) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(clazz, cacheName, key, ttl, sql);
+      return useRead().findFirstByCache(clazz, cacheName, key, ttl, sql);
     }
     return MAIN.findFirstByCache(clazz, cacheName, key, ttl, sql);
   }
@@ -1927,11 +2031,45 @@ public class Db {
   public static <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, int ttl, String sql,
       Object... paras) {
     if (replicas != null) {
-      return useReplica().findFirstByCache(clazz, cacheName, key, ttl, sql, paras);
+      return useRead().findFirstByCache(clazz, cacheName, key, ttl, sql, paras);
     }
     return MAIN.findFirstByCache(clazz, cacheName, key, ttl, sql, paras);
   }
 
+  /**
+   * 查询结果按 sql 与参数缓存，读取的表被写入之后自动删除，未命中时从主库查询
+   *
+   * @see DbPro#findByQueryCache(String, Object...)
+   * @see QueryCache
+   */
+  public static List<Row> findByQueryCache(String sql, Object... paras) {
+    return MAIN.findByQueryCache(sql, paras);
+  }
+
+  public static List<Row> findByQueryCache(SqlPara sqlPara) {
+    return MAIN.findByQueryCache(sqlPara);
+  }
+
+  public static <T> List<T> findByQueryCache(Class<T> clazz, String sql, Object... paras) {
+    return MAIN.findByQueryCache(clazz, sql, paras);
+  }
+
+  public static Row findFirstByQueryCache(String sql, Object... paras) {
+    return MAIN.findFirstByQueryCache(sql, paras);
+  }
+
+  public static Row findFirstByQueryCache(SqlPara sqlPara) {
+    return MAIN.findFirstByQueryCache(sqlPara);
+  }
+
+  public static Page<Row> paginateByQueryCache(int pageNumber, int pageSize, String select, String sqlExceptSelect, Object... paras) {
+    return MAIN.paginateByQueryCache(pageNumber, pageSize, select, sqlExceptSelect, paras);
+  }
+
+  public static Page<Row> paginateByQueryCache(int pageNumber, int pageSize, SqlPara sqlPara) {
+    return MAIN.paginateByQueryCache(pageNumber, pageSize, sqlPara);
+  }
+
   /**
    * @see DbPro#batch(String, Object[][], int)
    */
@@ -1946,6 +2084,27 @@ public class Db {
     return MAIN.batch(sql, columns, modelOrRecordList, batchSize);
   }
 
+  /**
+   * @see DbPro#parallelBatch(String, String, List, int)
+   */
+  public static int[] parallelBatch(String sql, String columns, List modelOrRecordList, int batchSize) {
+    return MAIN.parallelBatch(sql, columns, modelOrRecordList, batchSize);
+  }
+
+  /**
+   * @see DbPro#parallelBatchSave(String, List, int)
+   */
+  public static int[] parallelBatchSave(String tableName, List<? extends Row> recordList, int batchSize) {
+    return MAIN.parallelBatchSave(tableName, recordList, batchSize);
+  }
+
+  /**
+   * @see DbPro#parallelBatchSave(List, int)
+   */
+  public static int[] parallelBatchSave(List<? extends Model> modelList, int batchSize) {
+    return MAIN.parallelBatchSave(modelList, batchSize);
+  }
+
   /**
    * @see DbPro#batch(List, int)
    */
@@ -1971,6 +2130,55 @@ public class Db {
     return MAIN.batchSave(tableName, jsonFields, recordList, batchSize);
   }
 
+  /**
+   * @see DbPro#batchSaveOrUpdate(String, String, List, int)
+   */
+  public static int[] batchSaveOrUpdate(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    return MAIN.batchSaveOrUpdate(tableName, primaryKey, recordList, batchSize);
+  }
+
+  public static int[] batchSaveOrUpdate(List<? extends Model> modelList, int batchSize) {
+    return MAIN.batchSaveOrUpdate(modelList, batchSize);
+  }
+
+  /**
+   * @see DbPro#batchSaveIfAbset(String, String, List, int)
+   */
+  public static int[] batchSaveIfAbset(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    return MAIN.batchSaveIfAbset(tableName, primaryKey, recordList, batchSize);
+  }
+
+  public static int[] batchSaveIfAbset(List<? extends Model> modelList, int batchSize) {
+    return MAIN.batchSaveIfAbset(modelList, batchSize);
+  }
+
+  /**
+   * @see DbPro#copyIn(String, Iterable)
+   */
+  public static long copyIn(String tableName, Iterable<? extends Row> records) {
+    return MAIN.copyIn(tableName, records);
+  }
+
+  public static long copyIn(String tableName, Iterable<? extends Row> records, CopyFormat format) {
+    return MAIN.copyIn(tableName, records, format);
+  }
+
+  public static long copyIn(Iterable<? extends Model<?>> models) {
+    return MAIN.copyIn(models);
+  }
+
+  public static long copyIn(Iterable<? extends Model<?>> models, CopyFormat format) {
+    return MAIN.copyIn(models, format);
+  }
+
+  public static long copyIn(Class<?> beanClass, Iterable<?> beans) {
+    return MAIN.copyIn(beanClass, beans);
+  }
+
+  public static long copyIn(Class<?> beanClass, Iterable<?> beans, CopyFormat format) {
+    return MAIN.copyIn(beanClass, beans, format);
+  }
+
   public static int[] batchDelete(String tableName, List<? extends Row> recordList, int batchSize) {
     return MAIN.batchDelete(tableName, recordList, batchSize);
   }
@@ -1996,6 +2204,24 @@ public class Db {
     return MAIN.batchUpdate(tableName, recordList, batchSize);
   }
 
+  /**
+   * @see DbPro#batchListSave(String, List, int)
+   */
+  public static int[] batchListSave(String tableName, List<? extends Row> recordList, int batchSize) {
+    return MAIN.batchListSave(tableName, recordList, batchSize);
+  }
+
+  /**
+   * @see DbPro#batchListUpdate(String, String, List, int)
+   */
+  public static int[] batchListUpdate(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    return MAIN.batchListUpdate(tableName, primaryKey, recordList, batchSize);
+  }
+
+  public static int[] batchListUpdate(String tableName, List<? extends Row> recordList, int batchSize) {
+    return MAIN.batchListUpdate(tableName, recordList, batchSize);
+  }
+
   public static String getSql(String key) {
     return MAIN.getSql(key);
   }
@@ -2036,7 +2262,7 @@ public class Db {
    */
   public static List<Row> find(SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().find(sqlPara);
+      return useRead().find(sqlPara);
     }
     return MAIN.find(sqlPara);
   }
@@ -2049,7 +2275,7 @@ public class Db {
    */
   public static <T> List<T> find(Class<T> clazz, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().find(clazz, sqlPara);
+      return useRead().find(clazz, sqlPara);
     }
     return MAIN.find(clazz, sqlPara);
   }
@@ -2061,7 +2287,7 @@ public class Db {
    */
   public static Row findFirst(SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().findFirst(sqlPara);
+      return useRead().findFirst(sqlPara);
     }
     return MAIN.findFirst(sqlPara);
   }
@@ -2075,7 +2301,7 @@ public class Db {
    */
   public static <T> T findFirst(Class<T> clazz, SqlPara sqlPara) {
     if (replicas != null) {
-      return useReplica().findFirst(clazz, sqlPara);
+      return useRead().findFirst(clazz, sqlPara);
     }
     return MAIN.findFirst(clazz, sqlPara);
   }
@@ -2097,11 +2323,90 @@ public class Db {
    */
   public static void each(Function<Row, Boolean> func, String sql, Object... paras) {
     if (replicas != null) {
-      useReplica().each(func, sql, paras);
+      useRead().each(func, sql, paras);
+      return;
     }
     MAIN.each(func, sql, paras);
   }
 
+  /**
+   * 流式查询，逐行读取，未读取完时必须调用 close()
+   * 
+   * <pre>
+   * 例子：
+   * try (DbCursor&lt;Row&gt; cursor = Db.cursor(sql, paras)) {
+   *   while (cursor.hasNext()) {
+   *     Row row = cursor.next();
+   *   }
+   * }
+   * </pre>
+   */
+  public static DbCursor<Row> cursor(String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().cursor(sql, paras);
+    }
+    return MAIN.cursor(sql, paras);
+  }
+
+  public static DbCursor<Row> cursor(int fetchSize, String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().cursor(fetchSize, sql, paras);
+    }
+    return MAIN.cursor(fetchSize, sql, paras);
+  }
+
+  public static <T> DbCursor<T> cursor(Class<T> clazz, String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().cursor(clazz, sql, paras);
+    }
+    return MAIN.cursor(clazz, sql, paras);
+  }
+
+  public static <T> DbCursor<T> cursor(Class<T> clazz, int fetchSize, String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().cursor(clazz, fetchSize, sql, paras);
+    }
+    return MAIN.cursor(clazz, fetchSize, sql, paras);
+  }
+
+  /**
+   * 流式查询，关闭 Stream 时释放连接
+   * 
+   * <pre>
+   * 例子：
+   * try (Stream&lt;User&gt; stream = Db.stream(User.class, sql, paras)) {
+   *   stream.forEach(user -&gt; export(user));
+   * }
+   * </pre>
+   */
+  public static Stream<Row> stream(String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().stream(sql, paras);
+    }
+    return MAIN.stream(sql, paras);
+  }
+
+  public static Stream<Row> stream(int fetchSize, String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().stream(fetchSize, sql, paras);
+    }
+    return MAIN.stream(fetchSize, sql, paras);
+  }
+
+  public static <T> Stream<T> stream(Class<T> clazz, String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().stream(clazz, sql, paras);
+    }
+    return MAIN.stream(clazz, sql, paras);
+  }
+
+  public static <T> Stream<T> stream(Class<T> clazz, int fetchSize, String sql, Object... paras) {
+    if (replicas != null) {
+      return useRead().stream(clazz, fetchSize, sql, paras);
+    }
+    return MAIN.stream(clazz, fetchSize, sql, paras);
+  }
+
   // ---------
 
   /**
@@ -2114,7 +2419,7 @@ public class Db {
    */
   public static DbTemplate template(String key, Map data) {
     if (replicas != null) {
-      return useReplica().template(key, data);
+      return useRead().template(key, data);
     }
     return MAIN.template(key, data);
   }
@@ -2129,7 +2434,7 @@ public class Db {
    */
   public static DbTemplate template(String key, Object... paras) {
     if (replicas != null) {
-      return useReplica().template(key, paras);
+      return useRead().template(key, paras);
     }
     return MAIN.template(key, paras);
   }
@@ -2147,7 +2452,7 @@ public class Db {
    */
   public static DbTemplate templateByString(String content, Map data) {
     if (replicas != null) {
-      return useReplica().templateByString(content, data);
+      return useRead().templateByString(content, data);
     }
     return MAIN.templateByString(content, data);
   }
@@ -2163,14 +2468,14 @@ public class Db {
    */
   public static DbTemplate templateByString(String content, Object... paras) {
     if (replicas != null) {
-      return useReplica().templateByString(content, paras);
+      return useRead().templateByString(content, paras);
     }
     return MAIN.templateByString(content, paras);
   }
 
   public static boolean existsBySql(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().exists(sql, paras);
+      return useRead().exists(sql, paras);
     }
     return MAIN.exists(sql, paras);
   }
@@ -2183,70 +2488,70 @@ public class Db {
    */
   public static boolean exists(String tableName, String fields, Object... paras) {
     if (replicas != null) {
-      return useReplica().exists(tableName, fields, paras);
+      return useRead().exists(tableName, fields, paras);
     }
     return MAIN.exists(tableName, fields, paras);
   }
 
   public static Long count(String sql) {
     if (replicas != null) {
-      return useReplica().count(sql);
+      return useRead().count(sql);
     }
     return MAIN.count(sql);
   }
 
   public static Long countTable(String table) {
     if (replicas != null) {
-      return useReplica().countTable(table);
+      return useRead().countTable(table);
     }
     return MAIN.countTable(table);
   }
 
   public Long countBySql(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryLong(sql, paras);
+      return useRead().queryLong(sql, paras);
     }
     return MAIN.queryLong(sql, paras);
   }
 
   public static List<String> queryListString(String sql) {
     if (replicas != null) {
-      return useReplica().query(sql);
+      return useRead().query(sql);
     }
     return MAIN.query(sql);
   }
 
   public static List<String> queryListString(String sql, Object... params) {
     if (replicas != null) {
-      return useReplica().query(sql, params);
+      return useRead().query(sql, params);
     }
     return MAIN.query(sql, params);
   }
 
   public static List<Integer> queryListInteger(String sql) {
     if (replicas != null) {
-      return useReplica().query(sql);
+      return useRead().query(sql);
     }
     return MAIN.query(sql);
   }
 
   public static List<Integer> queryListInteger(String sql, Object... params) {
     if (replicas != null) {
-      return useReplica().query(sql, params);
+      return useRead().query(sql, params);
     }
     return MAIN.query(sql, params);
   }
 
   public static List<Long> queryListLong(String sql) {
     if (replicas != null) {
-      return useReplica().query(sql);
+      return useRead().query(sql);
     }
     return MAIN.query(sql);
   }
 
   public static List<Long> queryListLong(String sql, Object... params) {
     if (replicas != null) {
-      return useReplica().query(sql, params);
+      return useRead().query(sql, params);
     }
     return MAIN.query(sql, params);
   }
@@ -2257,7 +2562,7 @@ public class Db {
 
   public static PGobject queryPGobject(String sql, Object... paras) {
     if (replicas != null) {
-      return useReplica().queryPGobject(sql, paras);
+      return useRead().queryPGobject(sql, paras);
     }
     return MAIN.queryPGobject(sql, paras);
   }
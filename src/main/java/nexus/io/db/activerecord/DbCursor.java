@@ -0,0 +1,242 @@
+package nexus.io.db.activerecord;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.db.activerecord.RecordBuilder.RowReader;
+import nexus.io.db.activerecord.bean.DefaultRecordConvert;
+import nexus.io.db.activerecord.stat.SqlStatementTimer;
+
+/**
+ * 流式查询游标，逐行从数据库读取，内存占用与结果集大小无关
+ *
+ * <pre>
+ * 1：使用 TYPE_FORWARD_ONLY、CONCUR_READ_ONLY 和 dialect 的 fetchSize
+ *    MySQL 使用 Integer.MIN_VALUE，PostgreSQL 会临时关闭 autocommit
+ * 2：读取完最后一行或调用 close() 后释放 ResultSet、Statement 和连接
+ * 3：未读取完时必须调用 close()，建议使用 try-with-resources
+ * 4：MySQL 流式读取期间连接被独占，处于事务中 (Db.tx、Tx) 时不使用流式读取，结果集由驱动全部读入内存，
+ *    使回调中可以通过 Db 在同一个事务连接上查询、写入
+ *
+ * 例如：
+ * try (DbCursor&lt;Row&gt; cursor = Db.cursor("select * from user")) {
+ *   while (cursor.hasNext()) {
+ *     Row row = cursor.next();
+ *   }
+ * }
+ *
+ * try (Stream&lt;User&gt; stream = Db.stream(User.class, "select * from user where status = ?", 1)) {
+ *   stream.forEach(user -&gt; export(user));
+ * }
+ * </pre>
+ */
+@Slf4j
+public class DbCursor<T> implements Iterator<T>, AutoCloseable {
+
+  private final Config config;
+  private final String sql;
+  private final Object[] paras;
+  private final Connection conn;
+  private final boolean autoCommitChanged;
+  private final SqlStatementTimer timer;
+  private PreparedStatement pst;
+  private ResultSet rs;
+  private RowReader<T> reader;
+
+  private boolean fetched;
+  private boolean closed;
+  private int count;
+
+  /**
+   * beanClass 为 null 时返回 Row
+   */
+  static <T> DbCursor<T> open(Config config, Class<T> beanClass, int fetchSize, String sql, Object... paras) {
+    Connection conn = config.getConnection();
+    boolean autoCommitChanged;
+    try {
+      autoCommitChanged = beginStream(config, conn);
+    } catch (SQLException e) {
+      config.close(conn);
+      throw new ActiveRecordException(e.getMessage(), sql, paras, e);
+    }
+    return new DbCursor<T>(config, conn, autoCommitChanged, beanClass, fetchSize, sql, paras);
+  }
+
+  @SuppressWarnings("unchecked")
+  private DbCursor(Config config, Connection conn, boolean autoCommitChanged, Class<T> beanClass, int fetchSize, String sql, Object[] paras) {
+    this.config = config;
+    this.conn = conn;
+    this.autoCommitChanged = autoCommitChanged;
+    this.sql = sql;
+    this.paras = paras;
+    this.timer = SqlStatementTimer.start(config, "find", sql, paras);
+    try {
+      pst = prepareStream(config, conn, sql, fetchSize);
+      config.dialect.fillStatement(pst, paras);
+      timer.prepared();
+      rs = pst.executeQuery();
+      timer.executed();
+
+      RecordBuilder builder = config.dialect.getRecordBuilder();
+      if (beanClass == null) {
+        reader = (RowReader<T>) builder.rowReader(config, rs);
+      } else if (config.getRecordConvert().getClass() == DefaultRecordConvert.class) {
+        reader = builder.beanReader(config, rs, beanClass);
+      } else {
+        RowReader<Row> rowReader = builder.rowReader(config, rs);
+        reader = r -> config.getRecordConvert().toJavaBean(rowReader.read(r), beanClass);
+      }
+    } catch (SQLException | RuntimeException e) {
+      timer.failed(e);
+      release();
+      if (e instanceof ActiveRecordException) {
+        throw (ActiveRecordException) e;
+      }
+      throw new ActiveRecordException(e.getMessage(), sql, paras, e);
+    }
+  }
+
+  /**
+   * PostgreSQL 只有在关闭 autocommit 时才使用游标读取，已在事务中时不做处理
+   *
+   * @return 是否修改了 autocommit，需要在 endStream 中恢复
+   */
+  static boolean beginStream(Config config, Connection conn) throws SQLException {
+    if (config.dialect.isStreamRequireNoAutoCommit() && !config.isInTransaction() && conn.getAutoCommit()) {
+      conn.setAutoCommit(false);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 事务连接会被回调中的 Db 操作复用，dialect 的流式读取独占连接时改为普通查询
+   */
+  static PreparedStatement prepareStream(Config config, Connection conn, String sql, int fetchSize) throws SQLException {
+    if (config.dialect.isStreamExclusive() && config.isInTransaction()) {
+      log.debug("Streaming is disabled in transaction, the result set will be fully loaded: {}", sql);
+      return conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+    return config.dialect.prepareStreamStatement(conn, sql, fetchSize);
+  }
+
+  static void endStream(Connection conn, boolean autoCommitChanged) {
+    if (!autoCommitChanged) {
+      return;
+    }
+    try {
+      // 只读查询，提交只是为了结束事务
+      conn.commit();
+    } catch (SQLException e) {
+      log.error(e.getMessage(), e);
+    }
+    try {
+      conn.setAutoCommit(true);
+    } catch (SQLException e) {
+      log.error(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (fetched) {
+      return true;
+    }
+    if (closed) {
+      return false;
+    }
+    try {
+      if (rs.next()) {
+        fetched = true;
+        return true;
+      }
+    } catch (SQLException e) {
+      timer.failed(e);
+      release();
+      throw new ActiveRecordException(e.getMessage(), sql, paras, e);
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    fetched = false;
+    try {
+      T ret = reader.read(rs);
+      count++;
+      return ret;
+    } catch (SQLException e) {
+      timer.failed(e);
+      release();
+      throw new ActiveRecordException(e.getMessage(), sql, paras, e);
+    }
+  }
+
+  /**
+   * 转换为 Stream，关闭 Stream 时关闭游标
+   */
+  public Stream<T> stream() {
+    Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(this::close);
+  }
+
+  /**
+   * 已读取的行数
+   */
+  public int getCount() {
+    return count;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    release();
+    timer.done(count);
+  }
+
+  private void release() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    fetched = false;
+    try {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+      if (pst != null) {
+        try {
+          pst.close();
+        } catch (SQLException e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+      endStream(conn, autoCommitChanged);
+    } finally {
+      config.close(conn);
+    }
+  }
+}
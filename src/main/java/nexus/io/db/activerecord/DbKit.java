@@ -5,11 +5,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import com.jfinal.kit.StrKit;
 
@@ -34,8 +35,9 @@ public final class DbKit {
    */
   static Config brokenConfig = Config.createBrokenConfig();
   static List<Config> brokenConfigs = null;
-  
-  private static final AtomicInteger counter = new AtomicInteger(0);
+
+  static ReplicaRouter replicaRouter = null;
+  private static final ThreadLocal<Boolean> readFromPrimary = new ThreadLocal<>();
 
   private static Map<Class<? extends Model>, Config> modelToConfig = new HashMap<Class<? extends Model>, Config>(512, 0.5F);
   private static Map<String, Config> configNameToConfig = new HashMap<String, Config>(32, 0.25F);
@@ -82,6 +84,10 @@ public final class DbKit {
   }
 
   public static void addReplicaConfigs(List<Config> configs) {
+    addReplicaConfigs(configs, new ReplicaRouter(configs, ReplicaSelector.roundRobin()));
+  }
+
+  public static void addReplicaConfigs(List<Config> configs, ReplicaRouter router) {
     for (Config config : configs) {
       if (config == null) {
         throw new IllegalArgumentException("Config can not be null");
@@ -98,10 +104,23 @@ public final class DbKit {
      * first comming Config if it is null
      */
     replicaConfigs = configs;
+    replicaRouter = router;
     Db.initReplicas(replicaConfigs);
 
   }
 
+  /**
+   * 由 ReplicaActiveRecordPlugin.stop() 调用，移除 addReplicaConfigs(configs) 注册的从库路由
+   */
+  static void removeReplicaConfigs(List<Config> configs) {
+    if (replicaConfigs != configs) {
+      return;
+    }
+    replicaConfigs = null;
+    replicaRouter = null;
+    Db.removeReplicas();
+  }
+
   public static Config removeConfig(String configName) {
     if (DbKit.config != null && DbKit.config.getName().equals(configName)) {
       // throw new RuntimeException("Can not remove the main config.");
@@ -120,16 +139,62 @@ public final class DbKit {
     return config;
   }
 
+  /**
+   * 没有健康的从库、主库处于事务中或在 readFromPrimary 中时返回主库的 Config
+   *
+   * @see ReadYourWrites
+   */
   public static Config getReadConfig() {
-    if (replicaConfigs != null) {
-      return useReplica();
+    int index = selectReadReplica();
+    return index >= 0 ? replicaConfigs.get(index) : config;
+  }
+
+  /**
+   * @return 读操作使用的从库下标，返回 -1 时使用主库
+   */
+  static int selectReadReplica() {
+    if (replicaConfigs == null || readFromPrimary.get() != null) {
+      return -1;
+    }
+    if (config != null && config.isInTransaction()) {
+      return -1;
+    }
+    return ReadYourWrites.select(replicaRouter, config);
+  }
+
+  /**
+   * action 中的读操作都使用主库
+   *
+   * <pre>
+   * 例如：
+   * User user = DbKit.readFromPrimary(() -&gt; User.dao.findById(id));
+   * </pre>
+   */
+  public static <T> T readFromPrimary(Supplier<T> action) {
+    if (readFromPrimary.get() != null) {
+      return action.get();
+    }
+    readFromPrimary.set(Boolean.TRUE);
+    try {
+      return action.get();
+    } finally {
+      readFromPrimary.remove();
     }
-    return config;
   }
 
   public static Config useReplica() {
-    int index = counter.getAndIncrement() % replicaConfigs.size();
-    return replicaConfigs.get(index);
+    return replicaConfigs.get(replicaRouter.select());
+  }
+
+  public static ReplicaRouter getReplicaRouter() {
+    return replicaRouter;
+  }
+
+  /**
+   * 所有从库的运行状态，没有从库时返回空 list
+   */
+  public static List<ReplicaStats> getReplicaStats() {
+    return replicaRouter != null ? replicaRouter.getReplicas() : Collections.<ReplicaStats>emptyList();
   }
 
   public static Config getConfig(String configName) {
@@ -303,37 +368,21 @@ public final class DbKit {
     return batchListSave(modelList, DB_BATCH_COUNT, db);
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * 按 record 的列分组批量保存，返回值与 recordList 一一对应
+   *
+   * @see DbPro#batchListSave(String, List, int)
+   */
   public static List<Integer> batchListSave(String tableName, List<? extends Row> recordList, int batchSize, String db) {
     if (recordList == null || recordList.size() == 0)
       return new ArrayList<>();
-    Map<String, BatchInfo> updateMap = new HashMap<>();
-
-    for (Row record : recordList) {
-      Map<String, Object> attrs = record.getColumns();
-      int index = 0;
-      StringBuilder columns = new StringBuilder();
-      // the same as the iterator in Dialect.forModelSave() to ensure the order of the
-      // attrs
-      for (Map.Entry<String, Object> e : attrs.entrySet()) {
-        if (index++ > 0) {
-          columns.append(',');
-        }
-        columns.append(e.getKey());
-      }
-      String cs = columns.toString();
-      BatchInfo batchInfo = updateMap.get(cs);
-      if (batchInfo == null) {
-        batchInfo = new BatchInfo();
-        batchInfo.list = new ArrayList<>();
-        StringBuilder sql = new StringBuilder();
-        Db.use().getConfig().getDialect().forDbSave(tableName, new String[0], record, sql, new ArrayList<>());
-        batchInfo.sql = sql.toString();
-        updateMap.put(cs, batchInfo);
-      }
-      batchInfo.list.add(record);
+    DbPro dbPro = StrKit.isBlank(db) ? Db.use() : Db.use(db);
+    int[] batch = dbPro.batchListSave(tableName, recordList, batchSize);
+    List<Integer> ret = new ArrayList<>(batch.length);
+    for (int i : batch) {
+      ret.add(i);
     }
-    return batchModelList(recordList, batchSize, db, updateMap);
+    return ret;
   }
 
   public static List<Integer> batchListSave(String tableName, List<? extends Row> recordList) {
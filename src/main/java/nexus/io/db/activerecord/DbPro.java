@@ -12,14 +12,26 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.postgresql.util.PGobject;
 
@@ -29,11 +41,17 @@ import com.jfinal.kit.TimeKit;
 import lombok.extern.slf4j.Slf4j;
 import nexus.io.cache.IDbCache;
 import nexus.io.db.SqlPara;
-import nexus.io.db.activerecord.stat.ISqlStatementStat;
+import nexus.io.db.activerecord.bean.BeanMapping;
+import nexus.io.db.activerecord.bean.DefaultRecordConvert;
+import nexus.io.db.activerecord.dialect.CopyFormat;
+import nexus.io.db.activerecord.dialect.Dialect;
+import nexus.io.db.activerecord.dialect.PostgreSqlDialect;
+import nexus.io.db.activerecord.stat.SqlStatementTimer;
 import nexus.io.kit.DbTableNameUtils;
 import nexus.io.model.db.IAtom;
 import nexus.io.model.db.ICallback;
 import nexus.io.model.page.Page;
+import nexus.io.record.RecordConvert;
 
 /**
  * DbPro. Professional database query and update tool.
@@ -45,50 +63,96 @@ public class DbPro {
   private String queryColumnByField = "select %s from %s where %s=?";
 
   public final Config config;
+  // 为 false 时读操作总是使用 config，见 usePrimary()
+  private final boolean routeReads;
+  private volatile DbPro primary;
 
   public DbPro() {
     if (DbKit.config == null) {
       throw new ActiveRecordException("The main config is null, initialize ActiveRecordPlugin first");
     }
     this.config = DbKit.config;
+    this.routeReads = true;
   }
 
   public DbPro(String configName) {
+    this(configName, true);
+  }
+
+  /**
+   * @param routeReads 为 false 时读操作不路由到从库，用于 IDbProFactory.getPrimaryDbPro(...)
+   */
+  protected DbPro(String configName, boolean routeReads) {
     this.config = DbKit.getConfig(configName);
     if (this.config == null) {
       throw new IllegalArgumentException("Config not found by configName: " + configName);
     }
+    this.routeReads = routeReads;
   }
 
   public Config getConfig() {
     return config;
   }
 
+  /**
+   * 返回读操作不路由到从库的 DbPro，由 IDbProFactory.getPrimaryDbPro(...) 创建，不修改 getDbPro(...) 返回的对象
+   *
+   * @see Config#setReadFromReplica(boolean)
+   */
+  public DbPro usePrimary() {
+    if (!routeReads) {
+      return this;
+    }
+    DbPro ret = primary;
+    if (ret == null) {
+      ret = config.dbProFactory.getPrimaryDbPro(config.getName());
+      if (ret.routeReads) {
+        throw new ActiveRecordException(config.dbProFactory.getClass().getName()
+            + ".getPrimaryDbPro(...) must return a DbPro created with routeReads false");
+      }
+      primary = ret;
+    }
+    return ret;
+  }
+
+  /**
+   * 读操作使用的 Config，config 开启 readFromReplica 时在事务外使用从库
+   */
+  protected Config readConfig() {
+    return routeReads ? config.getReadConfig() : config;
+  }
+
   public List<byte[]> queryListBytes(Config config, Connection conn, String sql, Object... paras) {
     List<byte[]> result = new ArrayList();
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "query", sql, paras);
     PreparedStatement pst = null;
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
-    long start = System.currentTimeMillis();
+    timer.prepared();
 
     ResultSet rs = null;
     try {
       rs = pst.executeQuery();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
+    timer.executed();
     int colAmount = 0;
     try {
       colAmount = rs.getMetaData().getColumnCount();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
     if (colAmount > 1) {
@@ -99,25 +163,23 @@ public class DbPro {
           result.add(rs.getBytes(1));
         }
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e.getMessage(), sql, paras, e);
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "query", sql, paras, result.size(), start, elapsed, config.writeSync);
-    }
+    timer.done(result.size());
     return result;
   }
 
   public <T> List<T> query(Config config, Connection conn, String sql, Object... paras) {
     List result = new ArrayList();
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "query", sql, paras);
     try (PreparedStatement pst = conn.prepareStatement(sql)) {
       config.dialect.fillStatement(pst, paras);
-      long start = System.currentTimeMillis();
+      timer.prepared();
       try (ResultSet rs = pst.executeQuery()) {
+        timer.executed();
 
         int colAmount = rs.getMetaData().getColumnCount();
         if (colAmount > 1) {
@@ -133,22 +195,20 @@ public class DbPro {
             result.add(rs.getObject(1));
           }
         }
-        ISqlStatementStat stat = config.getSqlStatementStat();
-        if (stat != null) {
-          long end = System.currentTimeMillis();
-          long elapsed = end - start;
-          stat.save(config.name, "query", sql, paras, result.size(), start, elapsed, config.writeSync);
-        }
+        timer.done(result.size());
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e.getMessage(), sql, paras, e);
       }
       return result;
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
   }
 
   public <T> List<T> query(String sql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -159,6 +219,7 @@ public class DbPro {
   }
 
   public List<byte[]> queryListBytes(String sql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -426,38 +487,39 @@ public class DbPro {
    */
   public int update(Config config, Connection conn, String sql, Object... paras) {
     PreparedStatement pst;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "update", sql, paras);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
 
-    long start = System.currentTimeMillis();
+    timer.prepared();
     int result;
     try {
       result = pst.executeUpdate();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     } finally {
       if (pst != null) {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras, e);
         }
       }
     }
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "update", sql, paras, result, start, elapsed, config.writeSync);
-    }
+    timer.done(result);
     return result;
 
   }
@@ -491,56 +553,61 @@ public class DbPro {
   }
 
   public List<Row> findJsonField(Config config, Connection conn, String sql, String[] jsonFields, Object... paras) {
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "save", sql, paras);
     try (PreparedStatement pst = conn.prepareStatement(sql)) {
       config.dialect.fillStatement(pst, paras);
       List<Row> result = null;
-      long start = System.currentTimeMillis();
+      timer.prepared();
       try (ResultSet rs = pst.executeQuery()) {
+        timer.executed();
         result = config.dialect.buildRecordListWithJsonFields(config, rs, jsonFields); // RecordBuilder.build(config,
                                                                                        // rs);
-        ISqlStatementStat stat = config.getSqlStatementStat();
-        if (stat != null) {
-          long end = System.currentTimeMillis();
-          long elapsed = end - start;
-          stat.save(config.name, "save", sql, paras, result.size(), start, elapsed, config.writeSync);
-        }
+        timer.done(result.size());
       }
       return result;
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
   }
 
   public List<Row> find(Config config, Connection conn, String sql, Object... paras) {
     PreparedStatement pst;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
 
     List<Row> result = null;
     ResultSet rs;
-    long start = System.currentTimeMillis();
+    timer.prepared();
     try {
       rs = pst.executeQuery();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
     try {
       result = config.dialect.buildRecordList(config, rs);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     } finally {
       if (rs != null) {
         try {
           rs.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras, e);
         }
       }
@@ -548,17 +615,13 @@ public class DbPro {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras, e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "find", sql, paras, result.size(), start, elapsed, config.writeSync);
-    }
+    timer.done(result.size());
     return result;
 
   }
@@ -569,34 +632,41 @@ public class DbPro {
     StringBuffer sqlBuffer = config.dialect.forDbFind(tableName, columns, record, paras);
     PreparedStatement pst;
     String sql = sqlBuffer.toString();
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
 
     List<Row> result = null;
     ResultSet rs;
-    long start = System.currentTimeMillis();
+    timer.prepared();
     try {
       rs = pst.executeQuery();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
     try {
       result = config.dialect.buildRecordList(config, rs);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     } finally {
       if (rs != null) {
         try {
           rs.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
@@ -604,17 +674,13 @@ public class DbPro {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "find", sql, paras, result.size(), start, elapsed, config.writeSync);
-    }
+    timer.done(result.size());
     return result;
   }
 
@@ -626,34 +692,41 @@ public class DbPro {
     StringBuffer sqlBuffer = config.dialect.forDbFindByField(tableName, columns, field, fieldValue, paras);
     PreparedStatement pst;
     String sql = sqlBuffer.toString();
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
 
     List<Row> result = null;
     ResultSet rs;
-    long start = System.currentTimeMillis();
+    timer.prepared();
     try {
       rs = pst.executeQuery();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
     try {
       result = config.dialect.buildRecordList(config, rs);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     } finally {
       if (rs != null) {
         try {
           rs.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
@@ -661,55 +734,54 @@ public class DbPro {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "find", sql, paras, result.size(), start, elapsed, config.writeSync);
-    }
+    timer.done(result.size());
     return result;
   }
 
   public List<Row> find(Config config, Connection conn, String sql, List paras) {
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try (PreparedStatement pst = conn.prepareStatement(sql)) {
       config.dialect.fillStatement(pst, paras);
       List<Row> result = null;
-      long start = System.currentTimeMillis();
+      timer.prepared();
       try (ResultSet rs = pst.executeQuery()) {
+        timer.executed();
         result = config.dialect.buildRecordList(config, rs); // RecordBuilder.build(config, rs);
-        ISqlStatementStat stat = config.getSqlStatementStat();
-        if (stat != null) {
-          long end = System.currentTimeMillis();
-          long elapsed = end - start;
-          stat.save(config.name, "find", sql, paras, result.size(), start, elapsed, config.writeSync);
-        }
+        timer.done(result.size());
       }
       return result;
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
   }
 
   public <T> List<T> find(Class<T> clazz, Config config, Connection conn, String sql, Object... paras) {
+    // 使用默认的 RecordConvert 时直接从 ResultSet 创建 bean，不再创建中间的 Row
+    boolean direct = config.getRecordConvert().getClass() == DefaultRecordConvert.class;
     List<Row> result = null;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try (PreparedStatement pst = conn.prepareStatement(sql)) {
       config.dialect.fillStatement(pst, paras);
-      long start = System.currentTimeMillis();
+      timer.prepared();
       try (ResultSet rs = pst.executeQuery()) {
-        result = config.dialect.buildRecordList(config, rs); // RecordBuilder.build(config, rs);
-        ISqlStatementStat stat = config.getSqlStatementStat();
-        if (stat != null) {
-          long end = System.currentTimeMillis();
-          long elapsed = end - start;
-          stat.save(config.name, "find", sql, paras, result.size(), start, elapsed, config.writeSync);
+        timer.executed();
+        if (direct) {
+          List<T> beans = config.dialect.buildBeanList(config, rs, clazz);
+          timer.done(beans.size());
+          return beans;
         }
+        result = config.dialect.buildRecordList(config, rs); // RecordBuilder.build(config, rs);
+        timer.done(result.size());
       }
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
 
@@ -724,6 +796,7 @@ public class DbPro {
    * @see #findWithPrimaryKey(String, String, Object...)
    */
   public List<Row> find(String sql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -734,6 +807,7 @@ public class DbPro {
   }
 
   public List<Row> find(String tableName, Row record) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -744,6 +818,7 @@ public class DbPro {
   }
 
   public List<Row> findByField(String tableName, String field, Object fieldValue) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -754,6 +829,7 @@ public class DbPro {
   }
 
   public List<Row> find(String tableName, String columns, Row record) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -764,6 +840,7 @@ public class DbPro {
   }
 
   public List<Row> find(String sql, List paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -774,6 +851,7 @@ public class DbPro {
   }
 
   public List<Row> findJsonField(String sql, String[] jsonFields, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -784,6 +862,7 @@ public class DbPro {
   }
 
   public List<Row> findWithJsonField(String sql, String[] jsonFields, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -794,6 +873,7 @@ public class DbPro {
   }
 
   public <T> List<T> find(Class<T> clazz, String sql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -825,17 +905,39 @@ public class DbPro {
     return find(clazz, sql, DbKit.NULL_PARA_ARRAY);
   }
 
+  /**
+   * 表开启了实体缓存时先查缓存，未命中的主键合并为一条 in 查询，返回结果按 paras 的顺序排列
+   *
+   * @see EntityCache
+   */
   public List<Row> findIn(String tableName, String primayKey, Object... paras) {
+    EntityCache entityCache = config.entityCache();
+    if (paras.length > 0 && primayKey.indexOf(',') < 0 && entityCache.isCacheable(config, tableName, primayKey)) {
+      List<Map<String, Object>> list = entityCache.getAll(tableName, primayKey, paras, missing -> {
+        List<Map<String, Object>> columns = new ArrayList<>();
+        for (Row row : findFromPrimary(forFindIn(tableName, primayKey, missing.length), missing)) {
+          columns.add(row.getColumns());
+        }
+        return columns;
+      });
+      List<Row> ret = new ArrayList<>(list.size());
+      for (Map<String, Object> columns : list) {
+        ret.add(entityRow(columns));
+      }
+      return ret;
+    }
+    return find(forFindIn(tableName, primayKey, paras.length), paras);
+  }
 
+  private String forFindIn(String tableName, String primayKey, int size) {
     StringBuilder ids = new StringBuilder();
-    for (int i = 0; i < paras.length; i++) {
+    for (int i = 0; i < size; i++) {
       ids.append("?");
-      if (i < paras.length - 1) {
+      if (i < size - 1) {
         ids.append(", ");
       }
     }
-    String sql = String.format("SELECT * FROM %s WHERE " + primayKey + " IN (" + ids.toString() + ")", tableName);
-    return find(sql, paras);
+    return String.format("SELECT * FROM %s WHERE " + primayKey + " IN (" + ids.toString() + ")", tableName);
   }
 
   public List<Row> findColumnsIn(String tableName, String columns, String primayKey, Object... paras) {
@@ -978,14 +1080,49 @@ public class DbPro {
    * @param idValues   the id value of the record, it can be composite id values
    */
   public Row findByIds(String tableName, String primaryKey, Object... idValues) {
+    EntityCache entityCache = config.entityCache();
+    if (entityCache.isCacheable(config, tableName, primaryKey)) {
+      String[] pKeys = primaryKey.split(",");
+      if (pKeys.length != idValues.length) {
+        throw new IllegalArgumentException("primary key number must equals id value number");
+      }
+      Map<String, Object> columns = entityCache.get(tableName, idValues, () -> {
+        List<Row> result = findFromPrimary(config.dialect.forDbFindById(tableName, pKeys), idValues);
+        return result.size() > 0 ? result.get(0).getColumns() : null;
+      });
+      return columns != null ? entityRow(columns) : null;
+    }
     List<Row> result = findWithPrimaryKey(tableName, primaryKey, idValues);
     return result.size() > 0 ? result.get(0) : null;
   }
 
   public <T> T findByIds(Class<T> clazz, String tableName, String primaryKey, Object... idValues) {
-    List<Row> result = findWithPrimaryKey(tableName, primaryKey, idValues);
-    List<T> collect = result.stream().map((e) -> e.toBean(clazz)).collect(Collectors.toList());
-    return result.size() > 0 ? collect.get(0) : null;
+    Row row = findByIds(tableName, primaryKey, idValues);
+    return row != null ? row.toBean(clazz) : null;
+  }
+
+  /**
+   * 实体缓存未命中时从主库查询，避免缓存删除之后从延迟的从库读到旧值并再次缓存
+   */
+  private List<Row> findFromPrimary(String sql, Object... paras) {
+    Config config = this.config.primary();
+    Connection conn = null;
+    try {
+      conn = config.getConnection();
+      return find(config, conn, sql, paras);
+    } finally {
+      config.close(conn);
+    }
+  }
+
+  /**
+   * 实体缓存中的值被多个线程共享，每次返回新的 Row
+   */
+  private Row entityRow(Map<String, Object> columns) {
+    Row row = new Row();
+    row.setColumnsMap(config.containerFactory.getColumnsMap());
+    row.getColumns().putAll(columns);
+    return row;
   }
 
   public Row findColumnsByIds(String tableName, String columns, String primaryKey, Object... idValues) {
@@ -1073,7 +1210,9 @@ public class DbPro {
       throw new IllegalArgumentException("primary key number must equals id value number");
 
     String sql = config.dialect.forDbDeleteById(tableName, pKeys);
-    return update(sql, idValues) >= 1;
+    boolean ret = update(sql, idValues) >= 1;
+    config.entityCache().evict(tableName, primaryKey, idValues);
+    return ret;
   }
 
   /**
@@ -1164,6 +1303,8 @@ public class DbPro {
 
     // 调用下面的delete方法执行SQL
     int result = delete(sql.toString(), paras.toArray());
+    // 无法确定删除了哪些主键
+    config.entityCache().evictAll(tableName);
 
     // 如果受影响的行数大于0，则返回true，表示删除成功
     return result > 0;
@@ -1190,40 +1331,196 @@ public class DbPro {
     return update(sql);
   }
 
-  private <T> Page<T> countPage(Config config, Connection conn, int pageNumber, int pageSize, Boolean isGroupBySql,
-      String totalRowSql, StringBuilder findSql, Object... paras) throws SQLException {
-    if (pageNumber < 1 || pageSize < 1) {
-      throw new ActiveRecordException("pageNumber and pageSize must more than 0");
+  private <T> Page<T> buildPage(int pageNumber, int pageSize, long totalRow) {
+    if (totalRow == 0) {
+      return new Page<T>(new ArrayList<T>(0), pageNumber, pageSize, 0, 0);
     }
-    if (config.dialect.isTakeOverDbPaginate()) {
-      return config.dialect.takeOverDbPaginate(conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
+
+    int totalPage = (int) (totalRow / pageSize);
+    if (totalRow % pageSize != 0) {
+      totalPage++;
     }
 
+    if (pageNumber > totalPage) {
+      return new Page<T>(new ArrayList<T>(0), pageNumber, pageSize, totalPage, (int) totalRow);
+    }
+    Page<T> page = new Page<T>(pageNumber, pageSize, totalPage, (int) totalRow);
+    return page;
+  }
+
+  /**
+   * 按 PageCountStrategy 获取 totalRow
+   */
+  private long countTotalRow(Config config, Connection conn, PageCountStrategy strategy, Boolean isGroupBySql, String totalRowSql,
+      String findSql, Object... paras) throws SQLException {
+    if (strategy == PageCountStrategy.ESTIMATED && !Boolean.TRUE.equals(isGroupBySql)) {
+      long estimated = config.dialect.estimateRowCount(conn, findSql, paras);
+      if (estimated >= 0) {
+        return estimated;
+      }
+    }
+
+    if (strategy == PageCountStrategy.CACHED) {
+      IDbCache cache = config.getCache();
+      String key = pageCountCacheKey(config, isGroupBySql, totalRowSql, paras);
+      // 缓存序列化之后可能返回 Integer
+      Number cached = cache.get(config.pageCountCacheName, key);
+      if (cached != null) {
+        return cached.longValue();
+      }
+      long totalRow = countTotalRow(config, conn, isGroupBySql, totalRowSql, paras);
+      cache.put(config.pageCountCacheName, key, totalRow, config.pageCountCacheTtl);
+      return totalRow;
+    }
+    return countTotalRow(config, conn, isGroupBySql, totalRowSql, paras);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private long countTotalRow(Config config, Connection conn, Boolean isGroupBySql, String totalRowSql, Object... paras) {
     List result = query(config, conn, totalRowSql, paras);
     int size = result.size();
     if (isGroupBySql == null) {
       isGroupBySql = size > 1;
     }
 
-    long totalRow;
     if (isGroupBySql) {
-      totalRow = size;
+      return size;
     } else {
-      totalRow = (size > 0) ? ((Number) result.get(0)).longValue() : 0;
+      return (size > 0) ? ((Number) result.get(0)).longValue() : 0;
     }
-    if (totalRow == 0) {
-      return new Page<T>(new ArrayList<T>(0), pageNumber, pageSize, 0, 0);
+  }
+
+  /**
+   * count sql 中的空白归一化，sql 中的字面量与参数都是 key 的一部分
+   */
+  private String pageCountCacheKey(Config config, Boolean isGroupBySql, String totalRowSql, Object... paras) {
+    StringBuilder key = new StringBuilder(totalRowSql.length() + 32);
+    key.append(config.name).append(':').append(isGroupBySql).append(':');
+    key.append(totalRowSql.trim().replaceAll("\\s+", " "));
+    if (paras != null && paras.length > 0) {
+      key.append(':').append(Arrays.deepToString(paras));
     }
+    return key.toString();
+  }
 
-    int totalPage = (int) (totalRow / pageSize);
-    if (totalRow % pageSize != 0) {
-      totalPage++;
+  /**
+   * 执行分页查询的 find 部分
+   */
+  interface PageFinder<T> {
+    List<T> find(String sql);
+  }
+
+  private <T> Page<T> doPaginatePage(Config config, Connection conn, PageCountStrategy strategy, int pageNumber, int pageSize,
+      Boolean isGroupBySql, String totalRowSql, StringBuilder findSql, Object[] paras, PageFinder<T> finder) {
+    if (pageNumber < 1 || pageSize < 1) {
+      throw new ActiveRecordException("pageNumber and pageSize must more than 0");
+    }
+    if (config.dialect.isTakeOverDbPaginate()) {
+      String countFindSql = findSql.toString();
+      try {
+        return config.dialect.takeOverDbPaginate(conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e.getMessage(), countFindSql, paras, e);
+      }
     }
+    return paginatePage(config, conn, strategy, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras, finder);
+  }
 
-    if (pageNumber > totalPage) {
-      return new Page<T>(new ArrayList<T>(0), pageNumber, pageSize, totalPage, (int) totalRow);
+  /**
+   * 按 PageCountStrategy 获取 totalRow 并查询当前页，Model 的分页通过 Db.paginatePage 调用。
+   * Config.parallelPageCount 为 true 且不在事务中时，count 在另一个连接上与分页查询并行执行
+   */
+  <T> Page<T> paginatePage(Config config, Connection conn, PageCountStrategy strategy, int pageNumber, int pageSize,
+      Boolean isGroupBySql, String totalRowSql, StringBuilder findSql, Object[] paras, PageFinder<T> finder) {
+    // forPaginate 会修改 findSql
+    String countFindSql = findSql.toString();
+
+    if (config.parallelPageCount && !config.isInTransaction()) {
+      Page<T> page = parallelPaginatePage(config, conn, strategy, pageNumber, pageSize, isGroupBySql, totalRowSql, countFindSql,
+          findSql, paras, finder);
+      if (page != null) {
+        return page;
+      }
     }
-    Page<T> page = new Page<T>(pageNumber, pageSize, totalPage, (int) totalRow);
+
+    long totalRow;
+    try {
+      totalRow = countTotalRow(config, conn, strategy, isGroupBySql, totalRowSql, countFindSql, paras);
+    } catch (SQLException e) {
+      throw new ActiveRecordException(e.getMessage(), countFindSql, paras, e);
+    }
+    Page<T> page = buildPage(pageNumber, pageSize, totalRow);
+    // 精确的 totalRow 说明当前页没有数据时不再查询，估算或缓存的 totalRow 可能偏小，仍然查询
+    if (strategy == PageCountStrategy.EXACT && (totalRow == 0 || pageNumber > (totalRow + pageSize - 1) / pageSize)) {
+      return page;
+    }
+    String sql = config.dialect.forPaginate(pageNumber, pageSize, findSql);
+    List<T> list = finder.find(sql);
+    page.setList(list);
+    return page;
+  }
+
+  /**
+   * count 在另一个连接上与分页查询并行执行，count 任务被线程池拒绝时返回 null，由调用方在 conn 上顺序 count
+   */
+  private <T> Page<T> parallelPaginatePage(Config config, Connection conn, PageCountStrategy strategy, int pageNumber, int pageSize,
+      Boolean isGroupBySql, String totalRowSql, String countFindSql, StringBuilder findSql, Object[] paras, PageFinder<T> finder) {
+    // count 任务获取到连接之后才认领 count，调用线程查询完当前页时还没有被认领则由调用线程认领，
+    // 不等待连接池，避免连接池耗尽时调用线程持有连接等待 count、count 等待连接
+    AtomicBoolean claimed = new AtomicBoolean();
+    Future<Long> future;
+    try {
+      future = config.getPageCountExecutor().submit(() -> {
+        Connection countConn = config.getConnection();
+        try {
+          if (!claimed.compareAndSet(false, true)) {
+            return null;
+          }
+          return countTotalRow(config, countConn, strategy, isGroupBySql, totalRowSql, countFindSql, paras);
+        } finally {
+          config.close(countConn);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // 队列已满或线程池已关闭，不能在调用线程中执行：调用线程持有 conn 时再获取连接，连接池耗尽时死锁
+      return null;
+    }
+
+    String sql = config.dialect.forPaginate(pageNumber, pageSize, findSql);
+    List<T> list;
+    try {
+      list = finder.find(sql);
+    } catch (RuntimeException e) {
+      claimed.set(true);
+      future.cancel(true);
+      throw e;
+    }
+
+    long totalRow;
+    if (claimed.compareAndSet(false, true)) {
+      // count 还没有获取到连接或获取连接失败，在当前连接上顺序 count
+      future.cancel(true);
+      try {
+        totalRow = countTotalRow(config, conn, strategy, isGroupBySql, totalRowSql, countFindSql, paras);
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e.getMessage(), countFindSql, paras, e);
+      }
+    } else {
+      try {
+        totalRow = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ActiveRecordException(e.getMessage(), totalRowSql, paras, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ActiveRecordException) {
+          throw (ActiveRecordException) cause;
+        }
+        throw new ActiveRecordException(cause.getMessage(), totalRowSql, paras, cause);
+      }
+    }
+    Page<T> page = buildPage(pageNumber, pageSize, totalRow);
+    page.setList(list);
     return page;
   }
 
@@ -1246,6 +1543,48 @@ public class DbPro {
     return doPaginate(clazz, pageNumber, pageSize, null, select, sqlExceptSelect, paras);
   }
 
+  /**
+   * 指定本次分页获取 totalRow 的方式
+   * 
+   * <pre>
+   * 例子：
+   * Db.paginate(PageCountStrategy.ESTIMATED, 1, 20, "select *", "from article where status = ?", 1);
+   * </pre>
+   */
+  public Page<Row> paginate(PageCountStrategy countStrategy, int pageNumber, int pageSize, String select, String sqlExceptSelect,
+      Object... paras) {
+    Config config = readConfig();
+    Connection conn = null;
+    try {
+      conn = config.getConnection();
+      String totalRowSql = config.dialect.forPaginateTotalRow(select, sqlExceptSelect, null);
+      StringBuilder findSql = new StringBuilder();
+      findSql.append(select).append(' ').append(sqlExceptSelect);
+      Connection c = conn;
+      return doPaginatePage(config, conn, countStrategy, pageNumber, pageSize, null, totalRowSql, findSql, paras,
+          sql -> find(config, c, sql, paras));
+    } finally {
+      config.close(conn);
+    }
+  }
+
+  public <T> Page<T> paginate(Class<T> clazz, PageCountStrategy countStrategy, int pageNumber, int pageSize, String select,
+      String sqlExceptSelect, Object... paras) {
+    Config config = readConfig();
+    Connection conn = null;
+    try {
+      conn = config.getConnection();
+      String totalRowSql = config.dialect.forPaginateTotalRow(select, sqlExceptSelect, null);
+      StringBuilder findSql = new StringBuilder();
+      findSql.append(select).append(' ').append(sqlExceptSelect);
+      Connection c = conn;
+      return doPaginatePage(config, conn, countStrategy, pageNumber, pageSize, null, totalRowSql, findSql, paras,
+          sql -> find(clazz, config, c, sql, paras));
+    } finally {
+      config.close(conn);
+    }
+  }
+
   public Page<Row> paginate(int pageNumber, int pageSize, String select, String sqlExceptSelect) {
     return doPaginate(pageNumber, pageSize, null, select, sqlExceptSelect, DbKit.NULL_PARA_ARRAY);
   }
@@ -1285,6 +1624,7 @@ public class DbPro {
 
   public Page<Row> doPaginateJsonFields(int pageNumber, int pageSize, Boolean isGroupBySql, String select,
       String sqlExceptSelect, String[] jsonFields, Object... paras) {
+    Config config = readConfig();
 
     Connection conn = null;
     try {
@@ -1301,6 +1641,7 @@ public class DbPro {
 
   public Page<Row> doPaginate(int pageNumber, int pageSize, Boolean isGroupBySql, String select, String sqlExceptSelect,
       Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -1315,6 +1656,7 @@ public class DbPro {
 
   public <T> Page<T> doPaginate(Class<T> clazz, int pageNumber, int pageSize, Boolean isGroupBySql, String select,
       String sqlExceptSelect, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -1329,50 +1671,22 @@ public class DbPro {
 
   public Page<Row> doPaginateByFullSqlWithJsonFields(Config config, Connection conn, int pageNumber, int pageSize,
       Boolean isGroupBySql, String totalRowSql, StringBuilder findSql, String[] jsonFields, Object... paras) {
-    String sql = config.dialect.forPaginate(pageNumber, pageSize, findSql);
-
-    Page<Row> page = null;
-    try {
-      page = countPage(config, conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
-    } catch (SQLException e) {
-      throw new ActiveRecordException(e.getMessage(), sql, paras, e);
-    }
-    List<Row> list = null;
-    list = findJsonField(config, conn, sql, jsonFields, paras);
-    page.setList(list);
-    return page;
+    return doPaginatePage(config, conn, config.pageCountStrategy, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras,
+        sql -> findJsonField(config, conn, sql, jsonFields, paras));
   }
 
   public Page<Row> doPaginateByFullSql(Config config, Connection conn, int pageNumber, int pageSize,
       //
       Boolean isGroupBySql, String totalRowSql, StringBuilder findSql, Object... paras) {
-    Page<Row> page = null;
-    try {
-      page = countPage(config, conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
-    } catch (SQLException e) {
-      throw new ActiveRecordException(e.getMessage(), findSql.toString(), paras, e);
-    }
-
-    String sql = config.dialect.forPaginate(pageNumber, pageSize, findSql);
-    List<Row> list = find(config, conn, sql, paras);
-    page.setList(list);
-    return page;
+    return doPaginatePage(config, conn, config.pageCountStrategy, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras,
+        sql -> find(config, conn, sql, paras));
   }
 
   public <T> Page<T> doPaginateByFullSql(Class<T> clazz, Config config2, Connection conn, int pageNumber,
       //
       int pageSize, Boolean isGroupBySql, String totalRowSql, StringBuilder findSql, Object[] paras) {
-    Page<T> page;
-    try {
-      page = countPage(config, conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
-    } catch (SQLException e) {
-      throw new ActiveRecordException(e.getMessage(), findSql.toString(), paras, e);
-    }
-    // find with sql
-    String sql = config.dialect.forPaginate(pageNumber, pageSize, findSql);
-    List<T> list = find(clazz, config, conn, sql, paras);
-    page.setList(list);
-    return page;
+    return doPaginatePage(config, conn, config.pageCountStrategy, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras,
+        sql -> find(clazz, config, conn, sql, paras));
   }
 
   public Page<Row> paginate(Config config, Connection conn, int pageNumber, int pageSize, String select,
@@ -1385,6 +1699,7 @@ public class DbPro {
 
   public Page<Row> doPaginateByFullSql(int pageNumber, int pageSize, Boolean isGroupBySql, String totalRowSql,
       String findSql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -1397,6 +1712,7 @@ public class DbPro {
 
   public <T> Page<T> doPaginateByFullSql(Class<T> clazz, int pageNumber, int pageSize, Boolean isGroupBySql,
       String totalRowSql, String findSql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
     try {
       conn = config.getConnection();
@@ -1428,18 +1744,49 @@ public class DbPro {
     return doPaginateByFullSql(clazz, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
   }
 
+  /**
+   * keyset (seek) 分页，使用上一页最后一行的键值作为条件，不查询 totalRow，深分页的性能与第一页相同
+   * 
+   * <pre>
+   * 例子：
+   * Keyset keyset = Keyset.of("created_at desc, id desc");
+   * KeysetPage&lt;Row&gt; page = Db.paginateByKeyset(20, "select *", "from article where status = ?", keyset, cursor, 1);
+   * String nextCursor = page.getNextCursor();
+   * </pre>
+   *
+   * @param sqlExceptSelect 最外层不能包含 group by、having、order by、limit，order by 由 keyset 生成
+   * @param cursor          上一页的 nextCursor，为 null 时查询第一页
+   */
+  public KeysetPage<Row> paginateByKeyset(int pageSize, String select, String sqlExceptSelect, Keyset keyset, String cursor, Object... paras) {
+    List<Object> sqlParas = new ArrayList<>();
+    String sql = keyset.forPaginate(config.dialect, pageSize, select, sqlExceptSelect, cursor, paras, sqlParas);
+    List<Row> list = find(sql, sqlParas.toArray());
+    return KeysetPage.build(list, pageSize, keyset::encode);
+  }
+
+  public <T> KeysetPage<T> paginateByKeyset(Class<T> clazz, int pageSize, String select, String sqlExceptSelect, Keyset keyset, String cursor,
+      Object... paras) {
+    List<Object> sqlParas = new ArrayList<>();
+    String sql = keyset.forPaginate(config.dialect, pageSize, select, sqlExceptSelect, cursor, paras, sqlParas);
+    List<T> list = find(clazz, sql, sqlParas.toArray());
+    return KeysetPage.build(list, pageSize, keyset::encodeBean);
+  }
+
   public boolean save(Config config, Connection conn, String sql, Object... paras) {
     PreparedStatement pst = null;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "save", sql, paras);
     if (config.dialect.isOracle()) {
       try {
         pst = conn.prepareStatement(sql);
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e.getMessage(), sql, paras, e);
       }
     } else {
       try {
         pst = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e.getMessage(), sql, paras, e);
       }
     }
@@ -1447,31 +1794,30 @@ public class DbPro {
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     }
 
-    long start = System.currentTimeMillis();
+    timer.prepared();
     int result = 0;
     try {
       result = pst.executeUpdate();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras, e);
     } finally {
       if (pst != null) {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras, e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "save", sql, paras, result, start, elapsed, config.writeSync);
-    }
+    timer.done(result);
     return result >= 1;
   }
 
@@ -1496,16 +1842,19 @@ public class DbPro {
 
   private boolean save(Config config, Connection conn, String sql, String[] pKeys, List<Object> paras, Row record) {
     PreparedStatement pst = null;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "save", sql, paras);
     if (config.dialect.isOracle()) {
       try {
         pst = conn.prepareStatement(sql, pKeys);
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
       }
     } else {
       try {
         pst = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
       }
     }
@@ -1513,32 +1862,31 @@ public class DbPro {
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
 
-    long start = System.currentTimeMillis();
+    timer.prepared();
     int result = 0;
     try {
       result = pst.executeUpdate();
+      timer.executed();
       config.dialect.getRecordGeneratedKey(pst, record, pKeys);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     } finally {
       if (pst != null) {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "save", sql, paras.toArray(), result, start, elapsed, config.writeSync);
-    }
+    timer.done(result);
     record.clearModifyFlag();
     return result >= 1;
   }
@@ -1552,19 +1900,17 @@ public class DbPro {
     config.dialect.forDbSave(tableName, pKeys, record, sql, paras);
     int result = 0;
     String sqlString = sql.toString();
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "save", sqlString, paras);
     try (PreparedStatement pst = config.dialect.isOracle() ? conn.prepareStatement(sqlString, pKeys)
         : conn.prepareStatement(sqlString, Statement.RETURN_GENERATED_KEYS)) {
       config.dialect.fillStatement(pst, paras);
-      long start = System.currentTimeMillis();
+      timer.prepared();
       result = pst.executeUpdate();
-      ISqlStatementStat stat = config.getSqlStatementStat();
-      if (stat != null) {
-        long end = System.currentTimeMillis();
-        long elapsed = end - start;
-        stat.save(config.name, "save", sqlString, paras.toArray(), result, start, elapsed, config.writeSync);
-      }
+      timer.executed();
       config.dialect.getRecordGeneratedKey(pst, record, pKeys);
+      timer.done(result);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sqlString, paras.toArray(), e);
     }
     record.clearModifyFlag();
@@ -1672,6 +2018,7 @@ public class DbPro {
     int result = update(config, conn, sql.toString(), paras.toArray());
     if (result >= 1) {
       record.clearModifyFlag();
+      config.entityCache().evict(tableName, primaryKeys, ids);
       return true;
     }
     return false;
@@ -1698,6 +2045,7 @@ public class DbPro {
     int result = update(config, conn, sql.toString(), paras.toArray());
     if (result >= 1) {
       record.clearModifyFlag();
+      config.entityCache().evictAll(tableName);
       return true;
     }
     return false;
@@ -1733,6 +2081,7 @@ public class DbPro {
     int result = update(config, conn, sql.toString(), paras.toArray());
     if (result >= 1) {
       record.clearModifyFlag();
+      config.entityCache().evict(tableName, primaryKey, ids);
       return true;
     }
     return false;
@@ -1930,6 +2279,15 @@ public class DbPro {
     return task;
   }
 
+  /**
+   * 返回异步版本的 DbPro，方法在 Config 的 async 线程池中执行并返回 CompletableFuture，超时时间为 Config.getAsyncTimeout()
+   *
+   * @see AsyncDbPro
+   */
+  public AsyncDbPro async() {
+    return new AsyncDbPro(this, config.getAsyncTimeout());
+  }
+
   /**
    * Find Record by cache.
    *
@@ -1939,23 +2297,11 @@ public class DbPro {
    * @see #find(String, Object...)
    */
   public List<Row> findByCache(String cacheName, Object key, String sql, Object... paras) {
-    IDbCache cache = config.getCache();
-    List<Row> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = find(sql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(sql), () -> find(sql, paras));
   }
 
   public <T> List<T> findByCache(Class<T> clazz, String cacheName, Object key, String sql, Object... paras) {
-    IDbCache cache = config.getCache();
-    List<T> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = find(clazz, sql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(sql), () -> find(clazz, sql, paras));
   }
 
   /**
@@ -1981,43 +2327,19 @@ public class DbPro {
    * @see #findFirst(String, Object...)
    */
   public Row findFirstByCache(String cacheName, Object key, String sql, Object... paras) {
-    IDbCache cache = config.getCache();
-    Row result = cache.get(cacheName, key);
-    if (result == null) {
-      result = findFirst(sql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(sql), () -> findFirst(sql, paras));
   }
 
   public Row findFirstByCache(String cacheName, Object key, int ttl, String sql, Object... paras) {
-    IDbCache cache = config.getCache();
-    Row result = cache.get(cacheName, key);
-    if (result == null) {
-      result = findFirst(sql, paras);
-      cache.put(cacheName, key, result, ttl);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, ttl, cacheTables(sql), () -> findFirst(sql, paras));
   }
 
   public <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, String sql, Object... paras) {
-    IDbCache cache = config.getCache();
-    T result = cache.get(cacheName, key);
-    if (result == null) {
-      result = findFirst(clazz, sql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(sql), () -> findFirst(clazz, sql, paras));
   }
 
   public <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, int ttl, String sql, Object... paras) {
-    IDbCache cache = config.getCache();
-    T result = cache.get(cacheName, key);
-    if (result == null) {
-      result = findFirst(clazz, sql, paras);
-      cache.put(cacheName, key, result, ttl);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, ttl, cacheTables(sql), () -> findFirst(clazz, sql, paras));
   }
 
   /**
@@ -2036,57 +2358,111 @@ public class DbPro {
   }
 
   public <T> T findFirstByCache(Class<T> clazz, String cacheName, Object key, int ttl, String sql) {
-    return findFirstByCache(clazz, cacheName, key, sql, ttl, DbKit.NULL_PARA_ARRAY);
+    return findFirstByCache(clazz, cacheName, key, ttl, sql, DbKit.NULL_PARA_ARRAY);
   }
 
-  public <T> Page<T> doPaginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
-      Boolean isGroupBySql, String select, String sqlExceptSelect, Object... paras) {
-    IDbCache cache = config.getCache();
-    Page<T> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = doPaginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+  private Set<String> cacheTables(String sql) {
+    QueryCache queryCache = config.queryCache();
+    return queryCache != null ? queryCache.tablesOf(sql) : null;
   }
 
-  public Page<Row> doPaginateByCache(String cacheName, Object key, int pageNumber, int pageSize, Boolean isGroupBySql,
-      String select, String sqlExceptSelect, Object... paras) {
-    IDbCache cache = config.getCache();
-    Page<Row> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = doPaginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
-      cache.put(cacheName, key, result);
+  /**
+   * 使用 sql 与参数作为 key 缓存查询结果，sql 读取的表被写入之后自动删除，没有开启 QueryCache 时直接查询，
+   * 未命中时从主库查询，避免缓存删除之后从延迟的从库读到旧值
+   *
+   * @see QueryCache
+   */
+  public List<Row> findByQueryCache(String sql, Object... paras) {
+    if (config.queryCache == null) {
+      return find(sql, paras);
     }
-    return result;
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, QueryCache.keyOf(config, "find", sql, paras), config.queryCacheTtl,
+        cacheTables(sql), () -> DbKit.readFromPrimary(() -> find(sql, paras)));
   }
 
-  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, SqlPara sqlPara) {
-    String[] sqls = PageSqlKit.parsePageSql(sqlPara.getSql());
-    assert sqls != null;
-    return doPaginateByCache(cacheName, key, pageNumber, pageSize, null, sqls[0], sqls[1], sqlPara.getPara());
+  public List<Row> findByQueryCache(SqlPara sqlPara) {
+    return findByQueryCache(sqlPara.getSql(), sqlPara.getPara());
   }
 
-  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, boolean isGroupBySql,
-      SqlPara sqlPara) {
-    String[] sqls = PageSqlKit.parsePageSql(sqlPara.getSql());
-    assert sqls != null;
-    return doPaginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, sqls[0], sqls[1], sqlPara.getPara());
+  public <T> List<T> findByQueryCache(Class<T> clazz, String sql, Object... paras) {
+    if (config.queryCache == null) {
+      return find(clazz, sql, paras);
+    }
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, QueryCache.keyOf(config, "find:" + clazz.getName(), sql, paras),
+        config.queryCacheTtl, cacheTables(sql), () -> DbKit.readFromPrimary(() -> find(clazz, sql, paras)));
   }
 
   /**
-   * @see #paginateByCache(String, Object, int, int, String, String, Object...)
+   * @see #findByQueryCache(String, Object...)
    */
-  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, String select,
-      String sqlExceptSelect) {
-    return doPaginateByCache(cacheName, key, pageNumber, pageSize, null, select, sqlExceptSelect,
-        DbKit.NULL_PARA_ARRAY);
+  public Row findFirstByQueryCache(String sql, Object... paras) {
+    if (config.queryCache == null) {
+      return findFirst(sql, paras);
+    }
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, QueryCache.keyOf(config, "findFirst", sql, paras), config.queryCacheTtl,
+        cacheTables(sql), () -> DbKit.readFromPrimary(() -> findFirst(sql, paras)));
   }
 
-  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, boolean isGroupBySql,
-      String select, String sqlExceptSelect) {
-    return doPaginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect,
-        DbKit.NULL_PARA_ARRAY);
+  public Row findFirstByQueryCache(SqlPara sqlPara) {
+    return findFirstByQueryCache(sqlPara.getSql(), sqlPara.getPara());
+  }
+
+  /**
+   * @see #findByQueryCache(String, Object...)
+   */
+  public Page<Row> paginateByQueryCache(int pageNumber, int pageSize, String select, String sqlExceptSelect, Object... paras) {
+    if (config.queryCache == null) {
+      return paginate(pageNumber, pageSize, select, sqlExceptSelect, paras);
+    }
+    String key = QueryCache.keyOf(config, "paginate:" + pageNumber + ":" + pageSize, select + " " + sqlExceptSelect, paras);
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, key, config.queryCacheTtl, cacheTables(sqlExceptSelect),
+        () -> DbKit.readFromPrimary(() -> doPaginate(pageNumber, pageSize, null, select, sqlExceptSelect, paras)));
+  }
+
+  public Page<Row> paginateByQueryCache(int pageNumber, int pageSize, SqlPara sqlPara) {
+    String[] sqls = PageSqlKit.parsePageSql(sqlPara.getSql());
+    assert sqls != null;
+    return paginateByQueryCache(pageNumber, pageSize, sqls[0], sqls[1], sqlPara.getPara());
+  }
+
+  public <T> Page<T> doPaginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
+      Boolean isGroupBySql, String select, String sqlExceptSelect, Object... paras) {
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(sqlExceptSelect),
+        () -> doPaginate(clazz, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras));
+  }
+
+  public Page<Row> doPaginateByCache(String cacheName, Object key, int pageNumber, int pageSize, Boolean isGroupBySql,
+      String select, String sqlExceptSelect, Object... paras) {
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(sqlExceptSelect),
+        () -> doPaginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras));
+  }
+
+  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, SqlPara sqlPara) {
+    String[] sqls = PageSqlKit.parsePageSql(sqlPara.getSql());
+    assert sqls != null;
+    return doPaginateByCache(cacheName, key, pageNumber, pageSize, null, sqls[0], sqls[1], sqlPara.getPara());
+  }
+
+  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, boolean isGroupBySql,
+      SqlPara sqlPara) {
+    String[] sqls = PageSqlKit.parsePageSql(sqlPara.getSql());
+    assert sqls != null;
+    return doPaginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, sqls[0], sqls[1], sqlPara.getPara());
+  }
+
+  /**
+   * @see #paginateByCache(String, Object, int, int, String, String, Object...)
+   */
+  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, String select,
+      String sqlExceptSelect) {
+    return doPaginateByCache(cacheName, key, pageNumber, pageSize, null, select, sqlExceptSelect,
+        DbKit.NULL_PARA_ARRAY);
+  }
+
+  public Page<Row> paginateByCache(String cacheName, Object key, int pageNumber, int pageSize, boolean isGroupBySql,
+      String select, String sqlExceptSelect) {
+    return doPaginateByCache(cacheName, key, pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect,
+        DbKit.NULL_PARA_ARRAY);
   }
 
   /**
@@ -2117,13 +2493,8 @@ public class DbPro {
 
   private Page<Row> doPaginateByCacheByFullSql(String cacheName, Object key, int pageNumber, int pageSize,
       Boolean isGroupBySql, String totalRowSql, String findSql, Object... paras) {
-    IDbCache cache = config.getCache();
-    Page<Row> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = doPaginateByFullSql(pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(findSql),
+        () -> doPaginateByFullSql(pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras));
   }
 
   public <T> Page<T> paginateByCacheByFullSql(Class<T> clazz, String cacheName, Object key, int pageNumber,
@@ -2139,13 +2510,8 @@ public class DbPro {
 
   private <T> Page<T> doPaginateByCacheByFullSql(Class<T> clazz, String cacheName, Object key, int pageNumber,
       int pageSize, Boolean isGroupBySql, String totalRowSql, String findSql, Object... paras) {
-    IDbCache cache = config.getCache();
-    Page<T> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = doPaginateByFullSql(clazz, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return config.getCacheLoader().get(cacheName, key, -1, cacheTables(findSql),
+        () -> doPaginateByFullSql(clazz, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras));
   }
 
   public <T> Page<T> paginateByCache(Class<T> clazz, String cacheName, Object key, int pageNumber, int pageSize,
@@ -2195,6 +2561,7 @@ public class DbPro {
     int counter = 0;
     int pointer = 0;
     int[] result = new int[paras.length];
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "batch", sql, paras);
     try (PreparedStatement pst = conn.prepareStatement(sql)) {
       for (Object[] para : paras) {
         for (int j = 0; j < para.length; j++) {
@@ -2216,14 +2583,11 @@ public class DbPro {
         pst.addBatch();
         if (++counter >= batchSize) {
           counter = 0;
-          long start = System.currentTimeMillis();
+          timer.prepared();
           int[] r = pst.executeBatch();
-          ISqlStatementStat stat = config.getSqlStatementStat();
-          if (stat != null) {
-            long end = System.currentTimeMillis();
-            long elapsed = end - start;
-            stat.save(config.name, "batch", sql, paras, r.length, start, elapsed, config.writeSync);
-          }
+          timer.executed();
+          timer.done(r.length);
+          timer = SqlStatementTimer.start(config, "batch", sql, paras);
           if (!isInTransaction)
             conn.commit();
           for (int i : r) {
@@ -2232,14 +2596,10 @@ public class DbPro {
         }
       }
       if (counter != 0) {
-        long start = System.currentTimeMillis();
+        timer.prepared();
         int[] r = pst.executeBatch();
-        ISqlStatementStat stat = config.getSqlStatementStat();
-        if (stat != null) {
-          long end = System.currentTimeMillis();
-          long elapsed = end - start;
-          stat.save(config.name, "batch", sql, paras, r.length, start, elapsed, config.writeSync);
-        }
+        timer.executed();
+        timer.done(r.length);
         if (!isInTransaction) {
           conn.commit();
         }
@@ -2250,6 +2610,9 @@ public class DbPro {
       }
 
       return result;
+    } catch (SQLException e) {
+      timer.failed(e);
+      throw e;
     }
   }
 
@@ -2316,9 +2679,11 @@ public class DbPro {
     int size = list.size();
     int[] result = new int[size];
     PreparedStatement pst = null;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "batch", sql, list);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, e);
     }
     try {
@@ -2364,19 +2729,17 @@ public class DbPro {
         }
         if (++counter >= batchSize) {
           counter = 0;
-          long start = System.currentTimeMillis();
+          timer.prepared();
           int[] r = null;
           try {
             r = pst.executeBatch();
           } catch (SQLException e1) {
+            timer.failed(e1);
             throw new ActiveRecordException(e1.getMessage(), sql, e1);
           }
-          ISqlStatementStat stat = config.getSqlStatementStat();
-          if (stat != null) {
-            long end = System.currentTimeMillis();
-            long elapsed = end - start;
-            stat.save(config.name, "batch", sql, list.toArray(), r.length, start, elapsed, config.writeSync);
-          }
+          timer.executed();
+          timer.done(r.length);
+          timer = SqlStatementTimer.start(config, "batch", sql, list);
           if (!isInTransaction)
             try {
               conn.commit();
@@ -2389,19 +2752,16 @@ public class DbPro {
         }
       }
       if (counter != 0) {
-        long start = System.currentTimeMillis();
+        timer.prepared();
         int[] r = null;
         try {
           r = pst.executeBatch();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, e);
         }
-        ISqlStatementStat stat = config.getSqlStatementStat();
-        if (stat != null) {
-          long end = System.currentTimeMillis();
-          long elapsed = end - start;
-          stat.save(config.name, "batch", sql, list.toArray(), r.length, start, elapsed, config.writeSync);
-        }
+        timer.executed();
+        timer.done(r.length);
         if (!isInTransaction)
           try {
             conn.commit();
@@ -2465,6 +2825,180 @@ public class DbPro {
     }
   }
 
+  /**
+   * 并行执行批处理：list 按 batchSize 分段，最多 Config.batchParallelism 个线程各自使用一个连接领取分段执行
+   *
+   * <pre>
+   * 1：每个分段执行后单独提交，返回值与 list 一一对应
+   * 2：某个分段失败时回滚该分段并继续执行其他分段，全部结束后抛出 ParallelBatchException，
+   *    其中包含所有失败的分段和其他分段的结果
+   * 3：在事务中时无法跨连接，与 batch(sql, columns, list, batchSize) 一样在当前连接上顺序执行
+   *
+   * 例如：
+   * int[] result = Db.use().parallelBatch(sql, "name, age", recordList, 1000);
+   * </pre>
+   */
+  @SuppressWarnings("rawtypes")
+  public int[] parallelBatch(String sql, String columns, List modelOrRecordList, int batchSize) {
+    if (modelOrRecordList == null || modelOrRecordList.size() == 0) {
+      return new int[0];
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batchSize must more than 0.");
+    }
+    int size = modelOrRecordList.size();
+    int chunks = (size + batchSize - 1) / batchSize;
+    int workers = Math.min(config.getBatchParallelism(), chunks);
+    if (config.isInTransaction() || workers <= 1) {
+      return batch(sql, columns, modelOrRecordList, batchSize);
+    }
+
+    int[] result = new int[size];
+    AtomicInteger nextChunk = new AtomicInteger();
+    List<ParallelBatchException.Failure> failures = Collections.synchronizedList(new ArrayList<>());
+    List<Throwable> connectionErrors = Collections.synchronizedList(new ArrayList<>());
+    List<Future<?>> futures = new ArrayList<>(workers);
+    ExecutorService executor = config.getBatchExecutor();
+    for (int i = 0; i < workers; i++) {
+      futures.add(submit(executor, () -> {
+        runBatchWorker(sql, columns, modelOrRecordList, batchSize, chunks, nextChunk, result, failures, connectionErrors);
+        return null;
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // 未领取的分段不再执行
+      nextChunk.set(chunks);
+      throw new ActiveRecordException(e.getMessage(), sql, e);
+    } catch (ExecutionException e) {
+      throw new ActiveRecordException(e.getCause().getMessage(), sql, e.getCause());
+    }
+
+    // 所有线程都没有获取到连接时剩余的分段没有执行
+    int unprocessed = nextChunk.get();
+    if (unprocessed < chunks) {
+      int from = unprocessed * batchSize;
+      Arrays.fill(result, from, size, Statement.EXECUTE_FAILED);
+      failures.add(new ParallelBatchException.Failure(from, size, connectionErrors.get(0)));
+    }
+    if (!failures.isEmpty()) {
+      List<ParallelBatchException.Failure> sorted = new ArrayList<>(failures);
+      sorted.sort((a, b) -> Integer.compare(a.getFromIndex(), b.getFromIndex()));
+      throw new ParallelBatchException(sql, result, sorted);
+    }
+    return result;
+  }
+
+  /**
+   * 提交到并行批处理的线程池，线程池正在被 setBatchParallelism、shutdownExecutors 关闭时
+   * (虚拟线程的线程池拒绝任务) 在调用线程中执行，不会留下一个永远不会完成的 future
+   */
+  private static <T> Future<T> submit(ExecutorService executor, Callable<T> task) {
+    try {
+      return executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      FutureTask<T> future = new FutureTask<>(task);
+      future.run();
+      return future;
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private void runBatchWorker(String sql, String columns, List list, int batchSize, int chunks, AtomicInteger nextChunk, int[] result,
+      List<ParallelBatchException.Failure> failures, List<Throwable> connectionErrors) {
+    Connection conn = null;
+    Boolean autoCommit = null;
+    try {
+      conn = config.getConnection();
+      autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+    } catch (SQLException | RuntimeException e) {
+      connectionErrors.add(e);
+      config.close(conn);
+      return;
+    }
+
+    try {
+      int chunk;
+      while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+        int from = chunk * batchSize;
+        int to = Math.min(list.size(), from + batchSize);
+        try {
+          int[] r = batch(config, conn, sql, columns, list.subList(from, to), batchSize);
+          System.arraycopy(r, 0, result, from, r.length);
+        } catch (RuntimeException e) {
+          Arrays.fill(result, from, to, Statement.EXECUTE_FAILED);
+          try {
+            conn.rollback();
+          } catch (SQLException ex) {
+            e.addSuppressed(ex);
+          }
+          failures.add(new ParallelBatchException.Failure(from, to, e));
+        }
+      }
+    } finally {
+      try {
+        conn.setAutoCommit(autoCommit);
+      } catch (Exception e) {
+        log.error(e.getMessage(), e);
+      }
+      config.close(conn);
+    }
+  }
+
+  /**
+   * 与 batchSave(tableName, recordList, batchSize) 相同，使用 parallelBatch 并行执行
+   */
+  public int[] parallelBatchSave(String tableName, List<? extends Row> recordList, int batchSize) {
+    if (recordList == null || recordList.size() == 0) {
+      return new int[0];
+    }
+    Row record = recordList.get(0);
+    StringBuilder sql = new StringBuilder();
+    config.dialect.forDbSave(tableName, new String[0], record, sql, new ArrayList<Object>());
+    return parallelBatch(sql.toString(), forBatchColumns(record.getColumns()), recordList, batchSize);
+  }
+
+  /**
+   * 与 batchSave(modelList, batchSize) 相同，使用 parallelBatch 并行执行
+   */
+  @SuppressWarnings("rawtypes")
+  public int[] parallelBatchSave(List<? extends Model> modelList, int batchSize) {
+    if (modelList == null || modelList.size() == 0) {
+      return new int[0];
+    }
+    Model model = modelList.get(0);
+    Map<String, Object> attrs = model._getAttrs();
+    StringBuilder sql = new StringBuilder();
+    config.dialect.forModelSave(model._getTable(), attrs, sql, new ArrayList<Object>());
+    return parallelBatch(sql.toString(), forBatchColumns(attrs), modelList, batchSize);
+  }
+
+  /**
+   * 与 Dialect.forDbSave()、forModelSave() 中的顺序一致，跳过 oracle 的自增主键
+   */
+  private String forBatchColumns(Map<String, Object> cols) {
+    StringBuilder columns = new StringBuilder();
+    int index = 0;
+    for (Entry<String, Object> e : cols.entrySet()) {
+      if (config.dialect.isOracle()) {
+        Object value = e.getValue();
+        if (value instanceof String && ((String) value).endsWith(".nextval")) {
+          continue;
+        }
+      }
+      if (index++ > 0) {
+        columns.append(',');
+      }
+      columns.append(e.getKey());
+    }
+    return columns.toString();
+  }
+
   public int[] batch(String sql, String columns, String[] jsonFields, List<Row> modelOrRecordList, int batchSize) {
     Connection conn = null;
     Boolean autoCommit = null;
@@ -2571,6 +3105,10 @@ public class DbPro {
 
     Model model = modelList.get(0);
     Map<String, Object> attrs = model._getAttrs();
+    if (config.dialect.isMultiRowBatchSave()) {
+      Table table = model._getTable();
+      return multiRowSave(table.getName(), null, multiRowColumns(attrs, table), null, modelList, batchSize);
+    }
     int index = 0;
     StringBuilder columns = new StringBuilder();
     // the same as the iterator in Dialect.forModelSave() to ensure the order of the
@@ -2611,6 +3149,9 @@ public class DbPro {
 
     Row record = recordList.get(0);
     Map<String, Object> cols = record.getColumns();
+    if (config.dialect.isMultiRowBatchSave()) {
+      return multiRowSave(tableName, null, multiRowColumns(cols, null), null, recordList, batchSize);
+    }
     int index = 0;
     StringBuilder columns = new StringBuilder();
     // the same as the iterator in Dialect.forDbSave() to ensure the order of the
@@ -2668,6 +3209,346 @@ public class DbPro {
     return batch(sql.toString(), columns.toString(), jsonFields, recordList, batchSize);
   }
 
+  /**
+   * 使用多行 VALUES 的 insert 语句批量写入，主键或唯一键冲突时更新其他列，仅支持 isMultiRowInsertSupported() 的数据库
+   *
+   * <pre>
+   * MySQL：insert into ... values(...), (...) on duplicate key update
+   * SQLite：insert into ... values(...), (...) on conflict(primaryKey) do update set
+   * H2：merge into ... key(primaryKey) values(...), (...)
+   *
+   * 与 batchSave 一样使用第一个 record 的列，每条语句的行数受 batchSize、Dialect.multiRowMaxParas 和 multiRowMaxBytes 限制
+   * 返回值中每一行为 1 或 Statement.SUCCESS_NO_INFO (语句的影响行数与行数不一致时，如 MySQL 更新一行计为 2)
+   * </pre>
+   */
+  public int[] batchSaveOrUpdate(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    if (recordList == null || recordList.size() == 0) {
+      return new int[0];
+    }
+    String[] pKeys = primaryKey.split(",");
+    config.dialect.trimPrimaryKeys(pKeys);
+    String[] columns = multiRowColumns(recordList.get(0).getColumns(), null);
+    int[] ret = multiRowSave(tableName, pKeys, columns, multiRowUpdateColumns(columns, pKeys), recordList, batchSize);
+    config.entityCache().evictAll(tableName);
+    return ret;
+  }
+
+  public int[] batchSaveOrUpdate(List<? extends Model> modelList, int batchSize) {
+    if (modelList == null || modelList.size() == 0) {
+      return new int[0];
+    }
+    Table table = modelList.get(0)._getTable();
+    String[] pKeys = table.getPrimaryKey();
+    String[] columns = multiRowColumns(modelList.get(0)._getAttrs(), table);
+    int[] ret = multiRowSave(table.getName(), pKeys, columns, multiRowUpdateColumns(columns, pKeys), modelList, batchSize);
+    config.entityCache().evictAll(table.getName());
+    return ret;
+  }
+
+  /**
+   * 与 batchSaveOrUpdate 相同，但是不更新已存在的行，用于 saveIfAbset 形式的批量写入
+   * MySQL 使用 insert ignore，SQLite 使用 on conflict do nothing，H2 与 saveIfAbset 一样使用 merge into
+   */
+  public int[] batchSaveIfAbset(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    if (recordList == null || recordList.size() == 0) {
+      return new int[0];
+    }
+    String[] pKeys = primaryKey.split(",");
+    config.dialect.trimPrimaryKeys(pKeys);
+    String[] columns = multiRowColumns(recordList.get(0).getColumns(), null);
+    return multiRowSave(tableName, pKeys, columns, new String[0], recordList, batchSize);
+  }
+
+  public int[] batchSaveIfAbset(List<? extends Model> modelList, int batchSize) {
+    if (modelList == null || modelList.size() == 0) {
+      return new int[0];
+    }
+    Table table = modelList.get(0)._getTable();
+    String[] columns = multiRowColumns(modelList.get(0)._getAttrs(), table);
+    return multiRowSave(table.getName(), table.getPrimaryKey(), columns, new String[0], modelList, batchSize);
+  }
+
+  /**
+   * @param table 不为 null 时只使用表中存在的列，与 forModelSave 一致
+   */
+  private String[] multiRowColumns(Map<String, Object> first, Table table) {
+    List<String> columns = new ArrayList<>(first.size());
+    for (String column : first.keySet()) {
+      if (table == null || table.hasColumnLabel(column)) {
+        columns.add(column);
+      }
+    }
+    return columns.toArray(new String[columns.size()]);
+  }
+
+  private String[] multiRowUpdateColumns(String[] columns, String[] pKeys) {
+    List<String> updateColumns = new ArrayList<>(columns.length);
+    for (String column : columns) {
+      if (!config.dialect.isPrimaryKey(column, pKeys)) {
+        updateColumns.add(column);
+      }
+    }
+    return updateColumns.toArray(new String[updateColumns.size()]);
+  }
+
+  /**
+   * @param updateColumns 为 null 时是普通的 insert
+   */
+  private int[] multiRowSave(String tableName, String[] pKeys, String[] columns, String[] updateColumns, List<?> list, int batchSize) {
+    if (!config.dialect.isMultiRowInsertSupported()) {
+      throw new ActiveRecordException("Multi-row insert is not supported by " + config.dialect.getClass().getName());
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batchSize must more than 0.");
+    }
+    Connection conn = null;
+    Boolean autoCommit = null;
+    try {
+      conn = config.getConnection();
+      try {
+        autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e.getMessage(), e);
+      }
+      return multiRowSave(config, conn, tableName, pKeys, columns, updateColumns, list, batchSize);
+    } finally {
+      if (autoCommit != null) {
+        try {
+          conn.setAutoCommit(autoCommit);
+        } catch (Exception e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+      config.close(conn);
+    }
+  }
+
+  /**
+   * 按 batchSize、multiRowMaxParas、multiRowMaxBytes 把 list 拆分为多条多行 insert 语句，
+   * 行数等于上限的语句共用一个 PreparedStatement
+   */
+  private int[] multiRowSave(Config config, Connection conn, String tableName, String[] pKeys, String[] columns, String[] updateColumns,
+      List<?> list, int batchSize) {
+    Dialect dialect = config.dialect;
+    int size = list.size();
+    int maxRows = Math.max(1, Math.min(batchSize, dialect.getMultiRowMaxParas() / Math.max(1, columns.length)));
+    int maxBytes = dialect.getMultiRowMaxBytes();
+    int headerBytes = buildMultiRowSql(dialect, tableName, pKeys, columns, updateColumns, 1).length();
+    boolean isInTransaction = config.isInTransaction();
+
+    int[] result = new int[size];
+    List<Object> paras = new ArrayList<>(maxRows * columns.length);
+    String fullSql = null;
+    PreparedStatement fullPst = null;
+    try {
+      int start = 0;
+      while (start < size) {
+        paras.clear();
+        int bytes = headerBytes;
+        int end = start;
+        while (end < size && end - start < maxRows) {
+          Object o = list.get(end);
+          Map<String, Object> map = o instanceof Model ? ((Model<?>) o)._getAttrs() : ((Row) o).getColumns();
+          int rowBytes = 4;
+          for (String column : columns) {
+            rowBytes += dialect.estimateParaSize(map.get(column)) + 2;
+          }
+          if (end > start && bytes + rowBytes > maxBytes) {
+            break;
+          }
+          bytes += rowBytes;
+          for (String column : columns) {
+            paras.add(map.get(column));
+          }
+          end++;
+        }
+
+        int rowCount = end - start;
+        String sql;
+        PreparedStatement pst;
+        if (rowCount == maxRows) {
+          if (fullPst == null) {
+            fullSql = buildMultiRowSql(dialect, tableName, pKeys, columns, updateColumns, rowCount);
+            try {
+              fullPst = conn.prepareStatement(fullSql);
+            } catch (SQLException e) {
+              throw new ActiveRecordException(e.getMessage(), fullSql, e);
+            }
+          }
+          sql = fullSql;
+          pst = fullPst;
+        } else {
+          sql = buildMultiRowSql(dialect, tableName, pKeys, columns, updateColumns, rowCount);
+          try {
+            pst = conn.prepareStatement(sql);
+          } catch (SQLException e) {
+            throw new ActiveRecordException(e.getMessage(), sql, e);
+          }
+        }
+
+        SqlStatementTimer timer = SqlStatementTimer.start(config, "batch", sql, paras);
+        int count;
+        try {
+          dialect.fillStatement(pst, paras);
+          timer.prepared();
+          count = pst.executeUpdate();
+          timer.executed();
+          timer.done(count);
+          if (!isInTransaction) {
+            conn.commit();
+          }
+        } catch (SQLException e) {
+          timer.failed(e);
+          throw new ActiveRecordException(e.getMessage(), sql, e);
+        } finally {
+          if (pst != fullPst) {
+            try {
+              pst.close();
+            } catch (SQLException e) {
+              log.error(e.getMessage(), e);
+            }
+          }
+        }
+
+        int rowResult = count == rowCount ? 1 : Statement.SUCCESS_NO_INFO;
+        Arrays.fill(result, start, end, rowResult);
+        start = end;
+      }
+      return result;
+    } finally {
+      if (fullPst != null) {
+        try {
+          fullPst.close();
+        } catch (SQLException e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  private String buildMultiRowSql(Dialect dialect, String tableName, String[] pKeys, String[] columns, String[] updateColumns, int rowCount) {
+    StringBuilder sql = new StringBuilder(64 + rowCount * columns.length * 3);
+    if (updateColumns == null) {
+      dialect.forDbMultiRowSave(tableName, columns, rowCount, sql);
+    } else {
+      dialect.forDbMultiRowSaveOrUpdate(tableName, pKeys, columns, updateColumns, rowCount, sql);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * 使用 PostgreSQL 的 COPY ... FROM STDIN 批量写入 records，仅支持 PostgreSqlDialect
+   *
+   * <pre>
+   * 1：与 batchSave 一样使用第一个 record 的列，后续 record 中没有的列写入 null
+   * 2：records 逐行编码并发送，可以传入 DbCursor 等惰性的 Iterable，数据不会全部缓存在内存中
+   * 3：COPY 是一条语句，全部成功或全部失败，在事务中时随事务提交
+   *
+   * 例如：
+   * long count = Db.copyIn("user", recordList);
+   * long count = Db.copyIn("user", recordList, CopyFormat.BINARY);
+   * </pre>
+   *
+   * @return 写入的行数
+   */
+  public long copyIn(String tableName, Iterable<? extends Row> records) {
+    return copyIn(tableName, records, CopyFormat.CSV);
+  }
+
+  public long copyIn(String tableName, Iterable<? extends Row> records, CopyFormat format) {
+    return doCopyIn(tableName, records.iterator(), Row::getColumns, format, null);
+  }
+
+  /**
+   * 使用 COPY 批量写入 models，使用第一个 model 中属于表的属性
+   */
+  public long copyIn(Iterable<? extends Model<?>> models) {
+    return copyIn(models, CopyFormat.CSV);
+  }
+
+  public long copyIn(Iterable<? extends Model<?>> models, CopyFormat format) {
+    return doCopyIn(null, models.iterator(), Model::_getAttrs, format, Model::_getTable);
+  }
+
+  /**
+   * 使用 COPY 批量写入 java bean，通过 RecordConvert 转为 Row，使用第一个 bean 中不为 null 的字段
+   */
+  public long copyIn(Class<?> beanClass, Iterable<?> beans) {
+    return copyIn(beanClass, beans, CopyFormat.CSV);
+  }
+
+  public long copyIn(Class<?> beanClass, Iterable<?> beans, CopyFormat format) {
+    RecordConvert recordConvert = config.getRecordConvert();
+    return doCopyIn(BeanMapping.of(beanClass).getTableName(), beans.iterator(), bean -> recordConvert.fromJavaBean(bean).getColumns(), format, null);
+  }
+
+  /**
+   * @param tableOf 不为 null 时由第一个元素确定表，并且只写入表中存在的列
+   */
+  private <E> long doCopyIn(String tableName, Iterator<E> source, Function<? super E, Map<String, Object>> toColumns, CopyFormat format,
+      Function<? super E, Table> tableOf) {
+    if (!(config.dialect instanceof PostgreSqlDialect)) {
+      throw new ActiveRecordException("copyIn only supports PostgreSqlDialect, current dialect is " + config.dialect.getClass().getName());
+    }
+    if (!source.hasNext()) {
+      return 0;
+    }
+
+    E firstElement = source.next();
+    Table table = null;
+    if (tableOf != null) {
+      table = tableOf.apply(firstElement);
+      tableName = table.getName();
+    }
+    Map<String, Object> first = toColumns.apply(firstElement);
+    List<String> columnList = new ArrayList<>();
+    for (String column : first.keySet()) {
+      if (table == null || table.hasColumnLabel(column)) {
+        columnList.add(column);
+      }
+    }
+    String[] columns = columnList.toArray(new String[columnList.size()]);
+
+    Iterator<Object[]> rows = new Iterator<Object[]>() {
+      private Map<String, Object> pending = first;
+
+      @Override
+      public boolean hasNext() {
+        return pending != null || source.hasNext();
+      }
+
+      @Override
+      public Object[] next() {
+        Map<String, Object> cols = pending != null ? pending : toColumns.apply(source.next());
+        pending = null;
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+          values[i] = cols.get(columns[i]);
+        }
+        return values;
+      }
+    };
+
+    Connection conn = null;
+    try {
+      conn = config.getConnection();
+      long count = ((PostgreSqlDialect) config.dialect).copyIn(conn, tableName, columns, format, rows);
+      if (config.readYourWrites) {
+        // COPY 不经过 Statement，需要单独标记
+        ReadYourWrites.markWritten();
+      }
+      if (config.queryCache != null) {
+        config.queryCache.written(conn, tableName);
+      }
+      return count;
+    } catch (SQLException e) {
+      throw new ActiveRecordException(e.getMessage(), e);
+    } finally {
+      config.close(conn);
+    }
+  }
+
   public int[] batchDelete(String tableName, List<? extends Row> recordList, int batchSize) {
     if (recordList == null || recordList.size() == 0) {
       return new int[0];
@@ -2741,7 +3622,9 @@ public class DbPro {
     StringBuilder sql = new StringBuilder();
     List<Object> parasNoUse = new ArrayList<Object>();
     config.dialect.forModelUpdate(model._getTable(), attrs, modifyFlag, sql, parasNoUse);
-    return batch(sql.toString(), columns, modelList, batchSize);
+    int[] ret = batch(sql.toString(), columns, modelList, batchSize);
+    config.entityCache().evictAll(table.getName());
+    return ret;
   }
 
   /**
@@ -2784,7 +3667,9 @@ public class DbPro {
     StringBuilder sql = new StringBuilder();
     List<Object> parasNoUse = new ArrayList<Object>();
     config.dialect.forDbUpdate(tableName, pKeys, idsNoUse, record, sql, parasNoUse);
-    return batch(sql.toString(), columns, recordList, batchSize);
+    int[] ret = batch(sql.toString(), columns, recordList, batchSize);
+    config.entityCache().evictAll(tableName);
+    return ret;
   }
 
   /**
@@ -2798,6 +3683,186 @@ public class DbPro {
     return batchUpdate(tableName, config.dialect.getDefaultPrimaryKey(), recordList, batchSize);
   }
 
+  /**
+   * 批量保存列不相同的 records：按每个 record 的列分组，每组使用自己的 sql 执行批处理
+   *
+   * <pre>
+   * 1：batchSave 只使用第一个 record 的列生成 sql，列不同的 record 会绑定错误的参数
+   * 2：分组使用 hash-cons 的列签名，不为每一行拼接字符串
+   * 3：sql 相同的分组共用一个 PreparedStatement，返回值与 recordList 一一对应
+   * </pre>
+   */
+  public int[] batchListSave(String tableName, List<? extends Row> recordList, int batchSize) {
+    return batchList(tableName, null, recordList, batchSize);
+  }
+
+  /**
+   * 批量更新 modifyFlag 不相同的 records：按每个 record 修改过的非主键列分组，没有修改的 record 返回 0
+   */
+  public int[] batchListUpdate(String tableName, String primaryKey, List<? extends Row> recordList, int batchSize) {
+    String[] pKeys = primaryKey.split(",");
+    config.dialect.trimPrimaryKeys(pKeys);
+    int[] ret = batchList(tableName, pKeys, recordList, batchSize);
+    config.entityCache().evictAll(tableName);
+    return ret;
+  }
+
+  public int[] batchListUpdate(String tableName, List<? extends Row> recordList, int batchSize) {
+    return batchListUpdate(tableName, config.dialect.getDefaultPrimaryKey(), recordList, batchSize);
+  }
+
+  /**
+   * @param pKeys 为 null 时保存，否则按主键更新
+   */
+  private int[] batchList(String tableName, String[] pKeys, List<? extends Row> recordList, int batchSize) {
+    if (recordList == null || recordList.size() == 0) {
+      return new int[0];
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batchSize must more than 0.");
+    }
+
+    boolean isUpdate = pKeys != null;
+    ColumnSignature root = new ColumnSignature();
+    List<ColumnSignature> groups = new ArrayList<>();
+    for (int i = 0, size = recordList.size(); i < size; i++) {
+      Row record = recordList.get(i);
+      Set<String> modifyFlag = isUpdate ? record._getModifyFlag() : null;
+      ColumnSignature sig = root;
+      for (String col : record.getColumns().keySet()) {
+        if (isUpdate && (!modifyFlag.contains(col) || config.dialect.isPrimaryKey(col, pKeys))) {
+          continue;
+        }
+        sig = sig.append(col);
+      }
+      if (sig.isEmpty()) {
+        continue;
+      }
+      if (sig.addRow(i)) {
+        groups.add(sig);
+      }
+    }
+
+    Connection conn = null;
+    Boolean autoCommit = null;
+    try {
+      conn = config.getConnection();
+      try {
+        autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+      } catch (SQLException e) {
+        throw new ActiveRecordException(e.getMessage(), e);
+      }
+      return batchList(config, conn, tableName, pKeys, recordList, groups, batchSize);
+    } finally {
+      if (autoCommit != null) {
+        try {
+          conn.setAutoCommit(autoCommit);
+        } catch (Exception e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+      config.close(conn);
+    }
+  }
+
+  private int[] batchList(Config config, Connection conn, String tableName, String[] pKeys, List<? extends Row> recordList,
+      List<ColumnSignature> groups, int batchSize) {
+    boolean isInTransaction = config.isInTransaction();
+    int[] result = new int[recordList.size()];
+    Map<String, PreparedStatement> statements = new HashMap<>();
+    try {
+      for (ColumnSignature sig : groups) {
+        Row first = recordList.get(sig.getRow(0));
+        StringBuilder sqlBuilder = new StringBuilder();
+        String[] columns;
+        if (pKeys == null) {
+          config.dialect.forDbSave(tableName, new String[0], first, sqlBuilder, new ArrayList<Object>());
+          columns = batchListSaveColumns(first, sig.getColumns());
+        } else {
+          // 部分 Dialect 的 forDbUpdate 不检查 modifyFlag，只用分组的列与主键生成 sql
+          Row sigRow = new Row();
+          sigRow.setColumnsMap(new LinkedHashMap<String, Object>());
+          for (String column : sig.getColumns()) {
+            sigRow.set(column, first.get(column));
+          }
+          config.dialect.forDbUpdate(tableName, pKeys, new Object[pKeys.length], sigRow, sqlBuilder, new ArrayList<Object>());
+          columns = Arrays.copyOf(sig.getColumns(), sig.getColumns().length + pKeys.length);
+          System.arraycopy(pKeys, 0, columns, sig.getColumns().length, pKeys.length);
+        }
+        String sql = sqlBuilder.toString();
+
+        PreparedStatement pst = statements.get(sql);
+        if (pst == null) {
+          try {
+            pst = conn.prepareStatement(sql);
+          } catch (SQLException e) {
+            throw new ActiveRecordException(e.getMessage(), sql, e);
+          }
+          statements.put(sql, pst);
+        }
+
+        Object[] values = new Object[columns.length];
+        int rowCount = sig.getRowCount();
+        int start = 0;
+        while (start < rowCount) {
+          int end = Math.min(rowCount, start + batchSize);
+          SqlStatementTimer timer = SqlStatementTimer.start(config, "batch", sql, recordList);
+          try {
+            for (int i = start; i < end; i++) {
+              Map<String, Object> cols = recordList.get(sig.getRow(i)).getColumns();
+              for (int j = 0; j < columns.length; j++) {
+                values[j] = cols.get(columns[j]);
+              }
+              config.dialect.fillStatement(pst, values);
+              pst.addBatch();
+            }
+            timer.prepared();
+            int[] r = pst.executeBatch();
+            timer.executed();
+            timer.done(r.length);
+            if (!isInTransaction) {
+              conn.commit();
+            }
+            for (int i = 0; i < r.length; i++) {
+              result[sig.getRow(start + i)] = r[i];
+            }
+          } catch (SQLException e) {
+            timer.failed(e);
+            throw new ActiveRecordException(e.getMessage(), sql, e);
+          }
+          start = end;
+        }
+      }
+      return result;
+    } finally {
+      for (PreparedStatement pst : statements.values()) {
+        try {
+          pst.close();
+        } catch (SQLException e) {
+          log.error(e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * 与 batchSave 一样跳过 oracle 自增主键的列，这些列已经写在 sql 中
+   */
+  private String[] batchListSaveColumns(Row first, String[] columns) {
+    if (!config.dialect.isOracle()) {
+      return columns;
+    }
+    List<String> ret = new ArrayList<>(columns.length);
+    for (String column : columns) {
+      Object value = first.get(column);
+      if (!(value instanceof String && ((String) value).endsWith(".nextval"))) {
+        ret.add(column);
+      }
+    }
+    return ret.toArray(new String[ret.size()]);
+  }
+
   public String getSql(String key) {
     return config.getSqlKit().getSql(key);
   }
@@ -2876,6 +3941,9 @@ public class DbPro {
   /**
    * 迭代处理每一个查询出来的 Record 对象
    * 
+   * 使用流式读取，MySQL 处于事务中时不使用流式读取，使 func 中可以通过 Db 在同一个事务连接上查询、写入，
+   * 此时结果集由驱动全部读入内存
+   *
    * <pre>
    * 例子：
    * Db.each(record -> {
@@ -2887,30 +3955,90 @@ public class DbPro {
    * </pre>
    */
   public void each(Function<Row, Boolean> func, String sql, Object... paras) {
+    Config config = readConfig();
     Connection conn = null;
+    SqlStatementTimer timer = null;
     try {
       conn = config.getConnection();
-      try (PreparedStatement pst = conn.prepareStatement(sql)) {
+      timer = SqlStatementTimer.start(config, "batch", sql, paras);
+      // 与 DbCursor 一样使用流式读取，避免驱动把结果集全部读入内存
+      boolean autoCommitChanged = DbCursor.beginStream(config, conn);
+      try (PreparedStatement pst = DbCursor.prepareStream(config, conn, sql, config.dialect.getStreamFetchSize())) {
         config.dialect.fillStatement(pst, paras);
-        long start = System.currentTimeMillis();
+        timer.prepared();
         try (ResultSet rs = pst.executeQuery()) {
+          timer.executed();
           config.dialect.eachRecord(config, rs, func);
-          ISqlStatementStat stat = config.getSqlStatementStat();
-          if (stat != null) {
-            long end = System.currentTimeMillis();
-            long elapsed = end - start;
-            stat.save(config.name, "batch", sql, paras, -1, start, elapsed, config.writeSync);
-          }
+          timer.done(-1);
         }
+      } finally {
+        DbCursor.endStream(conn, autoCommitChanged);
       }
 
     } catch (Exception e) {
+      if (timer != null) {
+        timer.failed(e);
+      }
       throw new ActiveRecordException(e.getMessage(), sql, e);
     } finally {
       config.close(conn);
     }
   }
 
+  /**
+   * 流式查询，逐行读取，适合导出大量数据。未读取完时必须调用 close()
+   * 
+   * <pre>
+   * 例子：
+   * try (DbCursor&lt;Row&gt; cursor = Db.cursor(sql, paras)) {
+   *   while (cursor.hasNext()) {
+   *     Row row = cursor.next();
+   *   }
+   * }
+   * </pre>
+   */
+  public DbCursor<Row> cursor(String sql, Object... paras) {
+    return DbCursor.open(readConfig(), null, config.dialect.getStreamFetchSize(), sql, paras);
+  }
+
+  public DbCursor<Row> cursor(int fetchSize, String sql, Object... paras) {
+    return DbCursor.open(readConfig(), null, fetchSize, sql, paras);
+  }
+
+  public <T> DbCursor<T> cursor(Class<T> clazz, String sql, Object... paras) {
+    return DbCursor.open(readConfig(), clazz, config.dialect.getStreamFetchSize(), sql, paras);
+  }
+
+  public <T> DbCursor<T> cursor(Class<T> clazz, int fetchSize, String sql, Object... paras) {
+    return DbCursor.open(readConfig(), clazz, fetchSize, sql, paras);
+  }
+
+  /**
+   * 流式查询，关闭 Stream 时释放连接
+   * 
+   * <pre>
+   * 例子：
+   * try (Stream&lt;Row&gt; stream = Db.stream(sql, paras)) {
+   *   stream.forEach(row -&gt; export(row));
+   * }
+   * </pre>
+   */
+  public Stream<Row> stream(String sql, Object... paras) {
+    return cursor(sql, paras).stream();
+  }
+
+  public Stream<Row> stream(int fetchSize, String sql, Object... paras) {
+    return cursor(fetchSize, sql, paras).stream();
+  }
+
+  public <T> Stream<T> stream(Class<T> clazz, String sql, Object... paras) {
+    return cursor(clazz, sql, paras).stream();
+  }
+
+  public <T> Stream<T> stream(Class<T> clazz, int fetchSize, String sql, Object... paras) {
+    return cursor(clazz, fetchSize, sql, paras).stream();
+  }
+
   // ---------
 
   public DbTemplate template(String key, Map data) {
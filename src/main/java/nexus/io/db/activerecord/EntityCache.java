@@ -0,0 +1,429 @@
+package nexus.io.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.cache.IDbCache;
+
+/**
+ * 按主键缓存整行数据的实体缓存
+ *
+ * <pre>
+ * 1：通过 ActiveRecordPlugin.addMapping(tableName, primaryKey, modelClass, ttl) 或 addEntityCache(tableName, primaryKey, ttl) 按表开启，
+ *    没有指定主键时使用 Model 映射的主键，没有映射 Model 时使用 Dialect 的默认主键
+ * 2：Model.findById、findByIds、findIn 与 DbPro.findById、findByIds、findIn 先查缓存，未命中时从主库查询并写入缓存，
+ *    只缓存 select * 的结果，findByIdLoadColumns 等只查询部分列的方法不使用缓存；
+ *    DbPro 方法传入的 primaryKey 与表的主键不同时 (如按唯一索引查询) 不使用缓存
+ * 3：findIn 先逐个查缓存，未命中的主键合并为一条 in 查询，返回结果按传入的主键顺序排列
+ * 4：Model.update、delete、deleteById 与 DbPro.update、deleteById、delete 之后删除对应的缓存，
+ *    无法确定主键的删除 (deleteByField 等) 删除该表的全部缓存
+ * 5：事务中的查询不使用缓存，事务中的写入在写入时与 commit 之后各删除一次，防止其他线程在 commit 之前把旧值写回缓存
+ * 6：缓存名为 CACHE_NAME_PREFIX + Config 名称 + ":" + 表名，key 为主键值，联合主键用逗号分隔，
+ *    缓存中保存列名到值的 HashMap，每次返回新的 Row 或 Model
+ * 7：直接执行 sql 的写入 (Db.update(sql) 等) 不会删除缓存，需要调用 evict 或 evictAll
+ *
+ * 例如：
+ * arp.addMapping("user", "id", User.class, 600);
+ * User user = User.dao.findById(1);         // 查询数据库并写入缓存
+ * List&lt;User&gt; users = User.dao.findIn(1, 2, 3); // 只查询 2、3
+ * user.setName("tom").update();               // 删除 user 1 的缓存
+ * Db.update("update user set status = 0 where dept_id = ?", 5);
+ * arp.getConfig().getEntityCache().evictAll("user");
+ * </pre>
+ */
+@Slf4j
+public class EntityCache {
+
+  public static final String CACHE_NAME_PREFIX = "_entity_cache:";
+  private static final Set<String> ALL_KEYS = Collections.unmodifiableSet(new HashSet<>());
+
+  private final Config config;
+  private final ConcurrentHashMap<String, Integer> tables = new ConcurrentHashMap<>();
+  // 表名到主键，联合主键用逗号分隔，没有记录时使用 Dialect 的默认主键
+  private final ConcurrentHashMap<String, String> primaryKeys = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+  // 当前线程事务中写入、commit 之后再次删除的缓存，值为 ALL_KEYS 时删除整个表
+  private final ThreadLocal<Map<String, Set<String>>> pending = new ThreadLocal<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  EntityCache(Config config) {
+    this.config = config;
+  }
+
+  /**
+   * 开启 table 的实体缓存
+   *
+   * @param ttl 缓存时间，单位秒，小于 1 时使用缓存的默认配置
+   */
+  public EntityCache enable(String table, int ttl) {
+    return enable(table, null, ttl);
+  }
+
+  /**
+   * @param primaryKey 表的主键，联合主键用逗号分隔，为 null 时使用 Model 映射的主键或 Dialect 的默认主键
+   */
+  public EntityCache enable(String table, String primaryKey, int ttl) {
+    table = normalizeName(table);
+    if (primaryKey != null) {
+      primaryKeys.put(table, normalizePrimaryKey(primaryKey));
+    }
+    tables.put(table, ttl);
+    return this;
+  }
+
+  public EntityCache disable(String table) {
+    table = normalizeName(table);
+    evictAll(table);
+    tables.remove(table);
+    primaryKeys.remove(table);
+    return this;
+  }
+
+  public boolean isEnabled(String table) {
+    return table != null && tables.containsKey(normalizeName(table));
+  }
+
+  /**
+   * 是否有表开启了实体缓存，没有时 Config.getConnection() 不记录事务
+   */
+  boolean isActive() {
+    return !tables.isEmpty();
+  }
+
+  /**
+   * 由 ActiveRecordPlugin.start() 调用，记录 Model 映射的主键，enable 时指定了主键的表不覆盖
+   */
+  void mapPrimaryKey(String table, String[] primaryKey) {
+    primaryKeys.putIfAbsent(normalizeName(table), normalizePrimaryKey(primaryKey));
+  }
+
+  /**
+   * 在 caller 上按 primaryKey 查询 table 时是否使用缓存，caller 处于事务中或 primaryKey 不是表的主键时不使用
+   */
+  boolean isCacheable(Config caller, String table, String... primaryKey) {
+    return !tables.isEmpty() && isEnabled(table) && !caller.isInTransaction() && !config.isInTransaction() && isPrimaryKey(table, primaryKey);
+  }
+
+  private boolean isPrimaryKey(String table, String... primaryKey) {
+    String tablePrimaryKey = primaryKeys.get(normalizeName(table));
+    if (tablePrimaryKey == null) {
+      tablePrimaryKey = normalizePrimaryKey(config.dialect.getDefaultPrimaryKey());
+    }
+    return tablePrimaryKey.equals(normalizePrimaryKey(primaryKey));
+  }
+
+  /**
+   * 删除主键为 idValues 的缓存，用于不经过 Model、DbPro 主键方法的写入
+   */
+  public void evict(String table, Object... idValues) {
+    table = normalizeName(table);
+    if (!tables.containsKey(table)) {
+      return;
+    }
+    String key = keyOf(idValues);
+    remove(table, key);
+    if (config.isInTransaction()) {
+      Set<String> keys = pendingKeys(table);
+      if (keys != ALL_KEYS) {
+        keys.add(key);
+      }
+    }
+  }
+
+  /**
+   * 按 primaryKey 写入之后删除缓存，primaryKey 不是表的主键时无法确定对应的缓存，删除 table 的全部缓存
+   */
+  void evict(String table, String primaryKey, Object[] idValues) {
+    if (!isEnabled(table)) {
+      return;
+    }
+    if (isPrimaryKey(table, primaryKey)) {
+      evict(table, idValues);
+    } else {
+      evictAll(table);
+    }
+  }
+
+  /**
+   * 删除 table 的全部缓存
+   */
+  public void evictAll(String table) {
+    table = normalizeName(table);
+    if (!tables.containsKey(table)) {
+      return;
+    }
+    versionOf(table).incrementAndGet();
+    evictions.increment();
+    try {
+      config.getCache().removeAll(cacheName(table));
+    } catch (Exception e) {
+      log.warn("Remove entity cache " + table + " error: " + e.getMessage());
+    }
+    if (config.isInTransaction()) {
+      Map<String, Set<String>> map = pending.get();
+      if (map == null) {
+        map = new HashMap<>();
+        pending.set(map);
+      }
+      map.put(table, ALL_KEYS);
+    }
+  }
+
+  /**
+   * 按主键获取，未命中时由 loader 查询，loader 返回 null 时不缓存
+   */
+  Map<String, Object> get(String table, Object[] idValues, Supplier<Map<String, Object>> loader) {
+    table = normalizeName(table);
+    String cacheName = cacheName(table);
+    String key = keyOf(idValues);
+    AtomicLong version = versionOf(table);
+    long[] loadVersion = { -1 };
+    Map<String, Object> ret = config.getCacheLoader().get(cacheName, key, tables.getOrDefault(table, -1), null, () -> {
+      loadVersion[0] = version.get();
+      Map<String, Object> columns = loader.get();
+      return columns != null ? new HashMap<>(columns) : null;
+    });
+    if (loadVersion[0] < 0) {
+      hits.increment();
+    } else {
+      misses.increment();
+      if (loadVersion[0] != version.get()) {
+        // 查询期间有写入，刚写入的可能是旧值
+        config.getCache().remove(cacheName, key);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * 按单列主键批量获取，未命中的主键由 loader 一次查询，返回结果按 idValues 的顺序排列，不存在的主键被忽略
+   */
+  List<Map<String, Object>> getAll(String table, String primaryKey, Object[] idValues,
+      Function<Object[], List<? extends Map<String, Object>>> loader) {
+    table = normalizeName(table);
+    String cacheName = cacheName(table);
+    IDbCache cache = config.getCache();
+    Map<String, Map<String, Object>> found = new LinkedHashMap<>();
+    List<Object> missing = new ArrayList<>();
+    for (Object idValue : idValues) {
+      String key = keyOf(idValue);
+      if (found.containsKey(key)) {
+        continue;
+      }
+      Object cached = cache.get(cacheName, key);
+      if (cached instanceof CacheLoader.CachedValue) {
+        cached = ((CacheLoader.CachedValue) cached).getValue();
+      }
+      @SuppressWarnings("unchecked")
+      Map<String, Object> columns = (Map<String, Object>) cached;
+      found.put(key, columns);
+      if (columns == null) {
+        missing.add(idValue);
+      }
+    }
+    hits.add(found.size() - missing.size());
+    misses.add(missing.size());
+
+    if (!missing.isEmpty()) {
+      AtomicLong version = versionOf(table);
+      long loadVersion = version.get();
+      int ttl = tables.getOrDefault(table, -1);
+      List<String> loadedKeys = new ArrayList<>();
+      for (Map<String, Object> row : loader.apply(missing.toArray())) {
+        Object id = valueOf(row, primaryKey.trim());
+        if (id == null) {
+          continue;
+        }
+        String key = keyOf(id);
+        Map<String, Object> columns = new HashMap<>(row);
+        found.put(key, columns);
+        if (ttl > 0) {
+          cache.put(cacheName, key, columns, ttl);
+        } else {
+          cache.put(cacheName, key, columns);
+        }
+        loadedKeys.add(key);
+      }
+      if (loadVersion != version.get()) {
+        for (String key : loadedKeys) {
+          cache.remove(cacheName, key);
+        }
+      }
+    }
+
+    List<Map<String, Object>> ret = new ArrayList<>(found.size());
+    for (Map<String, Object> columns : found.values()) {
+      if (columns != null) {
+        ret.add(columns);
+      }
+    }
+    return ret;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public String toString() {
+    long total = getHitCount() + getMissCount();
+    return "EntityCache[tables=" + tables.keySet() + ", hits=" + getHitCount() + "/" + total + ", evictions=" + getEvictionCount() + "]";
+  }
+
+  private void remove(String table, String key) {
+    versionOf(table).incrementAndGet();
+    evictions.increment();
+    try {
+      config.getCache().remove(cacheName(table), key);
+    } catch (Exception e) {
+      log.warn("Remove entity cache " + table + " key " + key + " error: " + e.getMessage());
+    }
+  }
+
+  private Set<String> pendingKeys(String table) {
+    Map<String, Set<String>> map = pending.get();
+    if (map == null) {
+      map = new HashMap<>();
+      pending.set(map);
+    }
+    return map.computeIfAbsent(table, k -> new HashSet<>());
+  }
+
+  private void flush() {
+    Map<String, Set<String>> map = pending.get();
+    if (map == null) {
+      return;
+    }
+    pending.remove();
+    for (Map.Entry<String, Set<String>> e : map.entrySet()) {
+      if (e.getValue() == ALL_KEYS) {
+        evictAll(e.getKey());
+      } else {
+        for (String key : e.getValue()) {
+          remove(e.getKey(), key);
+        }
+      }
+    }
+  }
+
+  private AtomicLong versionOf(String table) {
+    return versions.computeIfAbsent(table, k -> new AtomicLong());
+  }
+
+  /**
+   * 缓存名包含 Config 名称，多个数据源共用一个缓存时同名的表互不影响
+   */
+  String cacheName(String table) {
+    return CACHE_NAME_PREFIX + config.getName() + ":" + table;
+  }
+
+  /**
+   * 主键值转为缓存 key，不同类型的相同值 (1、1L、"1") 对应同一个 key
+   */
+  static String keyOf(Object... idValues) {
+    if (idValues.length == 1) {
+      return String.valueOf(idValues[0]);
+    }
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < idValues.length; i++) {
+      if (i > 0) {
+        key.append(',');
+      }
+      key.append(idValues[i]);
+    }
+    return key.toString();
+  }
+
+  private static Object valueOf(Map<String, Object> columns, String column) {
+    Object value = columns.get(column);
+    if (value != null) {
+      return value;
+    }
+    for (Map.Entry<String, Object> e : columns.entrySet()) {
+      if (e.getKey().equalsIgnoreCase(column)) {
+        return e.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static String normalizeName(String table) {
+    return table.trim().toLowerCase();
+  }
+
+  private static String normalizePrimaryKey(String... primaryKey) {
+    StringBuilder ret = new StringBuilder();
+    for (String part : primaryKey) {
+      for (String column : part.split(",")) {
+        if (ret.length() > 0) {
+          ret.append(',');
+        }
+        ret.append(column.trim().toLowerCase());
+      }
+    }
+    return ret.toString();
+  }
+
+  /**
+   * 由 Config.getConnection() 调用，事务 commit 之后再次删除事务中写入的缓存
+   */
+  Connection track(Connection conn) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new ConnectionHandler(conn));
+  }
+
+  private class ConnectionHandler implements InvocationHandler {
+    private final Connection target;
+
+    ConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object ret;
+      try {
+        ret = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+
+      String name = method.getName();
+      if ("commit".equals(name) || "close".equals(name) || "setAutoCommit".equals(name) && Boolean.TRUE.equals(args[0])) {
+        flush();
+      } else if ("rollback".equals(name) && args == null) {
+        // 写入时已经删除过一次，回滚之后缓存中不会有未提交的值
+        pending.remove();
+      }
+      return ret;
+    }
+  }
+}
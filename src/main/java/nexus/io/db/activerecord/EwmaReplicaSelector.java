@@ -0,0 +1,54 @@
+package nexus.io.db.activerecord;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按 ewma 延迟 * (未关闭连接数 + 1) 选择负载最小的从库
+ *
+ * <pre>
+ * 1：变慢的从库 ewma 延迟升高，分到的请求随之减少，恢复后又逐渐增加
+ * 2：还没有延迟数据的从库使用其他从库 ewma 延迟的平均值，都没有数据时使用 MIN_LATENCY_NANOS，
+ *    新加入的从库不会在第一条语句执行完成之前拿到所有请求
+ * 3：获取连接失败时 ReplicaStats 按 ReplicaStats.FAILURE_PENALTY_NANOS 记录一次延迟，无法连接的从库得分随之升高
+ * 4：延迟不低于 MIN_LATENCY_NANOS，未关闭连接数始终参与比较
+ * </pre>
+ */
+public class EwmaReplicaSelector implements ReplicaSelector {
+
+  public static final double MIN_LATENCY_NANOS = 100000D;
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Override
+  public ReplicaStats select(List<ReplicaStats> candidates) {
+    int size = candidates.size();
+    double sum = 0;
+    int measured = 0;
+    for (int i = 0; i < size; i++) {
+      double latency = candidates.get(i).getEwmaLatencyNanos();
+      if (latency > 0) {
+        sum += latency;
+        measured++;
+      }
+    }
+    double seed = measured > 0 ? sum / measured : MIN_LATENCY_NANOS;
+
+    int start = Math.floorMod(counter.getAndIncrement(), size);
+    ReplicaStats ret = null;
+    double min = Double.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      ReplicaStats stats = candidates.get((start + i) % size);
+      double latency = stats.getEwmaLatencyNanos();
+      if (latency <= 0) {
+        latency = seed;
+      }
+      double score = Math.max(latency, MIN_LATENCY_NANOS) * (stats.getOutstanding() + 1);
+      if (score < min) {
+        min = score;
+        ret = stats;
+      }
+    }
+    return ret;
+  }
+}
@@ -7,6 +7,7 @@ package nexus.io.db.activerecord;
  * 1：创建 DbPro 继承类： public class MyDbPro extends DbPro
  * 2：创建 IDbProFactory 实现类：public class MyDbProFactory implements IDbProFactory，让其 getDbPro 方法 返回 MyDbPro 对象
  * 3：配置生效： activeRecordPlugin.setDbProFactory(new MyDbProFactory())
+ * 4：开启从库路由时覆盖 getPrimaryDbPro 方法，返回 new MyDbPro(configName, false)，供 DbPro.usePrimary() 使用
  * 
  * 注意：每个 ActiveRecordPlugin 对象拥有独立的 IDbProFactory 对象，多数据源使用时注意要对每个 arp 进行配置
  */
@@ -15,6 +16,14 @@ public interface IDbProFactory {
 	
 	DbPro getDbPro(String configName);
 	
+	/**
+	 * 创建 DbPro.usePrimary() 返回的对象，读操作不路由到从库
+	 * 每次返回新的对象，使用 DbPro(configName, false) 构造，自定义 DbPro 继承类时覆盖此方法
+	 */
+	default DbPro getPrimaryDbPro(String configName) {
+		return new DbPro(configName, false);
+	}
+	
 	static final IDbProFactory defaultDbProFactory = new IDbProFactory() {
 		public DbPro getDbPro(String configName) {
 			return new DbPro(configName);
@@ -0,0 +1,453 @@
+package nexus.io.db.activerecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import nexus.io.db.activerecord.bean.BeanMapping;
+import nexus.io.db.activerecord.bean.BeanMapping.FieldMapping;
+import nexus.io.db.activerecord.dialect.Dialect;
+
+/**
+ * keyset (seek) 分页使用的排序键
+ *
+ * <pre>
+ * 1：排序键按顺序组成唯一键，最后一列通常为主键，键的值不能为 null
+ * 2：下一页的条件为 (k1, k2) &gt; (?, ?)，由 Dialect.forKeysetSeek 生成，可以使用索引，与页码无关
+ * 3：游标 cursor 为上一页最后一行的键值编码后的字符串，可以直接返回给前端
+ *
+ * 例如：
+ * Keyset keyset = Keyset.of("created_at desc, id desc");
+ * KeysetPage&lt;Row&gt; page = Db.paginateByKeyset(20, "select *", "from article where status = ?", keyset, null, 1);
+ * KeysetPage&lt;Row&gt; next = Db.paginateByKeyset(20, "select *", "from article where status = ?", keyset, page.getNextCursor(), 1);
+ *
+ * 也可以使用已知的键值：
+ * String cursor = keyset.encode(lastCreatedAt, lastId);
+ * </pre>
+ */
+public class Keyset {
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte BIG_DECIMAL = 4;
+  private static final byte BIG_INTEGER = 5;
+  private static final byte TIMESTAMP = 6;
+  private static final byte DATE = 7;
+  private static final byte LOCAL_DATE_TIME = 8;
+  private static final byte LOCAL_DATE = 9;
+  private static final byte BOOLEAN = 10;
+  private static final byte UUID_VALUE = 11;
+  private static final byte SHORT = 12;
+  private static final byte DOUBLE = 13;
+  private static final byte SQL_DATE = 14;
+
+  private final String[] columns;
+  private final String[] labels;
+  private final boolean[] desc;
+
+  private Keyset(String[] columns, boolean[] desc) {
+    this.columns = columns;
+    this.desc = desc;
+    this.labels = new String[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      labels[i] = toLabel(columns[i]);
+    }
+  }
+
+  /**
+   * @param orderBy 与 order by 子句相同的格式，例如 "created_at desc, id desc"
+   */
+  public static Keyset of(String orderBy) {
+    if (orderBy == null || orderBy.trim().isEmpty()) {
+      throw new IllegalArgumentException("orderBy can not be blank");
+    }
+    String[] items = orderBy.split(",");
+    String[] columns = new String[items.length];
+    boolean[] desc = new boolean[items.length];
+    for (int i = 0; i < items.length; i++) {
+      String[] parts = items[i].trim().split("\\s+");
+      if (parts.length == 0 || parts[0].isEmpty() || parts.length > 2) {
+        throw new IllegalArgumentException("Invalid keyset column: " + items[i]);
+      }
+      columns[i] = parts[0];
+      if (parts.length == 2) {
+        if ("desc".equalsIgnoreCase(parts[1])) {
+          desc[i] = true;
+        } else if (!"asc".equalsIgnoreCase(parts[1])) {
+          throw new IllegalArgumentException("Invalid keyset order: " + items[i]);
+        }
+      }
+    }
+    return new Keyset(columns, desc);
+  }
+
+  /**
+   * 所有列使用同一个排序方向
+   */
+  public static Keyset of(boolean desc, String... columns) {
+    if (columns == null || columns.length == 0) {
+      throw new IllegalArgumentException("columns can not be empty");
+    }
+    String[] names = new String[columns.length];
+    boolean[] flags = new boolean[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      names[i] = columns[i].trim();
+      flags[i] = desc;
+    }
+    return new Keyset(names, flags);
+  }
+
+  /**
+   * 结果集中的列名：去掉表别名和包裹字符，如 a.`id` 为 id
+   */
+  private static String toLabel(String column) {
+    String label = column.substring(column.lastIndexOf('.') + 1);
+    if (label.length() > 1) {
+      char c = label.charAt(0);
+      if (c == '`' || c == '"' || c == '[') {
+        label = label.substring(1, label.length() - 1);
+      }
+    }
+    return label;
+  }
+
+  public int size() {
+    return columns.length;
+  }
+
+  public String getColumn(int index) {
+    return columns[index];
+  }
+
+  public String getLabel(int index) {
+    return labels[index];
+  }
+
+  public boolean isDesc(int index) {
+    return desc[index];
+  }
+
+  /**
+   * 所有列的排序方向是否相同
+   */
+  public boolean isSameDirection() {
+    for (int i = 1; i < desc.length; i++) {
+      if (desc[i] != desc[0]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public String forOrderBy() {
+    StringBuilder ret = new StringBuilder();
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        ret.append(", ");
+      }
+      ret.append(columns[i]).append(desc[i] ? " desc" : " asc");
+    }
+    return ret.toString();
+  }
+
+  /**
+   * 把键值编码为游标，values 的顺序与列的顺序相同
+   */
+  public String encode(Object... values) {
+    if (values == null || values.length != columns.length) {
+      throw new IllegalArgumentException("keyset value number must equals keyset column number");
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(values.length);
+      for (int i = 0; i < values.length; i++) {
+        writeValue(out, columns[i], values[i]);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+  }
+
+  /**
+   * 解码游标，返回键值
+   */
+  public Object[] decode(String cursor) {
+    byte[] data;
+    try {
+      data = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid keyset cursor: " + cursor, e);
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      int size = in.readUnsignedByte();
+      if (size != columns.length) {
+        throw new IllegalArgumentException("Keyset cursor does not match keyset columns: " + cursor);
+      }
+      Object[] values = new Object[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = readValue(in);
+        if (values[i] == null) {
+          throw new IllegalArgumentException("Keyset value can not be null, column: " + columns[i]);
+        }
+      }
+      if (in.available() > 0) {
+        throw new IllegalArgumentException("Invalid keyset cursor: " + cursor);
+      }
+      return values;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid keyset cursor: " + cursor, e);
+    }
+  }
+
+  /**
+   * 从 Row 中取出键值并编码为游标
+   */
+  public String encode(Row row) {
+    Object[] values = new Object[labels.length];
+    for (int i = 0; i < labels.length; i++) {
+      values[i] = row.get(labels[i]);
+    }
+    return encode(values);
+  }
+
+  /**
+   * 从 Model 中取出键值并编码为游标
+   */
+  public String encode(Model<?> model) {
+    Object[] values = new Object[labels.length];
+    for (int i = 0; i < labels.length; i++) {
+      values[i] = model.get(labels[i]);
+    }
+    return encode(values);
+  }
+
+  private static void writeValue(DataOutputStream out, String column, Object value) throws IOException {
+    if (value == null) {
+      throw new IllegalArgumentException("Keyset value can not be null, column: " + column);
+    }
+    if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      writeString(out, ((BigDecimal) value).toString());
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeString(out, value.toString());
+    } else if (value instanceof Double || value instanceof Float) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof Timestamp) {
+      Timestamp ts = (Timestamp) value;
+      out.writeByte(TIMESTAMP);
+      out.writeLong(ts.getTime());
+      out.writeInt(ts.getNanos());
+    } else if (value instanceof java.sql.Date) {
+      out.writeByte(SQL_DATE);
+      out.writeLong(((java.sql.Date) value).getTime());
+    } else if (value instanceof java.util.Date) {
+      out.writeByte(DATE);
+      out.writeLong(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDateTime) {
+      out.writeByte(LOCAL_DATE_TIME);
+      writeString(out, value.toString());
+    } else if (value instanceof LocalDate) {
+      out.writeByte(LOCAL_DATE);
+      writeString(out, value.toString());
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof UUID) {
+      UUID uuid = (UUID) value;
+      out.writeByte(UUID_VALUE);
+      out.writeLong(uuid.getMostSignificantBits());
+      out.writeLong(uuid.getLeastSignificantBits());
+    } else {
+      throw new IllegalArgumentException("Unsupported keyset value type: " + value.getClass().getName() + ", column: " + column);
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+    case NULL:
+      return null;
+    case STRING:
+      return readString(in);
+    case INTEGER:
+      return in.readInt();
+    case LONG:
+      return in.readLong();
+    case SHORT:
+      return in.readShort();
+    case BIG_DECIMAL:
+      return new BigDecimal(readString(in));
+    case BIG_INTEGER:
+      return new BigInteger(readString(in));
+    case DOUBLE:
+      return in.readDouble();
+    case TIMESTAMP:
+      Timestamp ts = new Timestamp(in.readLong());
+      ts.setNanos(in.readInt());
+      return ts;
+    case SQL_DATE:
+      return new java.sql.Date(in.readLong());
+    case DATE:
+      return new Timestamp(in.readLong());
+    case LOCAL_DATE_TIME:
+      return LocalDateTime.parse(readString(in));
+    case LOCAL_DATE:
+      return LocalDate.parse(readString(in));
+    case BOOLEAN:
+      return in.readBoolean();
+    case UUID_VALUE:
+      return new UUID(in.readLong(), in.readLong());
+    default:
+      throw new IOException("Unknown keyset value type: " + type);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int len = in.readInt();
+    if (len < 0 || len > in.available()) {
+      throw new IOException("Invalid string length: " + len);
+    }
+    byte[] bytes = new byte[len];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 从 bean 中取出键值并编码为游标
+   */
+  public String encodeBean(Object bean) {
+    BeanMapping mapping = BeanMapping.of(bean.getClass());
+    Object[] values = new Object[labels.length];
+    for (int i = 0; i < labels.length; i++) {
+      FieldMapping[] fields = mapping.getReadFields(labels[i]);
+      if (fields == null) {
+        throw new IllegalArgumentException("The field of keyset column " + labels[i] + " not found in " + bean.getClass().getName());
+      }
+      values[i] = fields[0].get(bean);
+    }
+    return encode(values);
+  }
+
+  /**
+   * 生成 keyset 分页的 sql，多查询一行用于判断是否有下一页
+   *
+   * @param cursor   上一页的游标，为 null 时查询第一页
+   * @param sqlParas 输出参数，保存 sql 参数与 keyset 参数
+   */
+  String forPaginate(Dialect dialect, int pageSize, String select, String sqlExceptSelect, String cursor, Object[] paras, List<Object> sqlParas) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be more than 0");
+    }
+    for (Object p : paras) {
+      sqlParas.add(p);
+    }
+    String seekSql = null;
+    if (cursor != null && !cursor.isEmpty()) {
+      seekSql = dialect.forKeysetSeek(this, decode(cursor), sqlParas);
+    }
+    StringBuilder findSql = new StringBuilder(buildFindSql(select, sqlExceptSelect, seekSql, forOrderBy()));
+    return dialect.forKeysetLimit(findSql, pageSize + 1);
+  }
+
+  /**
+   * 在 sqlExceptSelect 最外层的 where 条件后追加 keyset 条件和 order by
+   *
+   * <pre>
+   * from article where status = ?
+   * 转换为：
+   * from article where (status = ?) and (keyset 条件) order by created_at desc, id desc
+   * </pre>
+   *
+   * sqlExceptSelect 的最外层不能包含 group by、having、order by、limit、union
+   */
+  static String buildFindSql(String select, String sqlExceptSelect, String seekSql, String orderBy) {
+    int where = -1;
+    int depth = 0;
+    int len = sqlExceptSelect.length();
+    for (int i = 0; i < len; i++) {
+      char c = sqlExceptSelect.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        int end = sqlExceptSelect.indexOf(c, i + 1);
+        i = end < 0 ? len : end;
+        continue;
+      }
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && isWordStart(sqlExceptSelect, i)) {
+        if (matchWord(sqlExceptSelect, i, "where")) {
+          if (where < 0) {
+            where = i;
+          }
+        } else if (matchWord(sqlExceptSelect, i, "group") || matchWord(sqlExceptSelect, i, "having") || matchWord(sqlExceptSelect, i, "order")
+            || matchWord(sqlExceptSelect, i, "limit") || matchWord(sqlExceptSelect, i, "union") || matchWord(sqlExceptSelect, i, "offset")
+            || matchWord(sqlExceptSelect, i, "fetch")) {
+          throw new IllegalArgumentException("Keyset paginate does not support group by, having, order by, limit or union in sqlExceptSelect: " + sqlExceptSelect);
+        }
+      }
+    }
+
+    StringBuilder sql = new StringBuilder(select.length() + len + 64);
+    sql.append(select).append(' ');
+    if (where < 0) {
+      sql.append(sqlExceptSelect);
+      if (seekSql != null) {
+        sql.append(" where ").append(seekSql);
+      }
+    } else if (seekSql != null) {
+      sql.append(sqlExceptSelect, 0, where).append("where (").append(sqlExceptSelect.substring(where + 5).trim()).append(") and ").append(seekSql);
+    } else {
+      sql.append(sqlExceptSelect);
+    }
+    sql.append(" order by ").append(orderBy);
+    return sql.toString();
+  }
+
+  private static boolean isWordStart(String sql, int i) {
+    return i == 0 || !isWordChar(sql.charAt(i - 1));
+  }
+
+  private static boolean matchWord(String sql, int i, String word) {
+    int end = i + word.length();
+    return sql.regionMatches(true, i, word, 0, word.length()) && (end == sql.length() || !isWordChar(sql.charAt(end)));
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+  }
+}
@@ -0,0 +1,65 @@
+package nexus.io.db.activerecord;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * keyset 分页的结果，不包含 totalRow，使用 nextCursor 获取下一页
+ */
+public class KeysetPage<T> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private List<T> list;
+  private int pageSize;
+  private boolean hasNext;
+  private String nextCursor;
+
+  public KeysetPage(List<T> list, int pageSize, boolean hasNext, String nextCursor) {
+    this.list = list;
+    this.pageSize = pageSize;
+    this.hasNext = hasNext;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * list 为多查询一行的结果，多出的一行只用于判断是否有下一页
+   */
+  static <T> KeysetPage<T> build(List<T> list, int pageSize, Function<T, String> cursorEncoder) {
+    boolean hasNext = list.size() > pageSize;
+    if (hasNext) {
+      // subList 不能序列化，且会持有整个结果集
+      list = new ArrayList<T>(list.subList(0, pageSize));
+    }
+    String nextCursor = hasNext ? cursorEncoder.apply(list.get(list.size() - 1)) : null;
+    return new KeysetPage<T>(list, pageSize, hasNext, nextCursor);
+  }
+
+  public List<T> getList() {
+    return list;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * 是否有下一页
+   */
+  public boolean hasNext() {
+    return hasNext;
+  }
+
+  /**
+   * 下一页的游标，没有下一页时为 null
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public String toString() {
+    return "pageSize : " + pageSize + "\nhasNext : " + hasNext + "\nnextCursor : " + nextCursor + "\nlist : " + list;
+  }
+}
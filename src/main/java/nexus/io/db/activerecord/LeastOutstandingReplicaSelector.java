@@ -0,0 +1,29 @@
+package nexus.io.db.activerecord;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 选择未关闭连接数最少的从库，相同时从轮询的起点开始取第一个，避免总是选中第一个从库
+ */
+public class LeastOutstandingReplicaSelector implements ReplicaSelector {
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Override
+  public ReplicaStats select(List<ReplicaStats> candidates) {
+    int size = candidates.size();
+    int start = Math.floorMod(counter.getAndIncrement(), size);
+    ReplicaStats ret = null;
+    int min = Integer.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      ReplicaStats stats = candidates.get((start + i) % size);
+      int outstanding = stats.getOutstanding();
+      if (outstanding < min) {
+        min = outstanding;
+        ret = stats;
+      }
+    }
+    return ret;
+  }
+}
@@ -20,9 +20,8 @@ import java.util.function.Function;
 
 import com.jfinal.kit.TypeKit;
 
-import nexus.io.cache.IDbCache;
 import nexus.io.db.SqlPara;
-import nexus.io.db.activerecord.stat.ISqlStatementStat;
+import nexus.io.db.activerecord.stat.SqlStatementTimer;
 import nexus.io.model.db.IRow;
 import nexus.io.model.page.Page;
 
@@ -205,6 +204,9 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     return config;
   }
 
+  /**
+   * use(configName) 指定的 Config 不路由，映射的 Config 开启 readFromReplica 时在事务外使用从库
+   */
   protected Config _getReadConfig() {
     if (configName != null) {
       return DbKit.getConfig(configName);
@@ -213,7 +215,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     if (config == null) {
       return DbKit.getReadConfig();
     }
-    return config;
+    return config.getReadConfig();
   }
 
   /*
@@ -548,6 +550,22 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     }
   }
 
+  /**
+   * keyset (seek) 分页，不查询 totalRow，使用 nextCursor 获取下一页
+   * <pre>
+   * 举例：
+   * KeysetPage&lt;Article&gt; page = dao.paginateByKeyset(20, "select *", "from article where status = ?", Keyset.of("id desc"), cursor, 1);
+   * </pre>
+   */
+  public KeysetPage<M> paginateByKeyset(int pageSize, String select, String sqlExceptSelect, Keyset keyset, String cursor, Object... paras) {
+    sqlExceptSelect = replaceTableName(sqlExceptSelect);
+    Config config = _getReadConfig();
+    List<Object> sqlParas = new ArrayList<>();
+    String sql = keyset.forPaginate(config.dialect, pageSize, select, sqlExceptSelect, cursor, paras, sqlParas);
+    List<M> list = find(config, sql, sqlParas.toArray());
+    return KeysetPage.build(list, pageSize, keyset::encode);
+  }
+
   private String replaceTableName(String sqlExceptSelect) {
     if (sqlExceptSelect.contains("$table_name")) {
       sqlExceptSelect = sqlExceptSelect.replace("$table_name", _getTableName());
@@ -567,35 +585,8 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
           totalRowSql, findSql, paras);
     }
 
-    List result = Db.query(config, conn, totalRowSql, paras);
-    int size = result.size();
-    if (isGroupBySql == null) {
-      isGroupBySql = size > 1;
-    }
-
-    long totalRow;
-    if (isGroupBySql) {
-      totalRow = size;
-    } else {
-      totalRow = (size > 0) ? ((Number) result.get(0)).longValue() : 0;
-    }
-    if (totalRow == 0) {
-      return new Page<M>(new ArrayList<M>(0), pageNumber, pageSize, 0, 0); // totalRow = 0;
-    }
-
-    int totalPage = (int) (totalRow / pageSize);
-    if (totalRow % pageSize != 0) {
-      totalPage++;
-    }
-
-    if (pageNumber > totalPage) {
-      return new Page<M>(new ArrayList<M>(0), pageNumber, pageSize, totalPage, (int) totalRow);
-    }
-
-    // --------
-    String sql = config.dialect.forPaginate(pageNumber, pageSize, findSql);
-    List<M> list = find(config, conn, sql, paras);
-    return new Page<M>(list, pageNumber, pageSize, totalPage, (int) totalRow);
+    return Db.paginatePage(config, conn, pageNumber, pageSize, isGroupBySql, totalRowSql, findSql, paras,
+        sql -> find(config, conn, sql, paras));
   }
 
   protected Page<M> doPaginateByFullSql(int pageNumber, int pageSize, Boolean isGroupBySql, String totalRowSql,
@@ -710,7 +701,9 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
   public boolean delete() {
     Table table = _getTable();
     Row record = this.toRow();
-    return Db.delete(table.getName(), record);
+    boolean ret = Db.delete(table.getName(), record);
+    _evictEntity(table);
+    return ret;
   }
 
   /**
@@ -752,7 +745,9 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     try {
       conn = config.getConnection();
       String sql = config.dialect.forModelDeleteById(table);
-      return Db.update(config, conn, sql, idValues) >= 1;
+      boolean ret = Db.update(config, conn, sql, idValues) >= 1;
+      config.entityCache().evict(table.getName(), idValues);
+      return ret;
     } catch (Exception e) {
       throw new ActiveRecordException(e);
     } finally {
@@ -766,7 +761,9 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     try {
       conn = config.getConnection();
       String sql = config.dialect.forDbDeleteByField(table.getName(), field);
-      return Db.update(config, conn, sql, value) >= 1;
+      boolean ret = Db.update(config, conn, sql, value) >= 1;
+      config.entityCache().evictAll(table.getName());
+      return ret;
     } catch (Exception e) {
       throw new ActiveRecordException(e.getMessage(), e);
     } finally {
@@ -786,10 +783,11 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 
     Table table = _getTable();
     String[] pKeys = table.getPrimaryKey();
-    for (String pKey : pKeys) {
-      Object id = attrs.get(pKey);
-      if (id == null) {
-        throw new ActiveRecordException("You can't update model without Primary Key, " + pKey + " can not be null.");
+    Object[] ids = new Object[pKeys.length];
+    for (int i = 0; i < pKeys.length; i++) {
+      ids[i] = attrs.get(pKeys[i]);
+      if (ids[i] == null) {
+        throw new ActiveRecordException("You can't update model without Primary Key, " + pKeys[i] + " can not be null.");
       }
     }
 
@@ -809,6 +807,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
       int result = Db.update(config, conn, sql.toString(), paras.toArray());
       if (result >= 1) {
         clearModifyFlag();
+        config.entityCache().evict(table.getName(), ids);
         return true;
       }
       return false;
@@ -819,6 +818,23 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     }
   }
 
+  /**
+   * 删除当前 model 主键对应的实体缓存，主键不完整时删除整个表的缓存
+   */
+  private void _evictEntity(Table table) {
+    EntityCache entityCache = _getWriteConfig().entityCache();
+    String[] pKeys = table.getPrimaryKey();
+    Object[] ids = new Object[pKeys.length];
+    for (int i = 0; i < pKeys.length; i++) {
+      ids[i] = attrs.get(pKeys[i]);
+      if (ids[i] == null) {
+        entityCache.evictAll(table.getName());
+        return;
+      }
+    }
+    entityCache.evict(table.getName(), ids);
+  }
+
   public List<M> find(String tableName, String columns, Row record) {
     Connection conn = null;
     Config config = _getReadConfig();
@@ -840,43 +856,54 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     sql = replaceTableName(sql);
 
     PreparedStatement pst = null;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException("sql:" + sql + " params:" + Arrays.toString(paras), e);
     }
     ResultSet rs = null;
+    timer.prepared();
     try {
       rs = pst.executeQuery();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     }
     List<M> result = null;
     try {
       result = config.dialect.buildModelList(rs, _getUsefulClass());
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     } catch (ReflectiveOperationException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     } finally {
       try {
         DbKit.close(rs);
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e);
       }
 
       try {
         DbKit.close(pst);
       } catch (SQLException e) {
+        timer.failed(e);
         throw new ActiveRecordException(e);
       }
     }
 
+    timer.done(result.size());
     return result;
   }
 
@@ -906,37 +933,46 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     List<Object> paras = new ArrayList<>();
 
     StringBuffer sqlBuffer = config.dialect.forDbFind(tableName, columns, record, paras);
+    String sql = sqlBuffer.toString();
     PreparedStatement pst;
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try {
-      pst = conn.prepareStatement(sqlBuffer.toString());
+      pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     }
 
     List<M> result = null;
     ResultSet rs;
-    long start = System.currentTimeMillis();
+    timer.prepared();
     try {
       rs = pst.executeQuery();
+      timer.executed();
     } catch (SQLException e) {
-      throw new ActiveRecordException(e.getMessage() + " " + sqlBuffer.toString(), e);
+      timer.failed(e);
+      throw new ActiveRecordException(e.getMessage() + " " + sql, e);
     }
     try {
       result = config.dialect.buildModelList(rs, _getUsefulClass());
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     } catch (ReflectiveOperationException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e);
     } finally {
       if (rs != null) {
         try {
           rs.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e);
         }
       }
@@ -944,17 +980,13 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "find", sqlBuffer.toString(), paras, result.size(), start, elapsed, config.writeSync);
-    }
+    timer.done(result.size());
     return result;
   }
 
@@ -966,34 +998,41 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     StringBuffer sqlBuffer = config.dialect.forDbFindByField(tableName, columns, field, fieldValue, paras);
     PreparedStatement pst;
     String sql = sqlBuffer.toString();
+    SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
     try {
       pst = conn.prepareStatement(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
     try {
       config.dialect.fillStatement(pst, paras);
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
 
     List<M> result = null;
     ResultSet rs;
-    long start = System.currentTimeMillis();
+    timer.prepared();
     try {
       rs = pst.executeQuery();
+      timer.executed();
     } catch (SQLException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     }
     try {
       result = config.dialect.buildModelList(rs, _getUsefulClass());
     } catch (SQLException | ReflectiveOperationException e) {
+      timer.failed(e);
       throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
     } finally {
       if (rs != null) {
         try {
           rs.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
@@ -1001,17 +1040,13 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
         try {
           pst.close();
         } catch (SQLException e) {
+          timer.failed(e);
           throw new ActiveRecordException(e.getMessage(), sql, paras.toArray(), e);
         }
       }
     }
 
-    ISqlStatementStat stat = config.getSqlStatementStat();
-    if (stat != null) {
-      long end = System.currentTimeMillis();
-      long elapsed = end - start;
-      stat.save(config.name, "find", sql, paras, result.size(), start, elapsed, config.writeSync);
-    }
+    timer.done(result.size());
     return result;
   }
 
@@ -1219,10 +1254,81 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
     }
     Config config = _getReadConfig();
     String sql = config.dialect.forModelFindById(table, columns);
+    Config writeConfig = _getWriteConfig();
+    EntityCache entityCache = writeConfig.entityCache();
+    if ("*".equals(columns.trim()) && entityCache.isCacheable(config, table.getName(), table.getPrimaryKey())) {
+      // 未命中时从主库查询，避免缓存删除之后从延迟的从库读到旧值并再次缓存
+      Map<String, Object> attrs = entityCache.get(table.getName(), idValues, () -> {
+        List<M> result = find(writeConfig, sql, idValues);
+        return result.size() > 0 ? result.get(0)._getAttrs() : null;
+      });
+      return attrs != null ? _newEntity(attrs) : null;
+    }
     List<M> result = find(config, sql, idValues);
     return result.size() > 0 ? result.get(0) : null;
   }
 
+  /**
+   * Find models by id values, the table must have only one primary key.
+   * <pre>
+   * Example:
+   * List&lt;User&gt; users = User.dao.findIn(1, 2, 3);
+   * </pre>
+   * 表开启了实体缓存时先查缓存，未命中的主键合并为一条 in 查询，返回结果按 idValues 的顺序排列
+   * @param idValues the id values of the models
+   */
+  public List<M> findIn(Object... idValues) {
+    Table table = _getTable();
+    String[] pKeys = table.getPrimaryKey();
+    if (pKeys.length != 1) {
+      throw new IllegalArgumentException("findIn only supports table with one primary key");
+    }
+    if (idValues.length == 0) {
+      return new ArrayList<M>();
+    }
+    Config config = _getReadConfig();
+    Config writeConfig = _getWriteConfig();
+    EntityCache entityCache = writeConfig.entityCache();
+    if (!entityCache.isCacheable(config, table.getName(), pKeys)) {
+      return _doFindIn(config, table, idValues);
+    }
+    List<Map<String, Object>> list = entityCache.getAll(table.getName(), pKeys[0], idValues, missing -> {
+      List<Map<String, Object>> ret = new ArrayList<>();
+      for (M model : _doFindIn(writeConfig, table, missing)) {
+        ret.add(model._getAttrs());
+      }
+      return ret;
+    });
+    List<M> ret = new ArrayList<>(list.size());
+    for (Map<String, Object> attrs : list) {
+      ret.add(_newEntity(attrs));
+    }
+    return ret;
+  }
+
+  private List<M> _doFindIn(Config config, Table table, Object[] idValues) {
+    StringBuilder sql = new StringBuilder("select * from ").append(table.getName()).append(" where ").append(table.getPrimaryKey()[0])
+        .append(" in (");
+    for (int i = 0; i < idValues.length; i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+    }
+    sql.append(")");
+    return find(config, sql.toString(), idValues);
+  }
+
+  /**
+   * 实体缓存中的值被多个线程共享，每次返回新的 model
+   */
+  private M _newEntity(Map<String, Object> attrs) {
+    try {
+      M ret = (M) _getUsefulClass().newInstance();
+      ret.put(attrs);
+      return ret;
+    } catch (ReflectiveOperationException e) {
+      throw new ActiveRecordException(e);
+    }
+  }
+
   /**
    * Remove attribute of this model.
    * @param attr the attribute name of the model
@@ -1372,13 +1478,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
    */
   public List<M> findByCache(String cacheName, Object key, String sql, Object... paras) {
     Config config = _getReadConfig();
-    IDbCache cache = config.getCache();
-    List<M> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = find(config, sql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return _getWriteConfig().getCacheLoader().get(cacheName, key, -1, _getCacheTables(sql), () -> find(config, sql, paras));
   }
 
   /**
@@ -1397,13 +1497,7 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
    * @param paras the parameters of sql
    */
   public M findFirstByCache(String cacheName, Object key, String sql, Object... paras) {
-    IDbCache cache = _getReadConfig().getCache();
-    M result = cache.get(cacheName, key);
-    if (result == null) {
-      result = findFirst(sql, paras);
-      cache.put(cacheName, key, result);
-    }
-    return result;
+    return _getWriteConfig().getCacheLoader().get(cacheName, key, -1, _getCacheTables(sql), () -> findFirst(sql, paras));
   }
 
   /**
@@ -1441,13 +1535,56 @@ public abstract class Model<M extends Model> implements IRow<M>, Serializable {
 
   protected Page<M> doPaginateByCache(String cacheName, Object key, int pageNumber, int pageSize, Boolean isGroupBySql,
       String select, String sqlExceptSelect, Object... paras) {
-    IDbCache cache = _getReadConfig().getCache();
-    Page<M> result = cache.get(cacheName, key);
-    if (result == null) {
-      result = doPaginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras);
-      cache.put(cacheName, key, result);
+    return _getWriteConfig().getCacheLoader().get(cacheName, key, -1, _getCacheTables(sqlExceptSelect),
+        () -> doPaginate(pageNumber, pageSize, isGroupBySql, select, sqlExceptSelect, paras));
+  }
+
+  private Set<String> _getCacheTables(String sql) {
+    QueryCache queryCache = _getWriteConfig().queryCache();
+    return queryCache != null ? queryCache.tablesOf(sql) : null;
+  }
+
+  /**
+   * 使用 sql 与参数作为 key 缓存查询结果，sql 读取的表被写入之后自动删除，没有开启 QueryCache 时直接查询，
+   * 未命中时从主库查询，避免缓存删除之后从延迟的从库读到旧值
+   *
+   * @see QueryCache
+   */
+  public List<M> findByQueryCache(String sql, Object... paras) {
+    Config config = _getWriteConfig();
+    if (config.queryCache == null) {
+      return find(sql, paras);
     }
-    return result;
+    String key = QueryCache.keyOf(config, _getUsefulClass().getName() + ":find", sql, paras);
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, key, config.queryCacheTtl, _getCacheTables(sql),
+        () -> find(config, sql, paras));
+  }
+
+  /**
+   * @see #findByQueryCache(String, Object...)
+   */
+  public M findFirstByQueryCache(String sql, Object... paras) {
+    Config config = _getWriteConfig();
+    if (config.queryCache == null) {
+      return findFirst(sql, paras);
+    }
+    String key = QueryCache.keyOf(config, _getUsefulClass().getName() + ":findFirst", sql, paras);
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, key, config.queryCacheTtl, _getCacheTables(sql),
+        () -> DbKit.readFromPrimary(() -> findFirst(sql, paras)));
+  }
+
+  /**
+   * @see #findByQueryCache(String, Object...)
+   */
+  public Page<M> paginateByQueryCache(int pageNumber, int pageSize, String select, String sqlExceptSelect, Object... paras) {
+    Config config = _getWriteConfig();
+    if (config.queryCache == null) {
+      return paginate(pageNumber, pageSize, select, sqlExceptSelect, paras);
+    }
+    String key = QueryCache.keyOf(config, _getUsefulClass().getName() + ":paginate:" + pageNumber + ":" + pageSize,
+        select + " " + sqlExceptSelect, paras);
+    return config.getCacheLoader().get(QueryCache.CACHE_NAME, key, config.queryCacheTtl, _getCacheTables(sqlExceptSelect),
+        () -> DbKit.readFromPrimary(() -> doPaginate(pageNumber, pageSize, null, select, sqlExceptSelect, paras)));
   }
 
   public String getSql(String key) {
@@ -0,0 +1,223 @@
+package nexus.io.db.activerecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import nexus.io.db.SqlPara;
+
+/**
+ * 多个互相独立的查询并发执行，每个查询使用连接池中的一个连接，结果按添加顺序返回
+ *
+ * <pre>
+ * 1：查询在 Config 的 async 线程池中执行，并发数受 asyncParallelism 限制
+ * 2：deadline 是所有查询的总超时时间，到期时取消所有未完成的查询 (Statement.cancel())，并抛出 ActiveRecordException
+ * 3：任何一个查询失败时立即取消其他查询，并抛出该查询的异常，不等待添加在它之前的查询完成
+ * 4：useRead() 时每个查询通过 Db.useRead() 轮流路由到从库，只对主数据源有效
+ * 5：查询不在调用线程的事务中执行
+ *
+ * 例如：
+ * MultiQuery q = Db.multiQuery().deadline(2, TimeUnit.SECONDS).useRead();
+ * int users = q.find("select * from user where status = ?", 1);
+ * int orders = q.queryLong(Db.getSqlPara("order.count", kv));
+ * int top = q.findByKey("order.top", kv);
+ * List&lt;Object&gt; results = q.execute();
+ * List&lt;Row&gt; userList = MultiQuery.get(results, users);
+ * </pre>
+ */
+public class MultiQuery {
+
+  private final DbPro db;
+  private boolean useRead;
+  private long deadlineNanos;
+  private final List<Function<DbPro, ?>> actions = new ArrayList<>();
+
+  MultiQuery(DbPro db) {
+    this.db = db;
+  }
+
+  /**
+   * 所有查询的总超时时间，默认使用 Config.getAsyncTimeout()
+   */
+  public MultiQuery deadline(long timeout, TimeUnit unit) {
+    this.deadlineNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  public MultiQuery useRead() {
+    return useRead(true);
+  }
+
+  public MultiQuery useRead(boolean useRead) {
+    this.useRead = useRead;
+    return this;
+  }
+
+  /**
+   * 添加一个查询
+   *
+   * @return 该查询的结果在 execute() 返回的 list 中的下标
+   */
+  public int add(Function<DbPro, ?> action) {
+    actions.add(action);
+    return actions.size() - 1;
+  }
+
+  public int find(SqlPara sqlPara) {
+    return add(db -> db.find(sqlPara));
+  }
+
+  public int find(String sql, Object... paras) {
+    return add(db -> db.find(sql, paras));
+  }
+
+  public <T> int find(Class<T> clazz, SqlPara sqlPara) {
+    return add(db -> db.find(clazz, sqlPara));
+  }
+
+  /**
+   * 使用 SqlKit 中 key 对应的 sql 模板查询
+   */
+  public int findByKey(String key, Map<?, ?> data) {
+    return find(db.getSqlPara(key, data));
+  }
+
+  public int findByKey(String key, Object... paras) {
+    return find(db.getSqlPara(key, paras));
+  }
+
+  public int findFirst(SqlPara sqlPara) {
+    return add(db -> db.findFirst(sqlPara));
+  }
+
+  public int findFirst(String sql, Object... paras) {
+    return add(db -> db.findFirst(sql, paras));
+  }
+
+  public int query(SqlPara sqlPara) {
+    return add(db -> db.query(sqlPara));
+  }
+
+  public int queryLong(SqlPara sqlPara) {
+    return add(db -> db.queryLong(sqlPara.getSql(), sqlPara.getPara()));
+  }
+
+  public int queryLong(String sql, Object... paras) {
+    return add(db -> db.queryLong(sql, paras));
+  }
+
+  public int paginate(int pageNumber, int pageSize, SqlPara sqlPara) {
+    return add(db -> db.paginate(pageNumber, pageSize, sqlPara));
+  }
+
+  public int size() {
+    return actions.size();
+  }
+
+  /**
+   * 并发执行所有查询，等待全部完成，任何一个查询失败时立即取消其他查询并抛出异常，不等待先添加的查询
+   *
+   * @return 与添加顺序一致的结果
+   */
+  public List<Object> execute() {
+    int size = actions.size();
+    List<Object> ret = new ArrayList<>(size);
+    if (size == 0) {
+      return ret;
+    }
+
+    long timeout = deadlineNanos > 0 ? deadlineNanos : TimeUnit.MILLISECONDS.toNanos(db.getConfig().getAsyncTimeout());
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[size];
+    boolean routeToRead = useRead && db == Db.use();
+    for (int i = 0; i < size; i++) {
+      DbPro target = routeToRead ? Db.useRead() : db;
+      futures[i] = target.async().submit(actions.get(i));
+    }
+
+    // 第一个失败的查询取消其他查询，allOf 随之完成
+    AtomicInteger failed = new AtomicInteger(-1);
+    for (int i = 0; i < size; i++) {
+      int index = i;
+      futures[i].whenComplete((r, e) -> {
+        if (e != null && failed.compareAndSet(-1, index)) {
+          cancel(futures);
+        }
+      });
+    }
+
+    try {
+      if (timeout > 0) {
+        CompletableFuture.allOf(futures).get(timeout, TimeUnit.NANOSECONDS);
+      } else {
+        CompletableFuture.allOf(futures).get();
+      }
+    } catch (TimeoutException e) {
+      int running = 0;
+      while (running < size - 1 && futures[running].isDone()) {
+        running++;
+      }
+      cancel(futures);
+      throw new ActiveRecordException("Multi query did not complete in " + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms, query " + running
+          + " of " + size + " is still running", e);
+    } catch (ExecutionException e) {
+      // 在下面按第一个失败的查询抛出
+    } catch (InterruptedException e) {
+      cancel(futures);
+      Thread.currentThread().interrupt();
+      throw new ActiveRecordException(e);
+    }
+
+    // allOf 可能先于 whenComplete 回调完成，此时按添加顺序找第一个失败的查询
+    int index = failed.get();
+    for (int i = 0; index < 0 && i < size; i++) {
+      if (futures[i].isCompletedExceptionally()) {
+        index = i;
+      }
+    }
+    if (index >= 0) {
+      Throwable cause = causeOf(futures[index]);
+      if (cause instanceof ActiveRecordException) {
+        throw (ActiveRecordException) cause;
+      }
+      throw new ActiveRecordException("Query " + index + " of multi query failed: " + cause.getMessage(), cause);
+    }
+
+    for (CompletableFuture<?> future : futures) {
+      ret.add(future.join());
+    }
+    return ret;
+  }
+
+  private void cancel(CompletableFuture<?>[] futures) {
+    for (CompletableFuture<?> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  private Throwable causeOf(CompletableFuture<?> future) {
+    try {
+      future.join();
+      return null;
+    } catch (CompletionException e) {
+      return e.getCause();
+    } catch (CancellationException e) {
+      return e;
+    }
+  }
+
+  /**
+   * 从 execute() 的结果中取出下标为 index 的结果
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T get(List<Object> results, int index) {
+    return (T) results.get(index);
+  }
+}
@@ -0,0 +1,18 @@
+package nexus.io.db.activerecord;
+
+/**
+ * paginate 获取 totalRow 的方式
+ *
+ * <pre>
+ * EXACT：每次执行 forPaginateTotalRow 生成的 select count(*)
+ * CACHED：count 结果以归一化的 count sql 和参数为 key 放入 IDbCache，在 ttl 内不再查询
+ * ESTIMATED：使用数据库执行计划中的估算行数，dialect 不支持或 group by 查询时使用 EXACT
+ *
+ * 例如：
+ * arp.setPageCountStrategy(PageCountStrategy.CACHED).setPageCountCache("_page_count", 60);
+ * Page&lt;Row&gt; page = Db.paginate(PageCountStrategy.ESTIMATED, 1, 20, "select *", "from article");
+ * </pre>
+ */
+public enum PageCountStrategy {
+  EXACT, CACHED, ESTIMATED
+}
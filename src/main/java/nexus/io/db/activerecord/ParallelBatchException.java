@@ -0,0 +1,66 @@
+package nexus.io.db.activerecord;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 并行批处理中部分分段执行失败
+ *
+ * <pre>
+ * 1：getResult() 与输入的 list 一一对应，成功的分段为数据库返回的结果，失败的分段为 Statement.EXECUTE_FAILED
+ * 2：getFailures() 按 fromIndex 排序，每个失败的分段已回滚，其他分段已经提交
+ * </pre>
+ */
+public class ParallelBatchException extends ActiveRecordException {
+
+  private static final long serialVersionUID = -3571190254730942358L;
+
+  /**
+   * list 中 [fromIndex, toIndex) 的行执行失败
+   */
+  public static class Failure {
+    private final int fromIndex;
+    private final int toIndex;
+    private final Throwable cause;
+
+    public Failure(int fromIndex, int toIndex, Throwable cause) {
+      this.fromIndex = fromIndex;
+      this.toIndex = toIndex;
+      this.cause = cause;
+    }
+
+    public int getFromIndex() {
+      return fromIndex;
+    }
+
+    public int getToIndex() {
+      return toIndex;
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + fromIndex + ", " + toIndex + "): " + cause;
+    }
+  }
+
+  private final int[] result;
+  private final List<Failure> failures;
+
+  public ParallelBatchException(String sql, int[] result, List<Failure> failures) {
+    super(failures.size() + " of the batch partitions failed, first failure " + failures.get(0), sql, failures.get(0).getCause());
+    this.result = result;
+    this.failures = Collections.unmodifiableList(failures);
+  }
+
+  public int[] getResult() {
+    return result;
+  }
+
+  public List<Failure> getFailures() {
+    return failures;
+  }
+}
@@ -0,0 +1,534 @@
+package nexus.io.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.cache.IDbCache;
+
+/**
+ * 按表自动失效的查询缓存
+ *
+ * <pre>
+ * 1：findByCache、findFirstByCache、paginateByCache 以及 findByQueryCache 等方法写入缓存时，记录 sql 中 from、join 后的表
+ * 2：视图、函数等无法从 sql 中解析出实际读取的表时，用 declareView、declareSql 声明
+ * 3：Config.getConnection() 获取的连接上执行 insert、update、delete 等写操作后，删除读取了该表的缓存；
+ *    无法确定写入的表时 (DDL、存储过程等) 删除全部缓存
+ * 4：连接不是 autoCommit 时 (Db.tx、Tx 等事务中) 在 commit、rollback 之后删除
+ * 5：findByQueryCache 等方法使用 Config 名称、sql 与参数作为 key，缓存名为 QueryCache.CACHE_NAME，ttl 为 queryCacheTtl；
+ *    开启 readFromReplica 时未命中的查询使用主库，避免写入删除缓存之后立即从延迟的从库读到旧值并再次缓存
+ * 6：表与缓存的对应关系保存在本进程中，多个节点共享 Redis 缓存时其他节点的写入不会删除本节点写入的缓存，应设置较小的 ttl；
+ *    不经过 Config.getConnection() 的写入需要调用 invalidate(table)
+ *
+ * 例如：
+ * arp.setQueryCache(true).setQueryCacheTtl(300);
+ * arp.getConfig().getQueryCache().declareView("v_user_order", "user", "order");
+ * List&lt;Row&gt; list = Db.findByQueryCache("select * from user u join dept d on u.dept_id = d.id where u.status = ?", 1);
+ * Db.update("update dept set name = ? where id = ?", "R&amp;D", 1); // 删除上面的缓存
+ * </pre>
+ */
+@Slf4j
+public class QueryCache {
+
+  public static final String CACHE_NAME = "_query_cache";
+  static final int MAX_ENTRIES_PER_TABLE = 10000;
+  private static final String ALL_TABLES = "*";
+
+  private static final Pattern COMMENT = Pattern.compile("--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+  private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern FROM_JOIN = Pattern.compile("\\b(from|join)\\s+");
+  private static final Pattern WORD = Pattern.compile("[a-z_]+");
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("select", "lateral", "only", "where", "on", "using", "join",
+      "inner", "left", "right", "full", "outer", "cross", "natural", "straight_join", "group", "order", "having", "limit", "offset", "union",
+      "intersect", "except", "window", "for", "fetch", "into", "set", "values", "returning", "as", "with", "dual"));
+  private static final Set<String> READ_STATEMENTS = new HashSet<>(Arrays.asList("select", "show", "explain", "describe", "desc", "values",
+      "set", "begin", "start", "commit", "rollback", "savepoint", "release", "use", "analyze", "vacuum", "lock", "listen", "notify"));
+
+  private final ConcurrentHashMap<String, Set<Dependent>> index = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+  private final AtomicLong globalVersion = new AtomicLong();
+  private final ConcurrentHashMap<String, Set<String>> declaredSqls = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Set<String>> declaredViews = new ConcurrentHashMap<>();
+  // 当前线程事务中写入、commit 之后删除的表
+  private final ThreadLocal<Set<String>> pending = new ThreadLocal<>();
+  private final LongAdder invalidations = new LongAdder();
+
+  QueryCache() {
+  }
+
+  /**
+   * 声明视图或函数实际读取的表，sql 中出现 view 时依赖这些表
+   */
+  public QueryCache declareView(String view, String... tables) {
+    declaredViews.put(normalizeName(view), normalizeNames(tables));
+    return this;
+  }
+
+  /**
+   * 声明 sql 读取的表，不再解析该 sql
+   */
+  public QueryCache declareSql(String sql, String... tables) {
+    declaredSqls.put(sql, normalizeNames(tables));
+    return this;
+  }
+
+  /**
+   * sql 读取的表，包括声明的视图对应的表
+   */
+  public Set<String> tablesOf(String sql) {
+    Set<String> declared = declaredSqls.get(sql);
+    if (declared != null) {
+      return declared;
+    }
+    Set<String> tables = parseTables(sql);
+    if (!declaredViews.isEmpty()) {
+      Set<String> expanded = new LinkedHashSet<>(tables);
+      for (String table : tables) {
+        Set<String> base = declaredViews.get(table);
+        if (base != null) {
+          expanded.addAll(base);
+        }
+      }
+      tables = expanded;
+    }
+    return Collections.unmodifiableSet(tables);
+  }
+
+  /**
+   * 删除读取了 table 的缓存
+   */
+  public void invalidate(String table) {
+    table = normalizeName(table);
+    versions.computeIfAbsent(table, k -> new AtomicLong()).incrementAndGet();
+    invalidations.increment();
+    Set<Dependent> dependents = index.remove(table);
+    if (dependents == null) {
+      return;
+    }
+    for (Dependent dependent : dependents) {
+      try {
+        dependent.cache.remove(dependent.cacheName, dependent.key);
+      } catch (Exception e) {
+        log.warn("Remove query cache " + dependent.cacheName + " key " + dependent.key + " error: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * 删除所有记录了表的缓存
+   */
+  public void invalidateAll() {
+    globalVersion.incrementAndGet();
+    for (String table : new ArrayList<>(index.keySet())) {
+      invalidate(table);
+    }
+  }
+
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  /**
+   * 记录了依赖关系的缓存数量，一个缓存依赖多个表时重复计算
+   */
+  public int getTrackedCount() {
+    int count = 0;
+    for (Set<Dependent> dependents : index.values()) {
+      count += dependents.size();
+    }
+    return count;
+  }
+
+  /**
+   * 加载之前记录 tables 的版本，register 时版本发生变化说明加载期间有写入
+   */
+  long[] versions(Set<String> tables) {
+    long[] ret = new long[tables.size() + 1];
+    ret[0] = globalVersion.get();
+    int i = 1;
+    for (String table : tables) {
+      AtomicLong version = versions.get(table);
+      ret[i++] = version == null ? 0 : version.get();
+    }
+    return ret;
+  }
+
+  /**
+   * 记录缓存依赖的表，加载期间表被写入时删除刚写入的缓存
+   */
+  void register(IDbCache cache, String cacheName, Object key, Set<String> tables, long[] loadVersions) {
+    if (tables.isEmpty()) {
+      return;
+    }
+    Dependent dependent = new Dependent(cache, cacheName, key);
+    for (String table : tables) {
+      Set<Dependent> dependents = index.computeIfAbsent(table, k -> ConcurrentHashMap.newKeySet());
+      dependents.add(dependent);
+      if (dependents.size() > MAX_ENTRIES_PER_TABLE) {
+        invalidate(table);
+      }
+    }
+    if (!Arrays.equals(loadVersions, versions(tables))) {
+      cache.remove(cacheName, key);
+    }
+  }
+
+  /**
+   * conn 上写入了 table，table 为 null 时表示无法确定写入的表
+   */
+  void written(Connection conn, String table) {
+    boolean autoCommit;
+    try {
+      autoCommit = conn.getAutoCommit();
+    } catch (SQLException e) {
+      autoCommit = true;
+    }
+    if (autoCommit) {
+      invalidateTable(table);
+      return;
+    }
+    Set<String> tables = pending.get();
+    if (tables == null) {
+      tables = new HashSet<>();
+      pending.set(tables);
+    }
+    tables.add(table == null ? ALL_TABLES : table);
+  }
+
+  private void invalidateTable(String table) {
+    if (table == null) {
+      invalidateAll();
+    } else {
+      invalidate(table);
+    }
+  }
+
+  private void flush() {
+    Set<String> tables = pending.get();
+    if (tables == null) {
+      return;
+    }
+    pending.remove();
+    if (tables.contains(ALL_TABLES)) {
+      invalidateAll();
+      return;
+    }
+    for (String table : tables) {
+      invalidate(table);
+    }
+  }
+
+  /**
+   * findByQueryCache 等方法的缓存 key
+   */
+  static String keyOf(Config config, String type, String sql, Object[] paras) {
+    return config.getName() + ":" + type + ":" + sql + ":" + Arrays.deepToString(paras);
+  }
+
+  /**
+   * 解析 sql 中 from、join 后的表名，表名为小写，不含 schema 与引号
+   */
+  public static Set<String> parseTables(String sql) {
+    String s = normalize(sql);
+    Set<String> tables = new LinkedHashSet<>();
+    Matcher m = FROM_JOIN.matcher(s);
+    while (m.find()) {
+      boolean from = "from".equals(m.group(1));
+      int i = m.end();
+      while (true) {
+        i = skipSpaces(s, i);
+        int start = i;
+        while (i < s.length() && isIdentifierPart(s.charAt(i))) {
+          i++;
+        }
+        if (i == start) {
+          break;
+        }
+        String name = tableName(s.substring(start, i));
+        if (!name.isEmpty() && !KEYWORDS.contains(name)) {
+          tables.add(name);
+        }
+        if (!from) {
+          break;
+        }
+        // from a x, b as y
+        i = skipAlias(s, i);
+        if (i < s.length() && s.charAt(i) == ',') {
+          i++;
+        } else {
+          break;
+        }
+      }
+    }
+    return tables;
+  }
+
+  /**
+   * 解析写操作的表名
+   *
+   * @return 写入的表名；不是写操作时返回空字符串；无法确定写入的表时返回 null
+   */
+  public static String parseWriteTable(String sql) {
+    String s = normalize(sql).trim();
+    Matcher m = WORD.matcher(s);
+    if (!m.lookingAt()) {
+      // 例如 {call proc(?)}
+      return null;
+    }
+    String first = m.group();
+    if (READ_STATEMENTS.contains(first)) {
+      return "";
+    }
+    if ("with".equals(first)) {
+      return Pattern.compile("\\b(insert|update|delete|merge)\\b").matcher(s).find() ? null : "";
+    }
+
+    int i;
+    switch (first) {
+    case "insert":
+    case "replace":
+    case "merge":
+      i = indexAfter(s, "into");
+      break;
+    case "update":
+      i = skipWords(s, m.end(), "only", "low_priority", "ignore");
+      break;
+    case "delete":
+      i = indexAfter(s, "from");
+      break;
+    case "truncate":
+      i = skipWords(s, m.end(), "table", "only");
+      break;
+    case "copy":
+      i = m.end();
+      break;
+    default:
+      return null;
+    }
+    if (i < 0) {
+      return null;
+    }
+    i = skipSpaces(s, i);
+    int start = i;
+    while (i < s.length() && isIdentifierPart(s.charAt(i))) {
+      i++;
+    }
+    String name = tableName(s.substring(start, i));
+    return name.isEmpty() || KEYWORDS.contains(name) ? null : name;
+  }
+
+  private static String normalize(String sql) {
+    String s = COMMENT.matcher(sql).replaceAll(" ");
+    s = LITERAL.matcher(s).replaceAll("''");
+    return s.toLowerCase();
+  }
+
+  private static int skipSpaces(String s, int i) {
+    while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipAlias(String s, int i) {
+    for (int n = 0; n < 2; n++) {
+      int start = skipSpaces(s, i);
+      int end = start;
+      while (end < s.length() && isIdentifierPart(s.charAt(end))) {
+        end++;
+      }
+      if (end == start) {
+        return start;
+      }
+      String word = s.substring(start, end);
+      if (KEYWORDS.contains(word) && !"as".equals(word)) {
+        return start;
+      }
+      i = end;
+      if (!"as".equals(word)) {
+        break;
+      }
+    }
+    return skipSpaces(s, i);
+  }
+
+  private static int skipWords(String s, int i, String... words) {
+    while (true) {
+      int start = skipSpaces(s, i);
+      int end = start;
+      while (end < s.length() && (Character.isLetter(s.charAt(end)) || s.charAt(end) == '_')) {
+        end++;
+      }
+      if (end > start && Arrays.asList(words).contains(s.substring(start, end))) {
+        i = end;
+      } else {
+        return start;
+      }
+    }
+  }
+
+  private static int indexAfter(String s, String word) {
+    Matcher m = Pattern.compile("\\b" + word + "\\b").matcher(s);
+    return m.find() ? m.end() : -1;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.' || c == '"' || c == '`' || c == '[' || c == ']';
+  }
+
+  private static String tableName(String identifier) {
+    String name = identifier.replace("\"", "").replace("`", "").replace("[", "").replace("]", "");
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 ? name.substring(dot + 1) : name;
+  }
+
+  private static String normalizeName(String table) {
+    return tableName(table.trim().toLowerCase());
+  }
+
+  private static Set<String> normalizeNames(String... tables) {
+    Set<String> ret = new LinkedHashSet<>();
+    for (String table : tables) {
+      ret.add(normalizeName(table));
+    }
+    return Collections.unmodifiableSet(ret);
+  }
+
+  /**
+   * 由 Config.getConnection() 调用，记录连接上的写操作，commit 之后删除缓存
+   */
+  Connection track(Connection conn) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new ConnectionHandler(conn));
+  }
+
+  private class ConnectionHandler implements InvocationHandler {
+    private final Connection target;
+
+    ConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object ret;
+      try {
+        ret = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+
+      String name = method.getName();
+      if ("commit".equals(name) || "rollback".equals(name) && args == null || "close".equals(name)
+          || "setAutoCommit".equals(name) && Boolean.TRUE.equals(args[0])) {
+        // rollback、close 时未 commit 的写入也删除，多删除不影响正确性
+        flush();
+      } else if (ret instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+        String sql = name.startsWith("prepare") ? (String) args[0] : null;
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+            new StatementHandler(target, ret, sql));
+      }
+      return ret;
+    }
+  }
+
+  private class StatementHandler implements InvocationHandler {
+    private final Connection conn;
+    private final Object target;
+    private final String sql;
+    private List<String> batchSqls;
+
+    StatementHandler(Connection conn, Object target, String sql) {
+      this.conn = conn;
+      this.target = target;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object ret;
+      try {
+        ret = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+
+      String name = method.getName();
+      if ("addBatch".equals(name) && args != null && args.length == 1) {
+        if (batchSqls == null) {
+          batchSqls = new ArrayList<>();
+        }
+        batchSqls.add((String) args[0]);
+      } else if ("clearBatch".equals(name)) {
+        batchSqls = null;
+      } else if ("executeBatch".equals(name) || "executeLargeBatch".equals(name)) {
+        if (sql != null) {
+          written(sql);
+        }
+        if (batchSqls != null) {
+          for (String batchSql : batchSqls) {
+            written(batchSql);
+          }
+          batchSqls = null;
+        }
+      } else if (name.startsWith("execute")) {
+        // executeQuery 也可能是 insert ... returning
+        written(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql);
+      }
+      return ret;
+    }
+
+    private void written(String executed) {
+      if (executed == null) {
+        return;
+      }
+      String table = parseWriteTable(executed);
+      if (table == null || !table.isEmpty()) {
+        QueryCache.this.written(conn, table);
+      }
+    }
+  }
+
+  private static final class Dependent {
+    private final IDbCache cache;
+    private final String cacheName;
+    private final Object key;
+
+    Dependent(IDbCache cache, String cacheName, Object key) {
+      this.cache = cache;
+      this.cacheName = cacheName;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Dependent)) {
+        return false;
+      }
+      Dependent other = (Dependent) o;
+      return cache == other.cache && cacheName.equals(other.cacheName) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return cacheName.hashCode() * 31 + key.hashCode();
+    }
+  }
+}
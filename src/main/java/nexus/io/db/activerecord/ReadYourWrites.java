@@ -0,0 +1,162 @@
+package nexus.io.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.db.activerecord.dialect.Dialect;
+
+/**
+ * 读己之写：当前线程写入主库之后，Db.useRead() 只路由到已经应用了该写入的从库
+ *
+ * <pre>
+ * 1：主库 Config 开启 readYourWrites 后，当前线程在主库执行 update、batch 等写操作时被标记
+ * 2：之后第一次 Db.useRead() 时在主库查询复制位点 (PostgreSQL 的 WAL LSN、MySQL 的 GTID)，作为当前线程的 token
+ * 3：按 ReplicaSelector 的顺序检查健康的从库是否已经应用到 token，最多等待 readYourWritesMaxWait 毫秒，仍没有时使用主库
+ * 4：处于主库事务中时直接使用主库
+ * 5：token 可以跨请求传递，例如保存在 session 中，下一个请求开始时 setToken(token)
+ * 6：Dialect 不支持复制位点时，写入之后的读取都使用主库
+ * 7：状态保存在 ThreadLocal 中，线程池中执行的请求结束时应调用 clear()；Db.async() 中的写入不会标记调用线程
+ *
+ * 例如：
+ * arp.setReadYourWrites(true).setReadYourWritesMaxWait(200);
+ * Db.update("update account set balance = balance - ? where id = ?", 100, id);
+ * Db.useRead().findById("account", id); // 已应用该 update 的从库或主库
+ * session.setAttribute("rw-token", ReadYourWrites.getToken());
+ * ...
+ * ReadYourWrites.clear();
+ * </pre>
+ */
+@Slf4j
+public final class ReadYourWrites {
+
+  private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+  private static final class State {
+    boolean pending;
+    String token;
+  }
+
+  private ReadYourWrites() {
+  }
+
+  /**
+   * 标记当前线程已经写入主库，用于不经过 Statement 的写入
+   */
+  public static void markWritten() {
+    State state = STATE.get();
+    if (state == null) {
+      state = new State();
+      STATE.set(state);
+    }
+    state.pending = true;
+  }
+
+  /**
+   * 返回当前线程最后一次写入之后主库的复制位点，没有写入时返回 null
+   */
+  public static String getToken() {
+    State state = STATE.get();
+    if (state == null) {
+      return null;
+    }
+    if (state.pending) {
+      capture(DbKit.getConfig(), state);
+    }
+    return state.token;
+  }
+
+  /**
+   * 使用之前 getToken() 返回的复制位点，token 为 null 时等同于 clear()
+   */
+  public static void setToken(String token) {
+    if (token == null) {
+      clear();
+      return;
+    }
+    State state = new State();
+    state.token = token;
+    STATE.set(state);
+  }
+
+  public static void clear() {
+    STATE.remove();
+  }
+
+  /**
+   * 选择读取使用的从库
+   *
+   * @return 从库的下标，返回 -1 时使用主库
+   */
+  static int select(ReplicaRouter router, Config main) {
+    State state = STATE.get();
+    if (state == null || main == null || !main.readYourWrites) {
+      return router.selectHealthy();
+    }
+    if (state.pending && !capture(main, state)) {
+      return -1;
+    }
+    return router.selectCaughtUp(state.token, main.readYourWritesMaxWait);
+  }
+
+  private static boolean capture(Config main, State state) {
+    Dialect dialect = main.getDialect();
+    if (!dialect.isReplicationPositionSupported()) {
+      return false;
+    }
+    try {
+      // 复制位点必须在主库查询，经过读路由时会再次进入 select() 而无限递归
+      state.token = Db.use(main.getName()).usePrimary().queryStr(dialect.forReplicationPosition());
+      state.pending = false;
+      return state.token != null;
+    } catch (Exception e) {
+      log.warn("Query replication position error: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * 由 Config.getConnection() 调用，连接上执行写操作时标记当前线程
+   */
+  static Connection track(Connection conn) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new TrackedInvocationHandler(conn, true));
+  }
+
+  private static class TrackedInvocationHandler implements InvocationHandler {
+    private final Object target;
+    private final boolean connection;
+
+    TrackedInvocationHandler(Object target, boolean connection) {
+      this.target = target;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object ret;
+      try {
+        ret = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+
+      if (connection) {
+        if (ret instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+          return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+              new TrackedInvocationHandler(ret, false));
+        }
+      } else {
+        String name = method.getName();
+        if (name.startsWith("execute") && !"executeQuery".equals(name)) {
+          markWritten();
+        }
+      }
+      return ret;
+    }
+  }
+}
@@ -10,6 +10,8 @@ import java.util.function.Function;
 
 import org.postgresql.util.PGobject;
 
+import nexus.io.db.activerecord.bean.BeanMapping;
+import nexus.io.db.activerecord.bean.BeanMapping.FieldMapping;
 import nexus.io.db.activerecord.builder.BuilderKit;
 
 /**
@@ -100,6 +102,101 @@ public class RecordBuilder {
     return result;
   }
 
+  /**
+   * 直接把 ResultSet 转换为 bean，不创建中间的 Row
+   *
+   * <pre>
+   * 1：每次查询只根据列名绑定一次 列序号 -> bean 字段，列名按 containerFactory 的规则匹配
+   * 2：没有对应字段的列不会被读取
+   * 3：字段的类型转换与 DefaultRecordConvert 相同
+   * </pre>
+   */
+  public <T> List<T> buildBean(Config config, ResultSet rs, Class<T> beanClass) throws SQLException {
+    RowReader<T> reader = beanReader(config, rs, beanClass);
+    List<T> result = new ArrayList<T>();
+    while (rs.next()) {
+      result.add(reader.read(rs));
+    }
+    return result;
+  }
+
+  /**
+   * 读取 ResultSet 当前行，用于 DbCursor 等逐行处理的场景
+   */
+  public interface RowReader<T> {
+    T read(ResultSet rs) throws SQLException;
+  }
+
+  /**
+   * 创建把当前行转换为 Row 的 RowReader，列名和类型只解析一次
+   */
+  @SuppressWarnings("unchecked")
+  public RowReader<Row> rowReader(Config config, ResultSet rs) throws SQLException {
+    ResultSetMetaData rsmd = rs.getMetaData();
+    int columnCount = rsmd.getColumnCount();
+    String[] labelNames = new String[columnCount + 1];
+    int[] types = new int[columnCount + 1];
+    buildLabelNamesAndTypes(rsmd, labelNames, types);
+
+    IContainerFactory containerFactory = config.containerFactory;
+    return r -> {
+      Row record = new Row();
+      record.setColumnsMap(containerFactory.getColumnsMap());
+      Map<String, Object> columns = record.getColumns();
+      for (int i = 1; i <= columnCount; i++) {
+        columns.put(labelNames[i], getColumnValue(types, r, i));
+      }
+      return record;
+    };
+  }
+
+  /**
+   * 创建把当前行转换为 bean 的 RowReader，列序号与 bean 字段只绑定一次
+   */
+  public <T> RowReader<T> beanReader(Config config, ResultSet rs, Class<T> beanClass) throws SQLException {
+    BeanMapping mapping = BeanMapping.of(beanClass);
+    ResultSetMetaData rsmd = rs.getMetaData();
+    int columnCount = rsmd.getColumnCount();
+    String[] labelNames = new String[columnCount + 1];
+    int[] types = new int[columnCount + 1];
+    buildLabelNamesAndTypes(rsmd, labelNames, types);
+
+    // 与 Row 一样，重复的列名保留最后一列
+    @SuppressWarnings("unchecked")
+    Map<String, Object> columnIndexes = config.containerFactory.getColumnsMap();
+    for (int i = 1; i <= columnCount; i++) {
+      columnIndexes.put(labelNames[i], i);
+    }
+
+    FieldMapping[] readFields = mapping.getReadFields();
+    FieldMapping[] fields = new FieldMapping[readFields.length];
+    int[] indexes = new int[readFields.length];
+    int n = 0;
+    for (FieldMapping field : readFields) {
+      Object index = columnIndexes.get(field.getColumnName());
+      if (index != null) {
+        fields[n] = field;
+        indexes[n++] = (Integer) index;
+      }
+    }
+
+    int size = n;
+    return r -> {
+      T bean = mapping.newInstance();
+      for (int i = 0; i < size; i++) {
+        fields[i].set(bean, getColumnValue(types, r, indexes[i]));
+      }
+      return bean;
+    };
+  }
+
+  /**
+   * buildBean、RowReader 读取列值时使用，与 build 中对列值的处理保持一致
+   */
+  protected Object getColumnValue(int[] types, ResultSet rs, int i) throws SQLException {
+    return BuilderKit.getColumnValue(types, rs, i);
+  }
+
   public void buildLabelNamesAndTypes(ResultSetMetaData rsmd, String[] labelNames, int[] types) throws SQLException {
     for (int i = 1; i < labelNames.length; i++) {
       // 备忘：getColumnLabel 获取 sql as 子句指定的名称而非字段真实名称
@@ -33,6 +33,13 @@ public class ReplicaActiveRecordPlugin implements IPlugin {
   protected volatile boolean isStarted = false;
   protected List<Table> tableList = new ArrayList<Table>();
 
+  protected ReplicaSelector replicaSelector = ReplicaSelector.roundRobin();
+  protected ReplicaRouter replicaRouter;
+  protected long healthCheckInterval;
+  protected int healthCheckTimeout = 3;
+  protected int failureThreshold = 3;
+  protected int successThreshold = 2;
+
   public ReplicaActiveRecordPlugin(List<DataSource> datasources) {
     this.configs = new ArrayList<>();
     for (int i = 0; i < datasources.size(); i++) {
@@ -204,6 +211,48 @@ public class ReplicaActiveRecordPlugin implements IPlugin {
     return this;
   }
 
+  /**
+   * 从库选择策略，默认轮询
+   *
+   * @see ReplicaSelector#leastOutstanding()
+   * @see ReplicaSelector#ewma()
+   */
+  public ReplicaActiveRecordPlugin setReplicaSelector(ReplicaSelector replicaSelector) {
+    if (replicaSelector == null) {
+      throw new IllegalArgumentException("replicaSelector can not be null");
+    }
+    this.replicaSelector = replicaSelector;
+    return this;
+  }
+
+  /**
+   * 开启从库健康检查，每 intervalMillis 毫秒检查一次，连续 3 次失败后剔除，连续 2 次成功后恢复
+   */
+  public ReplicaActiveRecordPlugin setHealthCheck(long intervalMillis) {
+    return setHealthCheck(intervalMillis, healthCheckTimeout, failureThreshold, successThreshold);
+  }
+
+  /**
+   * @param intervalMillis   检查间隔，小于 1 时不检查
+   * @param timeoutSeconds   Connection.isValid 的超时时间
+   * @param failureThreshold 连续失败多少次后剔除
+   * @param successThreshold 剔除后连续成功多少次后恢复
+   */
+  public ReplicaActiveRecordPlugin setHealthCheck(long intervalMillis, int timeoutSeconds, int failureThreshold, int successThreshold) {
+    if (failureThreshold < 1 || successThreshold < 1) {
+      throw new IllegalArgumentException("failureThreshold and successThreshold must be greater than 0");
+    }
+    this.healthCheckInterval = intervalMillis;
+    this.healthCheckTimeout = timeoutSeconds;
+    this.failureThreshold = failureThreshold;
+    this.successThreshold = successThreshold;
+    return this;
+  }
+
+  public ReplicaRouter getReplicaRouter() {
+    return replicaRouter;
+  }
+
   public ReplicaActiveRecordPlugin setContainerFactory(IContainerFactory containerFactory) {
     if (containerFactory == null) {
       throw new IllegalArgumentException("containerFactory can not be null");
@@ -266,13 +315,21 @@ public class ReplicaActiveRecordPlugin implements IPlugin {
       tableBuilder.build(tableList, config);
     }
 
-    DbKit.addReplicaConfigs(configs);
+    replicaRouter = new ReplicaRouter(configs, replicaSelector);
+    DbKit.addReplicaConfigs(configs, replicaRouter);
+    if (healthCheckInterval > 0) {
+      replicaRouter.startHealthCheck(healthCheckInterval, healthCheckTimeout, failureThreshold, successThreshold);
+    }
 
     isStarted = true;
     return true;
   }
 
   public boolean stop() {
+    if (replicaRouter != null) {
+      replicaRouter.stop();
+    }
+    DbKit.removeReplicaConfigs(configs);
     for (Config config : configs) {
       DbKit.removeConfig(config.getName());
     }
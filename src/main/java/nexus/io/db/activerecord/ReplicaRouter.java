@@ -0,0 +1,187 @@
+package nexus.io.db.activerecord;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 从库路由，按 ReplicaSelector 在健康的从库中选择，并定时检查从库的健康状态
+ *
+ * <pre>
+ * 1：每个从库的 Config 关联一个 ReplicaStats，Config.getConnection() 获取的连接计入该从库的 outstanding 与延迟
+ * 2：健康检查从从库的 DataSource 获取连接并调用 Connection.isValid(timeout)，不计入 ReplicaStats
+ * 3：连续 failureThreshold 次失败后剔除，连续 successThreshold 次成功后恢复
+ * </pre>
+ */
+@Slf4j
+public class ReplicaRouter {
+
+  static final double EWMA_ALPHA = 0.2;
+  static final long CAUGHT_UP_POLL_MILLIS = 10;
+
+  private final List<ReplicaStats> replicas;
+  private volatile List<ReplicaStats> healthyReplicas;
+  private final ReplicaSelector selector;
+  private ScheduledExecutorService healthCheckExecutor;
+
+  public ReplicaRouter(List<Config> configs, ReplicaSelector selector) {
+    if (selector == null) {
+      throw new IllegalArgumentException("selector can not be null");
+    }
+    List<ReplicaStats> list = new ArrayList<>(configs.size());
+    for (int i = 0; i < configs.size(); i++) {
+      Config config = configs.get(i);
+      ReplicaStats stats = new ReplicaStats(i, config, EWMA_ALPHA);
+      config.replicaStats = stats;
+      list.add(stats);
+    }
+    this.replicas = Collections.unmodifiableList(list);
+    this.healthyReplicas = replicas;
+    this.selector = selector;
+  }
+
+  public ReplicaSelector getSelector() {
+    return selector;
+  }
+
+  public List<ReplicaStats> getReplicas() {
+    return replicas;
+  }
+
+  public List<ReplicaStats> getHealthyReplicas() {
+    return healthyReplicas;
+  }
+
+  /**
+   * 选择一个从库，全部不健康时在所有从库中选择
+   *
+   * @return 从库的下标
+   */
+  public int select() {
+    List<ReplicaStats> candidates = healthyReplicas;
+    if (candidates.isEmpty()) {
+      candidates = replicas;
+    }
+    return selector.select(candidates).getIndex();
+  }
+
+  /**
+   * 选择一个健康的从库
+   *
+   * @return 从库的下标，没有健康的从库时返回 -1
+   */
+  public int selectHealthy() {
+    List<ReplicaStats> candidates = healthyReplicas;
+    if (candidates.isEmpty()) {
+      return -1;
+    }
+    return selector.select(candidates).getIndex();
+  }
+
+  /**
+   * 选择一个已经应用到复制位点 position 的健康从库，先检查 ReplicaSelector 选中的从库，再依次检查其他从库
+   *
+   * @param maxWaitMillis 没有从库满足时最多等待的时间
+   * @return 从库的下标，没有满足的从库时返回 -1
+   */
+  int selectCaughtUp(String position, long maxWaitMillis) {
+    long deadline = System.currentTimeMillis() + maxWaitMillis;
+    while (true) {
+      List<ReplicaStats> candidates = healthyReplicas;
+      if (candidates.isEmpty()) {
+        return -1;
+      }
+      ReplicaStats selected = selector.select(candidates);
+      if (selected.isCaughtUp(position)) {
+        return selected.getIndex();
+      }
+      for (ReplicaStats stats : candidates) {
+        if (stats != selected && stats.isCaughtUp(position)) {
+          return stats.getIndex();
+        }
+      }
+
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return -1;
+      }
+      try {
+        Thread.sleep(Math.min(remaining, CAUGHT_UP_POLL_MILLIS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * 开启定时健康检查
+   *
+   * @param intervalMillis   检查间隔
+   * @param timeoutSeconds   Connection.isValid 的超时时间
+   * @param failureThreshold 连续失败多少次后剔除
+   * @param successThreshold 剔除后连续成功多少次后恢复
+   */
+  public synchronized void startHealthCheck(long intervalMillis, int timeoutSeconds, int failureThreshold, int successThreshold) {
+    if (intervalMillis < 1 || failureThreshold < 1 || successThreshold < 1) {
+      throw new IllegalArgumentException("intervalMillis, failureThreshold and successThreshold must be greater than 0");
+    }
+    stop();
+    healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "replica-health-check");
+      t.setDaemon(true);
+      return t;
+    });
+    healthCheckExecutor.scheduleWithFixedDelay(() -> probe(timeoutSeconds, failureThreshold, successThreshold), intervalMillis, intervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    if (healthCheckExecutor != null) {
+      healthCheckExecutor.shutdownNow();
+      healthCheckExecutor = null;
+    }
+  }
+
+  /**
+   * 检查所有从库一次
+   */
+  void probe(int timeoutSeconds, int failureThreshold, int successThreshold) {
+    boolean changed = false;
+    for (ReplicaStats stats : replicas) {
+      Throwable error = null;
+      try (Connection conn = stats.getConfig().getDataSource().getConnection()) {
+        if (!conn.isValid(timeoutSeconds)) {
+          error = new IllegalStateException("Connection is not valid");
+        }
+      } catch (Throwable e) {
+        error = e;
+      }
+
+      if (stats.probed(error, failureThreshold, successThreshold)) {
+        changed = true;
+        if (stats.isHealthy()) {
+          log.info("Replica {} is healthy again", stats.getName());
+        } else {
+          log.warn("Replica {} is ejected: {}", stats.getName(), error.getMessage());
+        }
+      }
+    }
+
+    if (changed) {
+      List<ReplicaStats> list = new ArrayList<>(replicas.size());
+      for (ReplicaStats stats : replicas) {
+        if (stats.isHealthy()) {
+          list.add(stats);
+        }
+      }
+      healthyReplicas = Collections.unmodifiableList(list);
+    }
+  }
+}
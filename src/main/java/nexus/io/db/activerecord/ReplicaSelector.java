@@ -0,0 +1,41 @@
+package nexus.io.db.activerecord;
+
+import java.util.List;
+
+/**
+ * 从库选择策略，Db.useReplica()、Db.useRead()、DbKit.useReplica() 每次调用时选择一个从库
+ *
+ * <pre>
+ * 1：candidates 为健康的从库，全部不健康时 Db.useReplica() 传入所有从库，Db.useRead() 直接使用主库
+ * 2：candidates 不为空，实现必须是线程安全的
+ *
+ * 例如：
+ * ReplicaActiveRecordPlugin rarp = new ReplicaActiveRecordPlugin(dataSources);
+ * rarp.setReplicaSelector(ReplicaSelector.ewma());
+ * </pre>
+ */
+public interface ReplicaSelector {
+
+  ReplicaStats select(List<ReplicaStats> candidates);
+
+  /**
+   * 轮询，默认策略
+   */
+  static ReplicaSelector roundRobin() {
+    return new RoundRobinReplicaSelector();
+  }
+
+  /**
+   * 选择未关闭连接数最少的从库
+   */
+  static ReplicaSelector leastOutstanding() {
+    return new LeastOutstandingReplicaSelector();
+  }
+
+  /**
+   * 选择 ewma 延迟 * (未关闭连接数 + 1) 最小的从库
+   */
+  static ReplicaSelector ewma() {
+    return new EwmaReplicaSelector();
+  }
+}
@@ -0,0 +1,236 @@
+package nexus.io.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个从库的运行状态，供 ReplicaSelector 选择从库，也可用于监控
+ *
+ * <pre>
+ * 1：outstanding 为当前从该从库获取且尚未关闭的连接数
+ * 2：latency 为 Statement 上单次 execute* 的耗时，ewmaLatency 为其指数加权移动平均，获取连接失败按 FAILURE_PENALTY_NANOS 计入。
+ *    不使用连接从获取到关闭的耗时，游标、stream、each 遍历结果以及回调中的业务代码不计入延迟
+ * 3：healthy 由健康检查维护，连续 failureThreshold 次检查失败后剔除，连续 successThreshold 次成功后恢复
+ *
+ * 例如：
+ * for (ReplicaStats stats : DbKit.getReplicaStats()) {
+ *   log.info("{} healthy={} outstanding={} ewma={}ms", stats.getName(), stats.isHealthy(), stats.getOutstanding(), stats.getEwmaLatencyMillis());
+ * }
+ * </pre>
+ */
+public class ReplicaStats {
+
+  /**
+   * 获取连接失败时计入 ewma 的延迟，1 秒
+   */
+  public static final long FAILURE_PENALTY_NANOS = 1000000000L;
+
+  private final int index;
+  private final Config config;
+  private final double ewmaAlpha;
+
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final AtomicLong ewmaLatencyBits = new AtomicLong(Double.doubleToLongBits(0));
+
+  private volatile boolean healthy = true;
+  private final AtomicLong ejectCount = new AtomicLong();
+  // 健康检查线程单线程访问
+  private int consecutiveFailures;
+  private int consecutiveSuccesses;
+  private volatile long lastProbeTimeMillis;
+  private volatile Throwable lastProbeError;
+  // 最近一次确认已经应用的复制位点
+  private volatile String caughtUpPosition;
+
+  ReplicaStats(int index, Config config, double ewmaAlpha) {
+    this.index = index;
+    this.config = config;
+    this.ewmaAlpha = ewmaAlpha;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public Config getConfig() {
+    return config;
+  }
+
+  public String getName() {
+    return config.getName();
+  }
+
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  public int getOutstanding() {
+    return outstanding.get();
+  }
+
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  /**
+   * 获取连接失败的次数
+   */
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  public double getEwmaLatencyNanos() {
+    return Double.longBitsToDouble(ewmaLatencyBits.get());
+  }
+
+  public double getEwmaLatencyMillis() {
+    return getEwmaLatencyNanos() / 1000000D;
+  }
+
+  public long getEjectCount() {
+    return ejectCount.get();
+  }
+
+  public long getLastProbeTimeMillis() {
+    return lastProbeTimeMillis;
+  }
+
+  public Throwable getLastProbeError() {
+    return lastProbeError;
+  }
+
+  /**
+   * 是否已经应用到主库的复制位点 position，查询失败时返回 false
+   */
+  boolean isCaughtUp(String position) {
+    if (position.equals(caughtUpPosition)) {
+      return true;
+    }
+    try {
+      Object ret = Db.useReplica(getName()).queryFirst(config.getDialect().forReplicaCaughtUp(), position);
+      boolean caughtUp = ret instanceof Boolean ? (Boolean) ret : ret instanceof Number && ((Number) ret).intValue() != 0;
+      if (caughtUp) {
+        caughtUpPosition = position;
+      }
+      return caughtUp;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  /**
+   * 由 Config.getConnection() 调用，连接关闭时更新 outstanding，Statement 执行完成时更新 latency
+   */
+  Connection track(Connection conn) {
+    outstanding.incrementAndGet();
+    requests.increment();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new TrackedInvocationHandler(conn, true));
+  }
+
+  void connectionFailed() {
+    requests.increment();
+    errors.increment();
+    updateEwma(FAILURE_PENALTY_NANOS);
+  }
+
+
+  private void updateEwma(long latencyNanos) {
+    while (true) {
+      long bits = ewmaLatencyBits.get();
+      double ewma = Double.longBitsToDouble(bits);
+      double next = ewma == 0 ? latencyNanos : ewma + ewmaAlpha * (latencyNanos - ewma);
+      if (ewmaLatencyBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * 记录一次健康检查结果
+   *
+   * @return 健康状态是否发生变化
+   */
+  boolean probed(Throwable error, int failureThreshold, int successThreshold) {
+    lastProbeTimeMillis = System.currentTimeMillis();
+    lastProbeError = error;
+    if (error == null) {
+      consecutiveFailures = 0;
+      if (!healthy && ++consecutiveSuccesses >= successThreshold) {
+        consecutiveSuccesses = 0;
+        healthy = true;
+        return true;
+      }
+    } else {
+      consecutiveSuccesses = 0;
+      if (healthy && ++consecutiveFailures >= failureThreshold) {
+        consecutiveFailures = 0;
+        healthy = false;
+        ejectCount.incrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "[healthy=" + healthy + ", outstanding=" + getOutstanding() + ", requests=" + getRequestCount() + ", errors="
+        + getErrorCount() + ", ewmaLatencyMillis=" + String.format("%.3f", getEwmaLatencyMillis()) + ", ejects=" + getEjectCount() + "]";
+  }
+
+  private class TrackedInvocationHandler implements InvocationHandler {
+    private final Object target;
+    private final boolean connection;
+    private boolean closed;
+
+    TrackedInvocationHandler(Object target, boolean connection) {
+      this.target = target;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (connection) {
+        if ("close".equals(name) && !closed) {
+          closed = true;
+          outstanding.decrementAndGet();
+        }
+        Object ret = invokeTarget(method, args);
+        if (ret instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+          return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+              new TrackedInvocationHandler(ret, false));
+        }
+        return ret;
+      }
+
+      if (!name.startsWith("execute")) {
+        return invokeTarget(method, args);
+      }
+      long start = System.nanoTime();
+      try {
+        return invokeTarget(method, args);
+      } finally {
+        updateEwma(System.nanoTime() - start);
+      }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package nexus.io.db.activerecord;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询选择从库，计数器溢出后仍然是非负的下标
+ */
+public class RoundRobinReplicaSelector implements ReplicaSelector {
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Override
+  public ReplicaStats select(List<ReplicaStats> candidates) {
+    return candidates.get(Math.floorMod(counter.getAndIncrement(), candidates.size()));
+  }
+}
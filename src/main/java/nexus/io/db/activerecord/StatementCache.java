@@ -0,0 +1,468 @@
+package nexus.io.db.activerecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 连接上的 LRU PreparedStatement 缓存，用于 HikariCP 等没有 statement 缓存的连接池
+ *
+ * <pre>
+ * 1：Config.getConnection 返回的连接被代理，prepareStatement 按 sql、resultSetType、resultSetConcurrency、
+ *    autoGeneratedKeys、columnNames 查找缓存，命中时直接复用，不会被驱动重新解析
+ * 2：缓存按物理连接 (conn.unwrap(Connection.class)) 保存，PreparedStatement 在物理连接上创建，
+ *    连接归还到连接池后仍然有效，下次借出同一个物理连接时继续复用，Db.find、Db.update 等单条语句也能命中
+ * 3：Config.close 归还连接时只清除参数并放回缓存，不关闭 statement；
+ *    连接池看不到缓存的 statement，如果连接上执行过缓存的 statement、没有提交并且 autoCommit 为 false，
+ *    归还前先回滚，与 HikariCP 等连接池的行为一致
+ * 4：PreparedStatement.close() 只是清除参数并放回缓存
+ * 5：同一个 statement 正在使用时再次 prepare 相同的 sql，会创建一个不缓存的 statement
+ * 6：物理连接被连接池关闭后，对应的缓存在下次检查时丢弃
+ *
+ * 例如：
+ * arp.setStatementCacheSize(256);
+ * StatementCache cache = Db.use().getConfig().getStatementCache();
+ * cache.getHitCount();
+ * </pre>
+ */
+@Slf4j
+public class StatementCache {
+
+  // 每获取多少次连接检查一次已经被关闭的物理连接
+  private static final int SWEEP_INTERVAL = 256;
+
+  private final int maxSize;
+  private final Map<Connection, ConnectionCache> caches = new IdentityHashMap<>();
+  private final AtomicInteger acquireCounter = new AtomicInteger();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public StatementCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be greater than 0");
+    }
+    this.maxSize = maxSize;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * 所有物理连接上缓存的 statement 数量
+   */
+  public int getCachedCount() {
+    int count = 0;
+    synchronized (caches) {
+      for (ConnectionCache cache : caches.values()) {
+        count += cache.size();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 关闭所有空闲的 statement，正在使用的 statement 在放回时关闭
+   */
+  public void clear() {
+    List<ConnectionCache> list;
+    synchronized (caches) {
+      list = new ArrayList<>(caches.values());
+      caches.clear();
+    }
+    for (ConnectionCache cache : list) {
+      cache.closeAll();
+    }
+  }
+
+  Connection wrap(Connection conn) {
+    if (acquireCounter.incrementAndGet() % SWEEP_INTERVAL == 0) {
+      sweep();
+    }
+
+    Connection physical;
+    try {
+      physical = conn.unwrap(Connection.class);
+    } catch (SQLException e) {
+      physical = null;
+    }
+    if (physical == null) {
+      physical = conn;
+    }
+
+    ConnectionCache cache;
+    synchronized (caches) {
+      cache = caches.get(physical);
+      if (cache == null) {
+        cache = new ConnectionCache(physical);
+        caches.put(physical, cache);
+      }
+    }
+    ConnectionHandler handler = new ConnectionHandler(conn, cache);
+    handler.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class }, handler);
+    return handler.proxy;
+  }
+
+  private void sweep() {
+    List<ConnectionCache> closed = new ArrayList<>();
+    synchronized (caches) {
+      for (Iterator<ConnectionCache> it = caches.values().iterator(); it.hasNext();) {
+        ConnectionCache cache = it.next();
+        if (cache.isConnectionClosed()) {
+          it.remove();
+          closed.add(cache);
+        }
+      }
+    }
+    for (ConnectionCache cache : closed) {
+      cache.closeAll();
+    }
+  }
+
+  private void remove(ConnectionCache cache) {
+    synchronized (caches) {
+      if (caches.get(cache.conn) == cache) {
+        caches.remove(cache.conn);
+      }
+    }
+    cache.closeAll();
+  }
+
+  /**
+   * 缓存的 key，只缓存 prepareStatement(sql)、(sql, autoGeneratedKeys)、(sql, resultSetType, resultSetConcurrency)、(sql, columnNames)
+   */
+  private static final class StatementKey {
+    final String sql;
+    final int resultSetType;
+    final int resultSetConcurrency;
+    final int autoGeneratedKeys;
+    final String[] columnNames;
+    final int hash;
+
+    StatementKey(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys, String[] columnNames) {
+      this.sql = sql;
+      this.resultSetType = resultSetType;
+      this.resultSetConcurrency = resultSetConcurrency;
+      this.autoGeneratedKeys = autoGeneratedKeys;
+      this.columnNames = columnNames;
+      int h = sql.hashCode();
+      h = 31 * h + resultSetType;
+      h = 31 * h + resultSetConcurrency;
+      h = 31 * h + autoGeneratedKeys;
+      h = 31 * h + Arrays.hashCode(columnNames);
+      this.hash = h;
+    }
+
+    static StatementKey of(Object[] args, Class<?>[] types) {
+      String sql = (String) args[0];
+      if (types.length == 1) {
+        return new StatementKey(sql, java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY, java.sql.Statement.NO_GENERATED_KEYS, null);
+      }
+      if (types.length == 2 && types[1] == int.class) {
+        return new StatementKey(sql, java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY, (Integer) args[1], null);
+      }
+      if (types.length == 2 && types[1] == String[].class) {
+        return new StatementKey(sql, java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY, java.sql.Statement.RETURN_GENERATED_KEYS,
+            ((String[]) args[1]).clone());
+      }
+      if (types.length == 3 && types[1] == int.class && types[2] == int.class) {
+        return new StatementKey(sql, (Integer) args[1], (Integer) args[2], java.sql.Statement.NO_GENERATED_KEYS, null);
+      }
+      return null;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey other = (StatementKey) obj;
+      return hash == other.hash && resultSetType == other.resultSetType && resultSetConcurrency == other.resultSetConcurrency
+          && autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql) && Arrays.equals(columnNames, other.columnNames);
+    }
+  }
+
+  private static final class CachedStatement {
+    final StatementKey key;
+    final PreparedStatement statement;
+    final int fetchSize;
+    final int maxRows;
+    final int queryTimeout;
+    boolean inUse;
+    boolean cached;
+
+    CachedStatement(StatementKey key, PreparedStatement statement, boolean cached) throws SQLException {
+      this.key = key;
+      this.statement = statement;
+      this.fetchSize = statement.getFetchSize();
+      this.maxRows = statement.getMaxRows();
+      this.queryTimeout = statement.getQueryTimeout();
+      this.cached = cached;
+    }
+
+    /**
+     * 恢复创建时的状态，以便下次复用
+     */
+    void reset() throws SQLException {
+      statement.clearParameters();
+      statement.clearBatch();
+      if (statement.getFetchSize() != fetchSize) {
+        statement.setFetchSize(fetchSize);
+      }
+      if (statement.getMaxRows() != maxRows) {
+        statement.setMaxRows(maxRows);
+      }
+      if (statement.getQueryTimeout() != queryTimeout) {
+        statement.setQueryTimeout(queryTimeout);
+      }
+    }
+
+    void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        log.error(e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * 一个物理连接上的缓存，物理连接同一时间只被一个线程借出，方法加锁只是为了 sweep 和 clear
+   */
+  private final class ConnectionCache {
+    final Connection conn;
+    final LinkedHashMap<StatementKey, CachedStatement> statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true);
+
+    ConnectionCache(Connection conn) {
+      this.conn = conn;
+    }
+
+    synchronized int size() {
+      return statements.size();
+    }
+
+    boolean isConnectionClosed() {
+      try {
+        return conn.isClosed();
+      } catch (SQLException e) {
+        return true;
+      }
+    }
+
+    synchronized CachedStatement checkout(StatementKey key, Method method, Object[] args) throws Throwable {
+      CachedStatement cached = statements.get(key);
+      if (cached != null && !cached.inUse) {
+        if (!cached.statement.isClosed()) {
+          hits.increment();
+          cached.inUse = true;
+          return cached;
+        }
+        statements.remove(key);
+      }
+
+      misses.increment();
+      PreparedStatement statement = (PreparedStatement) invoke(conn, method, args);
+      if (cached != null) {
+        // 相同的 sql 正在使用
+        CachedStatement ret = new CachedStatement(key, statement, false);
+        ret.inUse = true;
+        return ret;
+      }
+      CachedStatement ret = new CachedStatement(key, statement, true);
+      ret.inUse = true;
+      statements.put(key, ret);
+      if (statements.size() > maxSize) {
+        evictEldest();
+      }
+      return ret;
+    }
+
+    private void evictEldest() {
+      Iterator<CachedStatement> it = statements.values().iterator();
+      while (statements.size() > maxSize && it.hasNext()) {
+        CachedStatement eldest = it.next();
+        it.remove();
+        evictions.increment();
+        eldest.cached = false;
+        if (!eldest.inUse) {
+          eldest.closeQuietly();
+        }
+      }
+    }
+
+    synchronized void release(CachedStatement cached) {
+      cached.inUse = false;
+      if (!cached.cached) {
+        cached.closeQuietly();
+        return;
+      }
+      try {
+        cached.reset();
+      } catch (SQLException e) {
+        statements.remove(cached.key);
+        cached.cached = false;
+        cached.closeQuietly();
+      }
+    }
+
+    synchronized void closeAll() {
+      for (CachedStatement cached : statements.values()) {
+        cached.cached = false;
+        if (!cached.inUse) {
+          cached.closeQuietly();
+        }
+      }
+      statements.clear();
+    }
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  /**
+   * 一次 getConnection 到 close 之间的连接代理，conn 为连接池返回的连接
+   */
+  private final class ConnectionHandler implements InvocationHandler {
+    final Connection conn;
+    final ConnectionCache cache;
+    final List<StatementHandler> checkedOut = new ArrayList<>();
+    Connection proxy;
+    // 缓存的 statement 执行过并且还没有 commit 或 rollback
+    boolean dirty;
+
+    ConnectionHandler(Connection conn, ConnectionCache cache) {
+      this.conn = conn;
+      this.cache = cache;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if ("prepareStatement".equals(name)) {
+        StatementKey key = StatementKey.of(args, method.getParameterTypes());
+        if (key != null) {
+          CachedStatement cached = cache.checkout(key, method, args);
+          StatementHandler handler = new StatementHandler(this, cached);
+          checkedOut.add(handler);
+          return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[] { PreparedStatement.class }, handler);
+        }
+      } else if ("close".equals(name)) {
+        return close(method, args);
+      } else if ("commit".equals(name) || "rollback".equals(name) || "setAutoCommit".equals(name)) {
+        Object ret = StatementCache.invoke(conn, method, args);
+        if (!"setAutoCommit".equals(name) || Boolean.TRUE.equals(args[0])) {
+          dirty = false;
+        }
+        return ret;
+      }
+      return StatementCache.invoke(conn, method, args);
+    }
+
+    private Object close(Method method, Object[] args) throws Throwable {
+      if (conn.isClosed()) {
+        return null;
+      }
+      // 放回缓存，statement 不关闭
+      for (StatementHandler handler : new ArrayList<>(checkedOut)) {
+        handler.close();
+      }
+      try {
+        // 连接池不知道物理连接上执行过的 statement，由这里回滚没有提交的事务
+        if (dirty && !conn.getAutoCommit()) {
+          conn.rollback();
+        }
+      } catch (SQLException e) {
+        remove(cache);
+        log.error(e.getMessage(), e);
+      } finally {
+        dirty = false;
+      }
+      if (cache.conn == conn) {
+        // 不是连接池的连接，关闭后不能再复用
+        remove(cache);
+      }
+      return StatementCache.invoke(conn, method, args);
+    }
+  }
+
+  private final class StatementHandler implements InvocationHandler {
+    final ConnectionHandler connection;
+    final CachedStatement cached;
+    boolean closed;
+
+    StatementHandler(ConnectionHandler connection, CachedStatement cached) {
+      this.connection = connection;
+      this.cached = cached;
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      connection.checkedOut.remove(this);
+      connection.cache.release(cached);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if ("close".equals(name) && method.getParameterCount() == 0) {
+        close();
+        return null;
+      } else if ("isClosed".equals(name)) {
+        return closed || cached.statement.isClosed();
+      } else if ("getConnection".equals(name)) {
+        return connection.proxy;
+      }
+      if (closed) {
+        throw new SQLException("Statement is closed");
+      }
+      if (name.startsWith("execute")) {
+        connection.dirty = true;
+      }
+      return StatementCache.invoke(cached.statement, method, args);
+    }
+  }
+}
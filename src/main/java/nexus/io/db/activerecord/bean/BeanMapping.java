@@ -0,0 +1,325 @@
+package nexus.io.db.activerecord.bean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import nexus.io.db.DbJsonObject;
+import nexus.io.db.annotation.ATableField;
+import nexus.io.db.annotation.ATableName;
+import nexus.io.tio.utils.name.CamelNameUtils;
+
+/**
+ * 一个 bean class 与表之间的映射，每个 class 只解析一次并缓存
+ *
+ * <pre>
+ * 1：字段、ATableField 注解、列名 (CamelNameUtils.toUnderscore) 在第一次使用时解析
+ * 2：字段的读写使用 MethodHandle，类型转换器在解析时确定
+ * 3：toJavaBean 使用 class 及其所有父类的字段，fromJavaBean 只使用 class 自身声明的字段
+ * </pre>
+ */
+public class BeanMapping {
+
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  // 数字类型拓宽的顺序
+  private static final int BYTE = 1;
+  private static final int SHORT = 2;
+  private static final int INTEGER = 3;
+  private static final int LONG = 4;
+  private static final int FLOAT = 5;
+  private static final int DOUBLE = 6;
+
+  private static final ClassValue<BeanMapping> cache = new ClassValue<BeanMapping>() {
+    @Override
+    protected BeanMapping computeValue(Class<?> type) {
+      return new BeanMapping(type);
+    }
+  };
+
+  public static BeanMapping of(Class<?> beanClass) {
+    return cache.get(beanClass);
+  }
+
+  /**
+   * 一个字段与列的映射
+   */
+  public static final class FieldMapping {
+    final String fieldName;
+    final String columnName;
+    final Class<?> fieldType;
+    final Function<Object, Object> converter;
+    final MethodHandle setter;
+    final MethodHandle getter;
+
+    FieldMapping(Field field, String columnName, Function<Object, Object> converter, MethodHandle setter, MethodHandle getter) {
+      this.fieldName = field.getName();
+      this.columnName = columnName;
+      this.fieldType = field.getType();
+      this.converter = converter;
+      this.setter = setter;
+      this.getter = getter;
+    }
+
+    public String getColumnName() {
+      return columnName;
+    }
+
+    public String getFieldName() {
+      return fieldName;
+    }
+
+    public Class<?> getFieldType() {
+      return fieldType;
+    }
+
+    /**
+     * 转换类型并写入 bean，value 为 null 时不处理
+     */
+    public void set(Object bean, Object value) {
+      if (value == null) {
+        return;
+      }
+      if (converter != null) {
+        value = converter.apply(value);
+      }
+      try {
+        setter.invokeExact(bean, value);
+      } catch (ClassCastException | IllegalArgumentException e) {
+        String message = "Failed to set " + columnName + ",the value is " + value + " and value type is " + value.getClass().getName()
+            + ", but taget value type is " + fieldType.toString();
+        throw new RuntimeException(message, e);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new RuntimeException("Error setting field: " + fieldName, e);
+      }
+    }
+
+    public Object get(Object bean) {
+      try {
+        return getter.invokeExact(bean);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new RuntimeException("Error accessing field: " + fieldName, e);
+      }
+    }
+  }
+
+  private final Class<?> beanClass;
+  private final MethodHandle constructor;
+  private final String tableName;
+  private final FieldMapping[] readFields;
+  private final FieldMapping[] writeFields;
+  private final Map<String, FieldMapping[]> readFieldsByColumn;
+
+  private BeanMapping(Class<?> beanClass) {
+    this.beanClass = beanClass;
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    MethodHandle ctor = null;
+    try {
+      java.lang.reflect.Constructor<?> c = beanClass.getDeclaredConstructor();
+      c.setAccessible(true);
+      ctor = lookup.unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+    } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+      // 没有无参构造方法时只能用于 fromJavaBean
+    }
+    this.constructor = ctor;
+
+    ATableName tableNameAnnotation = beanClass.getAnnotation(ATableName.class);
+    if (tableNameAnnotation != null) {
+      this.tableName = tableNameAnnotation.value();
+    } else {
+      this.tableName = CamelNameUtils.toUnderscore(beanClass.getSimpleName());
+    }
+
+    List<FieldMapping> read = new ArrayList<>();
+    List<FieldMapping> write = new ArrayList<>();
+    for (Class<?> c = beanClass; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        FieldMapping mapping = buildFieldMapping(lookup, field);
+        read.add(mapping);
+        if (c == beanClass) {
+          write.add(mapping);
+        }
+      }
+    }
+    this.readFields = read.toArray(new FieldMapping[read.size()]);
+    this.writeFields = write.toArray(new FieldMapping[write.size()]);
+
+    Map<String, List<FieldMapping>> byColumn = new HashMap<>();
+    for (FieldMapping mapping : readFields) {
+      byColumn.computeIfAbsent(mapping.columnName, k -> new ArrayList<>(1)).add(mapping);
+    }
+    Map<String, FieldMapping[]> index = new HashMap<>(byColumn.size() * 2);
+    for (Map.Entry<String, List<FieldMapping>> e : byColumn.entrySet()) {
+      index.put(e.getKey(), e.getValue().toArray(new FieldMapping[e.getValue().size()]));
+    }
+    this.readFieldsByColumn = Collections.unmodifiableMap(index);
+  }
+
+  private static FieldMapping buildFieldMapping(MethodHandles.Lookup lookup, Field field) {
+    field.setAccessible(true);
+    String columnName;
+    ATableField tableFieldAnnotation = field.getAnnotation(ATableField.class);
+    if (tableFieldAnnotation != null && !tableFieldAnnotation.value().isEmpty()) {
+      columnName = tableFieldAnnotation.value();
+    } else {
+      columnName = CamelNameUtils.toUnderscore(field.getName());
+    }
+
+    Function<Object, Object> converter;
+    if (tableFieldAnnotation != null && tableFieldAnnotation.targetType() != Object.class) {
+      converter = targetTypeConverter(tableFieldAnnotation.targetType());
+    } else {
+      converter = fieldTypeConverter(field.getType());
+    }
+
+    MethodHandle setter;
+    MethodHandle getter;
+    try {
+      if (Modifier.isFinal(field.getModifiers())) {
+        // final 字段无法 unreflectSetter，与原来一样通过反射写入
+        setter = lookup.findVirtual(Field.class, "set", SETTER_TYPE).bindTo(field);
+      } else {
+        setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+      }
+      getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+    } catch (IllegalAccessException | NoSuchMethodException e) {
+      throw new RuntimeException("Error accessing field: " + field.getName(), e);
+    }
+    return new FieldMapping(field, columnName, converter, setter, getter);
+  }
+
+  private static Function<Object, Object> fieldTypeConverter(Class<?> type) {
+    if (type == Short.class) {
+      return v -> v instanceof Integer ? ((Integer) v).shortValue() : widen(v, SHORT);
+    } else if (type == Boolean.class) {
+      return v -> {
+        if (v instanceof Boolean) {
+          return v;
+        }
+        if (v instanceof Number) {
+          return v.equals(0) ? Boolean.FALSE : Boolean.TRUE;
+        }
+        return Boolean.FALSE;
+      };
+    } else if (type == Timestamp.class) {
+      return v -> v instanceof java.sql.Date ? new Timestamp(((java.sql.Date) v).getTime()) : v;
+    } else if (type == DbJsonObject.class) {
+      return v -> new DbJsonObject(v.toString());
+    }
+    int rank = numberRank(type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type);
+    if (rank > BYTE) {
+      return v -> widen(v, rank);
+    }
+    return null;
+  }
+
+  private static int numberRank(Class<?> type) {
+    if (type == Integer.class) {
+      return INTEGER;
+    } else if (type == Long.class) {
+      return LONG;
+    } else if (type == Double.class) {
+      return DOUBLE;
+    } else if (type == Short.class) {
+      return SHORT;
+    } else if (type == Float.class) {
+      return FLOAT;
+    } else if (type == Byte.class) {
+      return BYTE;
+    }
+    return 0;
+  }
+
+  /**
+   * 与 Field.set 一样把较小的数字类型拓宽为字段的类型，例如 Integer 写入 long、Long、double 字段，
+   * 不做缩窄转换
+   */
+  private static Object widen(Object v, int targetRank) {
+    int rank = numberRank(v.getClass());
+    if (rank == 0 || rank >= targetRank) {
+      return v;
+    }
+    Number n = (Number) v;
+    switch (targetRank) {
+    case SHORT:
+      return n.shortValue();
+    case INTEGER:
+      return n.intValue();
+    case LONG:
+      return n.longValue();
+    case FLOAT:
+      return n.floatValue();
+    default:
+      return n.doubleValue();
+    }
+  }
+
+  private static Function<Object, Object> targetTypeConverter(Class<?> targetType) {
+    if (targetType == Short.class) {
+      return v -> Short.valueOf(v.toString());
+    } else if (targetType == Integer.class) {
+      return v -> Integer.valueOf(v.toString());
+    }
+    return null;
+  }
+
+  public Class<?> getBeanClass() {
+    return beanClass;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T newInstance() {
+    if (constructor == null) {
+      throw new RuntimeException("Error converting Record to Bean", new NoSuchMethodException(beanClass.getName() + ".<init>()"));
+    }
+    try {
+      return (T) constructor.invokeExact();
+    } catch (Throwable e) {
+      throw new RuntimeException("Error converting Record to Bean", e);
+    }
+  }
+
+  /**
+   * class 及其所有父类的字段，用于 toJavaBean
+   */
+  public FieldMapping[] getReadFields() {
+    return readFields;
+  }
+
+  /**
+   * class 自身声明的字段，用于 fromJavaBean
+   */
+  public FieldMapping[] getWriteFields() {
+    return writeFields;
+  }
+
+  /**
+   * 列名对应的字段，没有时返回 null
+   */
+  public FieldMapping[] getReadFields(String columnName) {
+    return readFieldsByColumn.get(columnName);
+  }
+}
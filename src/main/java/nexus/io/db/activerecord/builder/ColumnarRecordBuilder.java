@@ -0,0 +1,118 @@
+package nexus.io.db.activerecord.builder;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.postgresql.util.PGobject;
+
+import nexus.io.db.activerecord.CPI;
+import nexus.io.db.activerecord.Config;
+import nexus.io.db.activerecord.RecordBuilder;
+import nexus.io.db.activerecord.Row;
+
+/**
+ * ColumnarRecordBuilder
+ * 同一个 ResultSet 只创建一份列名索引，每行只保存一个 Object[]，
+ * 避免为每一行创建 HashMap，适合返回大量数据的查询
+ * 
+ * <pre>
+ * 使用示例：
+ * PostgreSqlDialect dialect = new PostgreSqlDialect();
+ * dialect.setRecordBuilder(ColumnarRecordBuilder.me);
+ * activeRecordPlugin.setDialect(dialect);
+ * </pre>
+ * 
+ * build、buildJsonFields、rowReader 都返回 ColumnarRowMap 的 Row，
+ * Row 的 get、getStr、getColumns、toMap、remove 等方法保持不变，set 新列时该行会转换为普通 Map
+ */
+public class ColumnarRecordBuilder extends RecordBuilder {
+
+  public static final ColumnarRecordBuilder me = new ColumnarRecordBuilder();
+
+  @Override
+  public List<Row> build(Config config, ResultSet rs) throws SQLException {
+    return build(config, rs, null);
+  }
+
+  @Override
+  public List<Row> build(Config config, ResultSet rs, Function<Row, Boolean> func) throws SQLException {
+    return build(config, rs, null, func);
+  }
+
+  @Override
+  public List<Row> buildJsonFields(Config config, ResultSet rs, String[] jsonFields, Function<Row, Boolean> func) throws SQLException {
+    return build(config, rs, jsonFields, func);
+  }
+
+  private List<Row> build(Config config, ResultSet rs, String[] jsonFields, Function<Row, Boolean> func) throws SQLException {
+    List<Row> result = new ArrayList<Row>();
+    RowReader<Row> reader = columnarReader(config, rs, jsonFields);
+    while (rs.next()) {
+      Row record = reader.read(rs);
+      if (func == null) {
+        result.add(record);
+      } else {
+        if (!func.apply(record)) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * DbCursor 等逐行读取时同样使用 ColumnarRowMap
+   */
+  @Override
+  public RowReader<Row> rowReader(Config config, ResultSet rs) throws SQLException {
+    return columnarReader(config, rs, null);
+  }
+
+  private RowReader<Row> columnarReader(Config config, ResultSet rs, String[] jsonFields) throws SQLException {
+    ResultSetMetaData rsmd = rs.getMetaData();
+    int columnCount = rsmd.getColumnCount();
+    String[] labelNames = new String[columnCount + 1];
+    int[] types = new int[columnCount + 1];
+    buildLabelNamesAndTypes(rsmd, labelNames, types);
+
+    String[] labels = new String[columnCount];
+    System.arraycopy(labelNames, 1, labels, 0, columnCount);
+    ColumnarRowMap.Schema schema = new ColumnarRowMap.Schema(labels, config.getContainerFactory());
+    // 重复的列名与 HashMap 一样保留最后一个值
+    int[] slots = new int[columnCount + 1];
+    boolean[] json = new boolean[columnCount + 1];
+    for (int i = 1; i <= columnCount; i++) {
+      slots[i] = schema.indexOf(labelNames[i]);
+      if (jsonFields != null) {
+        for (String jsonField : jsonFields) {
+          if (labelNames[i].equals(jsonField)) {
+            json[i] = true;
+          }
+        }
+      }
+    }
+
+    int width = schema.size();
+    return r -> {
+      Object[] values = new Object[width];
+      for (int i = 1; i <= columnCount; i++) {
+        Object value = getColumnValue(types, r, i);
+        if (json[i] && value != null) {
+          if (value instanceof String) {
+            value = BuilderKit.parseJsonField((String) value);
+          } else if (value instanceof PGobject) {
+            value = BuilderKit.parseJsonField(((PGobject) value).getValue());
+          }
+        }
+        values[slots[i]] = value;
+      }
+      Row record = new Row();
+      CPI.setColumnsMap(record, new ColumnarRowMap(schema, values));
+      return record;
+    };
+  }
+}
@@ -0,0 +1,254 @@
+package nexus.io.db.activerecord.builder;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import nexus.io.db.activerecord.IContainerFactory;
+
+/**
+ * ColumnarRecordBuilder 使用的 Row columns
+ * 
+ * <pre>
+ * 1：同一个 ResultSet 的所有行共享一个 Schema，Schema 中保存列名和列名到下标的索引
+ * 2：每一行只保存一个 Object[]，get、set 已存在的列直接读写数组
+ * 3：remove 列 (包括 entrySet 迭代器的 remove) 时把数组中的位置标记为已删除，之后 put 该列时恢复
+ * 4：put Schema 中没有的列时，复制为 IContainerFactory 创建的普通 Map，之后的操作都在该 Map 上进行
+ * </pre>
+ */
+public class ColumnarRowMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 同一个 ResultSet 共享的列信息
+   */
+  public static final class Schema {
+    final String[] labels;
+    /**
+     * 由 containerFactory 创建，保持 CaseInsensitiveContainerFactory 等的 key 语义
+     */
+    final Map<String, Object> index;
+    final IContainerFactory containerFactory;
+
+    @SuppressWarnings("unchecked")
+    public Schema(String[] labels, IContainerFactory containerFactory) {
+      this.containerFactory = containerFactory;
+      this.index = containerFactory.getColumnsMap();
+      int size = 0;
+      String[] unique = new String[labels.length];
+      for (String label : labels) {
+        if (!index.containsKey(label)) {
+          index.put(label, size);
+          unique[size++] = label;
+        }
+      }
+      if (size == labels.length) {
+        this.labels = unique;
+      } else {
+        this.labels = new String[size];
+        System.arraycopy(unique, 0, this.labels, 0, size);
+      }
+    }
+
+    /**
+     * 列名对应的下标，不存在时返回 -1
+     */
+    public int indexOf(Object label) {
+      Object i = index.get(label);
+      return i == null ? -1 : (Integer) i;
+    }
+
+    public int size() {
+      return labels.length;
+    }
+
+    public String getLabel(int i) {
+      return labels[i];
+    }
+  }
+
+  /**
+   * 已删除的列在 values 中的标记
+   */
+  private static final Object REMOVED = new Object();
+
+  private final transient Schema schema;
+  private final transient Object[] values;
+  private transient int removedCount;
+  private Map<String, Object> inflated;
+
+  public ColumnarRowMap(Schema schema, Object[] values) {
+    this.schema = schema;
+    this.values = values;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> inflate() {
+    if (inflated == null) {
+      Map<String, Object> map = schema.containerFactory.getColumnsMap();
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != REMOVED) {
+          map.put(schema.labels[i], values[i]);
+        }
+      }
+      inflated = map;
+    }
+    return inflated;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (inflated != null) {
+      return inflated.get(key);
+    }
+    int i = schema.indexOf(key);
+    return i < 0 || values[i] == REMOVED ? null : values[i];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (inflated != null) {
+      return inflated.containsKey(key);
+    }
+    int i = schema.indexOf(key);
+    return i >= 0 && values[i] != REMOVED;
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    if (inflated == null) {
+      int i = schema.indexOf(key);
+      if (i >= 0) {
+        Object old = values[i];
+        values[i] = value;
+        if (old == REMOVED) {
+          removedCount--;
+          return null;
+        }
+        return old;
+      }
+    }
+    return inflate().put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    if (inflated != null) {
+      return inflated.remove(key);
+    }
+    int i = schema.indexOf(key);
+    return i < 0 ? null : removeAt(i);
+  }
+
+  private Object removeAt(int i) {
+    Object old = values[i];
+    if (old == REMOVED) {
+      return null;
+    }
+    values[i] = REMOVED;
+    removedCount++;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    inflate().clear();
+  }
+
+  @Override
+  public int size() {
+    return inflated != null ? inflated.size() : values.length - removedCount;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    if (inflated != null) {
+      return inflated.entrySet();
+    }
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        if (inflated != null) {
+          return inflated.entrySet().iterator();
+        }
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return ColumnarRowMap.this.size();
+      }
+    };
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+    private int next = skipRemoved(0);
+    private int last = -1;
+
+    private int skipRemoved(int i) {
+      while (i < values.length && values[i] == REMOVED) {
+        i++;
+      }
+      return i;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < values.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (next >= values.length) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = skipRemoved(next + 1);
+      final int i = last;
+      return new Entry<String, Object>() {
+        public String getKey() {
+          return schema.labels[i];
+        }
+
+        public Object getValue() {
+          return inflated != null ? inflated.get(schema.labels[i]) : values[i] == REMOVED ? null : values[i];
+        }
+
+        public Object setValue(Object value) {
+          return put(schema.labels[i], value);
+        }
+
+        public String toString() {
+          return getKey() + "=" + getValue();
+        }
+      };
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      if (inflated != null) {
+        // 迭代过程中 put 了新列，此时 values 已不再使用
+        inflated.remove(schema.labels[last]);
+      } else {
+        removeAt(last);
+      }
+      last = -1;
+    }
+  }
+
+  /**
+   * 序列化为普通 Map，反序列化后不再依赖 Schema
+   */
+  private Object writeReplace() {
+    return inflated != null ? inflated : new LinkedHashMap<>(this);
+  }
+}
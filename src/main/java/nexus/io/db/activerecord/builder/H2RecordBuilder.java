@@ -56,20 +56,7 @@ public class H2RecordBuilder extends RecordBuilder {
             CPI.setColumnsMap(record, config.getContainerFactory().getColumnsMap());
             Map<String, Object> columns = record.getColumns();
             for (int i = 1; i <= columnCount; i++) {
-                Object value;
-                if (types[i] < Types.BLOB) {
-                    value = rs.getObject(i);
-                } else {
-                    if (types[i] == Types.CLOB) {
-                        value = rs.getString(i);
-                    } else if (types[i] == Types.NCLOB) {
-                        value = rs.getString(i);
-                    } else if (types[i] == Types.BLOB) {
-                        value = rs.getBytes(i);
-                    } else {
-                        value = rs.getObject(i);
-                    }
-                }
+                Object value = getColumnValue(types, rs, i);
                 columns.put(labelNames[i], value);
             }
 
@@ -84,6 +71,25 @@ public class H2RecordBuilder extends RecordBuilder {
         return result;
     }
 
+    @Override
+    protected Object getColumnValue(int[] types, ResultSet rs, int i) throws SQLException {
+        Object value;
+        if (types[i] < Types.BLOB) {
+            value = rs.getObject(i);
+        } else {
+            if (types[i] == Types.CLOB) {
+                value = rs.getString(i);
+            } else if (types[i] == Types.NCLOB) {
+                value = rs.getString(i);
+            } else if (types[i] == Types.BLOB) {
+                value = rs.getBytes(i);
+            } else {
+                value = rs.getObject(i);
+            }
+        }
+        return value;
+    }
+
     @Override
     public void buildLabelNamesAndTypes(ResultSetMetaData rsmd, String[] labelNames, int[] types) throws SQLException {
         for (int i = 1; i < labelNames.length; i++) {
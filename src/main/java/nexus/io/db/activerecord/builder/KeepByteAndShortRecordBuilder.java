@@ -48,32 +48,7 @@ public class KeepByteAndShortRecordBuilder extends RecordBuilder {
 			CPI.setColumnsMap(record, config.getContainerFactory().getColumnsMap());
 			Map<String, Object> columns = record.getColumns();
 			for (int i=1; i<=columnCount; i++) {
-				Object value;
-				int t = types[i];
-				if (t < Types.DATE) {
-					if (t == Types.TINYINT) {
-						value = BuilderKit.getByte(rs, i);
-					} else if (t == Types.SMALLINT) {
-						value = BuilderKit.getShort(rs, i);
-					} else {
-						value = rs.getObject(i);
-					}
-				} else {
-					if (t == Types.TIMESTAMP) {
-						value = rs.getTimestamp(i);
-					} else if (t == Types.DATE) {
-						value = rs.getDate(i);
-					} else if (t == Types.CLOB) {
-						value = ModelBuilder.me.handleClob(rs.getClob(i));
-					} else if (t == Types.NCLOB) {
-						value = ModelBuilder.me.handleClob(rs.getNClob(i));
-					} else if (t == Types.BLOB) {
-						value = ModelBuilder.me.handleBlob(rs.getBlob(i));
-					} else {
-						value = rs.getObject(i);
-					}
-				}
-				
+				Object value = getColumnValue(types, rs, i);
 				columns.put(labelNames[i], value);
 			}
 			
@@ -87,7 +62,34 @@ public class KeepByteAndShortRecordBuilder extends RecordBuilder {
 		}
 		return result;
 	}
+	
+	@Override
+	protected Object getColumnValue(int[] types, ResultSet rs, int i) throws SQLException {
+		Object value;
+		int t = types[i];
+		if (t < Types.DATE) {
+			if (t == Types.TINYINT) {
+				value = BuilderKit.getByte(rs, i);
+			} else if (t == Types.SMALLINT) {
+				value = BuilderKit.getShort(rs, i);
+			} else {
+				value = rs.getObject(i);
+			}
+		} else {
+			if (t == Types.TIMESTAMP) {
+				value = rs.getTimestamp(i);
+			} else if (t == Types.DATE) {
+				value = rs.getDate(i);
+			} else if (t == Types.CLOB) {
+				value = ModelBuilder.me.handleClob(rs.getClob(i));
+			} else if (t == Types.NCLOB) {
+				value = ModelBuilder.me.handleClob(rs.getNClob(i));
+			} else if (t == Types.BLOB) {
+				value = ModelBuilder.me.handleBlob(rs.getBlob(i));
+			} else {
+				value = rs.getObject(i);
+			}
+		}
+		return value;
+	}
 }
-
-
-
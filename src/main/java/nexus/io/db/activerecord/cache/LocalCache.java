@@ -0,0 +1,301 @@
+package nexus.io.db.activerecord.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * NearCache 的本地缓存，按条数与权重限制大小
+ *
+ * <pre>
+ * 淘汰策略参考 W-TinyLFU：
+ * 1：新写入的值先进入 window LRU (约占容量的 1%)，window 满时最久未访问的值作为候选进入 main LRU
+ * 2：main 已满时比较候选与 main 中最久未访问的值的访问频率 (count-min sketch 估算)，频率高的保留
+ * 3：访问频率计数达到容量的 10 倍后全部减半，使旧的热点逐渐冷却
+ * 4：sketch 每条约占 8 字节，最多 2^20 个 long (8MB)，容量更大时估算的频率偏高，但仍然能区分冷热
+ * 5：按 key 的 hash 分段加锁
+ * </pre>
+ */
+public class LocalCache {
+
+  private static final int MAX_SEGMENTS = 16;
+  private static final int MIN_SEGMENT_SIZE = 32;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final FrequencySketch sketch;
+  private final ToIntFunction<Object> weigher;
+  private final LongAdder evictions = new LongAdder();
+
+  public LocalCache(long maximumSize, long maximumWeight, ToIntFunction<Object> weigher) {
+    if (maximumSize < 1 || maximumWeight < 1) {
+      throw new IllegalArgumentException("maximumSize and maximumWeight must be greater than 0");
+    }
+    int count = 1;
+    while (count < MAX_SEGMENTS && maximumSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+      count *= 2;
+    }
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment(Math.max(1, maximumSize / count), Math.max(1, maximumWeight / count));
+    }
+    this.segmentMask = count - 1;
+    this.sketch = new FrequencySketch((int) Math.min(maximumSize, FrequencySketch.MAXIMUM_LENGTH));
+    this.weigher = weigher;
+  }
+
+  public Object get(Object key) {
+    sketch.increment(key);
+    return segmentFor(key).get(key, System.currentTimeMillis());
+  }
+
+  /**
+   * @param expireAt 过期时间戳，单位毫秒，小于 1 时不过期
+   */
+  public void put(Object key, Object value, long expireAt) {
+    sketch.increment(key);
+    segmentFor(key).put(key, value, Math.max(1, weigher.applyAsInt(value)), expireAt);
+  }
+
+  public void remove(Object key) {
+    segmentFor(key).remove(key);
+  }
+
+  public void removeIf(Predicate<Object> keyPredicate) {
+    for (Segment segment : segments) {
+      segment.removeIf(keyPredicate);
+    }
+  }
+
+  public void clear() {
+    removeIf(key -> true);
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public long weight() {
+    long weight = 0;
+    for (Segment segment : segments) {
+      weight += segment.weight();
+    }
+    return weight;
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * 估算的访问频率，最大 15
+   */
+  public int frequency(Object key) {
+    return sketch.frequency(key);
+  }
+
+  private Segment segmentFor(Object key) {
+    int h = key.hashCode();
+    return segments[(h ^ (h >>> 16)) & segmentMask];
+  }
+
+  private static final class Node {
+    final Object key;
+    final Object value;
+    final int weight;
+    final long expireAt;
+
+    Node(Object key, Object value, int weight, long expireAt) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.expireAt = expireAt;
+    }
+
+    boolean isExpired(long now) {
+      return expireAt > 0 && expireAt <= now;
+    }
+  }
+
+  private final class Segment {
+    private final LinkedHashMap<Object, Node> window = new LinkedHashMap<>(16, 0.75F, true);
+    private final LinkedHashMap<Object, Node> main = new LinkedHashMap<>(16, 0.75F, true);
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final long windowSize;
+    private long weight;
+
+    Segment(long maximumSize, long maximumWeight) {
+      this.maximumSize = maximumSize;
+      this.maximumWeight = maximumWeight;
+      this.windowSize = Math.max(1, maximumSize / 100);
+    }
+
+    synchronized Object get(Object key, long now) {
+      Node node = window.get(key);
+      if (node == null) {
+        node = main.get(key);
+      }
+      if (node == null) {
+        return null;
+      }
+      if (node.isExpired(now)) {
+        remove(key);
+        return null;
+      }
+      return node.value;
+    }
+
+    synchronized void put(Object key, Object value, int nodeWeight, long expireAt) {
+      remove(key);
+      if (nodeWeight > maximumWeight) {
+        return;
+      }
+      window.put(key, new Node(key, value, nodeWeight, expireAt));
+      weight += nodeWeight;
+      if (window.size() > windowSize) {
+        Node candidate = eldest(window);
+        window.remove(candidate.key);
+        admit(candidate);
+      }
+      while (weight > maximumWeight || window.size() + main.size() > maximumSize) {
+        evict(main.isEmpty() ? eldest(window) : eldest(main));
+      }
+    }
+
+    private void admit(Node candidate) {
+      if (window.size() + main.size() < maximumSize) {
+        main.put(candidate.key, candidate);
+        return;
+      }
+      Node victim = eldest(main);
+      if (victim == null || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+        if (victim != null) {
+          evict(victim);
+        }
+        main.put(candidate.key, candidate);
+      } else {
+        weight -= candidate.weight;
+        evictions.increment();
+      }
+    }
+
+    private void evict(Node node) {
+      remove(node.key);
+      evictions.increment();
+    }
+
+    synchronized void remove(Object key) {
+      Node node = window.remove(key);
+      if (node == null) {
+        node = main.remove(key);
+      }
+      if (node != null) {
+        weight -= node.weight;
+      }
+    }
+
+    synchronized void removeIf(Predicate<Object> keyPredicate) {
+      removeIf(window, keyPredicate);
+      removeIf(main, keyPredicate);
+    }
+
+    private void removeIf(LinkedHashMap<Object, Node> map, Predicate<Object> keyPredicate) {
+      Iterator<Node> it = map.values().iterator();
+      while (it.hasNext()) {
+        Node node = it.next();
+        if (keyPredicate.test(node.key)) {
+          it.remove();
+          weight -= node.weight;
+        }
+      }
+    }
+
+    synchronized long size() {
+      return window.size() + main.size();
+    }
+
+    synchronized long weight() {
+      return weight;
+    }
+
+    private Node eldest(LinkedHashMap<Object, Node> map) {
+      return map.isEmpty() ? null : map.values().iterator().next();
+    }
+  }
+
+  /**
+   * 4 行 count-min sketch，每个 long 保存 16 个 4 bit 的计数，每个计数最大 15，不加锁，并发时丢失少量计数不影响淘汰效果
+   */
+  private static final class FrequencySketch {
+    static final int MAXIMUM_LENGTH = 1 << 20;
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int[] SEEDS = { 0x97cb3127, 0xab7e93a9, 0xc2b2ae35, 0x85ebca6b };
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+      int length = Integer.highestOneBit(Math.max(16, Math.min(MAXIMUM_LENGTH, maximumSize) - 1) << 1);
+      this.table = new long[length];
+      this.mask = length - 1;
+      this.sampleSize = length * 10;
+    }
+
+    void increment(Object key) {
+      int h = spread(key.hashCode());
+      int start = (h & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        int index = indexOf(h, i);
+        long counterMask = 0xFL << ((start + i) << 2);
+        if ((table[index] & counterMask) != counterMask) {
+          table[index] += 1L << ((start + i) << 2);
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        reset();
+      }
+    }
+
+    int frequency(Object key) {
+      int h = spread(key.hashCode());
+      int start = (h & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < SEEDS.length; i++) {
+        int count = (int) ((table[indexOf(h, i)] >>> ((start + i) << 2)) & 0xFL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    private void reset() {
+      additions = 0;
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+    }
+
+    private int indexOf(int h, int i) {
+      int x = h * SEEDS[i];
+      x ^= x >>> 15;
+      return x & mask;
+    }
+
+    private static int spread(int h) {
+      h ^= h >>> 17;
+      h *= 0xed5ad4bb;
+      h ^= h >>> 11;
+      return h;
+    }
+  }
+}
@@ -0,0 +1,393 @@
+package nexus.io.db.activerecord.cache;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.cache.IDbCache;
+import nexus.io.db.activerecord.CacheLoader;
+import nexus.io.model.page.Page;
+import nexus.io.redis.RedisDb;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * 两级缓存：进程内的 LocalCache + Redis，多个节点通过 Redis pub/sub 互相失效本地缓存
+ *
+ * <pre>
+ * 1：get 先查本地缓存，未命中时查 Redis 并写入本地缓存
+ * 2：put、remove、removeAll 写 Redis 后发布失效消息，其他节点收到后删除本地缓存，自己发布的消息忽略
+ * 3：本地缓存最多保存 localTtl 秒 (默认 60)，作为丢失失效消息时的兜底，带 ttl 的 put 取二者中较小的值
+ * 4：start() 之后订阅成功之前、订阅断开期间不使用本地缓存，重新订阅时清空本地缓存
+ * 5：removeAll(cacheName) 在 Redis 中 scan "cacheName:*" 并删除
+ * 6：Redis 读取、写入失败时记录日志并当作未命中，remove、removeAll 失败时抛出异常
+ *
+ * 例如：
+ * NearCache cache = new NearCache(Redis.use(), 10000).setLocalTtl(30).setRedisTtl(600).start();
+ * arp.setCache(cache);
+ * ...
+ * log.info("{}", cache); // 各级命中率
+ * cache.stop();
+ * </pre>
+ */
+@Slf4j
+public class NearCache implements IDbCache {
+
+  public static final String DEFAULT_CHANNEL = "java-db:near-cache";
+
+  /**
+   * 默认权重：Collection 为元素个数，Page 为当前页的记录数，其他为 1，findByCache 开启 stale-while-revalidate 时按其中的值计算
+   */
+  public static final ToIntFunction<Object> DEFAULT_WEIGHER = NearCache::weigh;
+
+  private static int weigh(Object value) {
+    if (value instanceof CacheLoader.CachedValue) {
+      value = ((CacheLoader.CachedValue) value).getValue();
+    }
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).size();
+    }
+    if (value instanceof Page && ((Page<?>) value).getList() != null) {
+      return ((Page<?>) value).getList().size();
+    }
+    return 1;
+  }
+
+  private static final char REMOVE = 'R';
+  private static final char REMOVE_ALL = 'A';
+  private static final char SEPARATOR = '|';
+
+  private final RedisDb redis;
+  private final LocalCache local;
+  private final String nodeId = UUID.randomUUID().toString();
+  private String channel = DEFAULT_CHANNEL;
+  private int localTtl = 60;
+  private int redisTtl;
+
+  private volatile boolean running;
+  private volatile boolean subscribed;
+  private volatile JedisPubSub pubSub;
+  private Thread subscriber;
+  // 收到失效消息时递增，查询 Redis 期间有失效时不写入本地缓存
+  private final AtomicLong invalidationEpoch = new AtomicLong();
+
+  private final LongAdder localHits = new LongAdder();
+  private final LongAdder localMisses = new LongAdder();
+  private final LongAdder redisHits = new LongAdder();
+  private final LongAdder redisMisses = new LongAdder();
+  private final LongAdder redisErrors = new LongAdder();
+  private final LongAdder invalidationsSent = new LongAdder();
+  private final LongAdder invalidationsReceived = new LongAdder();
+
+  /**
+   * @param maximumSize 本地缓存最多保存的条数
+   */
+  public NearCache(RedisDb redis, long maximumSize) {
+    this(redis, maximumSize, Long.MAX_VALUE, DEFAULT_WEIGHER);
+  }
+
+  /**
+   * @param maximumSize   本地缓存最多保存的条数
+   * @param maximumWeight 本地缓存的最大总权重
+   * @param weigher       计算每个值的权重，例如 List 的元素个数
+   */
+  public NearCache(RedisDb redis, long maximumSize, long maximumWeight, ToIntFunction<Object> weigher) {
+    if (redis == null) {
+      throw new IllegalArgumentException("redis can not be null");
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("weigher can not be null");
+    }
+    this.redis = redis;
+    this.local = new LocalCache(maximumSize, maximumWeight, weigher);
+  }
+
+  /**
+   * 发布失效消息的频道，所有节点必须一致，start() 之前设置
+   */
+  public NearCache setChannel(String channel) {
+    if (channel == null || channel.isEmpty()) {
+      throw new IllegalArgumentException("channel can not be blank");
+    }
+    this.channel = channel;
+    return this;
+  }
+
+  /**
+   * 本地缓存的最长保存秒数，小于 1 时只由失效消息与容量淘汰，默认 60
+   */
+  public NearCache setLocalTtl(int localTtl) {
+    this.localTtl = localTtl;
+    return this;
+  }
+
+  /**
+   * 不带 ttl 的 put 写入 Redis 时的过期秒数，小于 1 时不过期，默认不过期
+   */
+  public NearCache setRedisTtl(int redisTtl) {
+    this.redisTtl = redisTtl;
+    return this;
+  }
+
+  /**
+   * 在后台线程中订阅失效消息，断开后每秒重试
+   */
+  public synchronized NearCache start() {
+    if (subscriber != null) {
+      return this;
+    }
+    running = true;
+    subscriber = new Thread(this::subscribeLoop, "near-cache-" + channel);
+    subscriber.setDaemon(true);
+    subscriber.start();
+    return this;
+  }
+
+  public synchronized void stop() {
+    running = false;
+    subscribed = false;
+    JedisPubSub ps = pubSub;
+    if (ps != null && ps.isSubscribed()) {
+      try {
+        ps.unsubscribe();
+      } catch (Exception e) {
+        log.warn("Unsubscribe near cache channel {} error: {}", channel, e.getMessage());
+      }
+    }
+    if (subscriber != null) {
+      subscriber.interrupt();
+      subscriber = null;
+    }
+    local.clear();
+  }
+
+  private void subscribeLoop() {
+    while (running) {
+      JedisPubSub ps = new JedisPubSub() {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+          // 订阅之前的失效消息可能已经丢失
+          invalidationEpoch.incrementAndGet();
+          local.clear();
+          subscribed = true;
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+          onInvalidation(message);
+        }
+      };
+      pubSub = ps;
+      try {
+        redis.subscribe(ps, channel);
+      } catch (Exception e) {
+        if (running) {
+          log.warn("Near cache channel {} is disconnected: {}", channel, e.getMessage());
+        }
+      }
+      subscribed = false;
+      invalidationEpoch.incrementAndGet();
+      local.clear();
+      if (running) {
+        try {
+          Thread.sleep(1000);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void onInvalidation(String message) {
+    // 格式：类型|nodeId|cacheName 或 key
+    int first = message.indexOf(SEPARATOR);
+    int second = first < 0 ? -1 : message.indexOf(SEPARATOR, first + 1);
+    if (first != 1 || second < 0) {
+      log.warn("Invalid near cache message: {}", message);
+      return;
+    }
+    if (nodeId.equals(message.substring(first + 1, second))) {
+      return;
+    }
+    invalidationsReceived.increment();
+    invalidationEpoch.incrementAndGet();
+    String target = message.substring(second + 1);
+    if (message.charAt(0) == REMOVE_ALL) {
+      String prefix = target + ":";
+      local.removeIf(key -> ((String) key).startsWith(prefix));
+    } else {
+      local.remove(target);
+    }
+  }
+
+  private void publish(char type, String target) {
+    try {
+      redis.publish(channel, type + String.valueOf(SEPARATOR) + nodeId + SEPARATOR + target);
+      invalidationsSent.increment();
+    } catch (Exception e) {
+      log.warn("Publish near cache invalidation error: {}", e.getMessage());
+    }
+  }
+
+  private static String toKey(String cacheName, Object key) {
+    return cacheName + ":" + key;
+  }
+
+  private long localExpireAt(int ttl) {
+    int seconds = ttl > 0 && (localTtl < 1 || ttl < localTtl) ? ttl : localTtl;
+    return seconds > 0 ? System.currentTimeMillis() + seconds * 1000L : 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(String cacheName, Object key) {
+    String k = toKey(cacheName, key);
+    boolean useLocal = subscribed;
+    if (useLocal) {
+      Object value = local.get(k);
+      if (value != null) {
+        localHits.increment();
+        return (T) value;
+      }
+      localMisses.increment();
+    }
+
+    long epoch = invalidationEpoch.get();
+    Object value;
+    try {
+      value = redis.get(k);
+    } catch (Exception e) {
+      redisErrors.increment();
+      log.warn("Get {} from redis error: {}", k, e.getMessage());
+      return null;
+    }
+    if (value == null) {
+      redisMisses.increment();
+      return null;
+    }
+    redisHits.increment();
+    if (useLocal && epoch == invalidationEpoch.get()) {
+      local.put(k, value, localExpireAt(0));
+    }
+    return (T) value;
+  }
+
+  @Override
+  public void put(String cacheName, Object key, Object value) {
+    put(cacheName, key, value, redisTtl);
+  }
+
+  @Override
+  public void put(String cacheName, Object key, Object value, int ttl) {
+    if (value == null) {
+      return;
+    }
+    String k = toKey(cacheName, key);
+    try {
+      if (ttl > 0) {
+        redis.setex(k, ttl, value);
+      } else {
+        redis.set(k, value);
+      }
+    } catch (Exception e) {
+      redisErrors.increment();
+      log.warn("Put {} to redis error: {}", k, e.getMessage());
+      local.remove(k);
+      return;
+    }
+    if (subscribed) {
+      local.put(k, value, localExpireAt(ttl));
+    }
+    publish(REMOVE, k);
+  }
+
+  @Override
+  public void remove(String cacheName, Object key) {
+    String k = toKey(cacheName, key);
+    local.remove(k);
+    redis.del(k);
+    publish(REMOVE, k);
+  }
+
+  @Override
+  public void removeAll(String cacheName) {
+    String prefix = toKey(cacheName, "");
+    local.removeIf(key -> ((String) key).startsWith(prefix));
+    String pattern = redis.getKeyNamingPolicy().getKeyName(prefix) + "*";
+    redis.scan(null, pattern, 1000, keys -> {
+      redis.call(jedis -> jedis.del(keys.toArray(new String[keys.size()])));
+      return true;
+    });
+    publish(REMOVE_ALL, cacheName);
+  }
+
+  public boolean isSubscribed() {
+    return subscribed;
+  }
+
+  public long getLocalHitCount() {
+    return localHits.sum();
+  }
+
+  public long getLocalMissCount() {
+    return localMisses.sum();
+  }
+
+  public double getLocalHitRatio() {
+    return ratio(getLocalHitCount(), getLocalMissCount());
+  }
+
+  public long getRedisHitCount() {
+    return redisHits.sum();
+  }
+
+  public long getRedisMissCount() {
+    return redisMisses.sum();
+  }
+
+  /**
+   * 本地缓存未命中之后 Redis 的命中率
+   */
+  public double getRedisHitRatio() {
+    return ratio(getRedisHitCount(), getRedisMissCount());
+  }
+
+  public long getRedisErrorCount() {
+    return redisErrors.sum();
+  }
+
+  public long getLocalSize() {
+    return local.size();
+  }
+
+  public long getLocalWeight() {
+    return local.weight();
+  }
+
+  public long getLocalEvictionCount() {
+    return local.evictionCount();
+  }
+
+  public long getInvalidationSentCount() {
+    return invalidationsSent.sum();
+  }
+
+  public long getInvalidationReceivedCount() {
+    return invalidationsReceived.sum();
+  }
+
+  private static double ratio(long hits, long misses) {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "NearCache[local=" + String.format("%.3f", getLocalHitRatio()) + " (" + getLocalHitCount() + "/" + (getLocalHitCount() + getLocalMissCount())
+        + ", size=" + getLocalSize() + ", weight=" + getLocalWeight() + ", evictions=" + getLocalEvictionCount() + "), redis="
+        + String.format("%.3f", getRedisHitRatio()) + " (" + getRedisHitCount() + "/" + (getRedisHitCount() + getRedisMissCount()) + ", errors="
+        + getRedisErrorCount() + "), invalidations sent=" + getInvalidationSentCount() + " received=" + getInvalidationReceivedCount() + "]";
+  }
+}
@@ -0,0 +1,14 @@
+package nexus.io.db.activerecord.dialect;
+
+/**
+ * PostgreSQL COPY ... FROM STDIN 使用的数据格式
+ *
+ * <pre>
+ * CSV：文本格式，对列的类型没有要求，由数据库解析
+ * BINARY：二进制格式，速度更快，按表中列的实际类型编码，
+ *         不支持的列类型 (如自定义枚举、interval、inet) 会在开始写入前抛出 IllegalArgumentException
+ * </pre>
+ */
+public enum CopyFormat {
+  CSV, BINARY
+}
@@ -14,6 +14,7 @@ import java.util.UUID;
 import java.util.function.Function;
 
 import nexus.io.db.activerecord.Config;
+import nexus.io.db.activerecord.Keyset;
 import nexus.io.db.activerecord.Model;
 import nexus.io.db.activerecord.ModelBuilder;
 import nexus.io.db.activerecord.RecordBuilder;
@@ -34,6 +35,13 @@ public abstract class Dialect {
   protected boolean keepByteAndShort = false;
   protected ModelBuilder modelBuilder = ModelBuilder.me;
   protected RecordBuilder recordBuilder = RecordBuilder.me;
+  // 流式查询 DbCursor、each 使用的 fetchSize
+  protected int streamFetchSize = 1000;
+  // batchSave 是否使用多行 VALUES 的 insert 语句，仅 isMultiRowInsertSupported() 的数据库生效
+  protected boolean multiRowBatchSave = false;
+  // 多行 VALUES 的 insert 语句中最多的参数个数和估算的最大字节数
+  protected int multiRowMaxParas = 65535;
+  protected int multiRowMaxBytes = 4 * 1024 * 1024;
 
   // Methods for common
   public abstract String forTableBuilderDoBuild(String tableName);
@@ -95,6 +103,13 @@ public abstract class Dialect {
     return "select * from " + tableName;
   }
 
+  /**
+   * 生成查看执行计划的 sql，不会真正执行 sql，返回 null 表示不支持
+   */
+  public String forExplain(String sql) {
+    return null;
+  }
+
   /**
    * 指示 Generator、ModelBuilder、RecordBuilder 是否保持住 Byte、Short 类型
    */
@@ -159,6 +174,50 @@ public abstract class Dialect {
     return this;
   }
 
+  public RecordBuilder getRecordBuilder() {
+    return recordBuilder;
+  }
+
+  /**
+   * 配置流式查询每次从数据库获取的行数，默认 1000
+   */
+  public Dialect setStreamFetchSize(int streamFetchSize) {
+    if (streamFetchSize <= 0) {
+      throw new IllegalArgumentException("streamFetchSize must be greater than 0");
+    }
+    this.streamFetchSize = streamFetchSize;
+    return this;
+  }
+
+  public int getStreamFetchSize() {
+    return streamFetchSize;
+  }
+
+  /**
+   * 创建流式查询使用的 PreparedStatement：TYPE_FORWARD_ONLY、CONCUR_READ_ONLY，并设置 fetchSize
+   * 不同数据库开启游标读取的方式不同，可通过覆盖此方法定制
+   */
+  public PreparedStatement prepareStreamStatement(Connection conn, String sql, int fetchSize) throws SQLException {
+    PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    pst.setFetchSize(fetchSize);
+    return pst;
+  }
+
+  /**
+   * 流式读取时是否独占连接：结果集关闭之前同一连接不能执行其他语句 (MySQL 逐行读取)。
+   * 返回 true 时，事务中的 each、cursor 不使用流式读取，避免回调中通过 Db 查询、写入时失败
+   */
+  public boolean isStreamExclusive() {
+    return false;
+  }
+
+  /**
+   * 流式查询是否需要关闭 autocommit，PostgreSQL 只有在事务中 fetchSize 才会生效
+   */
+  public boolean isStreamRequireNoAutoCommit() {
+    return false;
+  }
+
   @SuppressWarnings("rawtypes")
   public <T> List<T> buildModelList(ResultSet rs, Class<? extends Model> modelClass)
       throws SQLException, ReflectiveOperationException {
@@ -179,6 +238,10 @@ public abstract class Dialect {
     return recordBuilder.buildJsonFields(config, rs, jsonFields);
   }
 
+  public <T> List<T> buildBeanList(Config config, ResultSet rs, Class<T> beanClass) throws SQLException {
+    return recordBuilder.buildBean(config, rs, beanClass);
+  }
+
   public void eachRecord(Config config, ResultSet rs, Function<Row, Boolean> func) throws SQLException {
     recordBuilder.build(config, rs, func);
   }
@@ -351,6 +414,190 @@ public abstract class Dialect {
     return "select count(*) " + SqlParseKit.replaceOrderBy(sqlExceptSelect);
   }
 
+  /**
+   * 生成 keyset 分页的条件，composite key 展开为：
+   * <pre>
+   * (a &gt; ?) or (a = ? and b &gt; ?)
+   * </pre>
+   * 支持行值比较且所有列排序方向相同时生成 (a, b) &gt; (?, ?)
+   */
+  public String forKeysetSeek(Keyset keyset, Object[] lastValues, List<Object> paras) {
+    int size = keyset.size();
+    StringBuilder sql = new StringBuilder();
+    if (size > 1 && isRowValueComparisonSupported() && keyset.isSameDirection()) {
+      sql.append('(');
+      for (int i = 0; i < size; i++) {
+        if (i > 0) {
+          sql.append(", ");
+        }
+        sql.append(keyset.getColumn(i));
+        paras.add(lastValues[i]);
+      }
+      sql.append(keyset.isDesc(0) ? ") < (" : ") > (");
+      for (int i = 0; i < size; i++) {
+        sql.append(i > 0 ? ", ?" : "?");
+      }
+      sql.append(')');
+      return sql.toString();
+    }
+
+    sql.append('(');
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sql.append(" or ");
+      }
+      sql.append('(');
+      for (int j = 0; j < i; j++) {
+        sql.append(keyset.getColumn(j)).append(" = ? and ");
+        paras.add(lastValues[j]);
+      }
+      sql.append(keyset.getColumn(i)).append(keyset.isDesc(i) ? " < ?" : " > ?");
+      paras.add(lastValues[i]);
+      sql.append(')');
+    }
+    sql.append(')');
+    return sql.toString();
+  }
+
+  /**
+   * 是否支持 (a, b) &gt; (?, ?) 形式的行值比较
+   */
+  protected boolean isRowValueComparisonSupported() {
+    return false;
+  }
+
+  /**
+   * 限制 keyset 分页返回的行数，findSql 已经包含 order by
+   */
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return forPaginate(1, limit, findSql);
+  }
+
+  /**
+   * 使用执行计划估算 findSql 返回的行数，用于 PageCountStrategy.ESTIMATED，不支持时返回 -1
+   */
+  public long estimateRowCount(Connection conn, String findSql, Object... paras) throws SQLException {
+    return -1;
+  }
+
+  /**
+   * 是否支持 insert into t(a, b) values(?, ?), (?, ?) 形式的多行写入
+   */
+  public boolean isMultiRowInsertSupported() {
+    return false;
+  }
+
+  /**
+   * 配置 batchSave 使用多行 VALUES 的 insert 语句，不依赖驱动对批处理的改写 (如 MySQL 的 rewriteBatchedStatements)
+   *
+   * <pre>
+   * 每条语句的行数取 batchSize、multiRowMaxParas / 列数 以及 multiRowMaxBytes 限制下的最小值
+   * </pre>
+   */
+  public Dialect setMultiRowBatchSave(boolean multiRowBatchSave) {
+    this.multiRowBatchSave = multiRowBatchSave;
+    return this;
+  }
+
+  public boolean isMultiRowBatchSave() {
+    return multiRowBatchSave && isMultiRowInsertSupported();
+  }
+
+  /**
+   * 配置多行 insert 语句最多的参数个数，不能超过数据库的占位符限制
+   */
+  public Dialect setMultiRowMaxParas(int multiRowMaxParas) {
+    if (multiRowMaxParas <= 0) {
+      throw new IllegalArgumentException("multiRowMaxParas must be greater than 0");
+    }
+    this.multiRowMaxParas = multiRowMaxParas;
+    return this;
+  }
+
+  public int getMultiRowMaxParas() {
+    return multiRowMaxParas;
+  }
+
+  /**
+   * 配置多行 insert 语句估算的最大字节数，MySQL 中应小于 max_allowed_packet，默认 4M
+   */
+  public Dialect setMultiRowMaxBytes(int multiRowMaxBytes) {
+    if (multiRowMaxBytes <= 0) {
+      throw new IllegalArgumentException("multiRowMaxBytes must be greater than 0");
+    }
+    this.multiRowMaxBytes = multiRowMaxBytes;
+    return this;
+  }
+
+  public int getMultiRowMaxBytes() {
+    return multiRowMaxBytes;
+  }
+
+  /**
+   * insert into t(a, b) values(?, ?), (?, ?) ...
+   */
+  public void forDbMultiRowSave(String tableName, String[] columns, int rowCount, StringBuilder sql) {
+    throw new RuntimeException("You should implements this method in " + getClass().getName());
+  }
+
+  /**
+   * 多行写入，主键或唯一键冲突时更新 updateColumns，updateColumns 为空时不处理已存在的行
+   */
+  public void forDbMultiRowSaveOrUpdate(String tableName, String[] pKeys, String[] columns, String[] updateColumns, int rowCount,
+      StringBuilder sql) {
+    throw new RuntimeException("You should implements this method in " + getClass().getName());
+  }
+
+  protected void appendMultiRowValues(StringBuilder sql, int columnCount, int rowCount) {
+    sql.append(" values");
+    for (int i = 0; i < rowCount; i++) {
+      sql.append(i > 0 ? ", (" : "(");
+      for (int j = 0; j < columnCount; j++) {
+        sql.append(j > 0 ? ", ?" : "?");
+      }
+      sql.append(')');
+    }
+  }
+
+  /**
+   * 估算参数在语句中占用的字节数，用于按 multiRowMaxBytes 拆分多行 insert 语句
+   */
+  public int estimateParaSize(Object value) {
+    if (value == null) {
+      return 4;
+    } else if (value instanceof String) {
+      return ((String) value).length() * 3 + 2;
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length * 2 + 10;
+    } else if (value instanceof Number || value instanceof Boolean) {
+      return 24;
+    } else if (value instanceof java.util.Date || value instanceof java.time.temporal.Temporal) {
+      return 32;
+    }
+    return String.valueOf(value).length() * 3 + 2;
+  }
+
+  /**
+   * 是否支持查询复制位点，用于 ReadYourWrites 判断从库是否已经应用了主库的写入
+   */
+  public boolean isReplicationPositionSupported() {
+    return false;
+  }
+
+  /**
+   * 在主库上查询当前复制位点的 sql，结果为一个字符串
+   */
+  public String forReplicationPosition() {
+    throw new RuntimeException("You should implements this method in " + getClass().getName());
+  }
+
+  /**
+   * 在从库上判断是否已经应用到指定复制位点的 sql，唯一的参数为 forReplicationPosition() 查询到的位点，结果为 boolean 或 0/1
+   */
+  public String forReplicaCaughtUp() {
+    throw new RuntimeException("You should implements this method in " + getClass().getName());
+  }
+
   public void trimPrimaryKeys(String[] pKeys) {
     DialectUtils.trimPrimaryKeys(pKeys);
   }
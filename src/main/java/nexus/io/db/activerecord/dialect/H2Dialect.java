@@ -79,6 +79,39 @@ public class H2Dialect extends Dialect {
     return ret.toString();
   }
 
+  @Override
+  protected boolean isRowValueComparisonSupported() {
+    return true;
+  }
+
+  @Override
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return findSql.append(" limit ").append(limit).toString();
+  }
+
+  @Override
+  public boolean isMultiRowInsertSupported() {
+    return true;
+  }
+
+  @Override
+  public void forDbMultiRowSave(String tableName, String[] columns, int rowCount, StringBuilder sql) {
+    sql.append("insert into ").append(tableName.trim()).append('(').append(String.join(", ", columns)).append(')');
+    appendMultiRowValues(sql, columns.length, rowCount);
+  }
+
+  /**
+   * 与 forDbSaveIfAbset 一样使用 merge into ... key(...)，已存在的行总是被更新
+   */
+  @Override
+  public void forDbMultiRowSaveOrUpdate(String tableName, String[] pKeys, String[] columns, String[] updateColumns, int rowCount,
+      StringBuilder sql) {
+    trimPrimaryKeys(pKeys);
+    sql.append("merge into ").append(tableName.trim()).append('(').append(String.join(", ", columns)).append(')');
+    sql.append(" key(").append(String.join(", ", pKeys)).append(')');
+    appendMultiRowValues(sql, columns.length, rowCount);
+  }
+
   @Override
   public String forModelFindById(Table table, String columns) {
     StringBuilder sql = new StringBuilder("select ").append(columns).append(" from ");
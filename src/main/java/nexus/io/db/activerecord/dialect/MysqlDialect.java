@@ -2,13 +2,17 @@ package nexus.io.db.activerecord.dialect;
 
 import java.math.BigDecimal;
 import java.sql.Array;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import nexus.io.db.activerecord.CPI;
 import nexus.io.db.activerecord.Row;
@@ -21,6 +25,11 @@ import nexus.io.tio.utils.json.JsonUtils;
  */
 public class MysqlDialect extends Dialect {
 
+  private static final Pattern SINGLE_TABLE_PATTERN = Pattern.compile("(?is)\\s*select\\s+.+?\\s+from\\s+([`\\w.]+)\\s*");
+  // 多表或去重的查询，table_rows 不是结果的行数，使用 EXPLAIN 估算
+  private static final Pattern MULTI_TABLE_PATTERN = Pattern.compile("(?i)\\b(union|join|intersect|except|distinct)\\b|\\bfrom\\b.*\\bfrom\\b",
+      Pattern.DOTALL);
+
   public String forTableBuilderDoBuild(String tableName) {
     if (tableName.contains(".")) {
       return "select * from " + tableName + " where 1 = 2";
@@ -37,6 +46,81 @@ public class MysqlDialect extends Dialect {
     }
   }
 
+  @Override
+  public String forExplain(String sql) {
+    return "EXPLAIN " + sql;
+  }
+
+  /**
+   * 没有 where 的单表查询使用 information_schema.tables 的 table_rows，含有 union、join、distinct 或子查询时不使用，
+   * 其他查询使用 EXPLAIN 第一行的 rows * filtered / 100
+   */
+  @Override
+  public long estimateRowCount(Connection conn, String findSql, Object... paras) throws SQLException {
+    Matcher matcher = SINGLE_TABLE_PATTERN.matcher(findSql);
+    if (matcher.matches() && !MULTI_TABLE_PATTERN.matcher(findSql).find()) {
+      String tableName = matcher.group(1).replace("`", "");
+      String sql;
+      if (tableName.contains(".")) {
+        sql = "select table_rows from information_schema.tables where table_schema = ? and table_name = ?";
+      } else {
+        sql = "select table_rows from information_schema.tables where table_schema = database() and table_name = ?";
+      }
+      try (PreparedStatement pst = conn.prepareStatement(sql)) {
+        int dot = tableName.indexOf('.');
+        if (dot > 0) {
+          pst.setString(1, tableName.substring(0, dot));
+          pst.setString(2, tableName.substring(dot + 1));
+        } else {
+          pst.setString(1, tableName);
+        }
+        try (ResultSet rs = pst.executeQuery()) {
+          if (rs.next()) {
+            long rows = rs.getLong(1);
+            if (!rs.wasNull()) {
+              return rows;
+            }
+          }
+        }
+      }
+    }
+
+    try (PreparedStatement pst = conn.prepareStatement("EXPLAIN " + findSql)) {
+      fillStatement(pst, paras);
+      try (ResultSet rs = pst.executeQuery()) {
+        if (rs.next()) {
+          long rows = rs.getLong("rows");
+          double filtered = 100D;
+          try {
+            filtered = rs.getDouble("filtered");
+          } catch (SQLException e) {
+            // MySQL 5.6 及以下版本没有 filtered 列
+          }
+          return (long) (rows * filtered / 100D);
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * MySQL Connector/J 只有 fetchSize 为 Integer.MIN_VALUE 时才逐行读取，否则会把结果集全部读入内存
+   */
+  @Override
+  public PreparedStatement prepareStreamStatement(Connection conn, String sql, int fetchSize) throws SQLException {
+    PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    pst.setFetchSize(Integer.MIN_VALUE);
+    return pst;
+  }
+
+  /**
+   * 逐行读取时结果集关闭之前，同一连接上执行其他语句会报 "Streaming result set ... is still active"
+   */
+  @Override
+  public boolean isStreamExclusive() {
+    return true;
+  }
+
   public void forModelSave(Table table, Map<String, Object> attrs, StringBuilder sql, List<Object> paras) {
     sql.append("insert into `").append(table.getName()).append("`(");
     StringBuilder temp = new StringBuilder(") values(");
@@ -311,6 +395,63 @@ public class MysqlDialect extends Dialect {
     return findSql.toString();
   }
 
+  @Override
+  protected boolean isRowValueComparisonSupported() {
+    return true;
+  }
+
+  @Override
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return findSql.append(" limit ").append(limit).toString();
+  }
+
+  @Override
+  public boolean isMultiRowInsertSupported() {
+    return true;
+  }
+
+  @Override
+  public void forDbMultiRowSave(String tableName, String[] columns, int rowCount, StringBuilder sql) {
+    appendMultiRowInsert("insert into ", tableName, columns, rowCount, sql);
+  }
+
+  /**
+   * updateColumns 为空时使用 insert ignore，否则使用 on duplicate key update，冲突的判断使用表中所有的主键和唯一键
+   */
+  @Override
+  public void forDbMultiRowSaveOrUpdate(String tableName, String[] pKeys, String[] columns, String[] updateColumns, int rowCount,
+      StringBuilder sql) {
+    if (updateColumns.length == 0) {
+      appendMultiRowInsert("insert ignore into ", tableName, columns, rowCount, sql);
+      return;
+    }
+    appendMultiRowInsert("insert into ", tableName, columns, rowCount, sql);
+    sql.append(" on duplicate key update ");
+    for (int i = 0; i < updateColumns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('`').append(updateColumns[i]).append("` = values(`").append(updateColumns[i]).append("`)");
+    }
+  }
+
+  private void appendMultiRowInsert(String insert, String tableName, String[] columns, int rowCount, StringBuilder sql) {
+    tableName = tableName.trim();
+    if (tableName.contains(".")) {
+      sql.append(insert).append(tableName).append("(");
+    } else {
+      sql.append(insert).append('`').append(tableName).append("`(");
+    }
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('`').append(columns[i]).append('`');
+    }
+    sql.append(')');
+    appendMultiRowValues(sql, columns.length, rowCount);
+  }
+
   @Override
   public String forDbFindColumnsById(String tableName, String columns, String[] pKeys) {
     return DialectUtils.forDbFindColumnsById(tableName, columns, pKeys);
@@ -441,4 +582,21 @@ public class MysqlDialect extends Dialect {
     sql.append(values).append(")");
   }
 
+  @Override
+  public boolean isReplicationPositionSupported() {
+    return true;
+  }
+
+  /**
+   * 主库已执行的 GTID 集合，需要开启 gtid_mode
+   */
+  @Override
+  public String forReplicationPosition() {
+    return "select @@global.gtid_executed";
+  }
+
+  @Override
+  public String forReplicaCaughtUp() {
+    return "select gtid_subset(?, @@global.gtid_executed)";
+  }
 }
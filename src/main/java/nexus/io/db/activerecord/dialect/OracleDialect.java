@@ -219,6 +219,14 @@ public class OracleDialect extends Dialect {
     return ret.toString();
   }
 
+  /**
+   * 在 order by 之后使用 rownum 限制行数，不额外返回 rownum_ 列
+   */
+  @Override
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return "select * from ( " + findSql + " ) where rownum <= " + limit;
+  }
+
   public boolean isOracle() {
     return true;
   }
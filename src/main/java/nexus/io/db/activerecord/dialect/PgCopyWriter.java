@@ -0,0 +1,616 @@
+package nexus.io.db.activerecord.dialect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.postgresql.util.PGobject;
+
+import nexus.io.db.DbJsonObject;
+import nexus.io.tio.utils.json.JsonUtils;
+
+/**
+ * 将行编码为 PostgreSQL COPY ... FROM STDIN 的 CSV 或 BINARY 格式并写入 OutputStream
+ *
+ * <pre>
+ * 1：每次 write 只编码一行，写入 PGCopyOutputStream 后缓冲区满时直接发送到数据库，内存占用与行数无关
+ * 2：支持的值类型与 PostgreSqlDialect.fillPst 一致：String、数字、Boolean、日期时间、byte[]、UUID、Enum、
+ *    数组、List、PGobject、DbJsonObject，其他对象转为 json
+ * 3：BINARY 格式按列的实际类型 (columnTypes，如 int4、_text、jsonb) 编码
+ * </pre>
+ */
+public class PgCopyWriter {
+
+  private static final byte[] BINARY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+  // 2000-01-01 与 1970-01-01 相差的秒数和天数
+  private static final long PG_EPOCH_SECONDS = 946684800L;
+  private static final long PG_EPOCH_DAYS = 10957L;
+
+  private static final int NUMERIC_POS = 0x0000;
+  private static final int NUMERIC_NEG = 0x4000;
+  private static final int NUMERIC_NAN = 0xC000;
+
+  /**
+   * BINARY 格式支持的类型及其 oid，数组元素需要 oid
+   */
+  private static final Map<String, Integer> BINARY_TYPE_OIDS = new HashMap<>();
+  static {
+    BINARY_TYPE_OIDS.put("bool", 16);
+    BINARY_TYPE_OIDS.put("bytea", 17);
+    BINARY_TYPE_OIDS.put("name", 19);
+    BINARY_TYPE_OIDS.put("int8", 20);
+    BINARY_TYPE_OIDS.put("int2", 21);
+    BINARY_TYPE_OIDS.put("int4", 23);
+    BINARY_TYPE_OIDS.put("text", 25);
+    BINARY_TYPE_OIDS.put("json", 114);
+    BINARY_TYPE_OIDS.put("float4", 700);
+    BINARY_TYPE_OIDS.put("float8", 701);
+    BINARY_TYPE_OIDS.put("bpchar", 1042);
+    BINARY_TYPE_OIDS.put("varchar", 1043);
+    BINARY_TYPE_OIDS.put("date", 1082);
+    BINARY_TYPE_OIDS.put("timestamp", 1114);
+    BINARY_TYPE_OIDS.put("timestamptz", 1184);
+    BINARY_TYPE_OIDS.put("numeric", 1700);
+    BINARY_TYPE_OIDS.put("uuid", 2950);
+    BINARY_TYPE_OIDS.put("jsonb", 3802);
+  }
+
+  private final CopyFormat format;
+  private final String[] columns;
+  private final String[] columnTypes;
+  private final DataOutputStream out;
+
+  // CSV 每行的缓冲
+  private final StringBuilder line = new StringBuilder(256);
+  // BINARY 每个字段、数组元素的缓冲，写入前需要知道长度
+  private final ByteArrayOutputStream field = new ByteArrayOutputStream(64);
+  private final DataOutputStream fieldOut = new DataOutputStream(field);
+  private final ByteArrayOutputStream element = new ByteArrayOutputStream(64);
+  private final DataOutputStream elementOut = new DataOutputStream(element);
+
+  private long rowCount;
+
+  /**
+   * @param columnTypes 列的类型名 (ResultSetMetaData.getColumnTypeName)，BINARY 格式必须提供
+   */
+  public PgCopyWriter(OutputStream out, CopyFormat format, String[] columns, String[] columnTypes) {
+    if (format == CopyFormat.BINARY) {
+      checkBinaryColumnTypes(columns, columnTypes);
+    }
+    this.out = new DataOutputStream(out);
+    this.format = format;
+    this.columns = columns;
+    this.columnTypes = columnTypes;
+  }
+
+  /**
+   * 检查 BINARY 格式能否编码所有列，不支持时抛出 IllegalArgumentException，应改用 CSV
+   */
+  public static void checkBinaryColumnTypes(String[] columns, String[] columnTypes) {
+    if (columnTypes == null || columnTypes.length != columns.length) {
+      throw new IllegalArgumentException("columnTypes must be provided for every column in BINARY format");
+    }
+    for (int i = 0; i < columns.length; i++) {
+      if (!isBinarySupported(columnTypes[i])) {
+        throw new IllegalArgumentException("BINARY copy does not support column " + columns[i] + " of type " + columnTypes[i] + ", use CopyFormat.CSV");
+      }
+    }
+  }
+
+  public static boolean isBinarySupported(String columnType) {
+    if (columnType == null) {
+      return false;
+    }
+    if (columnType.startsWith("_")) {
+      return BINARY_TYPE_OIDS.containsKey(columnType.substring(1));
+    }
+    return BINARY_TYPE_OIDS.containsKey(columnType);
+  }
+
+  public void begin() throws IOException {
+    if (format == CopyFormat.BINARY) {
+      out.write(BINARY_SIGNATURE);
+      // flags
+      out.writeInt(0);
+      // header extension length
+      out.writeInt(0);
+    }
+  }
+
+  public void write(Object[] values) throws IOException {
+    if (values.length != columns.length) {
+      throw new IllegalArgumentException("Expected " + columns.length + " values but got " + values.length);
+    }
+    if (format == CopyFormat.BINARY) {
+      out.writeShort(values.length);
+      for (int i = 0; i < values.length; i++) {
+        writeBinaryField(columns[i], columnTypes[i], values[i]);
+      }
+    } else {
+      line.setLength(0);
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) {
+          line.append(',');
+        }
+        appendCsv(line, values[i]);
+      }
+      line.append('\n');
+      out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    rowCount++;
+  }
+
+  public void end() throws IOException {
+    if (format == CopyFormat.BINARY) {
+      // file trailer
+      out.writeShort(-1);
+    }
+    out.flush();
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * null 为不加引号的空值，其他非数字的值都加引号，以便区分空字符串和 null
+   */
+  static void appendCsv(StringBuilder sb, Object value) {
+    if (value == null) {
+      return;
+    }
+    if (value instanceof Number || value instanceof Boolean) {
+      sb.append(toText(value));
+      return;
+    }
+    String text = toText(value);
+    sb.append('"');
+    for (int i = 0, len = text.length(); i < len; i++) {
+      char c = text.charAt(i);
+      if (c == '"') {
+        sb.append('"');
+      }
+      sb.append(c);
+    }
+    sb.append('"');
+  }
+
+  /**
+   * 值的文本形式，CSV 和 BINARY 的文本列使用
+   */
+  static String toText(Object value) {
+    if (value instanceof String) {
+      return (String) value;
+    } else if (value instanceof java.util.Date) {
+      if (value instanceof java.sql.Date || value instanceof Timestamp || value instanceof java.sql.Time) {
+        return value.toString();
+      }
+      return new Timestamp(((java.util.Date) value).getTime()).toString();
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    } else if (value instanceof Number || value instanceof Boolean || value instanceof UUID) {
+      return value.toString();
+    } else if (value instanceof OffsetDateTime || value instanceof LocalDateTime || value instanceof LocalDate) {
+      return value.toString();
+    } else if (value instanceof Enum<?>) {
+      return ((Enum<?>) value).name();
+    } else if (value instanceof byte[]) {
+      return toByteaHex((byte[]) value);
+    } else if (value instanceof PGobject) {
+      return ((PGobject) value).getValue();
+    } else if (value instanceof DbJsonObject) {
+      return ((DbJsonObject) value).getValue();
+    } else if (value.getClass().isArray()) {
+      return toArrayLiteral(toElements(value));
+    } else if (value instanceof List<?>) {
+      List<?> list = (List<?>) value;
+      // 与 fillPst 一致：List<String> 作为 text[]，其他作为 json
+      if (list.isEmpty() || list.get(0) instanceof String) {
+        return toArrayLiteral(list);
+      }
+      return JsonUtils.toJson(value);
+    }
+    return JsonUtils.toJson(value);
+  }
+
+  private static String toByteaHex(byte[] bytes) {
+    char[] hex = "0123456789abcdef".toCharArray();
+    StringBuilder sb = new StringBuilder(bytes.length * 2 + 2);
+    sb.append("\\x");
+    for (byte b : bytes) {
+      sb.append(hex[(b >> 4) & 0xF]).append(hex[b & 0xF]);
+    }
+    return sb.toString();
+  }
+
+  private static String toArrayLiteral(List<?> elements) {
+    StringBuilder sb = new StringBuilder();
+    sb.append('{');
+    for (int i = 0, size = elements.size(); i < size; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      Object e = elements.get(i);
+      if (e == null) {
+        sb.append("NULL");
+      } else if (e.getClass().isArray() && !(e instanceof byte[])) {
+        sb.append(toArrayLiteral(toElements(e)));
+      } else {
+        String text = toText(e);
+        sb.append('"');
+        for (int j = 0, len = text.length(); j < len; j++) {
+          char c = text.charAt(j);
+          if (c == '"' || c == '\\') {
+            sb.append('\\');
+          }
+          sb.append(c);
+        }
+        sb.append('"');
+      }
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+
+  private static List<Object> toElements(Object array) {
+    int length = java.lang.reflect.Array.getLength(array);
+    List<Object> ret = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      ret.add(java.lang.reflect.Array.get(array, i));
+    }
+    return ret;
+  }
+
+  private void writeBinaryField(String column, String type, Object value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    field.reset();
+    if (type.startsWith("_")) {
+      writeBinaryArray(fieldOut, column, type.substring(1), value);
+    } else {
+      writeBinaryValue(fieldOut, column, type, value);
+    }
+    fieldOut.flush();
+    out.writeInt(field.size());
+    field.writeTo(out);
+  }
+
+  private void writeBinaryArray(DataOutputStream o, String column, String elementType, Object value) throws IOException {
+    List<?> elements;
+    if (value.getClass().isArray()) {
+      elements = toElements(value);
+    } else if (value instanceof Collection<?>) {
+      elements = new ArrayList<Object>((Collection<?>) value);
+    } else {
+      throw unsupported(column, "_" + elementType, value);
+    }
+    int oid = BINARY_TYPE_OIDS.get(elementType);
+    if (elements.isEmpty()) {
+      o.writeInt(0);
+      o.writeInt(0);
+      o.writeInt(oid);
+      return;
+    }
+    boolean hasNull = elements.contains(null);
+    o.writeInt(1);
+    o.writeInt(hasNull ? 1 : 0);
+    o.writeInt(oid);
+    o.writeInt(elements.size());
+    // lower bound
+    o.writeInt(1);
+    for (Object e : elements) {
+      if (e == null) {
+        o.writeInt(-1);
+        continue;
+      }
+      if (e.getClass().isArray() && !(e instanceof byte[])) {
+        throw new IllegalArgumentException("BINARY copy does not support multi-dimensional array for column " + column);
+      }
+      element.reset();
+      writeBinaryValue(elementOut, column, elementType, e);
+      elementOut.flush();
+      o.writeInt(element.size());
+      element.writeTo(o);
+    }
+  }
+
+  private static void writeBinaryValue(DataOutputStream o, String column, String type, Object value) throws IOException {
+    switch (type) {
+    case "bool":
+      o.writeByte(toBoolean(column, type, value) ? 1 : 0);
+      break;
+    case "int2":
+      o.writeShort((short) toIntegral(column, type, value, Short.MIN_VALUE, Short.MAX_VALUE));
+      break;
+    case "int4":
+      o.writeInt((int) toIntegral(column, type, value, Integer.MIN_VALUE, Integer.MAX_VALUE));
+      break;
+    case "int8":
+      o.writeLong(toIntegral(column, type, value, Long.MIN_VALUE, Long.MAX_VALUE));
+      break;
+    case "float4":
+      o.writeFloat(toNumber(column, type, value).floatValue());
+      break;
+    case "float8":
+      o.writeDouble(toNumber(column, type, value).doubleValue());
+      break;
+    case "numeric":
+      writeNumeric(o, column, type, value);
+      break;
+    case "text":
+    case "varchar":
+    case "bpchar":
+    case "name":
+      o.write(toText(value).getBytes(StandardCharsets.UTF_8));
+      break;
+    case "json":
+      o.write(toJsonText(value).getBytes(StandardCharsets.UTF_8));
+      break;
+    case "jsonb":
+      // jsonb binary format version
+      o.writeByte(1);
+      o.write(toJsonText(value).getBytes(StandardCharsets.UTF_8));
+      break;
+    case "bytea":
+      if (!(value instanceof byte[])) {
+        throw unsupported(column, type, value);
+      }
+      o.write((byte[]) value);
+      break;
+    case "uuid":
+      UUID uuid = value instanceof UUID ? (UUID) value : UUID.fromString(value.toString());
+      o.writeLong(uuid.getMostSignificantBits());
+      o.writeLong(uuid.getLeastSignificantBits());
+      break;
+    case "date":
+      o.writeInt((int) (toLocalDate(column, type, value).toEpochDay() - PG_EPOCH_DAYS));
+      break;
+    case "timestamp":
+      LocalDateTime ldt = toLocalDateTime(column, type, value);
+      o.writeLong(toPgMicros(ldt.toEpochSecond(ZoneOffset.UTC), ldt.getNano()));
+      break;
+    case "timestamptz":
+      Instant instant = toInstant(column, type, value);
+      o.writeLong(toPgMicros(instant.getEpochSecond(), instant.getNano()));
+      break;
+    default:
+      throw unsupported(column, type, value);
+    }
+  }
+
+  private static long toPgMicros(long epochSecond, int nano) {
+    return (epochSecond - PG_EPOCH_SECONDS) * 1000000L + nano / 1000;
+  }
+
+  private static String toJsonText(Object value) {
+    if (value instanceof String) {
+      return (String) value;
+    } else if (value instanceof PGobject) {
+      return ((PGobject) value).getValue();
+    } else if (value instanceof DbJsonObject) {
+      return ((DbJsonObject) value).getValue();
+    }
+    return JsonUtils.toJson(value);
+  }
+
+  private static boolean toBoolean(String column, String type, Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Number) {
+      return ((Number) value).intValue() != 0;
+    } else if (value instanceof String) {
+      String s = (String) value;
+      return "t".equalsIgnoreCase(s) || "true".equalsIgnoreCase(s) || "1".equals(s);
+    }
+    throw unsupported(column, type, value);
+  }
+
+  private static Number toNumber(String column, String type, Object value) {
+    if (value instanceof Number) {
+      return (Number) value;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    } else if (value instanceof String) {
+      return new BigDecimal((String) value);
+    }
+    throw unsupported(column, type, value);
+  }
+
+  /**
+   * 转为整数并检查范围，超出范围或带小数时抛出异常，与 CSV 格式下数据库的报错一致，不截断
+   */
+  private static long toIntegral(String column, String type, Object value, long min, long max) {
+    Number number = toNumber(column, type, value);
+    long ret;
+    if (number instanceof BigDecimal || number instanceof BigInteger || number instanceof Double || number instanceof Float) {
+      try {
+        BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number
+            : number instanceof BigInteger ? new BigDecimal((BigInteger) number) : BigDecimal.valueOf(number.doubleValue());
+        ret = decimal.longValueExact();
+      } catch (ArithmeticException | NumberFormatException e) {
+        throw outOfRange(column, type, value);
+      }
+    } else {
+      ret = number.longValue();
+    }
+    if (ret < min || ret > max) {
+      throw outOfRange(column, type, value);
+    }
+    return ret;
+  }
+
+  private static LocalDate toLocalDate(String column, String type, Object value) {
+    if (value instanceof LocalDate) {
+      return (LocalDate) value;
+    } else if (value instanceof java.sql.Date) {
+      return ((java.sql.Date) value).toLocalDate();
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime) value).toLocalDate();
+    } else if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value).toLocalDate();
+    } else if (value instanceof java.util.Date) {
+      return Instant.ofEpochMilli(((java.util.Date) value).getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    } else if (value instanceof String) {
+      return LocalDate.parse((String) value);
+    }
+    throw unsupported(column, type, value);
+  }
+
+  /**
+   * timestamp 列：与 fillPst 一致，OffsetDateTime 取其本地时间，java.util.Date 使用 JVM 时区
+   */
+  private static LocalDateTime toLocalDateTime(String column, String type, Object value) {
+    if (value instanceof LocalDateTime) {
+      return (LocalDateTime) value;
+    } else if (value instanceof Timestamp) {
+      return ((Timestamp) value).toLocalDateTime();
+    } else if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value).toLocalDateTime();
+    } else if (value instanceof ZonedDateTime) {
+      return ((ZonedDateTime) value).toLocalDateTime();
+    } else if (value instanceof LocalDate) {
+      return ((LocalDate) value).atStartOfDay();
+    } else if (value instanceof java.util.Date) {
+      return LocalDateTime.ofInstant(Instant.ofEpochMilli(((java.util.Date) value).getTime()), ZoneId.systemDefault());
+    } else if (value instanceof String) {
+      return Timestamp.valueOf((String) value).toLocalDateTime();
+    }
+    throw unsupported(column, type, value);
+  }
+
+  /**
+   * timestamptz 列：没有时区的值使用 JVM 时区
+   */
+  private static Instant toInstant(String column, String type, Object value) {
+    if (value instanceof Instant) {
+      return (Instant) value;
+    } else if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value).toInstant();
+    } else if (value instanceof ZonedDateTime) {
+      return ((ZonedDateTime) value).toInstant();
+    } else if (value instanceof Timestamp) {
+      return ((Timestamp) value).toInstant();
+    } else if (value instanceof LocalDateTime) {
+      return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant();
+    } else if (value instanceof LocalDate) {
+      return ((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    } else if (value instanceof java.util.Date) {
+      return Instant.ofEpochMilli(((java.util.Date) value).getTime());
+    } else if (value instanceof String) {
+      return OffsetDateTime.parse((String) value).toInstant();
+    }
+    throw unsupported(column, type, value);
+  }
+
+  /**
+   * numeric 的二进制格式：ndigits、weight、sign、dscale 以及以 10000 为基数的各位
+   */
+  static void writeNumeric(DataOutputStream o, String column, String type, Object value) throws IOException {
+    if ((value instanceof Double && ((Double) value).isNaN()) || (value instanceof Float && ((Float) value).isNaN())) {
+      o.writeShort(0);
+      o.writeShort(0);
+      o.writeShort(NUMERIC_NAN);
+      o.writeShort(0);
+      return;
+    }
+    BigDecimal decimal;
+    if (value instanceof BigDecimal) {
+      decimal = (BigDecimal) value;
+    } else if (value instanceof BigInteger) {
+      decimal = new BigDecimal((BigInteger) value);
+    } else if (value instanceof Number || value instanceof String) {
+      try {
+        decimal = new BigDecimal(value.toString());
+      } catch (NumberFormatException e) {
+        throw unsupported(column, type, value);
+      }
+    } else {
+      throw unsupported(column, type, value);
+    }
+
+    int scale = decimal.scale();
+    if (scale < 0) {
+      decimal = decimal.setScale(0);
+      scale = 0;
+    }
+    int sign = decimal.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS;
+    String digits = decimal.unscaledValue().abs().toString();
+
+    StringBuilder intPart = new StringBuilder();
+    StringBuilder fracPart = new StringBuilder();
+    if (digits.length() <= scale) {
+      intPart.append('0');
+      for (int i = digits.length(); i < scale; i++) {
+        fracPart.append('0');
+      }
+      fracPart.append(digits);
+    } else {
+      intPart.append(digits, 0, digits.length() - scale);
+      fracPart.append(digits, digits.length() - scale, digits.length());
+    }
+    while (intPart.length() % 4 != 0) {
+      intPart.insert(0, '0');
+    }
+    while (fracPart.length() % 4 != 0) {
+      fracPart.append('0');
+    }
+
+    String all = intPart.append(fracPart).toString();
+    int count = all.length() / 4;
+    int[] groups = new int[count];
+    for (int i = 0; i < count; i++) {
+      groups[i] = Integer.parseInt(all.substring(i * 4, i * 4 + 4));
+    }
+
+    int weight = (all.length() - fracPart.length()) / 4 - 1;
+    int start = 0;
+    while (start < count && groups[start] == 0) {
+      start++;
+      weight--;
+    }
+    int end = count;
+    while (end > start && groups[end - 1] == 0) {
+      end--;
+    }
+    if (start == end) {
+      weight = 0;
+      sign = NUMERIC_POS;
+    }
+
+    o.writeShort(end - start);
+    o.writeShort(weight);
+    o.writeShort(sign);
+    o.writeShort(scale);
+    for (int i = start; i < end; i++) {
+      o.writeShort(groups[i]);
+    }
+  }
+
+  private static IllegalArgumentException outOfRange(String column, String type, Object value) {
+    return new IllegalArgumentException("Value " + value + " is out of range for column " + column + " of type " + type);
+  }
+
+  private static IllegalArgumentException unsupported(String column, String type, Object value) {
+    return new IllegalArgumentException("Can not copy value of type " + value.getClass().getName() + " to column " + column + " of type " + type);
+  }
+}
@@ -1,8 +1,10 @@
 package nexus.io.db.activerecord.dialect;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Array;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -10,12 +12,18 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.util.PGobject;
 
 import nexus.io.db.DbJsonObject;
@@ -35,6 +43,11 @@ import nexus.io.tio.utils.json.JsonUtils;
  */
 public class PostgreSqlDialect extends Dialect {
 
+  private static final Pattern EXPLAIN_ROWS_PATTERN = Pattern.compile("rows=(\\d+)");
+
+  // COPY 写入时 PGCopyOutputStream 的缓冲区大小
+  protected int copyBufferSize = 65536;
+
   public PostgreSqlDialect() {
     this.modelBuilder = TimestampProcessedModelBuilder.me;
     this.recordBuilder = TimestampProcessedRecordBuilder.me;
@@ -48,6 +61,132 @@ public class PostgreSqlDialect extends Dialect {
     return "select * from \"" + tableName + "\"";
   }
 
+  @Override
+  public String forExplain(String sql) {
+    return "EXPLAIN (ANALYZE off) " + sql;
+  }
+
+  /**
+   * 取 EXPLAIN 第一行 (最外层节点) 的 rows 估算值
+   */
+  @Override
+  public long estimateRowCount(Connection conn, String findSql, Object... paras) throws SQLException {
+    try (PreparedStatement pst = conn.prepareStatement("EXPLAIN " + findSql)) {
+      fillStatement(pst, paras);
+      try (ResultSet rs = pst.executeQuery()) {
+        if (rs.next()) {
+          Matcher matcher = EXPLAIN_ROWS_PATTERN.matcher(rs.getString(1));
+          if (matcher.find()) {
+            return Long.parseLong(matcher.group(1));
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean isStreamRequireNoAutoCommit() {
+    return true;
+  }
+
+  /**
+   * 配置 COPY 写入的缓冲区大小，缓冲区满时发送到数据库，默认 64K
+   */
+  public PostgreSqlDialect setCopyBufferSize(int copyBufferSize) {
+    if (copyBufferSize <= 0) {
+      throw new IllegalArgumentException("copyBufferSize must be greater than 0");
+    }
+    this.copyBufferSize = copyBufferSize;
+    return this;
+  }
+
+  public int getCopyBufferSize() {
+    return copyBufferSize;
+  }
+
+  public String forCopyIn(String tableName, String[] columns, CopyFormat format) {
+    StringBuilder sql = new StringBuilder("COPY \"").append(tableName.trim()).append("\" (");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('\"').append(columns[i]).append('\"');
+    }
+    sql.append(") FROM STDIN WITH (FORMAT ").append(format == CopyFormat.BINARY ? "binary" : "csv").append(')');
+    return sql.toString();
+  }
+
+  /**
+   * 使用 COPY ... FROM STDIN 批量写入，rows 中每个数组的值与 columns 一一对应
+   *
+   * <pre>
+   * 1：rows 逐行编码后写入 PGCopyOutputStream，缓冲区满时阻塞发送，数据不会全部缓存在内存中
+   * 2：BINARY 格式先查询列的类型，有不支持的类型时在 COPY 开始前抛出 IllegalArgumentException
+   * 3：出错时取消 COPY，已写入的行不会生效
+   * </pre>
+   *
+   * @return 写入的行数
+   */
+  public long copyIn(Connection conn, String tableName, String[] columns, CopyFormat format, Iterator<Object[]> rows) throws SQLException {
+    String[] columnTypes = null;
+    if (format == CopyFormat.BINARY) {
+      columnTypes = getColumnTypes(conn, tableName, columns);
+      PgCopyWriter.checkBinaryColumnTypes(columns, columnTypes);
+    }
+
+    CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+    PGCopyOutputStream out = new PGCopyOutputStream(copyManager.copyIn(forCopyIn(tableName, columns, format)), copyBufferSize);
+    PgCopyWriter writer = new PgCopyWriter(out, format, columns, columnTypes);
+    try {
+      writer.begin();
+      while (rows.hasNext()) {
+        writer.write(rows.next());
+      }
+      writer.end();
+      return out.endCopy();
+    } catch (IOException e) {
+      SQLException ex = e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getMessage(), e);
+      cancelCopy(out, ex);
+      throw ex;
+    } catch (SQLException | RuntimeException e) {
+      cancelCopy(out, e);
+      throw e;
+    }
+  }
+
+  private void cancelCopy(PGCopyOutputStream out, Exception cause) {
+    if (out.isActive()) {
+      try {
+        out.cancelCopy();
+      } catch (SQLException e) {
+        cause.addSuppressed(e);
+      }
+    }
+  }
+
+  /**
+   * 列的类型名，如 int4、varchar、_text、jsonb
+   */
+  private String[] getColumnTypes(Connection conn, String tableName, String[] columns) throws SQLException {
+    StringBuilder sql = new StringBuilder("select ");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('\"').append(columns[i]).append('\"');
+    }
+    sql.append(" from \"").append(tableName.trim()).append("\" where 1 = 2");
+    try (PreparedStatement pst = conn.prepareStatement(sql.toString()); ResultSet rs = pst.executeQuery()) {
+      ResultSetMetaData metaData = rs.getMetaData();
+      String[] types = new String[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        types[i] = metaData.getColumnTypeName(i + 1);
+      }
+      return types;
+    }
+  }
+
   public void forModelSave(Table table, Map<String, Object> attrs, StringBuilder sql, List<Object> paras) {
     sql.append("insert into \"").append(table.getName()).append("\"(");
     StringBuilder temp = new StringBuilder(") values(");
@@ -293,6 +432,16 @@ public class PostgreSqlDialect extends Dialect {
     return findSql.toString();
   }
 
+  @Override
+  protected boolean isRowValueComparisonSupported() {
+    return true;
+  }
+
+  @Override
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return findSql.append(" limit ").append(limit).toString();
+  }
+
   public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
     for (int i = 0, size = paras.size(); i < size; i++) {
       Object value = paras.get(i);
@@ -723,4 +872,24 @@ public class PostgreSqlDialect extends Dialect {
     }
   }
 
+  @Override
+  public boolean isReplicationPositionSupported() {
+    return true;
+  }
+
+  /**
+   * 主库当前的 WAL LSN，需要 PostgreSQL 10 及以上
+   */
+  @Override
+  public String forReplicationPosition() {
+    return "select pg_current_wal_lsn()::text";
+  }
+
+  /**
+   * 不是从库时 pg_last_wal_replay_lsn() 为 null，视为已应用
+   */
+  @Override
+  public String forReplicaCaughtUp() {
+    return "select coalesce(pg_last_wal_replay_lsn() >= ?::pg_lsn, true)";
+  }
 }
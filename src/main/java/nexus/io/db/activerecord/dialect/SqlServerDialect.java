@@ -212,6 +212,14 @@ public class SqlServerDialect extends Dialect {
     return ret.toString();
   }
 
+  /**
+   * SQL Server 2012 及以上版本
+   */
+  @Override
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return findSql.append(" offset 0 rows fetch next ").append(limit).append(" rows only").toString();
+  }
+
   public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
     for (int i = 0, size = paras.size(); i < size; i++) {
       fillPst(pst, i, paras.get(i));
@@ -22,6 +22,8 @@ public class Sqlite3Dialect extends Dialect {
   public Sqlite3Dialect() {
     this.modelBuilder = TimestampProcessedModelBuilder.me;
     this.recordBuilder = TimestampProcessedRecordBuilder.me;
+    // SQLite 3.32 之前 SQLITE_MAX_VARIABLE_NUMBER 默认为 999
+    this.multiRowMaxParas = 999;
   }
 
   public String forTableBuilderDoBuild(String tableName) {
@@ -198,6 +200,49 @@ public class Sqlite3Dialect extends Dialect {
     return findSql.toString();
   }
 
+  @Override
+  protected boolean isRowValueComparisonSupported() {
+    return true;
+  }
+
+  @Override
+  public String forKeysetLimit(StringBuilder findSql, int limit) {
+    return findSql.append(" limit ").append(limit).toString();
+  }
+
+  @Override
+  public boolean isMultiRowInsertSupported() {
+    return true;
+  }
+
+  @Override
+  public void forDbMultiRowSave(String tableName, String[] columns, int rowCount, StringBuilder sql) {
+    sql.append("insert into ").append(tableName.trim()).append('(').append(String.join(", ", columns)).append(')');
+    appendMultiRowValues(sql, columns.length, rowCount);
+  }
+
+  /**
+   * on conflict(pKeys) do update / do nothing，需要 SQLite 3.24 及以上版本
+   */
+  @Override
+  public void forDbMultiRowSaveOrUpdate(String tableName, String[] pKeys, String[] columns, String[] updateColumns, int rowCount,
+      StringBuilder sql) {
+    trimPrimaryKeys(pKeys);
+    forDbMultiRowSave(tableName, columns, rowCount, sql);
+    sql.append(" on conflict(").append(String.join(", ", pKeys)).append(')');
+    if (updateColumns.length == 0) {
+      sql.append(" do nothing");
+      return;
+    }
+    sql.append(" do update set ");
+    for (int i = 0; i < updateColumns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(updateColumns[i]).append(" = excluded.").append(updateColumns[i]);
+    }
+  }
+
   public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
     for (int i = 0, size = paras.size(); i < size; i++) {
       fillPst(pst, i, paras.get(i));
@@ -0,0 +1,181 @@
+package nexus.io.db.activerecord.stat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在内存中按归一化 sql 和 Config 名称统计延迟直方图、影响行数和错误数，不写磁盘
+ * 
+ * <pre>
+ * 例如：
+ * HistogramSqlStatementStat stat = new HistogramSqlStatementStat();
+ * arp.setSqlStatementStat(stat, false);
+ * 
+ * for (SqlStatementSnapshot s : stat.getStatementSnapshots()) {
+ *   System.out.println(s.getKey() + " p99=" + s.getP99Nanos());
+ * }
+ * </pre>
+ * 
+ * 归一化后的 sql 数量超过 maxStatements 时，新出现的 sql 统一计入 OTHER_KEY
+ */
+public class HistogramSqlStatementStat implements ISqlStatementStat {
+
+  public static final int DEFAULT_MAX_STATEMENTS = 2048;
+  public static final String OTHER_KEY = "<other>";
+
+  private final int maxStatements;
+  private final int stripes;
+
+  /**
+   * 原始 sql 到统计数据的索引，命中时 record 无需归一化，也不分配对象
+   */
+  private final ConcurrentHashMap<String, SqlStatementMetrics> rawSqlIndex;
+  private final ConcurrentHashMap<String, SqlStatementMetrics> statements;
+  private final ConcurrentHashMap<String, SqlStatementMetrics> configs = new ConcurrentHashMap<>();
+  private final SqlStatementMetrics other;
+
+  public HistogramSqlStatementStat() {
+    this(DEFAULT_MAX_STATEMENTS, LatencyHistogram.defaultStripes());
+  }
+
+  public HistogramSqlStatementStat(int maxStatements) {
+    this(maxStatements, LatencyHistogram.defaultStripes());
+  }
+
+  public HistogramSqlStatementStat(int maxStatements, int stripes) {
+    if (maxStatements < 1) {
+      throw new IllegalArgumentException("maxStatements must be greater than 0");
+    }
+    this.maxStatements = maxStatements;
+    this.stripes = stripes;
+    this.rawSqlIndex = new ConcurrentHashMap<>(maxStatements);
+    this.statements = new ConcurrentHashMap<>(maxStatements);
+    this.other = new SqlStatementMetrics(OTHER_KEY, stripes);
+  }
+
+  @Override
+  public void save(String name, String sqlType, String sql, Object[] paras, int size, long start, long elapsed, boolean writeSync) {
+    record(name, sql, TimeUnit.MILLISECONDS.toNanos(elapsed), size);
+  }
+
+  @Override
+  public void save(String name, String sqlType, String sql, @SuppressWarnings("rawtypes") List paras, int size, long start, long elapsed, boolean writeSync) {
+    record(name, sql, TimeUnit.MILLISECONDS.toNanos(elapsed), size);
+  }
+
+  @Override
+  public void record(SqlStatementEvent event) {
+    statementMetrics(event.getSql()).record(event);
+    configMetrics(event.getName()).record(event);
+  }
+
+  public void record(String name, String sql, long elapsedNanos, int size) {
+    statementMetrics(sql).record(elapsedNanos, size);
+    configMetrics(name).record(elapsedNanos, size);
+  }
+
+  public void recordError(String name, String sql, long elapsedNanos) {
+    statementMetrics(sql).recordError(elapsedNanos);
+    configMetrics(name).recordError(elapsedNanos);
+  }
+
+  private SqlStatementMetrics statementMetrics(String sql) {
+    if (sql == null) {
+      return other;
+    }
+    SqlStatementMetrics metrics = rawSqlIndex.get(sql);
+    if (metrics != null) {
+      return metrics;
+    }
+
+    String key = SqlNormalizer.normalize(sql);
+    metrics = statements.get(key);
+    if (metrics == null) {
+      if (statements.size() >= maxStatements) {
+        return other;
+      }
+      metrics = new SqlStatementMetrics(key, stripes);
+      SqlStatementMetrics previous = statements.putIfAbsent(key, metrics);
+      if (previous != null) {
+        metrics = previous;
+      }
+    }
+
+    // 同一条归一化 sql 可能有多种原始写法，索引大小单独限制
+    if (rawSqlIndex.size() < maxStatements * 4) {
+      rawSqlIndex.putIfAbsent(sql, metrics);
+    }
+    return metrics;
+  }
+
+  private SqlStatementMetrics configMetrics(String name) {
+    if (name == null) {
+      name = "";
+    }
+    SqlStatementMetrics metrics = configs.get(name);
+    if (metrics == null) {
+      metrics = new SqlStatementMetrics(name, stripes);
+      SqlStatementMetrics previous = configs.putIfAbsent(name, metrics);
+      if (previous != null) {
+        metrics = previous;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * 所有归一化 sql 的快照，按总耗时倒序
+   */
+  public List<SqlStatementSnapshot> getStatementSnapshots() {
+    List<SqlStatementSnapshot> ret = snapshots(statements.values());
+    if (other.getHistogram().getCount() > 0) {
+      ret.add(other.snapshot());
+      sort(ret);
+    }
+    return ret;
+  }
+
+  /**
+   * sql 可以是原始 sql，也可以是归一化后的 sql
+   */
+  public SqlStatementSnapshot getStatementSnapshot(String sql) {
+    SqlStatementMetrics metrics = statements.get(SqlNormalizer.normalize(sql));
+    return metrics != null ? metrics.snapshot() : null;
+  }
+
+  public List<SqlStatementSnapshot> getConfigSnapshots() {
+    return snapshots(configs.values());
+  }
+
+  public SqlStatementSnapshot getConfigSnapshot(String configName) {
+    SqlStatementMetrics metrics = configs.get(configName);
+    return metrics != null ? metrics.snapshot() : null;
+  }
+
+  public int getStatementCount() {
+    return statements.size();
+  }
+
+  public void reset() {
+    rawSqlIndex.clear();
+    statements.clear();
+    configs.clear();
+    other.reset();
+  }
+
+  private static List<SqlStatementSnapshot> snapshots(Collection<SqlStatementMetrics> values) {
+    List<SqlStatementSnapshot> ret = new ArrayList<>(values.size() + 1);
+    for (SqlStatementMetrics metrics : values) {
+      ret.add(metrics.snapshot());
+    }
+    sort(ret);
+    return ret;
+  }
+
+  private static void sort(List<SqlStatementSnapshot> list) {
+    list.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+  }
+}
@@ -1,9 +1,36 @@
 package nexus.io.db.activerecord.stat;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public interface ISqlStatementStat {
   public void save(String name, String sqlType, String sql, Object[] paras, int size, long start, long elapsed, boolean writeSync);
   
   public void save(String name, String sqlType, String sql, @SuppressWarnings("rawtypes") List paras, int size, long start, long elapsed, boolean writeSync);
-}
\ No newline at end of file
+
+  /**
+   * DbPro 使用本方法上报纳秒精度、分阶段的耗时，执行失败的语句也会上报
+   * 
+   * 默认实现把执行成功的语句转给 save(...)，elapsed 为不含获取连接的毫秒数，执行失败的语句转给 saveFailed(...)
+   */
+  @SuppressWarnings("rawtypes")
+  public default void record(SqlStatementEvent event) {
+    if (!event.isSuccess()) {
+      saveFailed(event);
+      return;
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(event.getStatementNanos());
+    Object paras = event.getParas();
+    if (paras instanceof List) {
+      save(event.getName(), event.getSqlType(), event.getSql(), (List) paras, event.getSize(), event.getStartTimeMillis(), elapsed, event.isWriteSync());
+    } else {
+      save(event.getName(), event.getSqlType(), event.getSql(), (Object[]) paras, event.getSize(), event.getStartTimeMillis(), elapsed, event.isWriteSync());
+    }
+  }
+
+  /**
+   * 执行失败的语句，event.getError() 为失败的原因，默认忽略
+   */
+  public default void saveFailed(SqlStatementEvent event) {
+  }
+}
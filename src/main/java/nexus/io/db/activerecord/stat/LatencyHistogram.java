@@ -0,0 +1,168 @@
+package nexus.io.db.activerecord.stat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段、无分配的延迟直方图，桶的划分方式与 HdrHistogram 一致
+ *
+ * <pre>
+ * 1：小于 32 的值每个值一个桶，之后每个 2 的幂区间分为 16 个桶，桶宽最多为桶内最小值的 1/16，
+ *    百分位返回桶的中间值，相对误差不超过约 3%
+ * 2：按线程 id 分为多个 stripe，减少多线程 record 时在同一个缓存行上的竞争
+ * 3：record 只做 AtomicLongArray 的自增，不分配对象
+ * </pre>
+ *
+ * 记录的值的单位由调用方决定，HistogramSqlStatementStat 中使用纳秒
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+  /**
+   * 超过 2^40 (纳秒约 18 分钟) 的值计入最后一个桶
+   */
+  private static final int MAX_VALUE_BITS = 40;
+  public static final long HIGHEST_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+  static final int BUCKET_COUNT = bucketIndex(HIGHEST_TRACKABLE_VALUE) + 1;
+
+  private final int stripes;
+  private final int stripeMask;
+  private final AtomicLongArray counts;
+  private final AtomicLong max = new AtomicLong();
+
+  public LatencyHistogram() {
+    this(defaultStripes());
+  }
+
+  public LatencyHistogram(int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be greater than 0");
+    }
+    int size = 1;
+    while (size < stripes) {
+      size <<= 1;
+    }
+    this.stripes = size;
+    this.stripeMask = this.stripes - 1;
+    this.counts = new AtomicLongArray(this.stripes * BUCKET_COUNT);
+  }
+
+  static int defaultStripes() {
+    int cpus = Runtime.getRuntime().availableProcessors();
+    return cpus >= 8 ? 8 : cpus >= 4 ? 4 : 2;
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return value < 0 ? 0 : (int) value;
+    }
+    if (value > HIGHEST_TRACKABLE_VALUE) {
+      value = HIGHEST_TRACKABLE_VALUE;
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int shift = msb - (SUB_BUCKET_BITS - 1);
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+  }
+
+  /**
+   * 桶内最大的值
+   */
+  static long highestValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+    long sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+    return ((sub + 1) << shift) - 1;
+  }
+
+  /**
+   * 桶的中间值，与桶内任意值的相对误差不超过 1/32
+   */
+  static long medianValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+    return highestValueOf(index) - ((1L << shift) >> 1);
+  }
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    int stripe = (int) Thread.currentThread().getId() & stripeMask;
+    counts.incrementAndGet(stripe * BUCKET_COUNT + bucketIndex(value));
+
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * 合并所有 stripe 的计数，写入 target，返回总数
+   */
+  long copyCounts(long[] target) {
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long c = 0;
+      for (int s = 0; s < stripes; s++) {
+        c += counts.get(s * BUCKET_COUNT + i);
+      }
+      target[i] = c;
+      total += c;
+    }
+    return total;
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getCount() {
+    long total = 0;
+    for (int i = 0, n = counts.length(); i < n; i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * percentile 取值 0 - 100
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] merged = new long[BUCKET_COUNT];
+    long total = copyCounts(merged);
+    return valueAtPercentile(merged, total, percentile, getMax());
+  }
+
+  static long valueAtPercentile(long[] merged, long total, double percentile, long max) {
+    if (total == 0) {
+      return 0;
+    }
+    double p = Math.min(Math.max(percentile, 0D), 100D);
+    if (p >= 100D) {
+      return max;
+    }
+    long target = Math.max(1L, (long) Math.ceil(p / 100D * total));
+    long seen = 0;
+    for (int i = 0; i < merged.length; i++) {
+      seen += merged[i];
+      if (seen >= target) {
+        return Math.min(medianValueOf(i), max);
+      }
+    }
+    return max;
+  }
+
+  public void reset() {
+    for (int i = 0, n = counts.length(); i < n; i++) {
+      counts.set(i, 0);
+    }
+    max.set(0);
+  }
+}
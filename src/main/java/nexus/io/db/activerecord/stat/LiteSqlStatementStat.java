@@ -1,26 +1,31 @@
 package nexus.io.db.activerecord.stat;
 
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 import nexus.io.lite.Lite;
+import nexus.io.lite.LiteStatWriter;
 
 /**
  * 保存数据到sql lite
  * 
+ * 异步模式下记录先进入 LiteStatWriter 的有界队列，由单独的写入线程批量写入
+ * 
+ * 执行失败的语句不写入 sql lite，只计数，通过 getFailedCount() 获取
+ * 
  * @author Tong Li
  *
  */
 public class LiteSqlStatementStat implements ISqlStatementStat {
 
+  private final LongAdder failed = new LongAdder();
+
   @Override
   public void save(String name, String sqlType, String sql, Object[] paras, int size, long startTimeMillis, long elapsed, boolean writeSync) {
     if (writeSync) {
       Lite.saveSqlStatementStat(name, sqlType, sql, paras, size, startTimeMillis, elapsed);
     } else {
-      CompletableFuture.runAsync(() -> {
-        Lite.saveSqlStatementStat(name, sqlType, sql, paras, size, startTimeMillis, elapsed);
-      });
+      LiteStatWriter.me().offer(name, sqlType, sql, paras, size, startTimeMillis, elapsed);
     }
   }
 
@@ -29,11 +34,18 @@ public class LiteSqlStatementStat implements ISqlStatementStat {
     if (writeSync) {
       Lite.saveSqlStatementStat(name, sqlType, sql, paras, size, startTimeMillis, elapsed);
     } else {
-      CompletableFuture.runAsync(() -> {
-        Lite.saveSqlStatementStat(name, sqlType, sql, paras, size, startTimeMillis, elapsed);
-      });
+      LiteStatWriter.me().offer(name, sqlType, sql, paras, size, startTimeMillis, elapsed);
     }
 
   }
 
+  @Override
+  public void saveFailed(SqlStatementEvent event) {
+    failed.increment();
+  }
+
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
 }
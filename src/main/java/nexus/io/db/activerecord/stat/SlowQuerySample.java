@@ -0,0 +1,26 @@
+package nexus.io.db.activerecord.stat;
+
+import lombok.Data;
+
+/**
+ * 一次慢查询的采样
+ */
+@Data
+public class SlowQuerySample {
+  private String name;
+  private String sqlType;
+  private String sql;
+  private String normalizedSql;
+  private String paras;
+  private long startTimeMillis;
+  private long elapsedNanos;
+  /**
+   * 执行计划，dialect 不支持或获取失败时为 null
+   */
+  private String plan;
+  /**
+   * 获取执行计划失败的原因
+   */
+  private String planError;
+  private long captureTimeMillis;
+}
@@ -0,0 +1,338 @@
+package nexus.io.db.activerecord.stat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.db.activerecord.Config;
+import nexus.io.db.activerecord.DbKit;
+import nexus.io.db.activerecord.dialect.Dialect;
+
+/**
+ * 慢查询采样
+ * 
+ * <pre>
+ * 1：执行耗时超过阈值的 sql，记录参数，并使用一个单独的连接异步执行 dialect.forExplain(sql) 获取执行计划
+ * 2：按归一化后的 sql 去重，同一条 sql 在 dedupWindowMillis 内只采样一次
+ * 3：每分钟最多采样 maxSamplesPerMinute 次，采样线程的队列满时直接丢弃
+ * 
+ * 例如：
+ * SlowQuerySqlStatementStat slow = new SlowQuerySqlStatementStat(500, new HistogramSqlStatementStat());
+ * slow.setListener(sample -> log.warn("{}", sample));
+ * arp.setSqlStatementStat(slow, false);
+ * </pre>
+ * 
+ * 目前 PostgreSqlDialect、MysqlDialect 支持获取执行计划，其他 dialect 只记录 sql 和参数
+ */
+@Slf4j
+public class SlowQuerySqlStatementStat implements ISqlStatementStat {
+
+  private static final int MAX_PARAS_LENGTH = 2048;
+  private static final int MAX_DEDUP_KEYS = 10000;
+
+  private final long thresholdNanos;
+  private final ISqlStatementStat delegate;
+
+  private long dedupWindowMillis = TimeUnit.MINUTES.toMillis(10);
+  private int maxSamplesPerMinute = 30;
+  private int maxKeptSamples = 256;
+  private int explainTimeoutSeconds = 5;
+  private Consumer<SlowQuerySample> listener;
+
+  private final ConcurrentHashMap<String, Long> lastCaptured = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedDeque<SlowQuerySample> samples = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger keptSamples = new AtomicInteger();
+
+  private final AtomicLong windowStart = new AtomicLong();
+  private final AtomicInteger windowCount = new AtomicInteger();
+
+  private final AtomicLong slowCount = new AtomicLong();
+  private final AtomicLong capturedCount = new AtomicLong();
+  private final AtomicLong suppressedCount = new AtomicLong();
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * @param thresholdMillis 超过该耗时(不含获取连接)的语句会被采样
+   */
+  public SlowQuerySqlStatementStat(long thresholdMillis) {
+    this(thresholdMillis, null);
+  }
+
+  /**
+   * @param delegate 所有语句仍然转给 delegate 统计，可以为 null
+   */
+  public SlowQuerySqlStatementStat(long thresholdMillis, ISqlStatementStat delegate) {
+    if (thresholdMillis < 0) {
+      throw new IllegalArgumentException("thresholdMillis can not be less than 0");
+    }
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    this.delegate = delegate;
+    this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(64), r -> {
+      Thread thread = new Thread(r, "slow-query-explain");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void save(String name, String sqlType, String sql, Object[] paras, int size, long start, long elapsed, boolean writeSync) {
+    if (delegate != null) {
+      delegate.save(name, sqlType, sql, paras, size, start, elapsed, writeSync);
+    }
+    check(name, sqlType, sql, paras, start, TimeUnit.MILLISECONDS.toNanos(elapsed));
+  }
+
+  @Override
+  public void save(String name, String sqlType, String sql, @SuppressWarnings("rawtypes") List paras, int size, long start, long elapsed, boolean writeSync) {
+    if (delegate != null) {
+      delegate.save(name, sqlType, sql, paras, size, start, elapsed, writeSync);
+    }
+    check(name, sqlType, sql, paras, start, TimeUnit.MILLISECONDS.toNanos(elapsed));
+  }
+
+  @Override
+  public void record(SqlStatementEvent event) {
+    if (delegate != null) {
+      delegate.record(event);
+    }
+    if (event.isSuccess()) {
+      check(event.getName(), event.getSqlType(), event.getSql(), event.getParas(), event.getStartTimeMillis(), event.getStatementNanos());
+    }
+  }
+
+  private void check(String name, String sqlType, String sql, Object paras, long startTimeMillis, long elapsedNanos) {
+    if (elapsedNanos < thresholdNanos || sql == null) {
+      return;
+    }
+    slowCount.incrementAndGet();
+
+    String normalizedSql = SqlNormalizer.normalize(sql);
+    long now = System.currentTimeMillis();
+    Long last = lastCaptured.get(normalizedSql);
+    if (last != null && now - last < dedupWindowMillis) {
+      suppressedCount.incrementAndGet();
+      return;
+    }
+    if (last == null && lastCaptured.size() >= MAX_DEDUP_KEYS) {
+      lastCaptured.clear();
+    }
+    if (!acquirePermit(now)) {
+      suppressedCount.incrementAndGet();
+      return;
+    }
+    if (last == null ? lastCaptured.putIfAbsent(normalizedSql, now) != null : !lastCaptured.replace(normalizedSql, last, now)) {
+      // 其他线程已经采样
+      suppressedCount.incrementAndGet();
+      return;
+    }
+
+    SlowQuerySample sample = new SlowQuerySample();
+    sample.setName(name);
+    sample.setSqlType(sqlType);
+    sample.setSql(sql);
+    sample.setNormalizedSql(normalizedSql);
+    sample.setParas(parasToString(paras));
+    sample.setStartTimeMillis(startTimeMillis);
+    sample.setElapsedNanos(elapsedNanos);
+    try {
+      executor.execute(() -> capture(sample, paras));
+    } catch (RejectedExecutionException e) {
+      lastCaptured.remove(normalizedSql, now);
+      suppressedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * 固定窗口限流，每分钟最多 maxSamplesPerMinute 次
+   */
+  private boolean acquirePermit(long now) {
+    long start = windowStart.get();
+    if (now - start >= 60_000L && windowStart.compareAndSet(start, now)) {
+      windowCount.set(0);
+    }
+    return windowCount.incrementAndGet() <= maxSamplesPerMinute;
+  }
+
+  private void capture(SlowQuerySample sample, Object paras) {
+    Config config = DbKit.getConfig(sample.getName());
+    if (config != null) {
+      try {
+        sample.setPlan(explain(config, sample.getSql(), paras));
+      } catch (Exception e) {
+        sample.setPlanError(e.getMessage());
+      }
+    }
+    sample.setCaptureTimeMillis(System.currentTimeMillis());
+    capturedCount.incrementAndGet();
+
+    samples.addLast(sample);
+    if (keptSamples.incrementAndGet() > maxKeptSamples) {
+      samples.pollFirst();
+      keptSamples.decrementAndGet();
+    }
+
+    if (listener != null) {
+      try {
+        listener.accept(sample);
+      } catch (Exception e) {
+        log.error(e.getMessage(), e);
+      }
+    } else {
+      String plan = sample.getPlan() != null ? sample.getPlan() : sample.getPlanError();
+      log.warn("slow sql " + TimeUnit.NANOSECONDS.toMillis(sample.getElapsedNanos()) + "ms: " + sample.getSql() + " paras: " + sample.getParas()
+          + (plan != null ? "\n" + plan : ""));
+    }
+  }
+
+  @SuppressWarnings({ "unchecked" })
+  private String explain(Config config, String sql, Object paras) throws SQLException {
+    Dialect dialect = config.getDialect();
+    if (!isExplainable(sql)) {
+      return null;
+    }
+    String explainSql = dialect.forExplain(sql);
+    if (explainSql == null) {
+      return null;
+    }
+
+    // 不使用 config.getConnection()，避免 showSql 包装和统计本次 explain
+    try (Connection conn = config.getDataSource().getConnection(); PreparedStatement pst = conn.prepareStatement(explainSql)) {
+      pst.setQueryTimeout(explainTimeoutSeconds);
+      if (paras instanceof List) {
+        dialect.fillStatement(pst, (List<Object>) paras);
+      } else if (paras instanceof Object[]) {
+        dialect.fillStatement(pst, (Object[]) paras);
+      }
+      StringBuilder plan = new StringBuilder();
+      try (ResultSet rs = pst.executeQuery()) {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        while (rs.next()) {
+          if (plan.length() > 0) {
+            plan.append('\n');
+          }
+          if (columnCount == 1) {
+            plan.append(rs.getString(1));
+          } else {
+            for (int i = 1; i <= columnCount; i++) {
+              if (i > 1) {
+                plan.append(", ");
+              }
+              plan.append(meta.getColumnLabel(i)).append('=').append(rs.getString(i));
+            }
+          }
+        }
+      }
+      return plan.toString();
+    }
+  }
+
+  private static boolean isExplainable(String sql) {
+    String s = sql.trim();
+    int end = 0;
+    while (end < s.length() && Character.isLetter(s.charAt(end))) {
+      end++;
+    }
+    String keyword = s.substring(0, end).toLowerCase();
+    switch (keyword) {
+    case "select":
+    case "with":
+    case "insert":
+    case "update":
+    case "delete":
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static String parasToString(Object paras) {
+    if (paras == null) {
+      return "";
+    }
+    String ret = paras instanceof Object[] ? Arrays.deepToString((Object[]) paras) : paras.toString();
+    return ret.length() > MAX_PARAS_LENGTH ? ret.substring(0, MAX_PARAS_LENGTH) + "..." : ret;
+  }
+
+  /**
+   * 最近的采样，按时间顺序
+   */
+  public List<SlowQuerySample> getSamples() {
+    List<SlowQuerySample> ret = new ArrayList<>(keptSamples.get());
+    for (Iterator<SlowQuerySample> it = samples.iterator(); it.hasNext();) {
+      ret.add(it.next());
+    }
+    return ret;
+  }
+
+  public void clearSamples() {
+    samples.clear();
+    keptSamples.set(0);
+    lastCaptured.clear();
+  }
+
+  /**
+   * 超过阈值的语句数
+   */
+  public long getSlowCount() {
+    return slowCount.get();
+  }
+
+  public long getCapturedCount() {
+    return capturedCount.get();
+  }
+
+  /**
+   * 因去重、限流或队列已满没有采样的慢语句数
+   */
+  public long getSuppressedCount() {
+    return suppressedCount.get();
+  }
+
+  public SlowQuerySqlStatementStat setDedupWindowMillis(long dedupWindowMillis) {
+    this.dedupWindowMillis = dedupWindowMillis;
+    return this;
+  }
+
+  public SlowQuerySqlStatementStat setMaxSamplesPerMinute(int maxSamplesPerMinute) {
+    this.maxSamplesPerMinute = maxSamplesPerMinute;
+    return this;
+  }
+
+  public SlowQuerySqlStatementStat setMaxKeptSamples(int maxKeptSamples) {
+    this.maxKeptSamples = maxKeptSamples;
+    return this;
+  }
+
+  public SlowQuerySqlStatementStat setExplainTimeoutSeconds(int explainTimeoutSeconds) {
+    this.explainTimeoutSeconds = explainTimeoutSeconds;
+    return this;
+  }
+
+  public SlowQuerySqlStatementStat setListener(Consumer<SlowQuerySample> listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
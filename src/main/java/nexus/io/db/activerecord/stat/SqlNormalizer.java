@@ -0,0 +1,129 @@
+package nexus.io.db.activerecord.stat;
+
+/**
+ * 把 sql 归一化为统计使用的 key
+ *
+ * <pre>
+ * 1：字符串、数字字面量替换为 ?
+ * 2：in (?, ?, ?) 折叠为 in (?)
+ * 3：连续空白折叠为一个空格，去掉注释
+ *
+ * 例如：
+ * select * from t where id = 12 and name in ('a', 'b')
+ * 归一化为：
+ * select * from t where id = ? and name in (?)
+ * </pre>
+ */
+public class SqlNormalizer {
+
+  public static String normalize(String sql) {
+    if (sql == null) {
+      return "";
+    }
+
+    int len = sql.length();
+    StringBuilder ret = new StringBuilder(len);
+    boolean pendingSpace = false;
+    int i = 0;
+    while (i < len) {
+      char c = sql.charAt(i);
+
+      if (Character.isWhitespace(c)) {
+        pendingSpace = ret.length() > 0;
+        i++;
+        continue;
+      }
+
+      // -- 注释
+      if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+        while (i < len && sql.charAt(i) != '\n') {
+          i++;
+        }
+        pendingSpace = ret.length() > 0;
+        continue;
+      }
+
+      // /* */ 注释
+      if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? len : end + 2;
+        pendingSpace = ret.length() > 0;
+        continue;
+      }
+
+      if (pendingSpace) {
+        ret.append(' ');
+        pendingSpace = false;
+      }
+
+      // 字符串字面量
+      if (c == '\'') {
+        i++;
+        while (i < len) {
+          char s = sql.charAt(i++);
+          if (s == '\'') {
+            if (i < len && sql.charAt(i) == '\'') {
+              i++;
+            } else {
+              break;
+            }
+          }
+        }
+        appendPlaceholder(ret);
+        continue;
+      }
+
+      // 带引号的标识符原样保留
+      if (c == '"' || c == '`') {
+        int end = sql.indexOf(c, i + 1);
+        end = end < 0 ? len : end + 1;
+        ret.append(sql, i, end);
+        i = end;
+        continue;
+      }
+
+      // 数字字面量，不处理标识符中的数字，如 t1, col_2
+      if (Character.isDigit(c) && !isIdentifierPart(ret)) {
+        while (i < len && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+          i++;
+        }
+        appendPlaceholder(ret);
+        continue;
+      }
+
+      if (c == '?') {
+        appendPlaceholder(ret);
+        i++;
+        continue;
+      }
+
+      ret.append(Character.toLowerCase(c));
+      i++;
+    }
+    return ret.toString();
+  }
+
+  private static boolean isIdentifierPart(StringBuilder ret) {
+    if (ret.length() == 0) {
+      return false;
+    }
+    char last = ret.charAt(ret.length() - 1);
+    return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+  }
+
+  /**
+   * 追加 ?，并把 (?, ?, ?) 折叠为 (?)
+   */
+  private static void appendPlaceholder(StringBuilder ret) {
+    int len = ret.length();
+    if (len >= 3 && ret.charAt(len - 1) == ' ' && ret.charAt(len - 2) == ',' && ret.charAt(len - 3) == '?') {
+      ret.setLength(len - 2);
+      return;
+    }
+    if (len >= 2 && ret.charAt(len - 1) == ',' && ret.charAt(len - 2) == '?') {
+      ret.setLength(len - 1);
+      return;
+    }
+    ret.append('?');
+  }
+}
@@ -0,0 +1,49 @@
+package nexus.io.db.activerecord.stat;
+
+import lombok.Data;
+
+/**
+ * 一次 sql 执行的统计数据，时间单位为纳秒
+ * 
+ * <pre>
+ * acquireNanos     获取连接，事务中复用 ThreadLocal 连接时为 0
+ * prepareNanos     prepareStatement 和 fillStatement
+ * executeNanos     executeQuery / executeUpdate / executeBatch
+ * materializeNanos 读取 ResultSet，构建 Row、Model 或 bean
+ * </pre>
+ * 
+ * error 不为 null 表示执行失败，此时失败之后的阶段耗时为 0
+ */
+@Data
+public class SqlStatementEvent {
+  private String name;
+  private String sqlType;
+  private String sql;
+  /**
+   * Object[] 或 List
+   */
+  private Object paras;
+  private int size;
+  private long startTimeMillis;
+  private long acquireNanos;
+  private long prepareNanos;
+  private long executeNanos;
+  private long materializeNanos;
+  private Throwable error;
+  private boolean writeSync;
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * 不包含获取连接的耗时
+   */
+  public long getStatementNanos() {
+    return prepareNanos + executeNanos + materializeNanos;
+  }
+
+  public long getTotalNanos() {
+    return acquireNanos + prepareNanos + executeNanos + materializeNanos;
+  }
+}
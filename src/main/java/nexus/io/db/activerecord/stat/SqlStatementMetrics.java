@@ -0,0 +1,94 @@
+package nexus.io.db.activerecord.stat;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一条归一化 sql 或一个 Config 的统计数据
+ */
+public class SqlStatementMetrics {
+
+  private final String key;
+  private final LatencyHistogram histogram;
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAdder acquireNanos = new LongAdder();
+  private final LongAdder prepareNanos = new LongAdder();
+  private final LongAdder executeNanos = new LongAdder();
+  private final LongAdder materializeNanos = new LongAdder();
+
+  public SqlStatementMetrics(String key, int stripes) {
+    this.key = key;
+    this.histogram = new LatencyHistogram(stripes);
+  }
+
+  public void record(long elapsedNanos, int size) {
+    histogram.record(elapsedNanos);
+    totalNanos.add(elapsedNanos);
+    if (size > 0) {
+      rows.add(size);
+    }
+  }
+
+  public void recordError(long elapsedNanos) {
+    errors.increment();
+    histogram.record(elapsedNanos);
+    totalNanos.add(elapsedNanos);
+  }
+
+  /**
+   * 记录 SqlStatementEvent，直方图中记录的是不含获取连接的耗时
+   */
+  public void record(SqlStatementEvent event) {
+    if (event.isSuccess()) {
+      record(event.getStatementNanos(), event.getSize());
+    } else {
+      recordError(event.getStatementNanos());
+    }
+    acquireNanos.add(event.getAcquireNanos());
+    prepareNanos.add(event.getPrepareNanos());
+    executeNanos.add(event.getExecuteNanos());
+    materializeNanos.add(event.getMaterializeNanos());
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public LatencyHistogram getHistogram() {
+    return histogram;
+  }
+
+  public SqlStatementSnapshot snapshot() {
+    long[] merged = new long[LatencyHistogram.BUCKET_COUNT];
+    long count = histogram.copyCounts(merged);
+    long max = histogram.getMax();
+    SqlStatementSnapshot snapshot = new SqlStatementSnapshot();
+    snapshot.setKey(key);
+    snapshot.setCount(count);
+    snapshot.setErrors(errors.sum());
+    snapshot.setRows(rows.sum());
+    snapshot.setTotalNanos(totalNanos.sum());
+    snapshot.setMeanNanos(count == 0 ? 0 : totalNanos.sum() / count);
+    snapshot.setP50Nanos(LatencyHistogram.valueAtPercentile(merged, count, 50D, max));
+    snapshot.setP95Nanos(LatencyHistogram.valueAtPercentile(merged, count, 95D, max));
+    snapshot.setP99Nanos(LatencyHistogram.valueAtPercentile(merged, count, 99D, max));
+    snapshot.setMaxNanos(max);
+    snapshot.setAcquireNanos(acquireNanos.sum());
+    snapshot.setPrepareNanos(prepareNanos.sum());
+    snapshot.setExecuteNanos(executeNanos.sum());
+    snapshot.setMaterializeNanos(materializeNanos.sum());
+    return snapshot;
+  }
+
+  public void reset() {
+    histogram.reset();
+    rows.reset();
+    errors.reset();
+    totalNanos.reset();
+    acquireNanos.reset();
+    prepareNanos.reset();
+    executeNanos.reset();
+    materializeNanos.reset();
+  }
+}
@@ -0,0 +1,29 @@
+package nexus.io.db.activerecord.stat;
+
+import lombok.Data;
+
+/**
+ * SqlStatementMetrics 某一时刻的快照，时间单位为纳秒
+ * 
+ * count 包含执行失败的次数
+ * 
+ * acquireNanos、prepareNanos、executeNanos、materializeNanos 为各阶段的累计耗时，
+ * 只有通过 ISqlStatementStat.record(SqlStatementEvent) 上报时才有值
+ */
+@Data
+public class SqlStatementSnapshot {
+  private String key;
+  private long count;
+  private long errors;
+  private long rows;
+  private long totalNanos;
+  private long meanNanos;
+  private long p50Nanos;
+  private long p95Nanos;
+  private long p99Nanos;
+  private long maxNanos;
+  private long acquireNanos;
+  private long prepareNanos;
+  private long executeNanos;
+  private long materializeNanos;
+}
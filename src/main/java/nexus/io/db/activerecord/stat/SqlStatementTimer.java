@@ -0,0 +1,140 @@
+package nexus.io.db.activerecord.stat;
+
+import nexus.io.db.activerecord.Config;
+
+/**
+ * DbPro 中对一次 sql 执行分阶段计时
+ * 
+ * <pre>
+ * SqlStatementTimer timer = SqlStatementTimer.start(config, "find", sql, paras);
+ * pst = conn.prepareStatement(sql); fillStatement(...);
+ * timer.prepared();
+ * rs = pst.executeQuery();
+ * timer.executed();
+ * result = buildRecordList(...);
+ * timer.done(result.size());
+ * 
+ * 出现异常时调用 timer.failed(e)
+ * </pre>
+ * 
+ * 未配置 ISqlStatementStat 时返回共享的空实现，不分配对象也不调用 System.nanoTime
+ */
+public class SqlStatementTimer {
+
+  private static final SqlStatementTimer NOOP = new SqlStatementTimer(null, null, null, null, null);
+
+  /**
+   * Config.getConnection() 获取连接的耗时，下一次 start 时取出
+   */
+  private static final ThreadLocal<long[]> acquireNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+  private final Config config;
+  private final ISqlStatementStat stat;
+  private final String sqlType;
+  private final String sql;
+  private final Object paras;
+
+  private long startTimeMillis;
+  private long acquire;
+  private long begin;
+  private long preparedAt;
+  private long executedAt;
+  private boolean finished;
+
+  private SqlStatementTimer(Config config, ISqlStatementStat stat, String sqlType, String sql, Object paras) {
+    this.config = config;
+    this.stat = stat;
+    this.sqlType = sqlType;
+    this.sql = sql;
+    this.paras = paras;
+  }
+
+  public static SqlStatementTimer start(Config config, String sqlType, String sql, Object paras) {
+    ISqlStatementStat stat = config.getSqlStatementStat();
+    if (stat == null) {
+      return NOOP;
+    }
+    SqlStatementTimer timer = new SqlStatementTimer(config, stat, sqlType, sql, paras);
+    long[] holder = acquireNanos.get();
+    timer.acquire = holder[0];
+    holder[0] = 0;
+    timer.startTimeMillis = System.currentTimeMillis();
+    timer.begin = System.nanoTime();
+    return timer;
+  }
+
+  /**
+   * 由 Config.getConnection() 调用
+   */
+  public static void connectionAcquired(long nanos) {
+    acquireNanos.get()[0] = nanos;
+  }
+
+  /**
+   * 由 Config.close(...) 调用，避免未经 DbPro 执行的连接耗时被计入后续语句
+   */
+  public static void clearConnectionAcquired() {
+    acquireNanos.get()[0] = 0;
+  }
+
+  public void prepared() {
+    if (stat != null) {
+      preparedAt = System.nanoTime();
+    }
+  }
+
+  public void executed() {
+    if (stat != null) {
+      executedAt = System.nanoTime();
+    }
+  }
+
+  public void done(int size) {
+    if (stat == null || finished) {
+      return;
+    }
+    finished = true;
+    long now = System.nanoTime();
+    if (preparedAt == 0) {
+      preparedAt = now;
+    }
+    if (executedAt == 0) {
+      executedAt = now;
+    }
+    emit(size, now, null);
+  }
+
+  public void failed(Throwable e) {
+    if (stat == null || finished) {
+      return;
+    }
+    finished = true;
+    long now = System.nanoTime();
+    emit(0, now, e);
+  }
+
+  private void emit(int size, long end, Throwable error) {
+    SqlStatementEvent event = new SqlStatementEvent();
+    event.setName(config.getName());
+    event.setSqlType(sqlType);
+    event.setSql(sql);
+    event.setParas(paras);
+    event.setSize(size);
+    event.setStartTimeMillis(startTimeMillis);
+    event.setAcquireNanos(acquire);
+    if (preparedAt == 0) {
+      event.setPrepareNanos(end - begin);
+    } else {
+      event.setPrepareNanos(preparedAt - begin);
+      if (executedAt == 0) {
+        event.setExecuteNanos(end - preparedAt);
+      } else {
+        event.setExecuteNanos(executedAt - preparedAt);
+        event.setMaterializeNanos(end - executedAt);
+      }
+    }
+    event.setError(error);
+    event.setWriteSync(config.writeSync());
+    stat.record(event);
+  }
+}
@@ -1,31 +1,27 @@
 package nexus.io.ehcache;
 
 import java.lang.reflect.Method;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Arrays;
+import java.util.List;
 
 import nexus.io.cache.CacheableModel;
 import nexus.io.jfinal.aop.AopInterceptor;
 import nexus.io.jfinal.aop.AopInvocation;
+import nexus.io.kit.SingleFlight;
 
 /**
  * CacheInterceptor.
+ *
+ * <pre>
+ * 同一个 cacheName + cacheKey 同时未命中时只有一个线程执行方法，其他线程等待并使用该结果，不同 key 互不阻塞，
+ * 方法执行过程中同一个线程再次调用相同 key 的方法时直接执行
+ * </pre>
+ *
+ * @see SingleFlight
  */
 public class EhCacheInterceptor implements AopInterceptor {
 
-  private static ConcurrentHashMap<String, ReentrantLock> lockMap = new ConcurrentHashMap<String, ReentrantLock>(512);
-
-  private ReentrantLock getLock(String key) {
-    ReentrantLock lock = lockMap.get(key);
-    if (lock != null) {
-      return lock;
-    }
-
-    lock = new ReentrantLock();
-    ReentrantLock previousLock = lockMap.putIfAbsent(key, lock);
-    return previousLock == null ? lock : previousLock;
-  }
+  private static final SingleFlight<List<String>> singleFlight = new SingleFlight<>();
 
   final public void intercept(AopInvocation inv) {
     Object target = inv.getTarget();
@@ -35,23 +31,23 @@ public class EhCacheInterceptor implements AopInterceptor {
     String cacheName = cacheableModel.getName();
     String cacheKey = cacheableModel.getKey();
     Object cacheData = EhCacheKit.get(cacheName, cacheKey);
-    if (cacheData == null) {
-      Lock lock = getLock(cacheName);
-      lock.lock(); // prevent cache snowslide
-      try {
-        cacheData = EhCacheKit.get(cacheName, cacheKey);
-        if (cacheData == null) {
-          Object returnValue = inv.invoke();
-          cacheMethodReturnValue(cacheName, cacheKey, returnValue);
-          return;
-        }
-      } finally {
-        lock.unlock();
-      }
+    if (cacheData != null) {
+      // useCacheDataAndReturn(cacheData, target);
+      inv.setReturnValue(cacheData);
+      return;
     }
 
-    // useCacheDataAndReturn(cacheData, target);
-    inv.setReturnValue(cacheData);
+    // prevent cache snowslide
+    Object value = singleFlight.load(Arrays.asList(cacheName, cacheKey), () -> {
+      Object data = EhCacheKit.get(cacheName, cacheKey);
+      if (data == null) {
+        inv.invoke();
+        data = inv.getReturnValue();
+        cacheMethodReturnValue(cacheName, cacheKey, data);
+      }
+      return data;
+    });
+    inv.setReturnValue(value);
   }
 
   protected void cacheMethodReturnValue(String cacheName, String cacheKey, Object returnValue) {
@@ -0,0 +1,147 @@
+package nexus.io.kit;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 同一个 key 同时只有一个线程加载，其他线程等待并共享该结果，用于防止缓存击穿
+ *
+ * <pre>
+ * 1：CacheLoader、EhCacheInterceptor、RedisCacheInterceptor 共用
+ * 2：加载完成后从 inFlight 中删除，内存占用只与正在加载的 key 数量有关
+ * 3：加载抛出的异常同样传给等待的线程
+ * 4：同一个线程加载 key 的过程中再次加载相同的 key (如被缓存的方法递归调用自身) 时直接执行 loader，不等待自己
+ *
+ * 例如：
+ * SingleFlight&lt;String&gt; singleFlight = new SingleFlight&lt;&gt;();
+ * Object value = singleFlight.load(key, () -&gt; loadAndPut(key));
+ * </pre>
+ */
+public class SingleFlight<K> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  // 当前线程正在加载的 key
+  private final ThreadLocal<Set<K>> loading = new ThreadLocal<>();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * 加载 key，其他线程正在加载时一直等待
+   */
+  public <T> T load(K key, Supplier<T> loader) {
+    try {
+      return load(key, 0, loader);
+    } catch (TimeoutException e) {
+      // 不会发生
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 加载 key，其他线程正在加载时最多等待 timeout 毫秒
+   *
+   * @param timeout 小于 1 时一直等待
+   * @throws TimeoutException 等待超时，调用方可以自行加载
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T load(K key, long timeout, Supplier<T> loader) throws TimeoutException {
+    Set<K> keys = loading.get();
+    if (keys != null && keys.contains(key)) {
+      return loader.get();
+    }
+
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      coalesced.increment();
+      return (T) await(existing, timeout);
+    }
+
+    if (keys == null) {
+      keys = new HashSet<>();
+      loading.set(keys);
+    }
+    keys.add(key);
+    try {
+      T value = loader.get();
+      future.complete(value);
+      return value;
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        loading.remove();
+      }
+      inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * 在 executor 中加载 key，其他线程正在加载或 executor 拒绝执行时不加载
+   *
+   * @param rejectedValue executor 拒绝执行时，已经在等待该 key 的线程得到的值
+   * @return 是否开始加载
+   */
+  public boolean loadAsync(K key, Executor executor, Supplier<?> loader, Object rejectedValue) {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    if (inFlight.putIfAbsent(key, future) != null) {
+      return false;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          future.complete(loader.get());
+        } catch (Throwable e) {
+          future.completeExceptionally(e);
+        } finally {
+          inFlight.remove(key, future);
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(key, future);
+      future.complete(rejectedValue);
+      return false;
+    }
+  }
+
+  /**
+   * 等待其他线程加载结果的次数
+   */
+  public long getCoalescedCount() {
+    return coalesced.sum();
+  }
+
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private static Object await(CompletableFuture<Object> future, long timeout) throws TimeoutException {
+    try {
+      return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+}
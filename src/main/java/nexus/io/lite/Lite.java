@@ -68,6 +68,28 @@ public class Lite {
     }
   }
 
+  /**
+   * 获取 sqlite 连接，调用本方法会确保 sql_statement_stat 表已创建
+   */
+  public static Connection getConnection() throws SQLException {
+    return DriverManager.getConnection(DB_URL);
+  }
+
+  /**
+   * 生成多行 VALUES 的 insert 语句
+   */
+  public static String buildInsertSql(int rows) {
+    StringBuilder sql = new StringBuilder(96 + rows * 26);
+    sql.append("INSERT INTO ").append(sql_statement_stat).append(" (id, name, sqlType, sql, paras, rows, startTimeMillis, elapsed) VALUES ");
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append("(?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+    return sql.toString();
+  }
+
   public static void saveSqlStatementStat(String name, String sqlType, String sql, Object[] paras, int result, long startTimeMillis, long elapsed) {
     String insertSQL = "INSERT INTO " + sql_statement_stat + " (id, name, sqlType, sql, paras, rows, startTimeMillis, elapsed) " + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
     try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
@@ -0,0 +1,396 @@
+package nexus.io.lite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+import nexus.io.tio.utils.snowflake.SnowflakeIdUtils;
+
+/**
+ * sql_statement_stat 异步写入器
+ *
+ * <pre>
+ * 1：业务线程只把统计记录放入有界无锁环形队列，队列满时直接丢弃并计数，不阻塞业务线程
+ * 2：单个守护线程持有一个长连接，批量取出记录，在一个事务中使用多行 VALUES 写入
+ * 3：stop() 之后写入线程先等待正在进行的 offer 完成，再把队列写空后退出
+ * 4：stop() 最多等待 drainTimeoutMillis (默认 10 秒)，超时后中断写入线程，队列中剩余的记录计入丢弃数
+ *
+ * 例如：
+ * LiteStatWriter.me().offer(name, sqlType, sql, paras, size, start, elapsed);
+ * long dropped = LiteStatWriter.me().getDroppedCount();
+ * </pre>
+ */
+@Slf4j
+public class LiteStatWriter {
+
+  public static final int DEFAULT_CAPACITY = 8192;
+  public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * sqlite 默认单条语句最多 999 个参数，每行 8 个参数
+   */
+  private static final int ROWS_PER_INSERT = 120;
+  private static final int MAX_ROWS_PER_TX = ROWS_PER_INSERT * 8;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long FAILURE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static volatile LiteStatWriter me;
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<Entry> buffer;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  // 只有写入线程修改
+  private volatile long head;
+
+  private final AtomicLong offeredCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong writtenCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  // 已经检查过 running 但还没有入队的 offer 数量
+  private final AtomicInteger offering = new AtomicInteger();
+
+  private final Thread writerThread;
+  private volatile boolean running = true;
+  // stop() 等待超时后为 true，写入线程不再取出记录
+  private volatile boolean abandoned;
+  private volatile long drainTimeoutMillis = DEFAULT_DRAIN_TIMEOUT_MILLIS;
+
+  private Connection conn;
+  private PreparedStatement fullBatchPst;
+
+  public static LiteStatWriter me() {
+    if (me == null) {
+      synchronized (LiteStatWriter.class) {
+        if (me == null) {
+          me = new LiteStatWriter(DEFAULT_CAPACITY);
+        }
+      }
+    }
+    return me;
+  }
+
+  /**
+   * capacity 会向上取整为 2 的幂
+   */
+  public LiteStatWriter(int capacity) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("capacity must be greater than 1");
+    }
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    this.capacity = size;
+    this.mask = size - 1;
+    this.buffer = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+
+    writerThread = new Thread(this::runLoop, "lite-stat-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "lite-stat-writer-shutdown"));
+  }
+
+  public boolean offer(String name, String sqlType, String sql, Object paras, int rows, long startTimeMillis, long elapsed) {
+    offeredCount.incrementAndGet();
+    // 先计数再检查 running，写入线程看到 running 为 false 后一定能看到这里的计数
+    offering.incrementAndGet();
+    try {
+      if (!running) {
+        droppedCount.incrementAndGet();
+        return false;
+      }
+      return enqueue(new Entry(name, sqlType, sql, paras, rows, startTimeMillis, elapsed));
+    } finally {
+      offering.decrementAndGet();
+    }
+  }
+
+  private boolean enqueue(Entry entry) {
+    long pos = tail.get();
+    for (;;) {
+      int index = (int) (pos & mask);
+      long seq = sequences.get(index);
+      long diff = seq - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          buffer.lazySet(index, entry);
+          sequences.set(index, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        // 队列已满
+        droppedCount.incrementAndGet();
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  private Entry poll() {
+    long pos = head;
+    int index = (int) (pos & mask);
+    if (sequences.get(index) != pos + 1) {
+      return null;
+    }
+    Entry entry = buffer.get(index);
+    buffer.lazySet(index, null);
+    sequences.set(index, pos + capacity);
+    head = pos + 1;
+    return entry;
+  }
+
+  private void runLoop() {
+    List<Entry> batch = new ArrayList<>(MAX_ROWS_PER_TX);
+    while (running) {
+      drainTo(batch);
+      if (batch.isEmpty()) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+        continue;
+      }
+      boolean ok = write(batch);
+      batch.clear();
+      if (!ok) {
+        // sqlite 不可用时不要空转重连
+        LockSupport.parkNanos(FAILURE_PARK_NANOS);
+      }
+    }
+    flush(batch);
+    closeConnection();
+  }
+
+  /**
+   * 停止后把队列写空，写入失败时放弃剩余记录
+   */
+  private void flush(List<Entry> batch) {
+    for (;;) {
+      if (abandoned) {
+        return;
+      }
+      drainTo(batch);
+      if (batch.isEmpty()) {
+        if (offering.get() == 0 && getPendingCount() == 0) {
+          return;
+        }
+        // 还有 offer 正在入队
+        Thread.yield();
+        continue;
+      }
+      boolean ok = write(batch);
+      batch.clear();
+      if (!ok) {
+        if (abandoned) {
+          // 已经由 stop() 计入丢弃数
+          return;
+        }
+        long pending = getPendingCount();
+        droppedCount.addAndGet(pending);
+        log.error("lite-stat-writer failed to flush, drop " + pending + " pending records");
+        return;
+      }
+    }
+  }
+
+  private void drainTo(List<Entry> batch) {
+    Entry entry;
+    while (batch.size() < MAX_ROWS_PER_TX && (entry = poll()) != null) {
+      batch.add(entry);
+    }
+  }
+
+  private boolean write(List<Entry> batch) {
+    try {
+      Connection conn = getConnection();
+      try {
+        int size = batch.size();
+        int offset = 0;
+        for (; offset + ROWS_PER_INSERT <= size; offset += ROWS_PER_INSERT) {
+          fill(fullBatchPst, batch, offset, ROWS_PER_INSERT);
+          fullBatchPst.executeUpdate();
+        }
+        int remain = size - offset;
+        if (remain > 0) {
+          try (PreparedStatement pst = conn.prepareStatement(Lite.buildInsertSql(remain))) {
+            fill(pst, batch, offset, remain);
+            pst.executeUpdate();
+          }
+        }
+        conn.commit();
+        writtenCount.addAndGet(size);
+        return true;
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException | RuntimeException e) {
+      failedCount.addAndGet(batch.size());
+      log.error("lite-stat-writer failed to write " + batch.size() + " records", e);
+      closeConnection();
+      return false;
+    }
+  }
+
+  private void fill(PreparedStatement pst, List<Entry> batch, int offset, int rows) throws SQLException {
+    int i = 1;
+    for (int r = offset; r < offset + rows; r++) {
+      Entry e = batch.get(r);
+      pst.setLong(i++, SnowflakeIdUtils.id());
+      pst.setString(i++, e.name);
+      pst.setString(i++, e.sqlType);
+      pst.setString(i++, e.sql);
+      pst.setString(i++, parasToString(e.paras));
+      pst.setInt(i++, e.rows);
+      pst.setLong(i++, e.startTimeMillis);
+      pst.setLong(i++, e.elapsed);
+    }
+  }
+
+  private static String parasToString(Object paras) {
+    if (paras == null) {
+      return "";
+    }
+    if (paras instanceof Object[]) {
+      return Arrays.toString((Object[]) paras);
+    }
+    return paras.toString();
+  }
+
+  private Connection getConnection() throws SQLException {
+    if (conn == null) {
+      conn = Lite.getConnection();
+      conn.setAutoCommit(false);
+      fullBatchPst = conn.prepareStatement(Lite.buildInsertSql(ROWS_PER_INSERT));
+    }
+    return conn;
+  }
+
+  private void closeConnection() {
+    if (fullBatchPst != null) {
+      try {
+        fullBatchPst.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+      fullBatchPst = null;
+    }
+    if (conn != null) {
+      try {
+        conn.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+      conn = null;
+    }
+  }
+
+  /**
+   * 停止写入线程，等待其把队列中剩余的记录写入 sqlite 后返回，最多等待 drainTimeoutMillis，
+   * 超时后中断写入线程并丢弃剩余的记录。由 shutdown hook 调用，不能无限等待
+   */
+  public void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+    try {
+      long remaining;
+      while (writerThread.isAlive() && (remaining = deadline - System.currentTimeMillis()) > 0) {
+        writerThread.join(Math.min(remaining, TimeUnit.SECONDS.toMillis(5)));
+        if (writerThread.isAlive()) {
+          log.warn("lite-stat-writer is still flushing, pending records: " + getPendingCount());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writerThread.isAlive()) {
+      abandoned = true;
+      writerThread.interrupt();
+      long pending = getPendingCount();
+      droppedCount.addAndGet(pending);
+      log.error("lite-stat-writer did not finish flushing in " + drainTimeoutMillis + "ms, drop " + pending + " pending records");
+    }
+  }
+
+  /**
+   * stop() 等待写入线程写空队列的最长时间，默认 10 秒
+   */
+  public void setDrainTimeoutMillis(long drainTimeoutMillis) {
+    if (drainTimeoutMillis < 0) {
+      throw new IllegalArgumentException("drainTimeoutMillis can not be less than 0");
+    }
+    this.drainTimeoutMillis = drainTimeoutMillis;
+  }
+
+  public long getDrainTimeoutMillis() {
+    return drainTimeoutMillis;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * 队列中等待写入的记录数
+   */
+  public long getPendingCount() {
+    return Math.max(0, tail.get() - head);
+  }
+
+  public long getOfferedCount() {
+    return offeredCount.get();
+  }
+
+  /**
+   * 队列已满或已停止时被丢弃的记录数
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  public long getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  /**
+   * 写入 sqlite 失败的记录数
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  private static final class Entry {
+    final String name;
+    final String sqlType;
+    final String sql;
+    final Object paras;
+    final int rows;
+    final long startTimeMillis;
+    final long elapsed;
+
+    Entry(String name, String sqlType, String sql, Object paras, int rows, long startTimeMillis, long elapsed) {
+      this.name = name;
+      this.sqlType = sqlType;
+      this.sql = sql;
+      this.paras = paras;
+      this.rows = rows;
+      this.startTimeMillis = startTimeMillis;
+      this.elapsed = elapsed;
+    }
+  }
+}
@@ -1,79 +1,74 @@
 package nexus.io.redis;
 
 import java.lang.reflect.Method;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import nexus.io.cache.CacheableModel;
 import nexus.io.jfinal.aop.AopInterceptor;
 import nexus.io.jfinal.aop.AopInvocation;
+import nexus.io.kit.SingleFlight;
 import redis.clients.jedis.Jedis;
 
 /**
  * CacheInterceptor.
+ *
+ * <pre>
+ * 同一个 redisKey 同时未命中时只有一个线程执行方法，其他线程等待并使用该结果，不同 key 互不阻塞，
+ * 方法执行过程中同一个线程再次调用相同 key 的方法时直接执行
+ * </pre>
+ *
+ * @see SingleFlight
  */
 public class RedisCacheInterceptor implements AopInterceptor {
 
-  private static ConcurrentHashMap<String, ReentrantLock> lockMap = new ConcurrentHashMap<String, ReentrantLock>(512);
+  private static final SingleFlight<String> singleFlight = new SingleFlight<>();
 
   protected RedisDb getCache() {
     return Redis.use();
   }
 
-  private ReentrantLock getLock(String key) {
-    ReentrantLock lock = lockMap.get(key);
-    if (lock != null) {
-      return lock;
-    }
-
-    lock = new ReentrantLock();
-    ReentrantLock previousLock = lockMap.putIfAbsent(key, lock);
-    return previousLock == null ? lock : previousLock;
-  }
-
   final public void intercept(AopInvocation inv) {
     RedisDb cache = getCache();
     Jedis jedis = cache.getThreadLocalJedis();
 
     if (jedis != null) {
-      putIfNotExists(inv, cache, jedis);
+      putIfNotExists(inv, cache);
+      return;
     }
 
+    jedis = cache.jedisPool.getResource();
     try {
-      jedis = cache.jedisPool.getResource();
       cache.setThreadLocalJedis(jedis);
-      putIfNotExists(inv, cache, jedis);
+      putIfNotExists(inv, cache);
     } finally {
       cache.removeThreadLocalJedis();
       jedis.close();
     }
-
   }
 
-  private void putIfNotExists(AopInvocation inv, RedisDb cache, Jedis jedis) {
+  private void putIfNotExists(AopInvocation inv, RedisDb cache) {
     Object target = inv.getTarget();
     Method method = inv.getMethod();
     Object[] args = inv.getArgs();
     CacheableModel cacheableModel = CacheableModel.buildCacheModel(target, method, args);
     String redisKey = cacheableModel.getName() + "_" + cacheableModel.getKey();
-    String cacheData = cache.get(redisKey);
+    Object cacheData = cache.get(redisKey);
+    if (cacheData != null) {
+      // useCacheDataAndReturn(cacheData, target);
+      inv.setReturnValue(cacheData);
+      return;
+    }
 
-    if (cacheData == null) {
-      Lock lock = getLock(redisKey);
-      lock.lock(); // prevent cache snowslide
-      try {
-        Object returnValue = inv.invoke();
-        cacheData = cache.get(redisKey);
-        if (cacheData == null) {
-          cache.setex(redisKey, cacheableModel.getTtl(), returnValue);
-          return;
-        }
-      } finally {
-        lock.unlock();
+    // prevent cache snowslide
+    Object value = singleFlight.load(redisKey, () -> {
+      // 获取到加载权之前其他线程可能刚好完成了加载
+      Object data = cache.get(redisKey);
+      if (data == null) {
+        inv.invoke();
+        data = inv.getReturnValue();
+        cache.setex(redisKey, cacheableModel.getTtl(), data);
       }
-    }
-    // useCacheDataAndReturn(cacheData, target);
-    inv.setReturnValue(cacheData);
+      return data;
+    });
+    inv.setReturnValue(value);
   }
 }
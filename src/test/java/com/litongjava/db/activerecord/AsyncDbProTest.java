@@ -0,0 +1,101 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.DbPro;
+
+public class AsyncDbProTest {
+
+  private ActiveRecordPlugin arp;
+  private DbPro db;
+
+  @Before
+  public void setUp() {
+    arp = H2TestKit.plugin("async_db");
+    // 只有一个线程，长查询没有被取消时后续的任务无法执行
+    arp.setAsyncParallelism(1);
+    db = H2TestKit.start(arp);
+  }
+
+  @After
+  public void tearDown() {
+    arp.stop();
+  }
+
+  @Test
+  public void cancelRunningStatement() throws Exception {
+    AtomicBoolean started = new AtomicBoolean();
+    CompletableFuture<Long> future = db.async().submit(db -> {
+      started.set(true);
+      return db.queryLong(H2TestKit.LONG_QUERY);
+    });
+    waitStarted(started);
+
+    assertTrue(future.cancel(true));
+    assertTrue(future.isCancelled());
+    // Statement.cancel() 之后线程被释放
+    assertEquals(Long.valueOf(1), quickQuery());
+  }
+
+  @Test
+  public void cancelOnTimeout() throws Exception {
+    CompletableFuture<Long> future = db.async().timeout(200, TimeUnit.MILLISECONDS).submit(db -> db.queryLong(H2TestKit.LONG_QUERY));
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("TimeoutException expected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+    assertEquals(Long.valueOf(1), quickQuery());
+  }
+
+  @Test
+  public void skipCancelledTask() throws Exception {
+    AtomicBoolean started = new AtomicBoolean();
+    CompletableFuture<Long> running = db.async().submit(db -> {
+      started.set(true);
+      return db.queryLong(H2TestKit.LONG_QUERY);
+    });
+    waitStarted(started);
+
+    // 排队中的任务被取消后不再执行
+    AtomicBoolean executed = new AtomicBoolean();
+    CompletableFuture<Long> queued = db.async().submit(db -> {
+      executed.set(true);
+      return db.queryLong("select 1");
+    });
+    queued.cancel(true);
+    running.cancel(true);
+
+    assertEquals(Long.valueOf(1), quickQuery());
+    assertFalse(executed.get());
+  }
+
+  private Long quickQuery() throws Exception {
+    return db.async().submit(db -> db.queryLong("select 1")).get(10, TimeUnit.SECONDS);
+  }
+
+  private void waitStarted(AtomicBoolean started) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!started.get() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(started.get());
+    // 等待 executeQuery 开始执行，过早调用 cancel 时由 checkCancelled 中断，同样可以通过
+    Thread.sleep(200);
+  }
+}
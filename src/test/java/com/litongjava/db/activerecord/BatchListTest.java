@@ -0,0 +1,94 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.Row;
+
+public class BatchListTest {
+
+  private ActiveRecordPlugin arp;
+  private DbPro db;
+
+  @Before
+  public void setUp() {
+    arp = H2TestKit.plugin("batch_list");
+    db = H2TestKit.start(arp, "create table item(id int primary key, name varchar(32), age int, score int)");
+  }
+
+  @After
+  public void tearDown() {
+    arp.stop();
+  }
+
+  @Test
+  public void saveMixedColumns() {
+    List<Row> list = new ArrayList<>();
+    list.add(new Row().set("id", 1).set("name", "a"));
+    list.add(new Row().set("id", 2).set("age", 20));
+    list.add(new Row().set("id", 3).set("name", "c").set("age", 30).set("score", 300));
+    list.add(new Row().set("id", 4).set("name", "d"));
+    list.add(new Row().set("id", 5).set("score", 500).set("age", 50));
+
+    // batchSize 为 1 时每组拆分为多次 executeBatch
+    int[] result = db.batchListSave("item", list, 1);
+    assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, result);
+
+    assertRow(1, "a", null, null);
+    assertRow(2, null, 20, null);
+    assertRow(3, "c", 30, 300);
+    assertRow(4, "d", null, null);
+    assertRow(5, null, 50, 500);
+  }
+
+  @Test
+  public void updateMixedColumns() {
+    db.update("insert into item(id, name, age, score) values(1, 'a', 10, 100), (2, 'b', 20, 200), (3, 'c', 30, 300), (4, 'd', 40, 400)");
+
+    // 查询得到的 record 含有全部的列，只有修改过的列写入
+    List<Row> list = new ArrayList<>();
+    list.add(db.findById("item", 1).set("name", "a2"));
+    list.add(db.findById("item", 2).set("age", 21).set("score", 201));
+    list.add(db.findById("item", 3));
+    list.add(db.findById("item", 4).set("name", "d2"));
+
+    int[] result = db.batchListUpdate("item", list, 10);
+    assertArrayEquals(new int[] { 1, 1, 0, 1 }, result);
+
+    assertRow(1, "a2", 10, 100);
+    assertRow(2, "b", 21, 201);
+    assertRow(3, "c", 30, 300);
+    assertRow(4, "d2", 40, 400);
+  }
+
+  @Test
+  public void updateWithoutOtherColumns() {
+    db.update("insert into item(id, name, age, score) values(1, 'a', 10, 100), (2, 'b', 20, 200)");
+
+    List<Row> list = new ArrayList<>();
+    list.add(new Row().set("id", 1).set("score", 101));
+    list.add(new Row().set("id", 2).set("name", "b2").set("age", null));
+
+    int[] result = db.batchListUpdate("item", "id", list, 10);
+    assertArrayEquals(new int[] { 1, 1 }, result);
+
+    assertRow(1, "a", 10, 101);
+    assertRow(2, "b2", null, 200);
+  }
+
+  private void assertRow(int id, String name, Integer age, Integer score) {
+    Row row = db.findById("item", id);
+    assertEquals(name, row.getStr("name"));
+    assertEquals(age, row.getInt("age"));
+    assertEquals(score, row.getInt("score"));
+  }
+}
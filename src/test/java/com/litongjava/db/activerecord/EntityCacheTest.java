@@ -0,0 +1,161 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.Db;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.EntityCache;
+import nexus.io.db.activerecord.Model;
+import nexus.io.db.activerecord.Row;
+
+public class EntityCacheTest {
+
+  private static final String NAME = "entity_cache";
+
+  public static class Item extends Model<Item> {
+    private static final long serialVersionUID = 1L;
+    public static final Item dao = new Item().dao();
+  }
+
+  private ActiveRecordPlugin arp;
+  private EntityCache entityCache;
+
+  @After
+  public void tearDown() {
+    if (arp != null) {
+      arp.stop();
+    }
+  }
+
+  @Test
+  public void findByIdHitAndMiss() {
+    start(false);
+    assertEquals("a", Item.dao.findById(1).getStr("name"));
+    assertEquals("a", Item.dao.findById(1).getStr("name"));
+    assertNull(Item.dao.findById(99));
+    assertNull(Item.dao.findById(99));
+    assertEquals(1, entityCache.getHitCount());
+    assertEquals(3, entityCache.getMissCount());
+
+    // DbPro 与 Model 共用同一个缓存
+    assertEquals("a", Db.use(NAME).findById("item", 1).getStr("name"));
+    assertEquals(2, entityCache.getHitCount());
+  }
+
+  @Test
+  public void findInHitAndMiss() {
+    start(false);
+    Item.dao.findById(2);
+    List<Item> items = Item.dao.findIn(3, 99, 2, 1);
+    assertEquals(3, items.size());
+    assertEquals("c", items.get(0).getStr("name"));
+    assertEquals("b", items.get(1).getStr("name"));
+    assertEquals("a", items.get(2).getStr("name"));
+    assertEquals(1, entityCache.getHitCount());
+    assertEquals(4, entityCache.getMissCount());
+
+    List<Row> rows = Db.use(NAME).findIn("item", "id", 1, 2, 3);
+    assertEquals(3, rows.size());
+    assertEquals(4, entityCache.getHitCount());
+  }
+
+  @Test
+  public void evictOnUpdate() {
+    start(false);
+    Item item = Item.dao.findById(1);
+    item.set("name", "a2").update();
+    assertEquals("a2", Item.dao.findById(1).getStr("name"));
+
+    Row row = Db.use(NAME).findById("item", 1);
+    row.set("name", "a3");
+    Db.use(NAME).update("item", row);
+    assertEquals("a3", Item.dao.findById(1).getStr("name"));
+  }
+
+  @Test
+  public void evictOnDelete() {
+    start(false);
+    Item.dao.findById(1).delete();
+    assertNull(Item.dao.findById(1));
+
+    Item.dao.findById(2);
+    Item.dao.deleteById(2);
+    assertNull(Item.dao.findById(2));
+
+    Db.use(NAME).findById("item", 3);
+    Db.use(NAME).deleteById("item", 3);
+    assertNull(Item.dao.findById(3));
+  }
+
+  @Test
+  public void evictAllOnDeleteByField() {
+    start(false);
+    Item.dao.findById(1);
+    Item.dao.findById(2);
+    Item.dao.deleteByField("name", "a");
+    assertNull(Item.dao.findById(1));
+    assertEquals("b", Item.dao.findById(2).getStr("name"));
+    assertEquals(0, entityCache.getHitCount());
+  }
+
+  @Test
+  public void bypassInTransaction() {
+    start(false);
+    DbPro db = Db.use(NAME);
+    db.tx(() -> {
+      Item item = Item.dao.findById(1);
+      item.set("name", "a2").update();
+      // 事务中读取到的是未提交的值，不使用缓存
+      assertEquals("a2", Item.dao.findById(1).getStr("name"));
+      assertEquals(1, Item.dao.findIn(1).size());
+      return false;
+    });
+    assertEquals(0, entityCache.getHitCount());
+    assertEquals(0, entityCache.getMissCount());
+    assertEquals("a", Item.dao.findById(1).getStr("name"));
+
+    db.tx(() -> {
+      Item.dao.findById(1).set("name", "a3").update();
+      return true;
+    });
+    assertEquals("a3", Item.dao.findById(1).getStr("name"));
+  }
+
+  @Test
+  public void saveAfterMiss() {
+    start(false);
+    assertNull(Item.dao.findById(7));
+    new Item().set("id", 7).set("name", "g").save();
+    assertEquals("g", Item.dao.findById(7).getStr("name"));
+  }
+
+  @Test
+  public void saveAfterMissWithStaleWhileRevalidate() {
+    start(true);
+    assertNull(Item.dao.findById(7));
+    new Item().set("id", 7).set("name", "g").save();
+    assertEquals("g", Item.dao.findById(7).getStr("name"));
+
+    assertNull(Db.use(NAME).findById("item", 8));
+    Db.use(NAME).save("item", new Row().set("id", 8).set("name", "h"));
+    assertEquals("h", Db.use(NAME).findById("item", 8).getStr("name"));
+  }
+
+  private void start(boolean staleWhileRevalidate) {
+    arp = H2TestKit.plugin(NAME);
+    arp.setCache(new MapCache());
+    if (staleWhileRevalidate) {
+      arp.setCacheStaleWhileRevalidate(60, 300);
+    }
+    arp.addMapping("item", "id", Item.class, 600);
+    H2TestKit.start(arp, "create table item(id int primary key, name varchar(32))", "insert into item(id, name) values(1, 'a'), (2, 'b'), (3, 'c')");
+    entityCache = arp.getConfig().getEntityCache();
+  }
+}
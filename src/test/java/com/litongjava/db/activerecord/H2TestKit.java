@@ -0,0 +1,76 @@
+package com.litongjava.db.activerecord;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import nexus.io.db.activerecord.ActiveRecordException;
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.Db;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.dialect.Dialect;
+import nexus.io.db.activerecord.dialect.H2Dialect;
+
+/**
+ * 测试使用的 H2 内存数据库，数据库名与 configName 相同
+ *
+ * <pre>
+ * 例如：
+ * arp = H2TestKit.plugin("item");
+ * arp.setAsyncParallelism(1);
+ * DbPro db = H2TestKit.start(arp, "create table item(id int primary key, name varchar(32))");
+ * </pre>
+ */
+public final class H2TestKit {
+
+  /**
+   * 不做优化的笛卡尔积，执行到被取消为止，用于测试超时与取消
+   */
+  public static final String LONG_QUERY = "select count(*) from system_range(1, 100000) a, system_range(1, 100000) b";
+
+  private H2TestKit() {
+  }
+
+  public static JdbcDataSource dataSource(String name) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+    return dataSource;
+  }
+
+  public static ActiveRecordPlugin plugin(String name) {
+    return plugin(name, new H2Dialect());
+  }
+
+  public static ActiveRecordPlugin plugin(String name, Dialect dialect) {
+    ActiveRecordPlugin arp = new ActiveRecordPlugin(name, dataSource(name));
+    arp.setDialect(dialect);
+    return arp;
+  }
+
+  /**
+   * 清空数据库并执行 sqls (建表、初始数据)，之后启动 arp，表在 start() 之前创建，可以用于 addMapping
+   */
+  public static DbPro start(ActiveRecordPlugin arp, String... sqls) {
+    execute(arp.getConfig().getDataSource(), sqls);
+    arp.start();
+    return Db.use(arp.getConfig().getName());
+  }
+
+  /**
+   * 不经过 ActiveRecordPlugin 清空数据库并执行 sqls
+   */
+  public static void execute(DataSource dataSource, String... sqls) {
+    try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+      st.execute("drop all objects");
+      for (String sql : sqls) {
+        st.execute(sql);
+      }
+    } catch (SQLException e) {
+      throw new ActiveRecordException(e);
+    }
+  }
+}
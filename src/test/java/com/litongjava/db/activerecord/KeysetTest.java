@@ -0,0 +1,42 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.Keyset;
+import nexus.io.db.activerecord.dialect.MysqlDialect;
+import nexus.io.db.activerecord.dialect.OracleDialect;
+
+public class KeysetTest {
+
+  @Test
+  public void cursor() {
+    Keyset keyset = Keyset.of("created_at desc, id desc");
+    Timestamp createdAt = new Timestamp(1700000000123L);
+    createdAt.setNanos(123456789);
+    String cursor = keyset.encode(createdAt, 42L);
+    assertArrayEquals(new Object[] { createdAt, 42L }, keyset.decode(cursor));
+  }
+
+  @Test
+  public void seek() {
+    Keyset keyset = Keyset.of("created_at desc, id desc");
+    List<Object> paras = new ArrayList<>();
+    assertEquals("(created_at, id) < (?, ?)", new MysqlDialect().forKeysetSeek(keyset, new Object[] { 1, 2 }, paras));
+    assertEquals(2, paras.size());
+
+    paras.clear();
+    assertEquals("((created_at < ?) or (created_at = ? and id < ?))", new OracleDialect().forKeysetSeek(keyset, new Object[] { 1, 2 }, paras));
+    assertArrayEquals(new Object[] { 1, 1, 2 }, paras.toArray());
+
+    paras.clear();
+    Keyset mixed = Keyset.of("grp asc, id desc");
+    assertEquals("((grp > ?) or (grp = ? and id < ?))", new MysqlDialect().forKeysetSeek(mixed, new Object[] { 1, 2 }, paras));
+  }
+}
@@ -0,0 +1,42 @@
+package com.litongjava.db.activerecord;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import nexus.io.cache.IDbCache;
+
+/**
+ * 测试使用的 IDbCache，忽略 ttl，不保存 null
+ */
+public class MapCache implements IDbCache {
+
+  private final Map<String, Object> map = new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> T get(String cacheName, Object key) {
+    return (T) map.get(cacheName + ":" + key);
+  }
+
+  @Override
+  public void put(String cacheName, Object key, Object value) {
+    if (value != null) {
+      map.put(cacheName + ":" + key, value);
+    }
+  }
+
+  @Override
+  public void put(String cacheName, Object key, Object value, int ttl) {
+    put(cacheName, key, value);
+  }
+
+  @Override
+  public void remove(String cacheName, Object key) {
+    map.remove(cacheName + ":" + key);
+  }
+
+  @Override
+  public void removeAll(String cacheName) {
+    map.keySet().removeIf(k -> k.startsWith(cacheName + ":"));
+  }
+}
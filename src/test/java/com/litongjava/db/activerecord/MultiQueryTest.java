@@ -0,0 +1,87 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordException;
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.Db;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.MultiQuery;
+import nexus.io.db.activerecord.Row;
+
+public class MultiQueryTest {
+
+  private ActiveRecordPlugin arp;
+  private DbPro db;
+
+  @Before
+  public void setUp() {
+    arp = H2TestKit.plugin("multi_query");
+    arp.setAsyncParallelism(4);
+    db = H2TestKit.start(arp, "create table item(id int primary key, name varchar(32))",
+        "insert into item(id, name) values(1, 'a'), (2, 'b'), (3, 'c')");
+  }
+
+  @After
+  public void tearDown() {
+    arp.stop();
+  }
+
+  @Test
+  public void resultsInAddOrder() {
+    MultiQuery q = Db.multiQuery("multi_query");
+    int count = q.queryLong("select count(*) from item");
+    int list = q.find("select * from item order by id");
+    int first = q.findFirst("select * from item where id = ?", 2);
+
+    List<Object> results = q.execute();
+    assertEquals(3, results.size());
+    assertEquals(Long.valueOf(3), MultiQuery.get(results, count));
+    List<Row> rows = MultiQuery.get(results, list);
+    assertEquals(3, rows.size());
+    Row row = MultiQuery.get(results, first);
+    assertEquals("b", row.getStr("name"));
+  }
+
+  @Test
+  public void failFast() {
+    MultiQuery q = Db.multiQuery("multi_query").deadline(60, TimeUnit.SECONDS);
+    q.queryLong(H2TestKit.LONG_QUERY);
+    q.find("select * from missing_table");
+
+    long start = System.currentTimeMillis();
+    try {
+      q.execute();
+      fail("ActiveRecordException expected");
+    } catch (ActiveRecordException e) {
+      // 第 1 个查询失败时不等待第 0 个查询，第 0 个查询被取消
+      assertTrue(e.getMessage(), e.getMessage().toLowerCase().contains("missing_table"));
+    }
+    assertTrue(System.currentTimeMillis() - start < 10_000);
+  }
+
+  @Test
+  public void deadline() {
+    MultiQuery q = Db.multiQuery("multi_query").deadline(500, TimeUnit.MILLISECONDS);
+    q.queryLong("select count(*) from item");
+    q.queryLong(H2TestKit.LONG_QUERY);
+
+    long start = System.currentTimeMillis();
+    try {
+      q.execute();
+      fail("ActiveRecordException expected");
+    } catch (ActiveRecordException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("query 1 of 2 is still running"));
+    }
+    assertTrue(System.currentTimeMillis() - start < 10_000);
+  }
+}
@@ -0,0 +1,166 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.Row;
+import nexus.io.db.activerecord.dialect.H2Dialect;
+import nexus.io.db.activerecord.stat.ISqlStatementStat;
+
+public class MultiRowBatchTest {
+
+  private ActiveRecordPlugin arp;
+  private H2Dialect dialect;
+  private DbPro db;
+  private final List<String> sqls = Collections.synchronizedList(new ArrayList<>());
+  private final List<Integer> rowsPerStatement = Collections.synchronizedList(new ArrayList<>());
+
+  @Before
+  public void setUp() {
+    dialect = new H2Dialect();
+    dialect.setMultiRowBatchSave(true);
+    arp = H2TestKit.plugin("multi_row_batch", dialect);
+    arp.setSqlStatementStat(new BatchStat(), true);
+    db = H2TestKit.start(arp, "create table item(id int primary key, name varchar(32), age int)");
+    sqls.clear();
+    rowsPerStatement.clear();
+  }
+
+  @After
+  public void tearDown() {
+    arp.stop();
+  }
+
+  @Test
+  public void sql() {
+    String[] columns = { "id", "name" };
+    StringBuilder sql = new StringBuilder();
+    dialect.forDbMultiRowSave("item", columns, 2, sql);
+    assertEquals("insert into item(id, name) values(?, ?), (?, ?)", sql.toString());
+
+    sql.setLength(0);
+    dialect.forDbMultiRowSaveOrUpdate("item", new String[] { "id" }, columns, new String[] { "name" }, 3, sql);
+    assertEquals("merge into item(id, name) key(id) values(?, ?), (?, ?), (?, ?)", sql.toString());
+
+    // batchSaveIfAbset 的 updateColumns 为空，H2 仍然是 merge into
+    sql.setLength(0);
+    dialect.forDbMultiRowSaveOrUpdate("item", new String[] { "id" }, columns, new String[0], 1, sql);
+    assertEquals("merge into item(id, name) key(id) values(?, ?)", sql.toString());
+  }
+
+  @Test
+  public void chunkByBatchSize() {
+    int[] result = db.batchSave("item", rows(7), 3);
+    assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1, 1 }, result);
+    assertEquals(list(3, 3, 1), rowsPerStatement);
+    assertEquals(7L, count());
+  }
+
+  @Test
+  public void chunkByMaxParas() {
+    // 3 列，最多 7 个参数时每条语句 2 行
+    dialect.setMultiRowMaxParas(7);
+    db.batchSave("item", rows(5), 100);
+    assertEquals(list(2, 2, 1), rowsPerStatement);
+    assertEquals(5L, count());
+  }
+
+  @Test
+  public void chunkByMaxBytes() {
+    // 超过上限时每条语句至少一行
+    dialect.setMultiRowMaxBytes(1);
+    db.batchSave("item", rows(3), 100);
+    assertEquals(list(1, 1, 1), rowsPerStatement);
+    assertEquals(3L, count());
+  }
+
+  @Test
+  public void mixedColumns() {
+    // 使用第一行的列，后续行缺少的列写入 null，多出的列忽略
+    List<Row> list = new ArrayList<>();
+    list.add(new Row().set("id", 1).set("name", "a"));
+    list.add(new Row().set("id", 2));
+    list.add(new Row().set("id", 3).set("name", "c").set("age", 30));
+    db.batchSave("item", list, 10);
+
+    assertEquals(1, sqls.size());
+    assertEquals(2, columnCount(sqls.get(0)));
+    assertEquals("a", db.findById("item", 1).getStr("name"));
+    assertNull(db.findById("item", 2).getStr("name"));
+    Row third = db.findById("item", 3);
+    assertEquals("c", third.getStr("name"));
+    assertNull(third.getInt("age"));
+  }
+
+  @Test
+  public void saveOrUpdateExistingRows() {
+    db.update("insert into item(id, name, age) values(1, 'old', 1)");
+    List<Row> list = rows(3);
+    int[] result = db.batchSaveOrUpdate("item", "id", list, 2);
+    assertArrayEquals(new int[] { 1, 1, 1 }, result);
+    assertEquals(list(2, 1), rowsPerStatement);
+    assertEquals(3L, count());
+    assertEquals("name1", db.findById("item", 1).getStr("name"));
+    assertEquals(11, db.findById("item", 1).getInt("age").intValue());
+  }
+
+  @Test
+  public void saveIfAbsetOverwritesOnH2() {
+    db.update("insert into item(id, name, age) values(1, 'old', 1)");
+    db.batchSaveIfAbset("item", "id", rows(2), 10);
+    // H2 与 saveIfAbset 一样使用 merge into，已存在的行也被更新
+    assertTrue(sqls.get(0).startsWith("merge into item("));
+    assertEquals(2L, count());
+    assertEquals("name1", db.findById("item", 1).getStr("name"));
+  }
+
+  private long count() {
+    return db.queryLong("select count(*) from item");
+  }
+
+  private static int columnCount(String sql) {
+    return sql.substring(sql.indexOf('(') + 1, sql.indexOf(')')).split(",").length;
+  }
+
+  private static List<Row> rows(int size) {
+    List<Row> list = new ArrayList<>();
+    for (int i = 1; i <= size; i++) {
+      list.add(new Row().set("id", i).set("name", "name" + i).set("age", 10 + i));
+    }
+    return list;
+  }
+
+  private static List<Integer> list(Integer... values) {
+    List<Integer> list = new ArrayList<>();
+    Collections.addAll(list, values);
+    return list;
+  }
+
+  private class BatchStat implements ISqlStatementStat {
+
+    @Override
+    public void save(String name, String sqlType, String sql, Object[] paras, int size, long start, long elapsed, boolean writeSync) {
+    }
+
+    @Override
+    public void save(String name, String sqlType, String sql, @SuppressWarnings("rawtypes") List paras, int size, long start, long elapsed,
+        boolean writeSync) {
+      if ("batch".equals(sqlType)) {
+        sqls.add(sql);
+        rowsPerStatement.add(paras.size() / columnCount(sql));
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.ParallelBatchException;
+import nexus.io.db.activerecord.Row;
+
+public class ParallelBatchTest {
+
+  private ActiveRecordPlugin arp;
+  private DbPro db;
+
+  @Before
+  public void setUp() {
+    arp = H2TestKit.plugin("parallel_batch");
+    arp.setBatchParallelism(3);
+    db = H2TestKit.start(arp, "create table item(id int primary key, grp int, flag int)");
+  }
+
+  @After
+  public void tearDown() {
+    arp.stop();
+  }
+
+  @Test
+  public void resultInInputOrder() {
+    // grp 为 g 的行有 g 行，第 i 条 update 影响 i + 1 行
+    int id = 0;
+    for (int g = 1; g <= 10; g++) {
+      for (int i = 0; i < g; i++) {
+        db.update("insert into item(id, grp, flag) values(?, ?, 0)", id++, g);
+      }
+    }
+    List<Row> list = new ArrayList<>();
+    for (int g = 1; g <= 10; g++) {
+      list.add(new Row().set("flag", 1).set("grp", g));
+    }
+
+    int[] result = db.parallelBatch("update item set flag = ? where grp = ?", "flag, grp", list, 2);
+    assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 }, result);
+    assertEquals(55L, db.queryLong("select count(*) from item where flag = 1").longValue());
+  }
+
+  @Test
+  public void reportPartitionFailures() {
+    db.update("insert into item(id, grp, flag) values(8, 0, 0)");
+    List<Row> list = new ArrayList<>();
+    // [4, 6) 中主键重复，[8, 10) 中的 8 已经存在
+    for (int id : new int[] { 0, 1, 2, 3, 4, 4, 6, 7, 8, 9 }) {
+      list.add(new Row().set("id", id).set("grp", 1));
+    }
+
+    try {
+      db.parallelBatch("insert into item(id, grp) values(?, ?)", "id, grp", list, 2);
+      fail("ParallelBatchException expected");
+    } catch (ParallelBatchException e) {
+      List<ParallelBatchException.Failure> failures = e.getFailures();
+      assertEquals(2, failures.size());
+      assertEquals(4, failures.get(0).getFromIndex());
+      assertEquals(6, failures.get(0).getToIndex());
+      assertEquals(8, failures.get(1).getFromIndex());
+      assertEquals(10, failures.get(1).getToIndex());
+
+      int f = Statement.EXECUTE_FAILED;
+      assertArrayEquals(new int[] { 1, 1, 1, 1, f, f, 1, 1, f, f }, e.getResult());
+    }
+    // 失败的分段已回滚，其他分段已提交
+    assertEquals(7L, db.queryLong("select count(*) from item").longValue());
+  }
+}
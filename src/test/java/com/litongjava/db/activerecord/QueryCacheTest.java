@@ -0,0 +1,100 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.Db;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.QueryCache;
+
+public class QueryCacheTest {
+
+  @Test
+  public void parseTables() {
+    assertEquals(set("user"), QueryCache.parseTables("select * from user where id = ?"));
+    assertEquals(set("user", "dept"), QueryCache.parseTables("select u.* from `db`.`User` u left join dept d on u.dept_id = d.id"));
+    assertEquals(set("a", "b", "c"), QueryCache.parseTables("SELECT * FROM a x, b AS y, public.\"c\" WHERE x.id = y.id"));
+    assertEquals(set("orders", "item"),
+        QueryCache.parseTables("select * from orders where id in (select order_id from item where name = 'from x') -- join y"));
+  }
+
+  @Test
+  public void parseWriteTable() {
+    assertEquals("user", QueryCache.parseWriteTable("insert into `user`(id, name) values(?, ?)"));
+    assertEquals("user", QueryCache.parseWriteTable("UPDATE public.user SET name = ? WHERE id = ?"));
+    assertEquals("user", QueryCache.parseWriteTable("delete from user where id = ?"));
+    assertEquals("user", QueryCache.parseWriteTable("truncate table user"));
+    assertEquals("", QueryCache.parseWriteTable("select * from user for update"));
+    assertEquals("", QueryCache.parseWriteTable("with t as (select 1) select * from t"));
+    assertNull(QueryCache.parseWriteTable("alter table user add column age int"));
+    assertNull(QueryCache.parseWriteTable("{call refresh_user(?)}"));
+  }
+
+  @Test
+  public void invalidateOnAutoCommitWrite() {
+    ActiveRecordPlugin arp = start("query_cache_auto_commit");
+    try {
+      DbPro db = Db.use("query_cache_auto_commit");
+      assertEquals("a", db.findFirstByQueryCache("select name from item where id = ?", 1).getStr("name"));
+      db.update("update item set name = ? where id = ?", "b", 1);
+      assertEquals("b", db.findFirstByQueryCache("select name from item where id = ?", 1).getStr("name"));
+    } finally {
+      arp.stop();
+    }
+  }
+
+  @Test
+  public void invalidateAfterCommit() {
+    ActiveRecordPlugin arp = start("query_cache_commit");
+    try {
+      DbPro db = Db.use("query_cache_commit");
+      assertEquals("a", db.findFirstByQueryCache("select name from item where id = ?", 1).getStr("name"));
+      db.tx(() -> {
+        db.update("update item set name = ? where id = ?", "b", 1);
+        // 提交之前其他连接看到的仍然是旧值，缓存保留
+        assertEquals(1, arp.getConfig().getQueryCache().getTrackedCount());
+        return true;
+      });
+      assertEquals(0, arp.getConfig().getQueryCache().getTrackedCount());
+      assertEquals("b", db.findFirstByQueryCache("select name from item where id = ?", 1).getStr("name"));
+    } finally {
+      arp.stop();
+    }
+  }
+
+  @Test
+  public void invalidateAfterRollback() {
+    ActiveRecordPlugin arp = start("query_cache_rollback");
+    try {
+      DbPro db = Db.use("query_cache_rollback");
+      assertEquals("a", db.findFirstByQueryCache("select name from item where id = ?", 1).getStr("name"));
+      long invalidations = arp.getConfig().getQueryCache().getInvalidationCount();
+      db.tx(() -> {
+        db.update("update item set name = ? where id = ?", "b", 1);
+        return false;
+      });
+      assertEquals(invalidations + 1, arp.getConfig().getQueryCache().getInvalidationCount());
+      assertEquals(0, arp.getConfig().getQueryCache().getTrackedCount());
+      assertEquals("a", db.findFirstByQueryCache("select name from item where id = ?", 1).getStr("name"));
+    } finally {
+      arp.stop();
+    }
+  }
+
+  private static ActiveRecordPlugin start(String name) {
+    ActiveRecordPlugin arp = H2TestKit.plugin(name);
+    arp.setCache(new MapCache()).setQueryCache(true);
+    H2TestKit.start(arp, "create table item(id int primary key, name varchar(32))", "insert into item(id, name) values(1, 'a')");
+    return arp;
+  }
+
+  private static LinkedHashSet<String> set(String... tables) {
+    return new LinkedHashSet<>(Arrays.asList(tables));
+  }
+}
@@ -0,0 +1,140 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.Db;
+import nexus.io.db.activerecord.DbKit;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.IDbProFactory;
+import nexus.io.db.activerecord.ReadYourWrites;
+import nexus.io.db.activerecord.ReplicaActiveRecordPlugin;
+import nexus.io.db.activerecord.ReplicaStats;
+import nexus.io.db.activerecord.dialect.H2Dialect;
+
+/**
+ * 主库与从库是两个 H2 数据库，node 表中分别为 'main' 与 'replica'，通过查询 node 判断读操作使用的数据库，
+ * 复制位点为 node 的值，因此从库永远没有应用主库的写入
+ */
+public class ReadReplicaTest {
+
+  private static final String NODE = "select name from node";
+
+  private ActiveRecordPlugin arp;
+  private ReplicaActiveRecordPlugin replicaArp;
+  private final Map<String, DbPro> shared = new ConcurrentHashMap<>();
+
+  @Before
+  public void setUp() {
+    arp = H2TestKit.plugin("rw_main", new NodeDialect());
+    arp.setReadFromReplica(true);
+    arp.setReadYourWrites(true);
+    arp.setReadYourWritesMaxWait(50);
+    // 缓存 DbPro 的 IDbProFactory，所有调用方共享同一个对象
+    arp.setDbProFactory(new IDbProFactory() {
+      @Override
+      public DbPro getDbPro(String configName) {
+        return shared.computeIfAbsent(configName, DbPro::new);
+      }
+    });
+    H2TestKit.start(arp, "create table node(name varchar(32))", "insert into node(name) values('main')",
+        "create table item(id int primary key)");
+
+    replicaArp = new ReplicaActiveRecordPlugin("rw_replica", H2TestKit.dataSource("rw_replica"));
+    replicaArp.setDialect(new NodeDialect());
+    H2TestKit.execute(replicaArp.getConfig(0).getDataSource(), "create table node(name varchar(32))",
+        "insert into node(name) values('replica')");
+    replicaArp.start();
+  }
+
+  @After
+  public void tearDown() {
+    ReadYourWrites.clear();
+    replicaArp.stop();
+    arp.stop();
+  }
+
+  @Test
+  public void readFromReplica() {
+    assertEquals("replica", Db.use("rw_main").queryStr(NODE));
+  }
+
+  @Test
+  public void usePrimaryKeepsSharedInstance() {
+    DbPro db = Db.use("rw_main");
+    DbPro primary = db.usePrimary();
+    assertEquals("main", primary.queryStr(NODE));
+    assertSame(primary, db.usePrimary());
+    assertSame(primary, primary.usePrimary());
+    // usePrimary() 不修改共享的 DbPro，其他调用方仍然读从库
+    assertEquals("replica", db.queryStr(NODE));
+  }
+
+  @Test
+  public void readYourWrites() {
+    DbPro db = Db.use("rw_main");
+    assertNull(ReadYourWrites.getToken());
+    db.update("insert into item(id) values(1)");
+
+    // 复制位点在主库查询，从库没有应用到该位点，等待 readYourWritesMaxWait 之后读主库
+    assertEquals("main", db.queryStr(NODE));
+    assertEquals("main", ReadYourWrites.getToken());
+    assertEquals("main", Db.queryStr(NODE));
+  }
+
+  @Test
+  public void readAfterToken() {
+    ReadYourWrites.setToken("replica");
+    assertEquals("replica", Db.use("rw_main").queryStr(NODE));
+  }
+
+  @Test
+  public void latencyExcludesCallback() {
+    ReplicaStats stats = DbKit.getReplicaStats().get(0);
+    Db.use("rw_main").each(row -> {
+      try {
+        Thread.sleep(300);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      assertEquals("replica", row.getStr("name"));
+      return true;
+    }, NODE);
+
+    // 延迟只计入 executeQuery，不计入回调中的 sleep
+    assertEquals(0, stats.getOutstanding());
+    assertEquals(1, stats.getRequestCount());
+    assertTrue(stats.getEwmaLatencyNanos() > 0);
+    assertTrue(String.valueOf(stats.getEwmaLatencyMillis()), stats.getEwmaLatencyMillis() < 200);
+  }
+
+  /**
+   * node 的值作为复制位点
+   */
+  public static class NodeDialect extends H2Dialect {
+    @Override
+    public boolean isReplicationPositionSupported() {
+      return true;
+    }
+
+    @Override
+    public String forReplicationPosition() {
+      return NODE;
+    }
+
+    @Override
+    public String forReplicaCaughtUp() {
+      return "select cast(? as varchar) = (" + NODE + ")";
+    }
+  }
+}
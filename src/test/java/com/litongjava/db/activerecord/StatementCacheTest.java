@@ -0,0 +1,146 @@
+package com.litongjava.db.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import nexus.io.db.activerecord.ActiveRecordPlugin;
+import nexus.io.db.activerecord.Config;
+import nexus.io.db.activerecord.Db;
+import nexus.io.db.activerecord.DbPro;
+import nexus.io.db.activerecord.StatementCache;
+import nexus.io.db.activerecord.dialect.H2Dialect;
+
+public class StatementCacheTest {
+
+  private HikariDataSource dataSource;
+  private ActiveRecordPlugin arp;
+  private Config config;
+
+  @Before
+  public void setUp() throws SQLException {
+    HikariConfig hikari = new HikariConfig();
+    hikari.setJdbcUrl("jdbc:h2:mem:statement_cache");
+    hikari.setMaximumPoolSize(1);
+    dataSource = new HikariDataSource(hikari);
+    try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+      st.execute("create table item(id int primary key, name varchar(32))");
+    }
+
+    arp = new ActiveRecordPlugin("statement_cache", dataSource);
+    arp.setDialect(new H2Dialect());
+    arp.setStatementCacheSize(16);
+    arp.start();
+    config = arp.getConfig();
+  }
+
+  @After
+  public void tearDown() {
+    arp.stop();
+    dataSource.close();
+  }
+
+  @Test
+  public void reuseWithinConnection() throws SQLException {
+    StatementCache cache = config.getStatementCache();
+    Connection conn = config.getConnection();
+    try {
+      for (int i = 1; i <= 3; i++) {
+        PreparedStatement ps = conn.prepareStatement("insert into item(id, name) values(?, ?)");
+        ps.setInt(1, i);
+        ps.setString(2, "item" + i);
+        ps.executeUpdate();
+        ps.close();
+      }
+    } finally {
+      conn.close();
+    }
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getCachedCount());
+    assertEquals(3, count());
+  }
+
+  @Test
+  public void keptWhenReturnedToPool() throws SQLException {
+    Connection conn = config.getConnection();
+    PreparedStatement ps = conn.prepareStatement("select count(*) from item");
+    ps.executeQuery().close();
+    conn.close();
+    assertTrue(ps.isClosed());
+    assertEquals(1, config.getStatementCache().getCachedCount());
+
+    // 同一个物理连接再次借出时复用
+    conn = config.getConnection();
+    try {
+      ps = conn.prepareStatement("select count(*) from item");
+      ps.executeQuery().close();
+    } finally {
+      conn.close();
+    }
+    assertEquals(1, config.getStatementCache().getMissCount());
+    assertEquals(1, config.getStatementCache().getHitCount());
+  }
+
+  @Test
+  public void hitAcrossDbCalls() {
+    DbPro db = Db.use("statement_cache");
+    db.update("insert into item(id, name) values(?, ?)", 1, "item1");
+    db.update("insert into item(id, name) values(?, ?)", 2, "item2");
+    assertEquals(1, db.find("select * from item where id = ?", 1).size());
+    assertEquals("item2", db.find("select * from item where id = ?", 2).get(0).getStr("name"));
+
+    StatementCache cache = config.getStatementCache();
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.getHitCount());
+  }
+
+  @Test
+  public void poolRollsBackUncommittedWork() throws SQLException {
+    Connection conn = config.getConnection();
+    conn.setAutoCommit(false);
+    PreparedStatement ps = conn.prepareStatement("insert into item(id, name) values(?, ?)");
+    ps.setInt(1, 1);
+    ps.setString(2, "item1");
+    ps.executeUpdate();
+    ps.close();
+    // 不提交直接归还，statement 在物理连接上执行，由缓存回滚
+    conn.close();
+
+    assertEquals(0, count());
+
+    // 提交过的不回滚
+    conn = config.getConnection();
+    try {
+      conn.setAutoCommit(false);
+      ps = conn.prepareStatement("insert into item(id, name) values(?, ?)");
+      ps.setInt(1, 2);
+      ps.setString(2, "item2");
+      ps.executeUpdate();
+      ps.close();
+      conn.commit();
+    } finally {
+      conn.close();
+    }
+    assertEquals(1, count());
+  }
+
+  private int count() throws SQLException {
+    try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("select count(*) from item")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.litongjava.db.activerecord.bean;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.bean.BeanMapping;
+import nexus.io.db.activerecord.bean.BeanMapping.FieldMapping;
+
+public class BeanMappingTest {
+
+  public static class Item {
+    private long count;
+    private Long total;
+    private double price;
+    private Double rate;
+    private int qty;
+    private Short level;
+  }
+
+  private static void set(Object bean, String column, Object value) {
+    FieldMapping[] fields = BeanMapping.of(bean.getClass()).getReadFields(column);
+    fields[0].set(bean, value);
+  }
+
+  @Test
+  public void widening() {
+    Item item = new Item();
+    set(item, "count", Integer.valueOf(3));
+    set(item, "total", Short.valueOf((short) 4));
+    set(item, "price", Integer.valueOf(5));
+    set(item, "rate", Long.valueOf(6));
+    set(item, "qty", Short.valueOf((short) 7));
+    set(item, "level", Integer.valueOf(8));
+    assertEquals(3L, item.count);
+    assertEquals(Long.valueOf(4), item.total);
+    assertEquals(5D, item.price, 0D);
+    assertEquals(Double.valueOf(6), item.rate);
+    assertEquals(7, item.qty);
+    assertEquals(Short.valueOf((short) 8), item.level);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void noNarrowing() {
+    set(new Item(), "qty", Long.valueOf(1));
+  }
+}
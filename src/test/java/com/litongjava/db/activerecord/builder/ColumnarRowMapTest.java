@@ -0,0 +1,92 @@
+package com.litongjava.db.activerecord.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.CPI;
+import nexus.io.db.activerecord.IContainerFactory;
+import nexus.io.db.activerecord.Row;
+import nexus.io.db.activerecord.builder.ColumnarRowMap;
+
+public class ColumnarRowMapTest {
+
+  private static final ColumnarRowMap.Schema SCHEMA = new ColumnarRowMap.Schema(new String[] { "id", "name", "age", "email" },
+      IContainerFactory.defaultContainerFactory);
+
+  private static Row row(Object... values) {
+    Row row = new Row();
+    CPI.setColumnsMap(row, new ColumnarRowMap(SCHEMA, values));
+    return row;
+  }
+
+  @Test
+  public void removeNullValueColumns() throws Exception {
+    Row row = row(1, null, 18, null);
+    row.removeNullValueColumns();
+    assertEquals(2, row.getColumns().size());
+    assertEquals(new HashSet<>(Arrays.asList("id", "age")), new HashSet<>(Arrays.asList(row.getColumnNames())));
+    assertFalse(row.getColumns().containsKey("name"));
+    assertNull(row.get("email"));
+    assertEquals(map("id", 1, "age", 18), new HashMap<>(row.getColumns()));
+
+    // 删除的列可以重新设置
+    row.set("name", "tom");
+    assertEquals("tom", row.getStr("name"));
+    assertEquals(3, row.getColumns().size());
+
+    // 序列化后与普通 Map 一致
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(row.getColumns());
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      assertEquals(row.getColumns(), ois.readObject());
+    }
+  }
+
+  @Test
+  public void iteratorRemove() {
+    Map<String, Object> map = new ColumnarRowMap(SCHEMA, new Object[] { 1, "a", 2, "b" });
+    Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+    it.next();
+    it.remove();
+    try {
+      it.remove();
+      throw new AssertionError("remove twice");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertEquals("a", it.next().getValue());
+    assertEquals(3, map.size());
+    assertNull(map.remove("id"));
+    assertEquals("a", map.remove("name"));
+    assertTrue(map.containsKey("age"));
+    assertEquals(map("age", 2, "email", "b"), new HashMap<>(map));
+
+    // 新列转换为普通 Map 后不包含已删除的列
+    map.put("extra", 3);
+    assertEquals(map("age", 2, "email", "b", "extra", 3), new HashMap<>(map));
+  }
+
+  private static Map<String, Object> map(Object... kvs) {
+    Map<String, Object> map = new HashMap<>();
+    for (int i = 0; i < kvs.length; i += 2) {
+      map.put((String) kvs[i], kvs[i + 1]);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,125 @@
+package com.litongjava.db.activerecord.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.cache.LocalCache;
+
+public class LocalCacheTest {
+
+  @Test
+  public void rejectColdCandidate() {
+    // 容量小于 64 时只有一个分段，window 为 1 条
+    LocalCache cache = newCache(10);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, "v" + i, 0);
+    }
+    for (int n = 0; n < 5; n++) {
+      for (int i = 0; i < 9; i++) {
+        assertNotNull(cache.get(i));
+      }
+    }
+
+    // 9 被挤出 window，访问频率低于 main 中最久未访问的 0，不被接纳
+    cache.put(100, "v100", 0);
+    assertEquals(10, cache.size());
+    assertEquals(1, cache.evictionCount());
+    assertNull(cache.get(9));
+    assertNotNull(cache.get(0));
+    assertNotNull(cache.get(100));
+  }
+
+  @Test
+  public void admitHotCandidate() {
+    LocalCache cache = newCache(10);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, "v" + i, 0);
+    }
+    for (int n = 0; n < 5; n++) {
+      assertNotNull(cache.get(9));
+    }
+
+    // 9 的访问频率高于 main 中最久未访问的 0，0 被淘汰
+    cache.put(100, "v100", 0);
+    assertEquals(10, cache.size());
+    assertEquals(1, cache.evictionCount());
+    assertNull(cache.get(0));
+    assertNotNull(cache.get(9));
+    assertNotNull(cache.get(100));
+  }
+
+  @Test
+  public void evictByWeight() {
+    LocalCache cache = new LocalCache(50, 10, value -> (Integer) value);
+    cache.put("a", 6, 0);
+    cache.put("b", 6, 0);
+    assertNull(cache.get("a"));
+    assertEquals(6, cache.get("b"));
+    assertEquals(6, cache.weight());
+    assertEquals(1, cache.evictionCount());
+
+    // 超过最大权重的值不保存
+    cache.put("c", 11, 0);
+    assertNull(cache.get("c"));
+    assertEquals(6, cache.weight());
+  }
+
+  @Test
+  public void expire() throws InterruptedException {
+    LocalCache cache = newCache(10);
+    long now = System.currentTimeMillis();
+    cache.put("a", "a", 0);
+    cache.put("b", "b", now + 50);
+    cache.put("c", "c", now + 60_000);
+    cache.put("d", "d", now - 1);
+
+    assertNull(cache.get("d"));
+    assertEquals("b", cache.get("b"));
+    Thread.sleep(100);
+    assertNull(cache.get("b"));
+    assertEquals("a", cache.get("a"));
+    assertEquals("c", cache.get("c"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void resetSketch() {
+    LocalCache cache = newCache(16);
+    for (int i = 0; i < 20; i++) {
+      cache.get("hot");
+    }
+    assertEquals(15, cache.frequency("hot"));
+
+    // sketch 长度为 32，约 320 次计数后全部减半
+    int count = 0;
+    while (cache.frequency("hot") == 15 && count < 1000) {
+      cache.get(count++);
+    }
+    assertTrue(count > 200 && count < 320);
+    assertEquals(7, cache.frequency("hot"));
+  }
+
+  @Test
+  public void removeIf() {
+    LocalCache cache = newCache(100);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, i, 0);
+    }
+    cache.removeIf(key -> (Integer) key % 2 == 0);
+    assertEquals(5, cache.size());
+    assertEquals(5, cache.weight());
+    assertNull(cache.get(2));
+    assertEquals(3, cache.get(3));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  private static LocalCache newCache(long maximumSize) {
+    return new LocalCache(maximumSize, Long.MAX_VALUE, value -> 1);
+  }
+}
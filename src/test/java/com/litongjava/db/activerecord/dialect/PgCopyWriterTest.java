@@ -0,0 +1,111 @@
+package com.litongjava.db.activerecord.dialect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.dialect.CopyFormat;
+import nexus.io.db.activerecord.dialect.PgCopyWriter;
+
+public class PgCopyWriterTest {
+
+  @Test
+  public void csv() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    String[] columns = { "id", "name", "remark", "tags", "created" };
+    PgCopyWriter writer = new PgCopyWriter(out, CopyFormat.CSV, columns, null);
+    writer.begin();
+    writer.write(new Object[] { 1L, "a \"b\",c", "", new String[] { "x", "y\"z", null }, LocalDateTime.of(2024, 1, 2, 3, 4, 5) });
+    writer.write(new Object[] { 2L, null, "line\nbreak", new int[] { 1, 2 }, null });
+    writer.end();
+
+    String expected = "1,\"a \"\"b\"\",c\",\"\",\"{\"\"x\"\",\"\"y\\\"\"z\"\",NULL}\",\"2024-01-02T03:04:05\"\n"
+        + "2,,\"line\nbreak\",\"{\"\"1\"\",\"\"2\"\"}\",\n";
+    assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(2, writer.getRowCount());
+  }
+
+  @Test
+  public void binary() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    String[] columns = { "id", "price", "day", "uid", "nums" };
+    String[] types = { "int8", "numeric", "date", "uuid", "_int4" };
+    UUID uuid = UUID.randomUUID();
+    PgCopyWriter writer = new PgCopyWriter(out, CopyFormat.BINARY, columns, types);
+    writer.begin();
+    writer.write(new Object[] { 7, new BigDecimal("12345.678"), LocalDate.of(2000, 1, 2), uuid, new Integer[] { 3, null } });
+    writer.end();
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+    byte[] signature = new byte[11];
+    in.readFully(signature);
+    assertArrayEquals(new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 }, signature);
+    assertEquals(0, in.readInt());
+    assertEquals(0, in.readInt());
+
+    assertEquals(5, in.readShort());
+    assertEquals(8, in.readInt());
+    assertEquals(7L, in.readLong());
+
+    // ndigits, weight, sign, dscale, digits
+    assertEquals(14, in.readInt());
+    assertEquals(3, in.readShort());
+    assertEquals(1, in.readShort());
+    assertEquals(0, in.readShort());
+    assertEquals(3, in.readShort());
+    assertEquals(1, in.readShort());
+    assertEquals(2345, in.readShort());
+    assertEquals(6780, in.readShort());
+
+    assertEquals(4, in.readInt());
+    assertEquals(1, in.readInt());
+
+    assertEquals(16, in.readInt());
+    assertEquals(uuid.getMostSignificantBits(), in.readLong());
+    assertEquals(uuid.getLeastSignificantBits(), in.readLong());
+
+    // ndim, hasnull, oid, size, lbound, elements
+    assertEquals(32, in.readInt());
+    assertEquals(1, in.readInt());
+    assertEquals(1, in.readInt());
+    assertEquals(23, in.readInt());
+    assertEquals(2, in.readInt());
+    assertEquals(1, in.readInt());
+    assertEquals(4, in.readInt());
+    assertEquals(3, in.readInt());
+    assertEquals(-1, in.readInt());
+
+    assertEquals(-1, in.readShort());
+    assertEquals(0, in.available());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void binaryUnsupportedType() {
+    new PgCopyWriter(new ByteArrayOutputStream(), CopyFormat.BINARY, new String[] { "status" }, new String[] { "order_status" });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void binaryInt4OutOfRange() throws IOException {
+    PgCopyWriter writer = new PgCopyWriter(new ByteArrayOutputStream(), CopyFormat.BINARY, new String[] { "id" }, new String[] { "int4" });
+    writer.begin();
+    writer.write(new Object[] { Integer.MAX_VALUE + 1L });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void binaryInt2OutOfRange() throws IOException {
+    PgCopyWriter writer = new PgCopyWriter(new ByteArrayOutputStream(), CopyFormat.BINARY, new String[] { "flag" }, new String[] { "int2" });
+    writer.begin();
+    writer.write(new Object[] { 40000 });
+  }
+}
@@ -0,0 +1,40 @@
+package com.litongjava.db.activerecord.stat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.stat.HistogramSqlStatementStat;
+import nexus.io.db.activerecord.stat.SqlNormalizer;
+import nexus.io.db.activerecord.stat.SqlStatementSnapshot;
+
+public class HistogramSqlStatementStatTest {
+
+  @Test
+  public void normalize() {
+    assertEquals("select * from t1 where id = ? and name in (?)",
+        SqlNormalizer.normalize("SELECT *  FROM t1 WHERE id = 12 AND name IN ('a', 'it''s', ?)"));
+    assertEquals("insert into \"User\" (a, b) values (?)", SqlNormalizer.normalize("insert into \"User\" (a, b) values (?,?) -- comment"));
+  }
+
+  @Test
+  public void percentiles() {
+    HistogramSqlStatementStat stat = new HistogramSqlStatementStat();
+    for (int i = 1; i <= 1000; i++) {
+      stat.record("main", "select * from t where id = " + i, i * 1000L, 1);
+    }
+    stat.recordError("main", "select * from t where id = ?", 5000L);
+
+    SqlStatementSnapshot s = stat.getStatementSnapshot("select * from t where id = ?");
+    assertEquals(1, stat.getStatementCount());
+    assertEquals(1001, s.getCount());
+    assertEquals(1, s.getErrors());
+    assertEquals(1000, s.getRows());
+    assertEquals(1000_000L, s.getMaxNanos());
+    assertTrue(Math.abs(s.getP50Nanos() - 500_000L) < 500_000L * 0.04);
+    assertTrue(Math.abs(s.getP99Nanos() - 990_000L) < 990_000L * 0.04);
+
+    assertEquals(1001, stat.getConfigSnapshot("main").getCount());
+  }
+}
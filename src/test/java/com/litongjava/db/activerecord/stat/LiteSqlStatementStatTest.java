@@ -0,0 +1,28 @@
+package com.litongjava.db.activerecord.stat;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+import nexus.io.db.activerecord.stat.LiteSqlStatementStat;
+import nexus.io.db.activerecord.stat.SqlStatementEvent;
+
+public class LiteSqlStatementStatTest {
+
+  @Test
+  public void countFailed() {
+    LiteSqlStatementStat stat = new LiteSqlStatementStat();
+    SqlStatementEvent event = new SqlStatementEvent();
+    event.setName("main");
+    event.setSqlType("find");
+    event.setSql("select * from t where id = ?");
+    event.setParas(new Object[] { 1 });
+    event.setError(new SQLException("Table \"T\" not found"));
+
+    stat.record(event);
+    stat.record(event);
+    assertEquals(2, stat.getFailedCount());
+  }
+}
@@ -0,0 +1,60 @@
+package com.litongjava.kit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import nexus.io.kit.SingleFlight;
+
+public class SingleFlightTest {
+
+  @Test(timeout = 5000)
+  public void reentrant() {
+    SingleFlight<String> singleFlight = new SingleFlight<>();
+    String value = singleFlight.load("k", () -> "outer:" + singleFlight.load("k", () -> "inner"));
+    assertEquals("outer:inner", value);
+    assertEquals(0, singleFlight.getInFlightCount());
+  }
+
+  @Test(timeout = 5000)
+  public void coalesce() throws Exception {
+    SingleFlight<String> singleFlight = new SingleFlight<>();
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> leader = executor.submit(() -> singleFlight.load("k", () -> {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return "v";
+      }));
+      loading.await();
+      AtomicReference<String> waited = new AtomicReference<>();
+      Thread waiter = new Thread(() -> waited.set(singleFlight.load("k", () -> "other")));
+      waiter.start();
+      while (singleFlight.getCoalescedCount() == 0) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+      waiter.join();
+      assertEquals("v", leader.get());
+      assertEquals("v", waited.get());
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}